@@ -53,6 +53,7 @@ import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.MessageContentCache;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageStore;
@@ -109,6 +110,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private final Random _lockConflictRandom = new Random();
     private final AtomicLong _inMemorySize = new AtomicLong();
     private final AtomicLong _bytesEvacuatedFromMemory = new AtomicLong();
+    private volatile MessageContentCache _contentCache = new MessageContentCache(0L);
     private final Set<StoredBDBMessage<?>> _messages = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<MessageDeleteListener> _messageDeleteListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
@@ -118,6 +120,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         if (_messageStoreOpen.compareAndSet(false, true))
         {
             _parent = parent;
+            _contentCache = MessageContentCache.newInstance(parent);
 
             final SizeMonitoringSettings sizeMonitorSettings = (SizeMonitoringSettings) parent;
             _persistentSizeHighThreshold = sizeMonitorSettings.getStoreOverfullSize();
@@ -144,6 +147,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 message.clear();
             }
             _messages.clear();
+            _contentCache.clear();
             _inMemorySize.set(0);
             _bytesEvacuatedFromMemory.set(0);
             doClose();
@@ -250,6 +254,24 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         return _bytesEvacuatedFromMemory.get();
     }
 
+    @Override
+    public long getContentCacheHits()
+    {
+        return _contentCache.getHits();
+    }
+
+    @Override
+    public long getContentCacheMisses()
+    {
+        return _contentCache.getMisses();
+    }
+
+    @Override
+    public long getContentCacheSize()
+    {
+        return _contentCache.getSize();
+    }
+
     @Override
     public boolean isPersistent()
     {
@@ -1093,7 +1115,12 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractBDBMessageStore.this.getAllContent(_messageId);
+                    data = _contentCache.get(_messageId);
+                    if (data == null)
+                    {
+                        data = AbstractBDBMessageStore.this.getAllContent(_messageId);
+                        _contentCache.put(_messageId, data);
+                    }
                     _messageDataRef.setData(data);
                     _inMemorySize.addAndGet(getContentSize());
                 }
@@ -1173,6 +1200,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             _messages.remove(this);
             if(stored())
             {
+                _contentCache.remove(_messageId);
                 removeMessage(_messageId, false);
                 storedSizeChangeOccurred(-getContentSize());
             }
@@ -0,0 +1,142 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.SystemLauncherListener;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.SystemConfig;
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.server.security.auth.TaskPrincipal;
+import org.apache.qpid.server.store.MemorySystemConfigImpl;
+import org.apache.qpid.server.util.FileUtils;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Starts a broker in the benchmark JVM with a memory configuration store and a single
+ * memory virtual host (backed by a {@link org.apache.qpid.server.store.MemoryMessageStore}).
+ * No ports are configured, so benchmarks drive the virtual host directly.
+ */
+public class InProcessBroker
+{
+    private static final String INITIAL_CONFIGURATION_LOCATION = "classpath:benchmark-initial-config.json";
+    private static final String VIRTUAL_HOST_NODE_NAME = "benchmark";
+
+    private SystemLauncher _systemLauncher;
+    private Subject _systemSubject;
+    private volatile SystemConfig<?> _systemConfig;
+    private File _workDirectory;
+
+    public void start()
+    {
+        try
+        {
+            _workDirectory = Files.createTempDirectory("qpid-benchmark-work-").toFile();
+
+            Map<String, Object> context = new HashMap<>();
+            context.put(SystemConfig.QPID_WORK_DIR, _workDirectory.getAbsolutePath());
+
+            Map<String, Object> systemConfigAttributes = new HashMap<>();
+            systemConfigAttributes.put(ConfiguredObject.TYPE, MemorySystemConfigImpl.SYSTEM_CONFIG_TYPE);
+            systemConfigAttributes.put(ConfiguredObject.CONTEXT, context);
+            systemConfigAttributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION, INITIAL_CONFIGURATION_LOCATION);
+            systemConfigAttributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, Boolean.FALSE);
+
+            _systemLauncher = new SystemLauncher(new SystemLauncherListener.DefaultSystemLauncherListener()
+            {
+                @Override
+                public void onContainerResolve(final SystemConfig<?> systemConfig)
+                {
+                    _systemConfig = systemConfig;
+                }
+            });
+            _systemLauncher.startup(systemConfigAttributes);
+            _systemSubject = new Subject(true,
+                                         new HashSet<>(Arrays.asList(_systemLauncher.getSystemPrincipal(),
+                                                                     new TaskPrincipal("Benchmark"))),
+                                         Collections.emptySet(),
+                                         Collections.emptySet());
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Failed to start in-process broker", e);
+        }
+
+        if (_systemConfig == null)
+        {
+            throw new IllegalStateException("In-process broker failed to start");
+        }
+    }
+
+    public void stop()
+    {
+        try
+        {
+            if (_systemLauncher != null)
+            {
+                _systemLauncher.shutdown();
+            }
+        }
+        finally
+        {
+            if (_workDirectory != null)
+            {
+                FileUtils.delete(_workDirectory, true);
+            }
+        }
+    }
+
+    public QueueManagingVirtualHost<?> getVirtualHost()
+    {
+        Broker<?> broker = (Broker<?>) _systemConfig.getContainer();
+        VirtualHostNode<?> node = broker.getChildByName(VirtualHostNode.class, VIRTUAL_HOST_NODE_NAME);
+        return (QueueManagingVirtualHost<?>) node.getVirtualHost();
+    }
+
+    public Queue<?> createQueue(final Map<String, Object> attributes)
+    {
+        return doAsSystem(() -> getVirtualHost().createChild(Queue.class, attributes));
+    }
+
+    public Exchange<?> createExchange(final Map<String, Object> attributes)
+    {
+        return doAsSystem(() -> getVirtualHost().createChild(Exchange.class, attributes));
+    }
+
+    public <T> T doAsSystem(final PrivilegedAction<T> action)
+    {
+        return Subject.doAs(_systemSubject, action);
+    }
+}
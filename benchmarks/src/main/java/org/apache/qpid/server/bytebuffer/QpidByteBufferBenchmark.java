@@ -0,0 +1,134 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.bytebuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QpidByteBufferBenchmark
+{
+    private static final int POOLED_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOL_SIZE = 1024;
+    private static final double SPARSITY_FRACTION = 0.5;
+
+    @Param({"64", "1024", "65536"})
+    private int _size;
+
+    private byte[] _payload;
+    private QpidByteBuffer _buffer;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        QpidByteBuffer.initialisePool(POOLED_BUFFER_SIZE, MAX_POOL_SIZE, SPARSITY_FRACTION);
+        _payload = new byte[_size];
+        for (int i = 0; i < _size; i++)
+        {
+            _payload[i] = (byte) i;
+        }
+        _buffer = QpidByteBuffer.allocateDirect(_size);
+        _buffer.put(_payload);
+        _buffer.flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        _buffer.dispose();
+        QpidByteBuffer.deinitialisePool();
+    }
+
+    @Benchmark
+    public int allocateDirectPutAndDispose()
+    {
+        try (QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(_size))
+        {
+            buffer.put(_payload);
+            return buffer.position();
+        }
+    }
+
+    @Benchmark
+    public int allocateHeapPutAndDispose()
+    {
+        try (QpidByteBuffer buffer = QpidByteBuffer.allocate(false, _size))
+        {
+            buffer.put(_payload);
+            return buffer.position();
+        }
+    }
+
+    @Benchmark
+    public int duplicateAndDispose()
+    {
+        try (QpidByteBuffer duplicate = _buffer.duplicate())
+        {
+            return duplicate.remaining();
+        }
+    }
+
+    @Benchmark
+    public int viewAndDispose()
+    {
+        try (QpidByteBuffer view = _buffer.view(0, _size / 2))
+        {
+            return view.remaining();
+        }
+    }
+
+    @Benchmark
+    public void readLongs(final Blackhole blackhole)
+    {
+        final int limit = _buffer.limit() - Long.BYTES;
+        for (int i = 0; i <= limit; i += Long.BYTES)
+        {
+            blackhole.consume(_buffer.getLong(i));
+        }
+    }
+
+    @Benchmark
+    public int copyTo()
+    {
+        byte[] destination = new byte[_size];
+        _buffer.copyTo(destination);
+        return destination.length;
+    }
+}
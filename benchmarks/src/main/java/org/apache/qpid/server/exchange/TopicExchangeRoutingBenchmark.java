@@ -0,0 +1,147 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.InProcessBroker;
+import org.apache.qpid.server.filter.AMQPFilterTypes;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.RoutingResult;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+
+/**
+ * Measures routing through a {@link TopicExchangeImpl} with a mixture of exact, '*' and '#' bindings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicExchangeRoutingBenchmark
+{
+    private static final int NUMBER_OF_VENUES = 8;
+    private static final int NUMBER_OF_ROUTING_KEYS = 4096;
+    private static final String[] FIELDS = {"bid", "ask", "trade", "status"};
+
+    @Param({"10", "100", "1000"})
+    private int _numberOfQueues;
+
+    @Param({"false", "true"})
+    private boolean _filtered;
+
+    private InProcessBroker _broker;
+    private Exchange<?> _exchange;
+    private ServerMessage<?> _message;
+    private String[] _routingKeys;
+    private int _next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        _broker = new InProcessBroker();
+        _broker.start();
+
+        Map<String, Object> exchangeAttributes = new HashMap<>();
+        exchangeAttributes.put(Exchange.NAME, "benchmark.topic");
+        exchangeAttributes.put(Exchange.TYPE, ExchangeDefaults.TOPIC_EXCHANGE_CLASS);
+        exchangeAttributes.put(Exchange.DURABLE, false);
+        _exchange = _broker.createExchange(exchangeAttributes);
+
+        for (int i = 0; i < _numberOfQueues; i++)
+        {
+            final String queueName = "queue-" + i;
+            final Queue<?> queue = _broker.createQueue(Collections.singletonMap(Queue.NAME, queueName));
+            final Map<String, Object> arguments = _filtered
+                    ? Collections.singletonMap(AMQPFilterTypes.JMS_SELECTOR.toString(), "region = 'EU' AND size > " + i)
+                    : Collections.emptyMap();
+            final String bindingKey;
+            switch (i % 3)
+            {
+                case 0:
+                    bindingKey = "md.venue" + (i % NUMBER_OF_VENUES) + ".#";
+                    break;
+                case 1:
+                    bindingKey = "md.*.inst" + i + ".*";
+                    break;
+                default:
+                    bindingKey = "md.venue" + (i % NUMBER_OF_VENUES) + ".inst" + i + "." + FIELDS[i % FIELDS.length];
+                    break;
+            }
+            _broker.doAsSystem(() -> _exchange.bind(queue.getName(), bindingKey, arguments, false));
+        }
+
+        _routingKeys = new String[NUMBER_OF_ROUTING_KEYS];
+        for (int i = 0; i < NUMBER_OF_ROUTING_KEYS; i++)
+        {
+            _routingKeys[i] = "md.venue" + (i % NUMBER_OF_VENUES)
+                              + ".inst" + (i % Math.max(1, _numberOfQueues))
+                              + "." + FIELDS[i % FIELDS.length];
+        }
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("region", "EU");
+        headers.put("size", _numberOfQueues / 2);
+        InternalMessageHeader header = new InternalMessageHeader(headers,
+                                                                 null, 0L, null, null, "benchmark",
+                                                                 null, null, (byte) 4,
+                                                                 0L, 0L, null, null,
+                                                                 System.currentTimeMillis());
+        _message = InternalMessage.createMessage(_broker.getVirtualHost().getMessageStore(),
+                                                 header, "payload", false, _exchange.getName());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        _broker.stop();
+    }
+
+    @Benchmark
+    public int route()
+    {
+        final String routingKey = _routingKeys[_next++ & (NUMBER_OF_ROUTING_KEYS - 1)];
+        final RoutingResult<?> result = _exchange.route(_message, routingKey, InstanceProperties.EMPTY);
+        return result.getNumberOfRoutes();
+    }
+}
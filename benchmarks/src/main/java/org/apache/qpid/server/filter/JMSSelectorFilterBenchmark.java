@@ -0,0 +1,203 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JMSSelectorFilterBenchmark
+{
+    @Param({"region = 'EU'",
+            "region = 'EU' AND price > 100.5",
+            "region IN ('US', 'APAC', 'EU') OR (quantity BETWEEN 10 AND 20 AND NOT urgent)",
+            "symbol LIKE 'VOD%' AND JMSPriority > 3",
+            "missing IS NULL AND (price * quantity) / 2 >= 1000"})
+    private String _selector;
+
+    private JMSSelectorFilter _filter;
+    private Filterable _matching;
+    private Filterable _notMatching;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        _filter = new JMSSelectorFilter(_selector);
+
+        Map<String, Object> matchingHeaders = new HashMap<>();
+        matchingHeaders.put("region", "EU");
+        matchingHeaders.put("price", 250.25d);
+        matchingHeaders.put("quantity", 15);
+        matchingHeaders.put("urgent", false);
+        matchingHeaders.put("symbol", "VOD.L");
+        _matching = new HeaderFilterable(createHeader(matchingHeaders, (byte) 7));
+
+        Map<String, Object> notMatchingHeaders = new HashMap<>();
+        notMatchingHeaders.put("region", "LATAM");
+        notMatchingHeaders.put("price", 1.5d);
+        notMatchingHeaders.put("quantity", 1);
+        notMatchingHeaders.put("urgent", true);
+        notMatchingHeaders.put("symbol", "BARC.L");
+        notMatchingHeaders.put("missing", "present");
+        _notMatching = new HeaderFilterable(createHeader(notMatchingHeaders, (byte) 1));
+    }
+
+    @Benchmark
+    public boolean matching()
+    {
+        return _filter.matches(_matching);
+    }
+
+    @Benchmark
+    public boolean notMatching()
+    {
+        return _filter.matches(_notMatching);
+    }
+
+    @Benchmark
+    public JMSSelectorFilter parse() throws Exception
+    {
+        return new JMSSelectorFilter(_selector);
+    }
+
+    private static AMQMessageHeader createHeader(final Map<String, Object> headers, final byte priority)
+    {
+        return new InternalMessageHeader(headers, "correlation", 0L, "user", "app", "message-id",
+                                         "text/plain", null, priority, 0L, 0L, "type", null,
+                                         System.currentTimeMillis());
+    }
+
+    private static final class HeaderFilterable implements Filterable
+    {
+        private final AMQMessageHeader _header;
+
+        private HeaderFilterable(final AMQMessageHeader header)
+        {
+            _header = header;
+        }
+
+        @Override
+        public AMQMessageHeader getMessageHeader()
+        {
+            return _header;
+        }
+
+        @Override
+        public boolean isPersistent()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isRedelivered()
+        {
+            return false;
+        }
+
+        @Override
+        public Object getConnectionReference()
+        {
+            return null;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return 1L;
+        }
+
+        @Override
+        public long getArrivalTime()
+        {
+            return _header.getTimestamp();
+        }
+
+        @Override
+        public Object getHeader(final String name)
+        {
+            return _header.getHeader(name);
+        }
+
+        @Override
+        public String getReplyTo()
+        {
+            return _header.getReplyTo();
+        }
+
+        @Override
+        public String getType()
+        {
+            return _header.getType();
+        }
+
+        @Override
+        public byte getPriority()
+        {
+            return _header.getPriority();
+        }
+
+        @Override
+        public String getMessageId()
+        {
+            return _header.getMessageId();
+        }
+
+        @Override
+        public long getTimestamp()
+        {
+            return _header.getTimestamp();
+        }
+
+        @Override
+        public String getCorrelationId()
+        {
+            return _header.getCorrelationId();
+        }
+
+        @Override
+        public long getExpiration()
+        {
+            return _header.getExpiration();
+        }
+    }
+}
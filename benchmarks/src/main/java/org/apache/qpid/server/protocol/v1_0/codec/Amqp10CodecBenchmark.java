@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v1_0.codec;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionDecoder;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionDecoderImpl;
+import org.apache.qpid.server.protocol.v1_0.type.AmqpErrorException;
+import org.apache.qpid.server.protocol.v1_0.type.Binary;
+import org.apache.qpid.server.protocol.v1_0.type.Symbol;
+import org.apache.qpid.server.protocol.v1_0.type.UnsignedByte;
+import org.apache.qpid.server.protocol.v1_0.type.UnsignedInteger;
+import org.apache.qpid.server.protocol.v1_0.type.codec.AMQPDescribedTypeRegistry;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.ApplicationProperties;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Data;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.EncodingRetainingSection;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Header;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.NonEncodingRetainingSection;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Properties;
+import org.apache.qpid.server.protocol.v1_0.type.transport.Transfer;
+
+/**
+ * Measures encoding and decoding of a transfer performative and of the message sections
+ * carried by a typical AMQP 1.0 message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Amqp10CodecBenchmark
+{
+    private static final int POOLED_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOL_SIZE = 1024;
+    private static final double SPARSITY_FRACTION = 0.5;
+
+    private static final AMQPDescribedTypeRegistry TYPE_REGISTRY = AMQPDescribedTypeRegistry.newInstance()
+                                                                                            .registerTransportLayer()
+                                                                                            .registerMessagingLayer()
+                                                                                            .registerTransactionLayer()
+                                                                                            .registerSecurityLayer();
+
+    @Param({"16", "1024"})
+    private int _payloadSize;
+
+    @Param({"0", "10"})
+    private int _numberOfApplicationProperties;
+
+    private ValueHandler _valueHandler;
+    private SectionDecoder _sectionDecoder;
+    private Transfer _transfer;
+    private List<NonEncodingRetainingSection<?>> _sections;
+    private QpidByteBuffer _encodedTransfer;
+    private QpidByteBuffer _encodedSections;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        QpidByteBuffer.initialisePool(POOLED_BUFFER_SIZE, MAX_POOL_SIZE, SPARSITY_FRACTION);
+
+        _valueHandler = new ValueHandler(TYPE_REGISTRY);
+        _sectionDecoder = new SectionDecoderImpl(TYPE_REGISTRY.getSectionDecoderRegistry());
+
+        _transfer = new Transfer();
+        _transfer.setHandle(UnsignedInteger.ONE);
+        _transfer.setDeliveryId(UnsignedInteger.valueOf(123456));
+        _transfer.setDeliveryTag(new Binary(new byte[]{0, 0, 0, 0, 0, 1, (byte) 0xe2, 0x40}));
+        _transfer.setMessageFormat(UnsignedInteger.ZERO);
+        _transfer.setSettled(Boolean.FALSE);
+        _transfer.setMore(Boolean.FALSE);
+
+        final Header header = new Header();
+        header.setDurable(Boolean.TRUE);
+        header.setPriority(UnsignedByte.valueOf((byte) 4));
+
+        final Properties properties = new Properties();
+        properties.setMessageId("ID:benchmark-message-1");
+        properties.setTo("benchmark.queue");
+        properties.setSubject("md.venue1.inst1.bid");
+        properties.setContentType(Symbol.valueOf("application/octet-stream"));
+        properties.setCreationTime(new Date());
+
+        final Map<String, Object> applicationProperties = new LinkedHashMap<>();
+        for (int i = 0; i < _numberOfApplicationProperties; i++)
+        {
+            applicationProperties.put("property" + i, i % 2 == 0 ? "value" + i : (Object) (long) i);
+        }
+
+        _sections = new ArrayList<>();
+        _sections.add(header);
+        _sections.add(properties);
+        if (!applicationProperties.isEmpty())
+        {
+            _sections.add(new ApplicationProperties(applicationProperties));
+        }
+        _sections.add(new Data(new Binary(new byte[_payloadSize])));
+
+        _encodedTransfer = encode(_transfer);
+        _encodedSections = encodeSections();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        _encodedTransfer.dispose();
+        _encodedSections.dispose();
+        QpidByteBuffer.deinitialisePool();
+    }
+
+    @Benchmark
+    public int encodeTransfer()
+    {
+        try (QpidByteBuffer buffer = encode(_transfer))
+        {
+            return buffer.remaining();
+        }
+    }
+
+    @Benchmark
+    public Object decodeTransfer() throws AmqpErrorException
+    {
+        try (QpidByteBuffer buffer = _encodedTransfer.duplicate())
+        {
+            return _valueHandler.parse(buffer);
+        }
+    }
+
+    @Benchmark
+    public int encodeMessageSections()
+    {
+        try (QpidByteBuffer buffer = encodeSections())
+        {
+            return buffer.remaining();
+        }
+    }
+
+    @Benchmark
+    public void decodeMessageSections(final Blackhole blackhole) throws AmqpErrorException
+    {
+        try (QpidByteBuffer buffer = _encodedSections.duplicate())
+        {
+            for (EncodingRetainingSection<?> section : _sectionDecoder.parseAll(buffer))
+            {
+                blackhole.consume(section.getValue());
+                section.dispose();
+            }
+        }
+    }
+
+    private QpidByteBuffer encode(final Object value)
+    {
+        final ValueWriter<Object> writer = TYPE_REGISTRY.getValueWriter(value);
+        final QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(writer.getEncodedSize());
+        writer.writeToBuffer(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private QpidByteBuffer encodeSections()
+    {
+        final List<EncodingRetainingSection<?>> encodedSections = new ArrayList<>(_sections.size());
+        long size = 0;
+        for (NonEncodingRetainingSection<?> section : _sections)
+        {
+            final EncodingRetainingSection<?> encoded = section.createEncodingRetainingSection();
+            encodedSections.add(encoded);
+            size += encoded.getEncodedSize();
+        }
+        final QpidByteBuffer buffer = QpidByteBuffer.allocateDirect((int) size);
+        for (EncodingRetainingSection<?> section : encodedSections)
+        {
+            section.writeTo(buffer);
+            section.dispose();
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.InProcessBroker;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.Queue;
+
+/**
+ * Measures the lock-free enqueue and iteration paths of {@link OrderedQueueEntryList}
+ * using {@link StandardQueueEntryList} as the concrete list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderedQueueEntryListBenchmark
+{
+    @Param({"1000", "100000"})
+    private int _depth;
+
+    private InProcessBroker _broker;
+    private final List<MessageReference<?>> _messageReferences = new ArrayList<>();
+    private StandardQueueEntryList _iterationList;
+    private StandardQueueEntryList _churnList;
+    private ServerMessage<?>[] _churnMessages;
+    private int _nextChurnMessage;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        _broker = new InProcessBroker();
+        _broker.start();
+
+        // a message may be referenced only once by a given queue, so each list has its own queue and messages
+        _iterationList = new StandardQueueEntryList(createQueue("benchmark.iterate"), new QueueStatistics());
+        for (int i = 0; i < _depth; i++)
+        {
+            _iterationList.add(createMessage(), null);
+        }
+
+        _churnList = new StandardQueueEntryList(createQueue("benchmark.churn"), new QueueStatistics());
+        _churnMessages = new ServerMessage<?>[_depth + 1];
+        for (int i = 0; i < _churnMessages.length; i++)
+        {
+            _churnMessages[i] = createMessage();
+        }
+        for (int i = 0; i < _depth; i++)
+        {
+            _churnList.add(_churnMessages[i], null);
+        }
+        _nextChurnMessage = _depth;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        _messageReferences.forEach(MessageReference::release);
+        _messageReferences.clear();
+        _broker.stop();
+    }
+
+    /**
+     * Enqueues at the tail and consumes from the head, keeping the list at a steady depth.
+     * The message being enqueued is always the one whose entry was deleted by the previous invocation.
+     */
+    @Benchmark
+    public QueueEntry enqueueAndConsume()
+    {
+        final QueueEntry entry = _churnList.add(_churnMessages[_nextChurnMessage], null);
+        _nextChurnMessage = (_nextChurnMessage + 1) % _churnMessages.length;
+
+        final QueueEntry oldest = _churnList.getOldestEntry();
+        if (oldest != null && oldest.acquire())
+        {
+            oldest.delete();
+        }
+        return entry;
+    }
+
+    @Benchmark
+    public int iterate()
+    {
+        int count = 0;
+        final QueueEntryIterator iterator = _iterationList.iterator();
+        while (iterator.advance())
+        {
+            if (iterator.getNode().isAvailable())
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private StandardQueue<?> createQueue(final String name)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, name);
+        attributes.put(Queue.TYPE, "standard");
+        return (StandardQueue<?>) _broker.createQueue(attributes);
+    }
+
+    private ServerMessage<?> createMessage()
+    {
+        InternalMessageHeader header = new InternalMessageHeader(Collections.emptyMap(),
+                                                                 null, 0L, null, null, null,
+                                                                 null, null, (byte) 4,
+                                                                 0L, 0L, null, null,
+                                                                 System.currentTimeMillis());
+        final InternalMessage message = InternalMessage.createMessage(_broker.getVirtualHost().getMessageStore(),
+                                                                      header, "payload", false, null);
+        // hold a reference so the message outlives the deletion of the queue entries referring to it
+        _messageReferences.add(message.newReference());
+        return message;
+    }
+}
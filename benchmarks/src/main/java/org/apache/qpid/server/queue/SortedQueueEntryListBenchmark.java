@@ -0,0 +1,183 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.InProcessBroker;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.Queue;
+
+/**
+ * Measures {@link SortedQueueEntryList} with entries inserted at random positions while other threads
+ * iterate the list, as consumers of a sorted queue do. Running the benchmark against successive revisions
+ * of the list compares their enqueue and iteration throughput under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedQueueEntryListBenchmark
+{
+    private static final String SORT_KEY = "sortKey";
+
+    @Param({"1000", "100000"})
+    private int _depth;
+
+    private InProcessBroker _broker;
+    private final List<MessageReference<?>> _messageReferences = new ArrayList<>();
+    private SortedQueueEntryList _list;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        _broker = new InProcessBroker();
+        _broker.start();
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, "benchmark.sorted");
+        attributes.put(Queue.TYPE, "sorted");
+        attributes.put(SortedQueue.SORT_KEY, SORT_KEY);
+        final SortedQueueImpl queue = (SortedQueueImpl) _broker.createQueue(attributes);
+
+        _list = new SortedQueueEntryList(queue, new QueueStatistics());
+        final Random random = new Random(0L);
+        for (int i = 0; i < _depth; i++)
+        {
+            _list.add(createMessage(random), null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        synchronized (_messageReferences)
+        {
+            _messageReferences.forEach(MessageReference::release);
+            _messageReferences.clear();
+        }
+        _broker.stop();
+    }
+
+    /**
+     * Per thread pool of messages. Each invocation enqueues a message and deletes the entry enqueued
+     * for it, keeping the list at a steady depth so that a message is never referenced twice.
+     */
+    @State(Scope.Thread)
+    public static class Producer
+    {
+        private static final int POOL_SIZE = 1024;
+
+        private final QueueEntry[] _entries = new QueueEntry[POOL_SIZE];
+        private ServerMessage<?>[] _messages;
+        private int _next;
+
+        @Setup(Level.Trial)
+        public void setUp(final SortedQueueEntryListBenchmark benchmark)
+        {
+            final Random random = new Random(Thread.currentThread().getId());
+            _messages = new ServerMessage<?>[POOL_SIZE];
+            for (int i = 0; i < POOL_SIZE; i++)
+            {
+                _messages[i] = benchmark.createMessage(random);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("enqueueWhileIterating")
+    @GroupThreads(3)
+    public QueueEntry enqueue(final Producer producer)
+    {
+        final int index = producer._next;
+        final QueueEntry previous = producer._entries[index];
+        if (previous != null && previous.acquire())
+        {
+            previous.delete();
+        }
+        final QueueEntry entry = _list.add(producer._messages[index], null);
+        producer._entries[index] = entry;
+        producer._next = (index + 1) % Producer.POOL_SIZE;
+        return entry;
+    }
+
+    @Benchmark
+    @Group("enqueueWhileIterating")
+    @GroupThreads(1)
+    public int iterate()
+    {
+        int count = 0;
+        final QueueEntryIterator iterator = _list.iterator();
+        while (iterator.advance())
+        {
+            if (iterator.getNode().isAvailable())
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ServerMessage<?> createMessage(final Random random)
+    {
+        InternalMessageHeader header = new InternalMessageHeader(Collections.singletonMap(SORT_KEY,
+                                                                                          String.format("%08d", random.nextInt(100000000))),
+                                                                 null, 0L, null, null, null,
+                                                                 null, null, (byte) 4,
+                                                                 0L, 0L, null, null,
+                                                                 System.currentTimeMillis());
+        final InternalMessage message = InternalMessage.createMessage(_broker.getVirtualHost().getMessageStore(),
+                                                                      header, "payload", false, null);
+        // hold a reference so the message outlives the deletion of the queue entries referring to it
+        synchronized (_messageReferences)
+        {
+            _messageReferences.add(message.newReference());
+        }
+        return message;
+    }
+}
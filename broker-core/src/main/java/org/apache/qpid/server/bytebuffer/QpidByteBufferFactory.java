@@ -29,7 +29,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadFactory;
 import java.util.zip.GZIPInputStream;
@@ -171,12 +170,22 @@ final class QpidByteBufferFactory
             }
             else
             {
-                List<ByteBuffer> buffers_ = new LinkedList<>();
+                // buffers consumed by the records already wrapped from the same collection are skipped
+                final List<ByteBuffer> buffers_ = new ArrayList<>(buffers.size());
                 for (QpidByteBuffer buffer : buffers)
                 {
-                    Collections.addAll(buffers_, getUnderlyingBuffers(buffer));
+                    if (buffer.hasRemaining())
+                    {
+                        for (ByteBuffer byteBuffer : getUnderlyingBuffers(buffer))
+                        {
+                            if (byteBuffer.hasRemaining())
+                            {
+                                buffers_.add(byteBuffer);
+                            }
+                        }
+                    }
                 }
-                src = buffers_.toArray(new ByteBuffer[buffers_.size()]);
+                src = buffers_.isEmpty() ? EMPTY_BYTE_BUFFER_ARRAY : buffers_.toArray(new ByteBuffer[buffers_.size()]);
             }
             return engine.wrap(src, dst.getUnderlyingBuffer());
         }
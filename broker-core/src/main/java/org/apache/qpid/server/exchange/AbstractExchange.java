@@ -54,6 +54,7 @@ import org.apache.qpid.server.logging.subjects.ExchangeLogSubject;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSender;
+import org.apache.qpid.server.message.RoutingBatch;
 import org.apache.qpid.server.message.RoutingResult;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.AbstractConfiguredObject;
@@ -654,6 +655,83 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
     }
 
 
+    /**
+     * Routes a batch of messages, checking the state of the virtual host, resolving the alternate binding and
+     * updating the statistics of the exchange once for the whole batch rather than for every message.
+     */
+    @Override
+    public <M extends ServerMessage<? extends StorableMessageMetaData>> void route(final RoutingBatch<M> batch)
+    {
+        if (_virtualHost.getState() != State.ACTIVE)
+        {
+            throw new VirtualHostUnavailableException(this._virtualHost);
+        }
+
+        if (CURRENT_ROUTING.get() != null)
+        {
+            // routed to by another exchange, so routing loops must be detected for each message individually
+            for (int i = 0; i < batch.size(); i++)
+            {
+                batch.setResult(i, route(batch.getMessage(i), batch.getRoutingAddress(i), batch.getInstanceProperties(i)));
+            }
+            return;
+        }
+
+        final Map<AbstractExchange<?>, Set<String>> currentThreadMap = new HashMap<>();
+        CURRENT_ROUTING.set(currentThreadMap);
+        final MessageDestination alternateBindingDestination = getAlternateBindingDestination();
+        long receivedCount = 0L;
+        long receivedSize = 0L;
+        long completedCount = 0L;
+        long completedSize = 0L;
+        long routedCount = 0L;
+        long routedSize = 0L;
+        try
+        {
+            for (int i = 0; i < batch.size(); i++)
+            {
+                final M message = batch.getMessage(i);
+                final String routingAddress = batch.getRoutingAddress(i);
+                final InstanceProperties instanceProperties = batch.getInstanceProperties(i);
+                final long messageSize = message.getSizeIncludingHeader();
+                final RoutingResult<M> routingResult = new RoutingResult<>(message);
+
+                currentThreadMap.clear();
+                currentThreadMap.put(this, Collections.singleton(routingAddress));
+
+                receivedCount++;
+                receivedSize += messageSize;
+
+                doRoute(message, routingAddress, instanceProperties, routingResult);
+
+                if (!routingResult.hasRoutes() && alternateBindingDestination != null)
+                {
+                    routingResult.add(alternateBindingDestination.route(message, routingAddress, instanceProperties));
+                }
+
+                completedCount++;
+                completedSize += messageSize;
+                if (routingResult.hasRoutes())
+                {
+                    routedCount++;
+                    routedSize += messageSize;
+                }
+                batch.setResult(i, routingResult);
+            }
+        }
+        finally
+        {
+            CURRENT_ROUTING.set(null);
+
+            _receivedMessageCount.addAndGet(receivedCount);
+            _receivedMessageSize.addAndGet(receivedSize);
+            _routedMessageCount.addAndGet(routedCount);
+            _routedMessageSize.addAndGet(routedSize);
+            _droppedMessageCount.addAndGet(completedCount - routedCount);
+            _droppedMessageSize.addAndGet(completedSize - routedSize);
+        }
+    }
+
     protected abstract <M extends ServerMessage<? extends StorableMessageMetaData>> void doRoute(final M message,
                                     final String routingAddress,
                                     final InstanceProperties instanceProperties,
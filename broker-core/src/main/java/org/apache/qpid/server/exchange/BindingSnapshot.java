@@ -0,0 +1,145 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageDestination;
+import org.apache.qpid.server.message.RoutingResult;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+
+/**
+ * An immutable, array based view of the destinations bound to an exchange, built whenever the bindings change so
+ * that routing a message neither iterates maps nor allocates, other than a single {@link Filterable} when the
+ * bindings have filters.
+ * <p>
+ * A destination bound more than once without a filter is routed to once for each distinct replacement routing key
+ * (the routing address of the message where there is none). A destination bound with a filter is routed to once
+ * for each of its filtered bindings which accepts the message.
+ */
+final class BindingSnapshot
+{
+    private static final MessageDestination[] NO_DESTINATIONS = new MessageDestination[0];
+    private static final String[] NO_ROUTING_KEYS = new String[0];
+    private static final FilterManagerReplacementRoutingKeyTuple[] NO_FILTERS =
+            new FilterManagerReplacementRoutingKeyTuple[0];
+
+    static final BindingSnapshot EMPTY = new BindingSnapshot();
+
+    private final MessageDestination[] _unfilteredDestinations;
+    private final String[] _unfilteredReplacementRoutingKeys;
+    private final MessageDestination[] _filteredDestinations;
+    private final FilterManagerReplacementRoutingKeyTuple[] _filters;
+
+    private BindingSnapshot()
+    {
+        _unfilteredDestinations = NO_DESTINATIONS;
+        _unfilteredReplacementRoutingKeys = NO_ROUTING_KEYS;
+        _filteredDestinations = NO_DESTINATIONS;
+        _filters = NO_FILTERS;
+    }
+
+    /**
+     * @param unfilteredDestinations the replacement routing keys (null where there is none) of the unfiltered
+     * bindings of each destination
+     * @param filteredDestinations the filters of the filtered bindings of each destination
+     */
+    BindingSnapshot(final Map<MessageDestination, ? extends Collection<String>> unfilteredDestinations,
+                    final Map<MessageDestination, ? extends Collection<FilterManagerReplacementRoutingKeyTuple>> filteredDestinations)
+    {
+        final List<MessageDestination> destinations = new ArrayList<>();
+        final List<String> replacementRoutingKeys = new ArrayList<>();
+        for (Map.Entry<MessageDestination, ? extends Collection<String>> entry : unfilteredDestinations.entrySet())
+        {
+            for (String replacementRoutingKey : new LinkedHashSet<>(entry.getValue()))
+            {
+                destinations.add(entry.getKey());
+                replacementRoutingKeys.add(replacementRoutingKey);
+            }
+        }
+        _unfilteredDestinations = destinations.toArray(NO_DESTINATIONS);
+        _unfilteredReplacementRoutingKeys = replacementRoutingKeys.toArray(NO_ROUTING_KEYS);
+
+        destinations.clear();
+        final List<FilterManagerReplacementRoutingKeyTuple> filters = new ArrayList<>();
+        for (Map.Entry<MessageDestination, ? extends Collection<FilterManagerReplacementRoutingKeyTuple>> entry
+                : filteredDestinations.entrySet())
+        {
+            for (FilterManagerReplacementRoutingKeyTuple filter : entry.getValue())
+            {
+                destinations.add(entry.getKey());
+                filters.add(filter);
+            }
+        }
+        _filteredDestinations = destinations.toArray(NO_DESTINATIONS);
+        _filters = filters.toArray(NO_FILTERS);
+    }
+
+    boolean isEmpty()
+    {
+        return _unfilteredDestinations.length == 0 && _filteredDestinations.length == 0;
+    }
+
+    <M extends ServerMessage<? extends StorableMessageMetaData>> void route(final M message,
+                                                                            final String routingAddress,
+                                                                            final InstanceProperties instanceProperties,
+                                                                            final RoutingResult<M> result)
+    {
+        final MessageDestination[] unfilteredDestinations = _unfilteredDestinations;
+        final String[] unfilteredReplacementRoutingKeys = _unfilteredReplacementRoutingKeys;
+        for (int i = 0; i < unfilteredDestinations.length; i++)
+        {
+            final String replacementRoutingKey = unfilteredReplacementRoutingKeys[i];
+            result.add(unfilteredDestinations[i].route(message,
+                                                       replacementRoutingKey == null
+                                                               ? routingAddress
+                                                               : replacementRoutingKey,
+                                                       instanceProperties));
+        }
+
+        final MessageDestination[] filteredDestinations = _filteredDestinations;
+        if (filteredDestinations.length != 0)
+        {
+            final FilterManagerReplacementRoutingKeyTuple[] filters = _filters;
+            final Filterable filterable = Filterable.Factory.newInstance(message, instanceProperties);
+            for (int i = 0; i < filteredDestinations.length; i++)
+            {
+                final FilterManagerReplacementRoutingKeyTuple filter = filters[i];
+                if (filter.getFilterManager().allAllow(filterable))
+                {
+                    final String replacementRoutingKey = filter.getReplacementRoutingKey();
+                    result.add(filteredDestinations[i].route(message,
+                                                             replacementRoutingKey == null
+                                                                     ? routingAddress
+                                                                     : replacementRoutingKey,
+                                                             instanceProperties));
+                }
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.qpid.server.exchange;
 
 import static org.apache.qpid.server.model.Binding.BINDING_ARGUMENT_REPLACEMENT_ROUTING_KEY;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,7 +35,6 @@ import org.slf4j.LoggerFactory;
 import org.apache.qpid.server.filter.AMQInvalidArgumentException;
 import org.apache.qpid.server.filter.FilterManager;
 import org.apache.qpid.server.filter.FilterSupport;
-import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.RoutingResult;
@@ -52,11 +52,13 @@ public class DirectExchangeImpl extends AbstractExchange<DirectExchangeImpl> imp
     {
         private final Map<MessageDestination, String> _unfilteredDestinations;
         private final Map<MessageDestination, FilterManagerReplacementRoutingKeyTuple> _filteredDestinations;
+        private final BindingSnapshot _snapshot;
 
         BindingSet()
         {
             _unfilteredDestinations = Collections.emptyMap();
             _filteredDestinations = Collections.emptyMap();
+            _snapshot = BindingSnapshot.EMPTY;
         }
 
         private BindingSet(final Map<MessageDestination, String> unfilteredDestinations,
@@ -64,16 +66,13 @@ public class DirectExchangeImpl extends AbstractExchange<DirectExchangeImpl> imp
         {
             _unfilteredDestinations = unfilteredDestinations;
             _filteredDestinations = filteredDestinations;
+            _snapshot = new BindingSnapshot(singletonValues(unfilteredDestinations),
+                                            singletonValues(filteredDestinations));
         }
 
-        Map<MessageDestination, String> getUnfilteredDestinations()
+        BindingSnapshot getSnapshot()
         {
-            return _unfilteredDestinations;
-        }
-
-        boolean hasFilteredQueues()
-        {
-            return !_filteredDestinations.isEmpty();
+            return _snapshot;
         }
 
         boolean isEmpty()
@@ -81,11 +80,6 @@ public class DirectExchangeImpl extends AbstractExchange<DirectExchangeImpl> imp
             return _unfilteredDestinations.isEmpty() && _filteredDestinations.isEmpty();
         }
 
-        Map<MessageDestination, FilterManagerReplacementRoutingKeyTuple> getFilteredDestinations()
-        {
-            return _filteredDestinations;
-        }
-
         BindingSet putBinding(MessageDestination destination, Map<String, Object> arguments, boolean force)
         {
             if (!force && (_unfilteredDestinations.containsKey(destination) || _filteredDestinations.containsKey(
@@ -198,38 +192,17 @@ public class DirectExchangeImpl extends AbstractExchange<DirectExchangeImpl> imp
         BindingSet bindings = _bindingsByKey.get(routingKey == null ? "" : routingKey);
         if (bindings != null)
         {
-            final Map<MessageDestination, String> unfilteredDestinations = bindings.getUnfilteredDestinations();
-            for (MessageDestination destination : unfilteredDestinations.keySet())
-            {
-                String actualRoutingKey = unfilteredDestinations.get(destination) == null
-                        ? routingKey
-                        : unfilteredDestinations.get(destination);
-                result.add(destination.route(payload, actualRoutingKey, instanceProperties));
-            }
-
-            if (bindings.hasFilteredQueues())
-            {
-                Filterable filterable = Filterable.Factory.newInstance(payload, instanceProperties);
-
-                Map<MessageDestination, FilterManagerReplacementRoutingKeyTuple> filteredDestinations =
-                        bindings.getFilteredDestinations();
-                for (Map.Entry<MessageDestination, FilterManagerReplacementRoutingKeyTuple> entry : filteredDestinations
-                        .entrySet())
-                {
-                    FilterManagerReplacementRoutingKeyTuple tuple = entry.getValue();
-                    String actualRoutingKey = tuple.getReplacementRoutingKey() == null
-                            ? routingKey
-                            : tuple.getReplacementRoutingKey();
-
-                    if (tuple.getFilterManager().allAllow(filterable))
-                    {
-                        result.add(entry.getKey().route(payload, actualRoutingKey, instanceProperties));
-                    }
-                }
-            }
+            bindings.getSnapshot().route(payload, routingKey, instanceProperties, result);
         }
     }
 
+    private static <V> Map<MessageDestination, Collection<V>> singletonValues(final Map<MessageDestination, V> map)
+    {
+        final Map<MessageDestination, Collection<V>> result = new HashMap<>();
+        map.forEach((destination, value) -> result.put(destination, Collections.singletonList(value)));
+        return result;
+    }
+
     @Override
     protected void onBindingUpdated(final BindingIdentifier binding, final Map<String, Object> newArguments)
     {
@@ -22,11 +22,10 @@ package org.apache.qpid.server.exchange;
 
 import static org.apache.qpid.server.model.Binding.BINDING_ARGUMENT_REPLACEMENT_ROUTING_KEY;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +33,6 @@ import org.slf4j.LoggerFactory;
 import org.apache.qpid.server.filter.AMQInvalidArgumentException;
 import org.apache.qpid.server.filter.FilterManager;
 import org.apache.qpid.server.filter.FilterSupport;
-import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.RoutingResult;
@@ -53,17 +51,21 @@ class FanoutExchangeImpl extends AbstractExchange<FanoutExchangeImpl> implements
         private final Map<MessageDestination, Map<BindingIdentifier, FilterManagerReplacementRoutingKeyTuple>>
                 _filteredDestinations;
 
+        private final BindingSnapshot _snapshot;
+
         BindingSet(final Map<MessageDestination, Map<BindingIdentifier, String>> unfilteredDestinations,
                    final Map<MessageDestination, Map<BindingIdentifier, FilterManagerReplacementRoutingKeyTuple>> filteredDestinations)
         {
             _unfilteredDestinations = unfilteredDestinations;
             _filteredDestinations = filteredDestinations;
+            _snapshot = new BindingSnapshot(bindingValues(unfilteredDestinations), bindingValues(filteredDestinations));
         }
 
         BindingSet()
         {
             _unfilteredDestinations = Collections.emptyMap();
             _filteredDestinations = Collections.emptyMap();
+            _snapshot = BindingSnapshot.EMPTY;
         }
 
         BindingSet addBinding(final BindingIdentifier binding, final Map<String, Object> arguments)
@@ -186,48 +188,16 @@ class FanoutExchangeImpl extends AbstractExchange<FanoutExchangeImpl> implements
                                                                                         final InstanceProperties instanceProperties,
                                                                                         final RoutingResult<M> result)
     {
-        BindingSet bindingSet = _bindingSet;
-
-        if (!bindingSet._unfilteredDestinations.isEmpty())
-        {
-            for (MessageDestination destination : bindingSet._unfilteredDestinations.keySet())
-            {
-                Set<String> replacementRoutingKeys =
-                        new HashSet<>(bindingSet._unfilteredDestinations.get(destination).values());
-
-                replacementRoutingKeys.forEach(
-                        replacementRoutingKey -> result.add(destination.route(message,
-                                                                              replacementRoutingKey == null
-                                                                                      ? routingAddress
-                                                                                      : replacementRoutingKey,
-                                                                              instanceProperties)));
-            }
-        }
-
-        final Map<MessageDestination, Map<BindingIdentifier, FilterManagerReplacementRoutingKeyTuple>>
-                filteredDestinations = bindingSet._filteredDestinations;
-        if (!filteredDestinations.isEmpty())
-        {
-            for (Map.Entry<MessageDestination, Map<BindingIdentifier, FilterManagerReplacementRoutingKeyTuple>> entry :
-                    filteredDestinations.entrySet())
-            {
-                MessageDestination destination = entry.getKey();
-                final Map<BindingIdentifier, FilterManagerReplacementRoutingKeyTuple> bindingMessageFilterMap =
-                        entry.getValue();
-                for (FilterManagerReplacementRoutingKeyTuple tuple : bindingMessageFilterMap.values())
-                {
+        _bindingSet._snapshot.route(message, routingAddress, instanceProperties, result);
+    }
 
-                    FilterManager filter = tuple.getFilterManager();
-                    if (filter.allAllow(Filterable.Factory.newInstance(message, instanceProperties)))
-                    {
-                        String routingKey = tuple.getReplacementRoutingKey() == null
-                                ? routingAddress
-                                : tuple.getReplacementRoutingKey();
-                        result.add(destination.route(message, routingKey, instanceProperties));
-                    }
-                }
-            }
-        }
+    private static <V> Map<MessageDestination, Collection<V>> bindingValues(
+            final Map<MessageDestination, Map<BindingIdentifier, V>> bindings)
+    {
+        final Map<MessageDestination, Collection<V>> result = new HashMap<>();
+        bindings.forEach((destination, bindingsForDestination) -> result.put(destination,
+                                                                             bindingsForDestination.values()));
+        return result;
     }
 
     @Override
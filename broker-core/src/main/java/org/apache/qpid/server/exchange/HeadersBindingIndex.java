@@ -0,0 +1,184 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * Inverted index of headers bindings by the header names and values they match on, used to find the bindings
+ * which may match a message without evaluating every binding of the exchange.
+ * <p>
+ * A binding matching any of its headers ({@code x-match=any}) is indexed under each of its headers, as any one of
+ * them may produce a match. A binding matching all of its headers is indexed under a single one of them, as all of
+ * them must be satisfied; a header with a value is preferred as it is more selective than a header which need only
+ * be present. Bindings without any headers to match are candidates for every message.
+ * <p>
+ * The candidates returned are a superset of the matching bindings, so each must still be evaluated in full.
+ * Changes to the index are expected to be made by one thread at a time, concurrently with lookups.
+ */
+class HeadersBindingIndex
+{
+    private final Set<HeadersBinding> _unconditionalBindings = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Set<HeadersBinding>> _bindingsByPresence = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Object, Set<HeadersBinding>>> _bindingsByValue =
+            new ConcurrentHashMap<>();
+
+    void add(final HeadersBinding binding)
+    {
+        final Set<String> requiredHeaders = binding.getRequiredHeaders();
+        final Map<String, Object> matchedHeaderValues = binding.getMatchedHeaderValues();
+        if (requiredHeaders.isEmpty() && matchedHeaderValues.isEmpty())
+        {
+            _unconditionalBindings.add(binding);
+        }
+        else if (binding.isMatchAny())
+        {
+            requiredHeaders.forEach(name -> presenceBucket(name).add(binding));
+            matchedHeaderValues.forEach((name, value) -> valueBucket(name, value).add(binding));
+        }
+        else if (matchedHeaderValues.isEmpty())
+        {
+            presenceBucket(firstName(requiredHeaders)).add(binding);
+        }
+        else
+        {
+            final String name = firstName(matchedHeaderValues.keySet());
+            valueBucket(name, matchedHeaderValues.get(name)).add(binding);
+        }
+    }
+
+    void remove(final HeadersBinding binding)
+    {
+        final Set<String> requiredHeaders = binding.getRequiredHeaders();
+        final Map<String, Object> matchedHeaderValues = binding.getMatchedHeaderValues();
+        if (requiredHeaders.isEmpty() && matchedHeaderValues.isEmpty())
+        {
+            _unconditionalBindings.remove(binding);
+        }
+        else if (binding.isMatchAny())
+        {
+            requiredHeaders.forEach(name -> removeFromPresenceBucket(name, binding));
+            matchedHeaderValues.forEach((name, value) -> removeFromValueBucket(name, value, binding));
+        }
+        else if (matchedHeaderValues.isEmpty())
+        {
+            removeFromPresenceBucket(firstName(requiredHeaders), binding);
+        }
+        else
+        {
+            final String name = firstName(matchedHeaderValues.keySet());
+            removeFromValueBucket(name, matchedHeaderValues.get(name), binding);
+        }
+    }
+
+    /**
+     * Returns the bindings which may match a message with the given headers.
+     */
+    Collection<HeadersBinding> getCandidates(final AMQMessageHeader headers)
+    {
+        final Collection<String> headerNames = headers == null ? null : headers.getHeaderNames();
+        if (headerNames == null || headerNames.isEmpty()
+            || (_bindingsByPresence.isEmpty() && _bindingsByValue.isEmpty()))
+        {
+            return _unconditionalBindings.isEmpty() ? Collections.emptySet() : _unconditionalBindings;
+        }
+
+        final Set<HeadersBinding> candidates = new LinkedHashSet<>(_unconditionalBindings);
+        for (String name : headerNames)
+        {
+            final Set<HeadersBinding> presenceBucket = _bindingsByPresence.get(name);
+            if (presenceBucket != null)
+            {
+                candidates.addAll(presenceBucket);
+            }
+
+            final Map<Object, Set<HeadersBinding>> valueBuckets = _bindingsByValue.get(name);
+            if (valueBuckets != null)
+            {
+                final Object value = headers.getHeader(name);
+                final Set<HeadersBinding> valueBucket = value == null ? null : valueBuckets.get(value);
+                if (valueBucket != null)
+                {
+                    candidates.addAll(valueBucket);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private Set<HeadersBinding> presenceBucket(final String name)
+    {
+        return _bindingsByPresence.computeIfAbsent(name, n -> ConcurrentHashMap.newKeySet());
+    }
+
+    private Set<HeadersBinding> valueBucket(final String name, final Object value)
+    {
+        return _bindingsByValue.computeIfAbsent(name, n -> new ConcurrentHashMap<>())
+                               .computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet());
+    }
+
+    private void removeFromPresenceBucket(final String name, final HeadersBinding binding)
+    {
+        _bindingsByPresence.computeIfPresent(name, (n, bucket) ->
+        {
+            bucket.remove(binding);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    private void removeFromValueBucket(final String name, final Object value, final HeadersBinding binding)
+    {
+        _bindingsByValue.computeIfPresent(name, (n, valueBuckets) ->
+        {
+            valueBuckets.computeIfPresent(value, (v, bucket) ->
+            {
+                bucket.remove(binding);
+                return bucket.isEmpty() ? null : bucket;
+            });
+            return valueBuckets.isEmpty() ? null : valueBuckets;
+        });
+    }
+
+    /**
+     * Picks the header a binding matching all of its headers is indexed under. The choice only depends on the
+     * binding, so that the binding is removed from where it was added.
+     */
+    private static String firstName(final Collection<String> names)
+    {
+        String first = null;
+        for (String name : names)
+        {
+            if (first == null || name.compareTo(first) < 0)
+            {
+                first = name;
+            }
+        }
+        return first;
+    }
+}
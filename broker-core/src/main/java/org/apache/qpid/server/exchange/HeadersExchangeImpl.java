@@ -20,9 +20,8 @@
  */
 package org.apache.qpid.server.exchange;
 
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -69,7 +68,9 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HeadersExchangeImpl.class);
 
-    private final Set<HeadersBinding> _bindingHeaderMatchers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<BindingIdentifier, HeadersBinding> _bindingHeaderMatchers = new ConcurrentHashMap<>();
+
+    private final HeadersBindingIndex _bindingIndex = new HeadersBindingIndex();
 
     @ManagedObjectFactoryConstructor
     public HeadersExchangeImpl(final Map<String, Object> attributes, final QueueManagingVirtualHost<?> vhost)
@@ -85,9 +86,16 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
     {
         LOGGER.debug("Exchange {}: routing message with headers {}", getName(), payload.getMessageHeader());
 
-        for (HeadersBinding hb : _bindingHeaderMatchers)
+        final Collection<HeadersBinding> candidates = _bindingIndex.getCandidates(payload.getMessageHeader());
+        if (candidates.isEmpty())
+        {
+            return;
+        }
+
+        final Filterable filterable = Filterable.Factory.newInstance(payload, instanceProperties);
+        for (HeadersBinding hb : candidates)
         {
-            if (hb.matches(Filterable.Factory.newInstance(payload,instanceProperties)))
+            if (hb.matches(filterable))
             {
                 MessageDestination destination = hb.getBinding().getDestination();
 
@@ -106,21 +114,35 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
 
 
     @Override
-    protected void onBind(final BindingIdentifier binding, Map<String,Object> arguments)
+    protected synchronized void onBind(final BindingIdentifier binding, Map<String,Object> arguments)
     {
-        _bindingHeaderMatchers.add(new HeadersBinding(binding, arguments));
+        addOrReplaceBinding(new HeadersBinding(binding, arguments));
     }
 
     @Override
-    protected void onBindingUpdated(final BindingIdentifier binding, final Map<String, Object> arguments)
+    protected synchronized void onBindingUpdated(final BindingIdentifier binding, final Map<String, Object> arguments)
     {
-        _bindingHeaderMatchers.add(new HeadersBinding(binding, arguments));
+        addOrReplaceBinding(new HeadersBinding(binding, arguments));
     }
 
     @Override
-    protected void onUnbind(final BindingIdentifier binding)
+    protected synchronized void onUnbind(final BindingIdentifier binding)
     {
-        _bindingHeaderMatchers.remove(new HeadersBinding(binding, Collections.emptyMap()));
+        final HeadersBinding headersBinding = _bindingHeaderMatchers.remove(binding);
+        if (headersBinding != null)
+        {
+            _bindingIndex.remove(headersBinding);
+        }
+    }
+
+    private void addOrReplaceBinding(final HeadersBinding headersBinding)
+    {
+        final HeadersBinding existing = _bindingHeaderMatchers.put(headersBinding.getBinding(), headersBinding);
+        if (existing != null)
+        {
+            _bindingIndex.remove(existing);
+        }
+        _bindingIndex.add(headersBinding);
     }
 
 }
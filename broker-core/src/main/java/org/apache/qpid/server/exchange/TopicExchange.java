@@ -22,10 +22,33 @@ package org.apache.qpid.server.exchange;
 
 import org.apache.qpid.server.exchange.ExchangeDefaults;
 import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.ManagedStatistic;
+import org.apache.qpid.server.model.StatisticType;
+import org.apache.qpid.server.model.StatisticUnit;
 
 @ManagedObject( category = false, type = ExchangeDefaults.TOPIC_EXCHANGE_CLASS,
         amqpName = "org.apache.qpid.TopicExchange" )
 public interface TopicExchange<X extends TopicExchange<X>> extends Exchange<X>
 {
+    String ROUTING_KEY_CACHE_SIZE = "exchange.topic.routingKeyCacheSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = ROUTING_KEY_CACHE_SIZE,
+            description = "Maximum number of routing keys for which a topic exchange caches the matching bindings."
+                          + " A value of zero disables the cache.")
+    int DEFAULT_ROUTING_KEY_CACHE_SIZE = 4096;
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+                      label = "Routing Key Cache Hits",
+                      description = "Number of messages routed using the cached bindings matching their routing key.")
+    long getRoutingKeyCacheHits();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+                      label = "Routing Key Cache Misses",
+                      description = "Number of messages for which the bindings matching their routing key were not"
+                                    + " cached.")
+    long getRoutingKeyCacheMisses();
 }
@@ -21,20 +21,20 @@
 package org.apache.qpid.server.exchange;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.exchange.topic.TopicExchangeResult;
+import org.apache.qpid.server.exchange.topic.TopicMatchCollector;
 import org.apache.qpid.server.exchange.topic.TopicMatcherResult;
+import org.apache.qpid.server.exchange.topic.TopicMatches;
 import org.apache.qpid.server.exchange.topic.TopicNormalizer;
 import org.apache.qpid.server.exchange.topic.TopicParser;
+import org.apache.qpid.server.exchange.topic.TopicRoutingKeyCache;
 import org.apache.qpid.server.filter.AMQInvalidArgumentException;
 import org.apache.qpid.server.filter.FilterSupport;
 import org.apache.qpid.server.filter.Filterable;
@@ -57,12 +57,21 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
 
     private final Map<BindingIdentifier, Map<String,Object>> _bindings = new HashMap<>();
 
+    private volatile TopicRoutingKeyCache _routingKeyCache = new TopicRoutingKeyCache(0);
+
     @ManagedObjectFactoryConstructor
     public TopicExchangeImpl(final Map<String,Object> attributes, final QueueManagingVirtualHost<?> vhost)
     {
         super(attributes, vhost);
     }
 
+    @Override
+    protected void onOpen()
+    {
+        _routingKeyCache = new TopicRoutingKeyCache(getContextValue(Integer.class, ROUTING_KEY_CACHE_SIZE));
+        super.onOpen();
+    }
+
     @Override
     protected synchronized void onBindingUpdated(final BindingIdentifier binding, final Map<String, Object> newArguments)
     {
@@ -85,6 +94,10 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         {
             throw new ConnectionScopedRuntimeException(e);
         }
+        finally
+        {
+            _routingKeyCache.invalidate();
+        }
     }
 
     private synchronized void bind(final BindingIdentifier binding, Map<String,Object> arguments) throws AMQInvalidArgumentException
@@ -97,6 +110,22 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         String routingKey = TopicNormalizer.normalize(bindingKey);
         TopicExchangeResult result = _topicExchangeResults.get(routingKey);
 
+        try
+        {
+            addOrUpdateBinding(binding, arguments, routingKey, result);
+        }
+        finally
+        {
+            _routingKeyCache.invalidate();
+        }
+    }
+
+    private void addOrUpdateBinding(final BindingIdentifier binding,
+                                    final Map<String, Object> arguments,
+                                    final String routingKey,
+                                    TopicExchangeResult result) throws AMQInvalidArgumentException
+    {
+        final MessageDestination messageDestination = binding.getDestination();
         if(_bindings.containsKey(binding))
         {
             updateTopicExchangeResult(result, binding, arguments);
@@ -142,21 +171,81 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
     {
         final String routingKey = routingAddress == null ? "" : routingAddress;
 
-        final Map<MessageDestination, Set<String>> matchedDestinations =
-                getMatchedDestinations(Filterable.Factory.newInstance(payload, instanceProperties), routingKey);
-
-        if (!matchedDestinations.isEmpty())
+        final TopicMatchCollector collector = TopicMatchCollector.acquire();
+        try
         {
-            for (Map.Entry<MessageDestination, Set<String>> entry : matchedDestinations.entrySet())
+            final TopicMatches matches = getMatches(payload, routingKey, instanceProperties, collector);
+            for (int i = 0; i < matches.size(); i++)
             {
-                MessageDestination destination = entry.getKey();
-                entry.getValue().forEach(key -> result.add(destination.route(payload, key, instanceProperties)));
+                result.add(matches.getDestination(i).route(payload, matches.getRoutingKey(i), instanceProperties));
             }
         }
+        finally
+        {
+            collector.release();
+        }
     }
 
+    TopicMatches getMatches(final ServerMessage<?> payload,
+                            final String routingKey,
+                            final InstanceProperties instanceProperties,
+                            final TopicMatchCollector collector)
+    {
+        final TopicRoutingKeyCache cache = _routingKeyCache;
+        if (cache.isEnabled())
+        {
+            // the generation is read before the bindings so that a route computed concurrently with a change to the
+            // bindings is stored against the superseded generation and discarded
+            final TopicRoutingKeyCache.Generation generation = cache.getGeneration();
+            TopicRoutingKeyCache.Route route = generation.get(routingKey);
+            if (route == null)
+            {
+                route = TopicRoutingKeyCache.createRoute(_parser.parse(routingKey), routingKey);
+                generation.put(routingKey, route);
+            }
+            return route.hasFilteredResults()
+                    ? route.collect(Filterable.Factory.newInstance(payload, instanceProperties), routingKey, collector)
+                    : route;
+        }
+
+        final Collection<TopicMatcherResult> results = _parser.parse(routingKey);
+        boolean hasFilteredResults = false;
+        for (TopicMatcherResult matcherResult : results)
+        {
+            if (matcherResult instanceof TopicExchangeResult)
+            {
+                final TopicExchangeResult topicExchangeResult = (TopicExchangeResult) matcherResult;
+                topicExchangeResult.collectUnfilteredDestinations(collector, routingKey);
+                hasFilteredResults |= topicExchangeResult.hasFilteredDestinations();
+            }
+        }
+        if (hasFilteredResults)
+        {
+            final Filterable filterable = Filterable.Factory.newInstance(payload, instanceProperties);
+            for (TopicMatcherResult matcherResult : results)
+            {
+                if (matcherResult instanceof TopicExchangeResult)
+                {
+                    ((TopicExchangeResult) matcherResult).collectFilteredDestinations(filterable, collector, routingKey);
+                }
+            }
+        }
+        return collector;
+    }
 
     private synchronized boolean unbind(final BindingIdentifier binding)
+    {
+        try
+        {
+            return removeBinding(binding);
+        }
+        finally
+        {
+            _routingKeyCache.invalidate();
+        }
+    }
+
+    private boolean removeBinding(final BindingIdentifier binding)
     {
         if(_bindings.containsKey(binding))
         {
@@ -196,23 +285,16 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         }
     }
 
-    private Map<MessageDestination, Set<String>> getMatchedDestinations(final Filterable message,
-                                                                        final String routingKey)
+    @Override
+    public long getRoutingKeyCacheHits()
     {
-        final Collection<TopicMatcherResult> results = _parser.parse(routingKey);
-        if (!results.isEmpty())
-        {
-            final Map<MessageDestination, Set<String>> matchedDestinations = new HashMap<>();
-            for (TopicMatcherResult result : results)
-            {
-                if (result instanceof TopicExchangeResult)
-                {
-                    ((TopicExchangeResult) result).processMessage(message, matchedDestinations, routingKey);
-                }
-            }
-            return matchedDestinations;
-        }
-        return Collections.emptyMap();
+        return _routingKeyCache.getHits();
+    }
+
+    @Override
+    public long getRoutingKeyCacheMisses()
+    {
+        return _routingKeyCache.getMisses();
     }
 
     @Override
@@ -197,6 +197,46 @@ public final class TopicExchangeResult implements TopicMatcherResult
         }
     }
 
+    public boolean hasFilteredDestinations()
+    {
+        return !_filteredDestinations.isEmpty();
+    }
+
+    public void collectUnfilteredDestinations(final TopicMatchCollector collector, final String routingKey)
+    {
+        if (!_unfilteredDestinations.isEmpty())
+        {
+            for (MessageDestination unfilteredDestination : _unfilteredDestinations.keySet())
+            {
+                collector.add(unfilteredDestination, _replacementKeys.getOrDefault(unfilteredDestination, routingKey));
+            }
+        }
+    }
+
+    public void collectFilteredDestinations(final Filterable msg,
+                                            final TopicMatchCollector collector,
+                                            final String routingKey)
+    {
+        if (!_filteredDestinations.isEmpty())
+        {
+            for (Map.Entry<MessageDestination, Map<FilterManager, Integer>> entry : _filteredDestinations.entrySet())
+            {
+                MessageDestination destination = entry.getKey();
+                if (!_unfilteredDestinations.containsKey(destination))
+                {
+                    for (FilterManager filter : entry.getValue().keySet())
+                    {
+                        if (filter.allAllow(msg))
+                        {
+                            collector.add(destination, _replacementKeys.getOrDefault(destination, routingKey));
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void addMatch(MessageDestination destination,
                           Map<MessageDestination, Set<String>> result,
                           String routingKey)
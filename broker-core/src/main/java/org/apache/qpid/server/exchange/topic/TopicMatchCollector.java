@@ -0,0 +1,131 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.qpid.server.message.MessageDestination;
+
+/**
+ * Reusable accumulator of the destinations matched by a routing key.
+ * <p>
+ * Each thread has a collector which is reused from message to message, so that once it has grown to the number of
+ * matches of the routing keys in use, collecting matches does not allocate. As routing a message to a destination
+ * may route it through another topic exchange on the same thread, a collector is acquired for the duration of
+ * routing, and a nested acquisition is given a new collector.
+ */
+public final class TopicMatchCollector implements TopicMatches
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ThreadLocal<TopicMatchCollector> THREAD_COLLECTOR =
+            ThreadLocal.withInitial(TopicMatchCollector::new);
+
+    private final Map<MessageDestination, Boolean> _collectedDestinations = new IdentityHashMap<>();
+    private MessageDestination[] _destinations = new MessageDestination[INITIAL_CAPACITY];
+    private String[] _routingKeys = new String[INITIAL_CAPACITY];
+    private int _size;
+    private boolean _acquired;
+
+    public static TopicMatchCollector acquire()
+    {
+        TopicMatchCollector collector = THREAD_COLLECTOR.get();
+        if (collector._acquired)
+        {
+            collector = new TopicMatchCollector();
+        }
+        collector._acquired = true;
+        return collector;
+    }
+
+    public void release()
+    {
+        clear();
+        _acquired = false;
+    }
+
+    public void clear()
+    {
+        if (_size != 0)
+        {
+            _collectedDestinations.clear();
+            Arrays.fill(_destinations, 0, _size, null);
+            Arrays.fill(_routingKeys, 0, _size, null);
+            _size = 0;
+        }
+    }
+
+    /**
+     * Adds the destination with the given routing key, unless the destination has already been collected with the
+     * same routing key.
+     */
+    public void add(final MessageDestination destination, final String routingKey)
+    {
+        if (_collectedDestinations.put(destination, Boolean.TRUE) != null)
+        {
+            for (int i = 0; i < _size; i++)
+            {
+                if (_destinations[i] == destination && _routingKeys[i].equals(routingKey))
+                {
+                    return;
+                }
+            }
+        }
+
+        if (_size == _destinations.length)
+        {
+            _destinations = Arrays.copyOf(_destinations, _size * 2);
+            _routingKeys = Arrays.copyOf(_routingKeys, _size * 2);
+        }
+        _destinations[_size] = destination;
+        _routingKeys[_size] = routingKey;
+        _size++;
+    }
+
+    @Override
+    public int size()
+    {
+        return _size;
+    }
+
+    @Override
+    public MessageDestination getDestination(final int index)
+    {
+        return _destinations[index];
+    }
+
+    @Override
+    public String getRoutingKey(final int index)
+    {
+        return _routingKeys[index];
+    }
+
+    MessageDestination[] copyDestinations()
+    {
+        return Arrays.copyOf(_destinations, _size);
+    }
+
+    String[] copyRoutingKeys()
+    {
+        return Arrays.copyOf(_routingKeys, _size);
+    }
+}
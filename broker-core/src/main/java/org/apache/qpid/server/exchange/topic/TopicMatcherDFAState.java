@@ -20,9 +20,6 @@
  */
 package org.apache.qpid.server.exchange.topic;
 
-import java.util.Arrays;
-import java.util.Iterator;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -44,7 +41,7 @@ public class TopicMatcherDFAState
 
     private final Collection<TopicMatcherResult> _results;
     private final Map<TopicWord, TopicMatcherDFAState> _nextStateMap;
-    private static final String TOPIC_DELIMITER = "\\.";
+    private static final char TOPIC_DELIMITER = '.';
 
 
     public TopicMatcherDFAState(Map<TopicWord, TopicMatcherDFAState> nextStateMap,
@@ -67,36 +64,60 @@ public class TopicMatcherDFAState
     }
 
 
+    /**
+     * Runs the state machine over the words of the routing key. The key is tokenised in place, splitting on the
+     * topic delimiter as {@link String#split(String)} would, so that trailing empty words are ignored.
+     */
     public Collection<TopicMatcherResult> parse(TopicWordDictionary dictionary, String routingKey)
     {
-        return parse(dictionary, Arrays.asList(routingKey.split(TOPIC_DELIMITER)).iterator());
-    }
-
-    private Collection<TopicMatcherResult> parse(final TopicWordDictionary dictionary,
-                                                 final Iterator<String> tokens)
-    {
-        if(!tokens.hasNext())
+        int end = routingKey.length();
+        if (routingKey.indexOf(TOPIC_DELIMITER) >= 0)
         {
-            return _results;
-        }
-        TopicWord word = dictionary.getWord(tokens.next());
-        TopicMatcherDFAState nextState = _nextStateMap.get(word);
-        if(nextState == null && word != TopicWord.ANY_WORD)
-        {
-            nextState = _nextStateMap.get(TopicWord.ANY_WORD);
-        }
-        if(nextState == null)
-        {
-            return Collections.EMPTY_LIST;
+            while (end > 0 && routingKey.charAt(end - 1) == TOPIC_DELIMITER)
+            {
+                end--;
+            }
+            if (end == 0)
+            {
+                return _results;
+            }
         }
-        // Shortcut if we are at a looping terminal state
-        if((nextState == this) && (_nextStateMap.size() == 1) && _nextStateMap.containsKey(TopicWord.ANY_WORD))
+
+        TopicMatcherDFAState state = this;
+        int start = 0;
+        while (true)
         {
-            return _results;
-        }
+            int delimiter = routingKey.indexOf(TOPIC_DELIMITER, start);
+            if (delimiter < 0 || delimiter > end)
+            {
+                delimiter = end;
+            }
 
-        return nextState.parse(dictionary, tokens);
+            final TopicWord word = dictionary.getWord(routingKey, start, delimiter);
+            TopicMatcherDFAState nextState = state._nextStateMap.get(word);
+            if (nextState == null && word != TopicWord.ANY_WORD)
+            {
+                nextState = state._nextStateMap.get(TopicWord.ANY_WORD);
+            }
+            if (nextState == null)
+            {
+                return Collections.EMPTY_LIST;
+            }
+            // Shortcut if we are at a looping terminal state
+            if ((nextState == state)
+                && (state._nextStateMap.size() == 1)
+                && state._nextStateMap.containsKey(TopicWord.ANY_WORD))
+            {
+                return state._results;
+            }
 
+            state = nextState;
+            if (delimiter == end)
+            {
+                return state._results;
+            }
+            start = delimiter + 1;
+        }
     }
 
 
@@ -0,0 +1,225 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.MessageDestination;
+
+/**
+ * Cache of the topic exchange routing results keyed by routing key.
+ * <p>
+ * For each routing key the cache holds the destinations of the unfiltered bindings matching the key, together
+ * with the matching results which also have filtered bindings, so that only the filters need to be evaluated
+ * against each message. Where no filtered bindings match, the cached route is itself the set of matches, so that
+ * routing with a cached key does not allocate. The cached routes belong to a generation of the bindings: the exchange must call
+ * {@link #invalidate()} after each change to its bindings, after which routes computed against the previous
+ * generation are neither returned nor retained.
+ * <p>
+ * The number of cached routing keys is bounded; once the bound is reached the generation is cleared and the cache
+ * refills from the routing keys in use.
+ */
+public final class TopicRoutingKeyCache
+{
+    private final int _maximumSize;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private volatile Generation _generation = new Generation(0L);
+
+    public TopicRoutingKeyCache(final int maximumSize)
+    {
+        _maximumSize = maximumSize;
+    }
+
+    public Generation getGeneration()
+    {
+        return _generation;
+    }
+
+    public void invalidate()
+    {
+        _generation = new Generation(_generation.getBindingGeneration() + 1L);
+    }
+
+    public boolean isEnabled()
+    {
+        return _maximumSize > 0;
+    }
+
+    public int getMaximumSize()
+    {
+        return _maximumSize;
+    }
+
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    public int getSize()
+    {
+        return _generation._routes.size();
+    }
+
+    public static Route createRoute(final Collection<TopicMatcherResult> results, final String routingKey)
+    {
+        if (results.isEmpty())
+        {
+            return Route.EMPTY;
+        }
+
+        final TopicMatchCollector unfilteredDestinations = new TopicMatchCollector();
+        final List<TopicExchangeResult> filteredResults = new ArrayList<>();
+        for (TopicMatcherResult result : results)
+        {
+            if (result instanceof TopicExchangeResult)
+            {
+                final TopicExchangeResult topicExchangeResult = (TopicExchangeResult) result;
+                topicExchangeResult.collectUnfilteredDestinations(unfilteredDestinations, routingKey);
+                if (topicExchangeResult.hasFilteredDestinations())
+                {
+                    filteredResults.add(topicExchangeResult);
+                }
+            }
+        }
+        return new Route(unfilteredDestinations.copyDestinations(),
+                         unfilteredDestinations.copyRoutingKeys(),
+                         filteredResults.toArray(new TopicExchangeResult[filteredResults.size()]));
+    }
+
+    public final class Generation
+    {
+        private final long _bindingGeneration;
+        private final ConcurrentMap<String, Route> _routes = new ConcurrentHashMap<>();
+
+        private Generation(final long bindingGeneration)
+        {
+            _bindingGeneration = bindingGeneration;
+        }
+
+        public long getBindingGeneration()
+        {
+            return _bindingGeneration;
+        }
+
+        public Route get(final String routingKey)
+        {
+            final Route route = _routes.get(routingKey);
+            if (route == null)
+            {
+                _misses.increment();
+            }
+            else
+            {
+                _hits.increment();
+            }
+            return route;
+        }
+
+        public void put(final String routingKey, final Route route)
+        {
+            if (_generation == this && _maximumSize > 0)
+            {
+                if (_routes.size() >= _maximumSize)
+                {
+                    _routes.clear();
+                }
+                _routes.put(routingKey, route);
+            }
+        }
+    }
+
+    public static final class Route implements TopicMatches
+    {
+        private static final Route EMPTY =
+                new Route(new MessageDestination[0], new String[0], new TopicExchangeResult[0]);
+
+        private final MessageDestination[] _destinations;
+        private final String[] _routingKeys;
+        private final TopicExchangeResult[] _filteredResults;
+
+        private Route(final MessageDestination[] destinations,
+                      final String[] routingKeys,
+                      final TopicExchangeResult[] filteredResults)
+        {
+            _destinations = destinations;
+            _routingKeys = routingKeys;
+            _filteredResults = filteredResults;
+        }
+
+        public boolean hasFilteredResults()
+        {
+            return _filteredResults.length != 0;
+        }
+
+        /**
+         * Collects the destinations of the unfiltered bindings together with those of the filtered bindings
+         * which accept the given message.
+         */
+        public TopicMatches collect(final Filterable message,
+                                    final String routingKey,
+                                    final TopicMatchCollector collector)
+        {
+            collector.clear();
+            for (int i = 0; i < _destinations.length; i++)
+            {
+                collector.add(_destinations[i], _routingKeys[i]);
+            }
+            for (TopicExchangeResult result : _filteredResults)
+            {
+                result.collectFilteredDestinations(message, collector, routingKey);
+            }
+            return collector;
+        }
+
+        /**
+         * Returns the destinations of the unfiltered bindings only.
+         */
+        @Override
+        public int size()
+        {
+            return _destinations.length;
+        }
+
+        @Override
+        public MessageDestination getDestination(final int index)
+        {
+            return _destinations[index];
+        }
+
+        @Override
+        public String getRoutingKey(final int index)
+        {
+            return _routingKeys[index];
+        }
+    }
+}
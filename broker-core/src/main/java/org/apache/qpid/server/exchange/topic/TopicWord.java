@@ -25,11 +25,37 @@ public final class TopicWord
 {
     public static final TopicWord ANY_WORD = new TopicWord("*");
     public static final TopicWord WILDCARD_WORD = new TopicWord("#");
-    private String _word;
+    private final String _word;
+    private final int _hash;
 
     public TopicWord(String s)
     {
         _word = s;
+        _hash = s.hashCode();
+    }
+
+    int getHash()
+    {
+        return _hash;
+    }
+
+    boolean matches(final String key, final int start, final int end)
+    {
+        return _word.length() == end - start && _word.regionMatches(0, key, start, end - start);
+    }
+
+    /**
+     * Computes the hash of the given region of the key as {@link String#hashCode()} would for the corresponding
+     * substring.
+     */
+    static int hash(final String key, final int start, final int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + key.charAt(i);
+        }
+        return hash;
     }
 
     @Override
@@ -23,23 +23,45 @@ package org.apache.qpid.server.exchange.topic;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Dictionary of the words used in binding keys.
+ * <p>
+ * Besides the map by name, the words are held in an open addressing table so that the words of a routing key can be
+ * looked up by position within the key, without creating a string for each word.
+ */
 public class TopicWordDictionary
 {
+    private static final int INITIAL_INDEX_SIZE = 16;
+
     private final ConcurrentMap<String,TopicWord> _dictionary =
             new ConcurrentHashMap<String,TopicWord>();
 
+    private volatile TopicWord[] _index = new TopicWord[INITIAL_INDEX_SIZE];
+    private int _indexedWords;
+
     public TopicWordDictionary()
     {
         _dictionary.put("*", TopicWord.ANY_WORD);
         _dictionary.put("#", TopicWord.WILDCARD_WORD);
+        addToIndex(TopicWord.ANY_WORD);
+        addToIndex(TopicWord.WILDCARD_WORD);
     }
 
     public TopicWord getOrCreateWord(String name)
     {
-        TopicWord word = _dictionary.putIfAbsent(name, new TopicWord(name));
+        TopicWord word = _dictionary.get(name);
         if(word == null)
         {
-            word = _dictionary.get(name);
+            synchronized (this)
+            {
+                word = _dictionary.get(name);
+                if (word == null)
+                {
+                    word = new TopicWord(name);
+                    addToIndex(word);
+                    _dictionary.put(name, word);
+                }
+            }
         }
         return word;
     }
@@ -54,4 +76,61 @@ public class TopicWordDictionary
         }
         return word;
     }
+
+    /**
+     * Returns the word formed by the characters of the key from start (inclusive) to end (exclusive), or
+     * {@link TopicWord#ANY_WORD} if there is no such word in the dictionary.
+     */
+    public TopicWord getWord(final String key, final int start, final int end)
+    {
+        final TopicWord[] index = _index;
+        final int mask = index.length - 1;
+        int slot = TopicWord.hash(key, start, end) & mask;
+        TopicWord word;
+        while ((word = index[slot]) != null)
+        {
+            if (word.matches(key, start, end))
+            {
+                return word;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return TopicWord.ANY_WORD;
+    }
+
+    private synchronized void addToIndex(final TopicWord word)
+    {
+        TopicWord[] index = _index;
+        if (2 * (_indexedWords + 1) > index.length)
+        {
+            final TopicWord[] newIndex = new TopicWord[index.length * 2];
+            for (TopicWord indexedWord : index)
+            {
+                if (indexedWord != null)
+                {
+                    insert(newIndex, indexedWord);
+                }
+            }
+            insert(newIndex, word);
+            _index = newIndex;
+        }
+        else
+        {
+            // readers concurrently probing the table either see the word or not, both of which are consistent
+            // with the word not yet being used by the state machine
+            insert(index, word);
+        }
+        _indexedWords++;
+    }
+
+    private static void insert(final TopicWord[] index, final TopicWord word)
+    {
+        final int mask = index.length - 1;
+        int slot = word.getHash() & mask;
+        while (index[slot] != null)
+        {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = word;
+    }
 }
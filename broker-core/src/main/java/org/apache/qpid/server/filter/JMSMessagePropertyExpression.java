@@ -124,6 +124,15 @@ public class JMSMessagePropertyExpression implements PropertyExpression<Filterab
         return name;
     }
 
+    /**
+     * Returns true if this expression evaluates a JMS header field (or other attribute of the message) rather than
+     * an application property.
+     */
+    boolean isJMSProperty()
+    {
+        return jmsPropertyExpression != null;
+    }
+
     /**
      * @see Object#toString()
      */
@@ -34,15 +34,31 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(JMSSelectorFilter.class);
 
+    /** Whether parsed selectors are compiled by the {@link SelectorCompiler} rather than interpreted */
+    public static final String COMPILE_SELECTORS = "qpid.selector.compile";
+    private static final boolean COMPILE = Boolean.parseBoolean(System.getProperty(COMPILE_SELECTORS, "true"));
+    private static final String JMS_REDELIVERED = "JMSRedelivered";
+
     private String _selector;
     private BooleanExpression _matcher;
+    private final PropertyValueCondition _propertyValueCondition;
+    private boolean _deliveryStateDependent;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
         SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
-        selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
-        _matcher = selectorParser.parse(selector);
+        selectorParser.setPropertyExpressionFactory(name ->
+        {
+            if (JMS_REDELIVERED.equals(name))
+            {
+                _deliveryStateDependent = true;
+            }
+            return JMSMessagePropertyExpression.FACTORY.createPropertyExpression(name);
+        });
+        final BooleanExpression<FilterableMessage> matcher = selectorParser.parse(selector);
+        _matcher = COMPILE ? SelectorCompiler.compile(matcher) : matcher;
+        _propertyValueCondition = PropertyValueCondition.fromExpression(matcher);
     }
 
     @Override
@@ -74,6 +90,24 @@ public class JMSSelectorFilter implements MessageFilter
         return _selector;
     }
 
+    /**
+     * Returns a condition on the value of a message property which every message matching the selector meets, or
+     * null if the selector implies no such condition.
+     */
+    public PropertyValueCondition getPropertyValueCondition()
+    {
+        return _propertyValueCondition;
+    }
+
+    /**
+     * Returns whether the outcome of the selector for a message may change as the message is delivered, as it does
+     * for a selector on whether the message has been redelivered.
+     */
+    public boolean isDeliveryStateDependent()
+    {
+        return _deliveryStateDependent;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
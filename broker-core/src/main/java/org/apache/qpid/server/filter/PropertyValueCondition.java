@@ -0,0 +1,173 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * A condition, implied by a selector, that a message property holds one of a set of string values. A message whose
+ * property holds none of the values cannot match the selector, though a message whose property holds one of them
+ * need not.
+ * <p>
+ * Conditions are found in equalities and IN predicates comparing a property with string literals, in disjunctions
+ * of such predicates over the same property, and in any operand of a conjunction. Only properties held by the message
+ * header, that is application properties and JMS header fields such as JMSType, are conditioned, so that their value
+ * can be read from the header of a message without a view of the message instance.
+ */
+public final class PropertyValueCondition
+{
+    private static final Map<String, Function<AMQMessageHeader, Object>> JMS_HEADER_FIELDS = new HashMap<>();
+    static
+    {
+        JMS_HEADER_FIELDS.put("JMSType", AMQMessageHeader::getType);
+        JMS_HEADER_FIELDS.put("JMSMessageID", AMQMessageHeader::getMessageId);
+        JMS_HEADER_FIELDS.put("AMQMessageID", AMQMessageHeader::getMessageId);
+        JMS_HEADER_FIELDS.put("JMSCorrelationID", AMQMessageHeader::getCorrelationId);
+        JMS_HEADER_FIELDS.put("JMSReplyTo", AMQMessageHeader::getReplyTo);
+    }
+
+    private final JMSMessagePropertyExpression _property;
+    private final Set<String> _values;
+
+    private PropertyValueCondition(final JMSMessagePropertyExpression property, final Set<String> values)
+    {
+        _property = property;
+        _values = Collections.unmodifiableSet(values);
+    }
+
+    public String getPropertyName()
+    {
+        return _property.getName();
+    }
+
+    public Set<String> getValues()
+    {
+        return _values;
+    }
+
+    /**
+     * Returns the value of the property in the given message header as it is compared with the values of the
+     * condition, or null if the property does not hold a value which could be equal to any of them.
+     */
+    public String getPropertyValue(final AMQMessageHeader header)
+    {
+        final Function<AMQMessageHeader, Object> jmsHeaderField = JMS_HEADER_FIELDS.get(getPropertyName());
+        final Object value = jmsHeaderField == null
+                ? header.getHeader(getPropertyName())
+                : jmsHeaderField.apply(header);
+        if (value instanceof String)
+        {
+            return (String) value;
+        }
+        else if (value instanceof Enum)
+        {
+            // enumerated values are compared with literals by name
+            return ((Enum<?>) value).name();
+        }
+        return null;
+    }
+
+    static PropertyValueCondition fromExpression(final Expression<?> expression)
+    {
+        if (expression instanceof LogicExpression)
+        {
+            final LogicExpression<?> logicExpression = (LogicExpression<?>) expression;
+            final PropertyValueCondition left = fromExpression(logicExpression.getLeft());
+            if ("AND".equals(logicExpression.getExpressionSymbol()))
+            {
+                return left == null ? fromExpression(logicExpression.getRight()) : left;
+            }
+            else if (left != null && "OR".equals(logicExpression.getExpressionSymbol()))
+            {
+                final PropertyValueCondition right = fromExpression(logicExpression.getRight());
+                if (right != null && left.getPropertyName().equals(right.getPropertyName()))
+                {
+                    final Set<String> values = new HashSet<>(left._values);
+                    values.addAll(right._values);
+                    return new PropertyValueCondition(left._property, values);
+                }
+            }
+        }
+        else if (expression instanceof ComparisonExpression
+                 && "=".equals(((ComparisonExpression<?>) expression).getExpressionSymbol()))
+        {
+            final ComparisonExpression<?> equality = (ComparisonExpression<?>) expression;
+            PropertyValueCondition condition = fromEquality(equality.getLeft(), equality.getRight());
+            if (condition == null)
+            {
+                condition = fromEquality(equality.getRight(), equality.getLeft());
+            }
+            return condition;
+        }
+        else if (expression instanceof UnaryExpression.InExpression)
+        {
+            final UnaryExpression.InExpression<?> in = (UnaryExpression.InExpression<?>) expression;
+            if (!in.isNot() && in.getInList() != null && in.getRight() instanceof JMSMessagePropertyExpression)
+            {
+                return fromValues((JMSMessagePropertyExpression) in.getRight(), in.getInList());
+            }
+        }
+        return null;
+    }
+
+    private static PropertyValueCondition fromEquality(final Expression<?> property, final Expression<?> constant)
+    {
+        if (property instanceof JMSMessagePropertyExpression && constant instanceof ConstantExpression)
+        {
+            return fromValues((JMSMessagePropertyExpression) property,
+                              Collections.singleton(((ConstantExpression<?>) constant).getValue()));
+        }
+        return null;
+    }
+
+    private static PropertyValueCondition fromValues(final JMSMessagePropertyExpression property,
+                                                     final Collection<?> values)
+    {
+        if (property.isJMSProperty() && !JMS_HEADER_FIELDS.containsKey(property.getName()))
+        {
+            return null;
+        }
+        final Set<String> stringValues = new HashSet<>();
+        for (Object value : values)
+        {
+            if (!(value instanceof String))
+            {
+                return null;
+            }
+            stringValues.add((String) value);
+        }
+        return new PropertyValueCondition(property, stringValues);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getPropertyName() + " IN " + _values;
+    }
+}
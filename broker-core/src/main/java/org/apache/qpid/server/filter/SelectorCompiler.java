@@ -0,0 +1,687 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiles the expression tree produced by the selector parser into a tree of specialised evaluators.
+ * <p>
+ * The evaluators produce a three valued result without boxing, evaluate constant operands once, and
+ * specialise the comparison of values of the same type. Chains of AND and OR are flattened, and where only whether
+ * the selector matches is of interest (as opposed to the exact value of an operand of NOT), the operands of a chain
+ * are reordered so that those estimated to be cheapest and most likely to decide the outcome are evaluated first.
+ * Operands which may fail, such as arithmetic on a property of unexpected type, keep their position in the chain,
+ * and no operand is moved across them, so that they are evaluated for exactly the same messages as when the chain is
+ * evaluated left to right.
+ * <p>
+ * Constructs without a specialised evaluator are evaluated by the original expression, so compilation never changes
+ * the outcome of a selector, only the cost of evaluating it.
+ */
+public final class SelectorCompiler
+{
+    private static final int TRUE = 1;
+    private static final int FALSE = 0;
+    private static final int UNKNOWN = -1;
+
+    private static final double PROPERTY_COST = 2.0;
+    private static final double INTERPRETED_COST = 5.0;
+    private static final double LIKE_COST = 10.0;
+    private static final double EQUALITY_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 0.5;
+    private static final double IN_SELECTIVITY = 0.2;
+    private static final double LIKE_SELECTIVITY = 0.25;
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+
+    private SelectorCompiler()
+    {
+    }
+
+    public static <E> BooleanExpression<E> compile(final BooleanExpression<E> expression)
+    {
+        final Node<E> root = compile(expression, true);
+        if (root instanceof InterpretedNode)
+        {
+            return expression;
+        }
+        return new CompiledExpression<>(expression, root);
+    }
+
+    private static <E> Node<E> compile(final Expression<E> expression, final boolean matchOnly)
+    {
+        if (expression instanceof LogicExpression)
+        {
+            final String symbol = ((LogicExpression<E>) expression).getExpressionSymbol();
+            if ("AND".equals(symbol))
+            {
+                return compileChain(expression, symbol, matchOnly, AndNode::new);
+            }
+            else if ("OR".equals(symbol))
+            {
+                return compileChain(expression, symbol, matchOnly, OrNode::new);
+            }
+        }
+        else if (expression instanceof ComparisonExpression.LikeExpression)
+        {
+            return new InterpretedNode<>(expression, LIKE_COST, LIKE_SELECTIVITY);
+        }
+        else if (expression instanceof ComparisonExpression)
+        {
+            final ComparisonExpression<E> comparison = (ComparisonExpression<E>) expression;
+            final String symbol = comparison.getExpressionSymbol();
+            if ("=".equals(symbol))
+            {
+                return new EqualNode<>(comparison);
+            }
+            final int operator = comparisonOperator(symbol);
+            if (operator != 0)
+            {
+                return new CompareNode<>(comparison, operator);
+            }
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            final UnaryExpression<E> unary = (UnaryExpression<E>) expression;
+            final String symbol = unary.getExpressionSymbol();
+            if ("NOT".equals(symbol))
+            {
+                return new NotNode<>(compile(unary.getRight(), false));
+            }
+            else if ("".equals(symbol) && expression instanceof BooleanExpression)
+            {
+                return new BooleanCastNode<>(unary.getRight());
+            }
+            else if ("IN".equals(symbol) || "NOT IN".equals(symbol))
+            {
+                return new InterpretedNode<>(expression, PROPERTY_COST + 1.0, IN_SELECTIVITY);
+            }
+        }
+        else if (expression instanceof ConstantExpression.BooleanConstantExpression)
+        {
+            return new ConstantNode<>(toResult(expression.evaluate(null)));
+        }
+        return new InterpretedNode<>(expression, INTERPRETED_COST, DEFAULT_SELECTIVITY);
+    }
+
+    private static <E> Node<E> compileChain(final Expression<E> expression,
+                                            final String symbol,
+                                            final boolean matchOnly,
+                                            final ChainFactory<E> factory)
+    {
+        final List<Node<E>> operands = new ArrayList<>();
+        flatten(expression, symbol, matchOnly, operands);
+        final boolean and = "AND".equals(symbol);
+        if (matchOnly)
+        {
+            // the outcome of operands which cannot fail is the same in any order when it only matters whether the
+            // chain is true
+            final Comparator<Node<E>> order = Comparator.comparingDouble(node -> and
+                    ? node.getCost() / Math.max(1.0 - node.getSelectivity(), 0.01)
+                    : node.getCost() / Math.max(node.getSelectivity(), 0.01));
+            int start = 0;
+            while (start < operands.size())
+            {
+                int end = start;
+                while (end < operands.size() && !operands.get(end).mayFail())
+                {
+                    end++;
+                }
+                operands.subList(start, end).sort(order);
+                start = end + 1;
+            }
+        }
+        return factory.create(operands);
+    }
+
+    private static <E> void flatten(final Expression<E> expression,
+                                    final String symbol,
+                                    final boolean matchOnly,
+                                    final List<Node<E>> operands)
+    {
+        if (expression instanceof LogicExpression
+            && symbol.equals(((LogicExpression<E>) expression).getExpressionSymbol()))
+        {
+            final LogicExpression<E> logicExpression = (LogicExpression<E>) expression;
+            flatten(logicExpression.getLeft(), symbol, matchOnly, operands);
+            flatten(logicExpression.getRight(), symbol, matchOnly, operands);
+        }
+        else
+        {
+            operands.add(compile(expression, matchOnly));
+        }
+    }
+
+    private static int comparisonOperator(final String symbol)
+    {
+        switch (symbol)
+        {
+            case ">":
+                return CompareNode.GREATER_THAN;
+            case ">=":
+                return CompareNode.GREATER_THAN_OR_EQUAL;
+            case "<":
+                return CompareNode.LESS_THAN;
+            case "<=":
+                return CompareNode.LESS_THAN_OR_EQUAL;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isPropertyOrConstant(final Expression<?> expression)
+    {
+        return expression instanceof PropertyExpression || expression instanceof ConstantExpression;
+    }
+
+    private static int toResult(final Object value)
+    {
+        if (value == null)
+        {
+            return UNKNOWN;
+        }
+        return Boolean.TRUE.equals(value) ? TRUE : FALSE;
+    }
+
+    private interface ChainFactory<E>
+    {
+        Node<E> create(List<Node<E>> operands);
+    }
+
+    private static abstract class Node<E>
+    {
+        abstract int evaluate(E message);
+
+        abstract double getCost();
+
+        abstract double getSelectivity();
+
+        /**
+         * Returns whether evaluating the node may throw rather than produce a result.
+         */
+        abstract boolean mayFail();
+    }
+
+    private static final class CompiledExpression<E> implements BooleanExpression<E>
+    {
+        private final BooleanExpression<E> _expression;
+        private final Node<E> _root;
+
+        private CompiledExpression(final BooleanExpression<E> expression, final Node<E> root)
+        {
+            _expression = expression;
+            _root = root;
+        }
+
+        @Override
+        public boolean matches(final E message)
+        {
+            return _root.evaluate(message) == TRUE;
+        }
+
+        @Override
+        public Object evaluate(final E message)
+        {
+            return _expression.evaluate(message);
+        }
+
+        @Override
+        public String toString()
+        {
+            return _expression.toString();
+        }
+    }
+
+    private static final class InterpretedNode<E> extends Node<E>
+    {
+        private final Expression<E> _expression;
+        private final double _cost;
+        private final double _selectivity;
+
+        private InterpretedNode(final Expression<E> expression, final double cost, final double selectivity)
+        {
+            _expression = expression;
+            _cost = cost;
+            _selectivity = selectivity;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            return toResult(_expression.evaluate(message));
+        }
+
+        @Override
+        double getCost()
+        {
+            return _cost;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return _selectivity;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return true;
+        }
+    }
+
+    private static final class ConstantNode<E> extends Node<E>
+    {
+        private final int _value;
+
+        private ConstantNode(final int value)
+        {
+            _value = value;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            return _value;
+        }
+
+        @Override
+        double getCost()
+        {
+            return 0.0;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return _value == TRUE ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates to the first operand which is not true, as the interpreted AND does when evaluated left to right.
+     */
+    private static final class AndNode<E> extends Node<E>
+    {
+        private final Node<E>[] _operands;
+        private final double _cost;
+        private final double _selectivity;
+        private final boolean _mayFail;
+
+        @SuppressWarnings("unchecked")
+        private AndNode(final List<Node<E>> operands)
+        {
+            _operands = operands.toArray(new Node[operands.size()]);
+            double cost = 0.0;
+            double probability = 1.0;
+            boolean mayFail = false;
+            for (Node<E> operand : _operands)
+            {
+                cost += probability * operand.getCost();
+                probability *= operand.getSelectivity();
+                mayFail |= operand.mayFail();
+            }
+            _cost = cost;
+            _mayFail = mayFail;
+            _selectivity = probability;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            for (Node<E> operand : _operands)
+            {
+                final int value = operand.evaluate(message);
+                if (value != TRUE)
+                {
+                    return value;
+                }
+            }
+            return TRUE;
+        }
+
+        @Override
+        double getCost()
+        {
+            return _cost;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return _selectivity;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return _mayFail;
+        }
+    }
+
+    /**
+     * Evaluates to true if any operand but the last is true, and otherwise to the last operand, as the interpreted
+     * OR does when evaluated left to right.
+     */
+    private static final class OrNode<E> extends Node<E>
+    {
+        private final Node<E>[] _operands;
+        private final double _cost;
+        private final double _selectivity;
+        private final boolean _mayFail;
+
+        @SuppressWarnings("unchecked")
+        private OrNode(final List<Node<E>> operands)
+        {
+            _operands = operands.toArray(new Node[operands.size()]);
+            double cost = 0.0;
+            double probability = 1.0;
+            boolean mayFail = false;
+            for (Node<E> operand : _operands)
+            {
+                cost += probability * operand.getCost();
+                probability *= 1.0 - operand.getSelectivity();
+                mayFail |= operand.mayFail();
+            }
+            _cost = cost;
+            _mayFail = mayFail;
+            _selectivity = 1.0 - probability;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            final int last = _operands.length - 1;
+            for (int i = 0; i < last; i++)
+            {
+                if (_operands[i].evaluate(message) == TRUE)
+                {
+                    return TRUE;
+                }
+            }
+            return _operands[last].evaluate(message);
+        }
+
+        @Override
+        double getCost()
+        {
+            return _cost;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return _selectivity;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return _mayFail;
+        }
+    }
+
+    private static final class NotNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+
+        private NotNode(final Node<E> operand)
+        {
+            _operand = operand;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            final int value = _operand.evaluate(message);
+            return value == UNKNOWN ? UNKNOWN : (value == TRUE ? FALSE : TRUE);
+        }
+
+        @Override
+        double getCost()
+        {
+            return _operand.getCost();
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return 1.0 - _operand.getSelectivity();
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return _operand.mayFail();
+        }
+    }
+
+    private static final class BooleanCastNode<E> extends Node<E>
+    {
+        private final Expression<E> _operand;
+
+        private BooleanCastNode(final Expression<E> operand)
+        {
+            _operand = operand;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            final Object value = _operand.evaluate(message);
+            if (value == null)
+            {
+                return UNKNOWN;
+            }
+            return value.getClass() == Boolean.class && (Boolean) value ? TRUE : FALSE;
+        }
+
+        @Override
+        double getCost()
+        {
+            return PROPERTY_COST;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return DEFAULT_SELECTIVITY;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return !isPropertyOrConstant(_operand);
+        }
+    }
+
+    /**
+     * Base of the comparison evaluators, holding the operands with constants evaluated in advance.
+     */
+    private static abstract class BinaryNode<E> extends Node<E>
+    {
+        final ComparisonExpression<E> _comparison;
+        private final Expression<E> _left;
+        private final Expression<E> _right;
+        private final boolean _leftConstant;
+        private final boolean _rightConstant;
+        private final Object _leftValue;
+        private final Object _rightValue;
+
+        BinaryNode(final ComparisonExpression<E> comparison)
+        {
+            _comparison = comparison;
+            _left = comparison.getLeft();
+            _right = comparison.getRight();
+            _leftConstant = _left instanceof ConstantExpression;
+            _rightConstant = _right instanceof ConstantExpression;
+            _leftValue = _leftConstant ? ((ConstantExpression<E>) _left).getValue() : null;
+            _rightValue = _rightConstant ? ((ConstantExpression<E>) _right).getValue() : null;
+        }
+
+        final Object left(final E message)
+        {
+            return _leftConstant ? _leftValue : _left.evaluate(message);
+        }
+
+        final Object right(final E message)
+        {
+            return _rightConstant ? _rightValue : _right.evaluate(message);
+        }
+
+        final boolean hasConstantOperand()
+        {
+            return _leftConstant || _rightConstant;
+        }
+
+        @Override
+        double getCost()
+        {
+            return hasConstantOperand() ? PROPERTY_COST : 2 * PROPERTY_COST;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            return !isPropertyOrConstant(_left) || !isPropertyOrConstant(_right);
+        }
+    }
+
+    private static final class EqualNode<E> extends BinaryNode<E>
+    {
+        private EqualNode(final ComparisonExpression<E> comparison)
+        {
+            super(comparison);
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            final Object lv = left(message);
+            final Object rv = right(message);
+            if ((lv == null) ^ (rv == null))
+            {
+                return FALSE;
+            }
+            if (lv == rv || lv.equals(rv))
+            {
+                return TRUE;
+            }
+            if (lv instanceof Comparable && rv instanceof Comparable)
+            {
+                return _comparison.compare((Comparable) lv, (Comparable) rv) ? TRUE : FALSE;
+            }
+            return FALSE;
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return EQUALITY_SELECTIVITY;
+        }
+    }
+
+    private static final class CompareNode<E> extends BinaryNode<E>
+    {
+        static final int GREATER_THAN = 1;
+        static final int GREATER_THAN_OR_EQUAL = 2;
+        static final int LESS_THAN = 3;
+        static final int LESS_THAN_OR_EQUAL = 4;
+
+        private final int _operator;
+
+        private CompareNode(final ComparisonExpression<E> comparison, final int operator)
+        {
+            super(comparison);
+            _operator = operator;
+        }
+
+        @Override
+        int evaluate(final E message)
+        {
+            final Object lv = left(message);
+            if (lv == null)
+            {
+                return UNKNOWN;
+            }
+            final Object rv = right(message);
+            if (rv == null)
+            {
+                return UNKNOWN;
+            }
+
+            final Class<?> type = lv.getClass();
+            final int comparison;
+            if (type != rv.getClass())
+            {
+                return _comparison.compare((Comparable) lv, (Comparable) rv) ? TRUE : FALSE;
+            }
+            else if (type == Integer.class)
+            {
+                comparison = Integer.compare((Integer) lv, (Integer) rv);
+            }
+            else if (type == Long.class)
+            {
+                comparison = Long.compare((Long) lv, (Long) rv);
+            }
+            else if (type == Double.class)
+            {
+                comparison = Double.compare((Double) lv, (Double) rv);
+            }
+            else
+            {
+                comparison = ((Comparable) lv).compareTo(rv);
+            }
+
+            switch (_operator)
+            {
+                case GREATER_THAN:
+                    return comparison > 0 ? TRUE : FALSE;
+                case GREATER_THAN_OR_EQUAL:
+                    return comparison >= 0 ? TRUE : FALSE;
+                case LESS_THAN:
+                    return comparison < 0 ? TRUE : FALSE;
+                default:
+                    return comparison <= 0 ? TRUE : FALSE;
+            }
+        }
+
+        @Override
+        double getSelectivity()
+        {
+            return RANGE_SELECTIVITY;
+        }
+
+        @Override
+        boolean mayFail()
+        {
+            // as when interpreted, ordering a property value which is not comparable fails
+            return true;
+        }
+    }
+}
@@ -23,7 +23,6 @@ package org.apache.qpid.server.message;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -40,14 +39,18 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     private static final AtomicIntegerFieldUpdater<AbstractServerMessageImpl> _refCountUpdater =
             AtomicIntegerFieldUpdater.newUpdater(AbstractServerMessageImpl.class, "_referenceCount");
 
-    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, Collection> _resourcesUpdater =
-            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Collection.class,"_resources");
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, Object> _resourcesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Object.class,"_resources");
 
     private volatile int _referenceCount = 0;
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
+    /**
+     * The ids of the resources referencing this message: null if there are none, the id itself if there is only
+     * one (by far the most common case, for which no collection is allocated), or otherwise a collection of ids.
+     */
     @SuppressWarnings("unused")
-    private volatile Collection<UUID> _resources;
+    private volatile Object _resources;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -152,15 +155,16 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     @Override
     final public boolean isReferenced(TransactionLogResource resource)
     {
-        Collection<UUID> resources = _resources;
-        return resources != null && resources.contains(resource.getId());
+        Object resources = _resources;
+        return resources != null && (resources instanceof UUID
+                ? resources.equals(resource.getId())
+                : ((Collection<?>) resources).contains(resource.getId()));
     }
 
     @Override
     final public boolean isReferenced()
     {
-        Collection<UUID> resources = _resources;
-        return resources != null && !resources.isEmpty();
+        return _resources != null;
     }
 
     @Override
@@ -231,8 +235,8 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
             _message = message;
             if(resource != null)
             {
-                Collection<UUID> currentValue;
-                Collection<UUID> newValue;
+                Object currentValue;
+                Object newValue;
                 _resourceId = resource.getId();
                 do
                 {
@@ -240,17 +244,27 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
 
                     if(currentValue == null)
                     {
-                        newValue = Collections.singleton(_resourceId);
+                        newValue = _resourceId;
+                    }
+                    else if(currentValue instanceof UUID)
+                    {
+                        if(currentValue.equals(_resourceId))
+                        {
+                            throw new MessageAlreadyReferencedException(_message.getMessageNumber(), resource);
+                        }
+                        newValue = Arrays.asList((UUID) currentValue, _resourceId);
                     }
                     else
                     {
-                        if(currentValue.contains(_resourceId))
+                        final Collection<UUID> currentIds = (Collection<UUID>) currentValue;
+                        if(currentIds.contains(_resourceId))
                         {
                             throw new MessageAlreadyReferencedException(_message.getMessageNumber(), resource);
                         }
-                        newValue = new ArrayList<>(currentValue.size()+1);
-                        newValue.addAll(currentValue);
-                        newValue.add(_resourceId);
+                        final Collection<UUID> newIds = new ArrayList<>(currentIds.size()+1);
+                        newIds.addAll(currentIds);
+                        newIds.add(_resourceId);
+                        newValue = newIds;
                     }
 
                 }
@@ -280,27 +294,28 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
             {
                 if(_resourceId != null)
                 {
-                    Collection<UUID> currentValue;
-                    Collection<UUID> newValue;
+                    Object currentValue;
+                    Object newValue;
                     do
                     {
                         currentValue = _message._resources;
-                        if(currentValue.size() == 1)
+                        if(currentValue instanceof UUID)
                         {
                             newValue = null;
                         }
                         else
                         {
-                            UUID[] array = new UUID[currentValue.size()-1];
+                            final Collection<UUID> currentIds = (Collection<UUID>) currentValue;
+                            UUID[] array = new UUID[currentIds.size()-1];
                             int pos = 0;
-                            for(UUID uuid : currentValue)
+                            for(UUID uuid : currentIds)
                             {
                                 if(!_resourceId.equals(uuid))
                                 {
                                     array[pos++] = uuid;
                                 }
                             }
-                            newValue = Arrays.asList(array);
+                            newValue = array.length == 1 ? array[0] : Arrays.asList(array);
                         }
                     }
                     while(!_resourcesUpdater.compareAndSet(_message, currentValue, newValue));
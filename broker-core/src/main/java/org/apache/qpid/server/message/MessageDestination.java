@@ -51,6 +51,19 @@ public interface MessageDestination extends MessageNode
                                                                                         String routingAddress,
                                                                                         InstanceProperties instanceProperties);
 
+    /**
+     * Routes each message of a batch, setting the result of routing each message in the batch.
+     *
+     * @param batch the messages to be routed
+     */
+    default <M extends ServerMessage<? extends StorableMessageMetaData>> void route(RoutingBatch<M> batch)
+    {
+        for (int i = 0; i < batch.size(); i++)
+        {
+            batch.setResult(i, route(batch.getMessage(i), batch.getRoutingAddress(i), batch.getInstanceProperties(i)));
+        }
+    }
+
     boolean isDurable();
 
     void linkAdded(MessageSender sender, PublishingLink link);
@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.txn.AsyncAutoCommitTransaction;
+import org.apache.qpid.server.txn.ServerTransaction;
+import org.apache.qpid.server.util.Action;
+
+/**
+ * A sequence of messages to be routed by the same destination, together with the result of routing each.
+ *
+ * @see MessageDestination#route(RoutingBatch)
+ */
+public final class RoutingBatch<M extends ServerMessage<? extends StorableMessageMetaData>>
+{
+    private final List<M> _messages = new ArrayList<>();
+    private final List<String> _routingAddresses = new ArrayList<>();
+    private final List<InstanceProperties> _instanceProperties = new ArrayList<>();
+    private final List<RoutingResult<M>> _results = new ArrayList<>();
+
+    /**
+     * Adds a message to the batch, returning its position within the batch.
+     */
+    public int add(final M message, final String routingAddress, final InstanceProperties instanceProperties)
+    {
+        _messages.add(message);
+        _routingAddresses.add(routingAddress);
+        _instanceProperties.add(instanceProperties);
+        _results.add(null);
+        return _messages.size() - 1;
+    }
+
+    public int size()
+    {
+        return _messages.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return _messages.isEmpty();
+    }
+
+    public M getMessage(final int index)
+    {
+        return _messages.get(index);
+    }
+
+    public String getRoutingAddress(final int index)
+    {
+        return _routingAddresses.get(index);
+    }
+
+    public InstanceProperties getInstanceProperties(final int index)
+    {
+        return _instanceProperties.get(index);
+    }
+
+    /**
+     * Returns the result of routing the message at the given position, or null if it has not been routed.
+     */
+    public RoutingResult<M> getResult(final int index)
+    {
+        return _results.get(index);
+    }
+
+    public void setResult(final int index, final RoutingResult<M> result)
+    {
+        _results.set(index, result);
+    }
+
+    /**
+     * Enqueues each routed message to the queues it was routed to, in order, notifying the listener once each
+     * message has been enqueued. When the listener returns false, the remaining messages are not enqueued. When the
+     * transaction enqueues each message in its own store transaction, the enqueues of the batch are instead recorded
+     * in one.
+     *
+     * @param txn the transaction in which to enqueue the messages
+     * @param postEnqueueActions supplies the action, if any, to perform on enqueue of the message at each position
+     * @param listener notified of the number of queues each message was enqueued to
+     * @return the number of messages of the batch which were enqueued
+     */
+    public int send(final ServerTransaction txn,
+                    final IntFunction<Action<? super MessageInstance>> postEnqueueActions,
+                    final EnqueueListener listener)
+    {
+        final AsyncAutoCommitTransaction batchingTransaction =
+                txn instanceof AsyncAutoCommitTransaction && _messages.size() > 1
+                        ? (AsyncAutoCommitTransaction) txn
+                        : null;
+        if (batchingTransaction != null)
+        {
+            batchingTransaction.startBatch();
+        }
+        int sent = 0;
+        try
+        {
+            boolean proceed = true;
+            while (proceed && sent < _messages.size())
+            {
+                final RoutingResult<M> result = _results.get(sent);
+                final int enqueues = result == null ? 0 : result.send(txn, postEnqueueActions.apply(sent));
+                proceed = listener.enqueued(sent, enqueues);
+                sent++;
+            }
+        }
+        finally
+        {
+            if (batchingTransaction != null)
+            {
+                batchingTransaction.completeBatch();
+            }
+        }
+        return sent;
+    }
+
+    public interface EnqueueListener
+    {
+        /**
+         * Called once the message at the given position of the batch has been enqueued.
+         *
+         * @param index the position of the message within the batch
+         * @param enqueues the number of queues the message was enqueued to
+         * @return false if the remaining messages of the batch must not be enqueued
+         */
+        boolean enqueued(int index, int enqueues);
+    }
+}
@@ -63,6 +63,16 @@ public interface Connection<X extends Connection<X>> extends ConfiguredObject<X>
     @ManagedContextDefault(name = MAX_MESSAGE_SIZE)
     int DEFAULT_MAX_MESSAGE_SIZE = 100 * 1024 * 1024;
 
+    String PUBLISH_BATCH_LIMIT = "connection.publish_batch_limit";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PUBLISH_BATCH_LIMIT,
+            description = "The maximum number of messages published on an AMQP 0-8, 0-9, 0-9-1 or 0-10 session"
+                          + " which are routed and enqueued together. Messages are routed no later than the end of"
+                          + " the network read in which they were received. A value of one routes every message as"
+                          + " soon as it is received. AMQP 1.0 links always route every message as soon as it is"
+                          + " received.")
+    int DEFAULT_PUBLISH_BATCH_LIMIT = 64;
+
     @DerivedAttribute
     String getClientId();
 
@@ -127,6 +137,28 @@ public interface Connection<X extends Connection<X>> extends ConfiguredObject<X>
                       description = "Total size of all messages delivered by this connection.")
     long getBytesOut();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Network Writes",
+                      description = "Total number of writes to the network made by this connection.")
+    long getNetworkWrites();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Network Outbound",
+                      description = "Total number of bytes written to the network by this connection, including"
+                                    + " protocol framing.")
+    long getNetworkBytesWritten();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Bytes per Network Write",
+                      description = "Average number of bytes written to the network per write made by this connection.")
+    long getAverageBytesPerNetworkWrite();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Coalesced Frames",
+                      description = "Total number of small frames copied together into a single buffer before being"
+                                    + " written to the network.")
+    long getCoalescedFrames();
+
     @SuppressWarnings("unused")
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Inbound",
                       description = "Total number of messages delivered by this connection.")
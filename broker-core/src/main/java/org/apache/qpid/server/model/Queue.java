@@ -94,6 +94,20 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedContextDefault( name = QUEUE_SCAVANGE_COUNT)
     int DEFAULT_QUEUE_SCAVANGE_COUNT = 100;
 
+    String QUEUE_READ_AHEAD_COUNT = "queue.readAheadCount";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = QUEUE_READ_AHEAD_COUNT,
+            description = "The number of entries following a consumer whose flowed to disk content is loaded ahead of"
+                          + " delivery. Zero, the default, disables read ahead.")
+    int DEFAULT_QUEUE_READ_AHEAD_COUNT = 0;
+
+    String QUEUE_PURGE_BATCH_SIZE = "queue.purgeBatchSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = QUEUE_PURGE_BATCH_SIZE,
+            description = "The maximum number of entries visited, and messages removed in a single store transaction,"
+                          + " by each step of clearing a queue.")
+    int DEFAULT_QUEUE_PURGE_BATCH_SIZE = 1000;
+
 
     String MIME_TYPE_TO_FILE_EXTENSION = "qpid.mimeTypeToFileExtension";
     @SuppressWarnings("unused")
@@ -478,6 +492,34 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
                       description = "Current age of oldest message on the queue.")
     long getOldestMessageAge();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Consumer Scans",
+                      description = "Total number of times this queue searched its consumers for one to deliver to.")
+    long getConsumerScans();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Consumers Scanned",
+                      description = "Total number of consumers examined by this queue while searching for one to deliver to."
+                                    + " Only consumers ready to receive messages are examined and counted; consumers"
+                                    + " which have already been notified, have no credit or are suspended are skipped"
+                                    + " without being counted.")
+    long getConsumersScanned();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Purged",
+                      description = "Total number of messages removed from this queue by clearing it.")
+    long getPurgedMessages();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Read Ahead",
+                      description = "Total number of messages whose flowed to disk content was loaded ahead of delivery.")
+    long getReadAheadMessages();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Read Ahead",
+                      description = "Total size of flowed to disk message content loaded ahead of delivery.")
+    long getReadAheadBytes();
+
     @ManagedOperation(description = "move messages from this queue to another", changesConfiguredObjectState = false)
     List<Long> moveMessages(@Param(name = "destination", description = "The queue to which the messages should be moved", mandatory = true) Queue<?> destination,
                             @Param(name = "messageIds", description = "If provided, only messages in the queue whose (internal) message-id is supplied will be considered for moving") List<Long> messageIds,
@@ -501,6 +543,19 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedOperation(description = "removes all messages from this queue", changesConfiguredObjectState = false)
     long clearQueue();
 
+    @ManagedOperation(description = "starts removing all messages from this queue without waiting for the removal"
+                                    + " to complete. Progress is reported by the purgedMessages statistic.",
+                      changesConfiguredObjectState = false)
+    void startClearQueue();
+
+    /**
+     * Removes all messages from this queue, subject to the same permission as {@link #clearQueue()}, without
+     * blocking the caller.
+     *
+     * @return future completing with the number of messages removed
+     */
+    ListenableFuture<Long> clearQueueAsync();
+
     @ManagedOperation(nonModifying = true, secure = true, changesConfiguredObjectState = false,
                       description = "Gets the message content")
     Content getMessageContent(@Param(name = "messageId") long messageId,
@@ -22,6 +22,7 @@ package org.apache.qpid.server.model.port;
 
 import java.net.SocketAddress;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.net.ssl.SSLContext;
@@ -30,6 +31,7 @@ import org.apache.qpid.server.model.DerivedAttribute;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.ManagedOperation;
 import org.apache.qpid.server.model.ManagedStatistic;
 import org.apache.qpid.server.model.Port;
 import org.apache.qpid.server.model.Protocol;
@@ -57,6 +59,10 @@ public interface AmqpPort<X extends AmqpPort<X>> extends Port<X>
 
     String PORT_AMQP_NUMBER_OF_SELECTORS = "qpid.port.amqp.threadPool.numberOfSelectors";
     String PORT_AMQP_ACCEPT_BACKLOG = "qpid.port.amqp.acceptBacklog";
+    String PORT_AMQP_THREAD_POOL_PIN_CONNECTIONS = "qpid.port.amqp.threadPool.pinConnections";
+    String PORT_AMQP_WRITE_COALESCING_FRAME_SIZE = "qpid.port.amqp.writeCoalescing.frameSize";
+    String PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE = "qpid.port.amqp.writeCoalescing.bufferSize";
+    String PORT_AMQP_TLS_HANDSHAKE_THREADS = "qpid.port.amqp.tls.handshakeThreads";
 
     @ManagedContextDefault(name = DEFAULT_AMQP_PROTOCOLS)
     String INSTALLED_PROTOCOLS = AmqpPortImpl.getInstalledProtocolsAsString();
@@ -82,6 +88,33 @@ public interface AmqpPort<X extends AmqpPort<X>> extends Port<X>
     @ManagedContextDefault(name = PORT_AMQP_ACCEPT_BACKLOG)
     int DEFAULT_PORT_AMQP_ACCEPT_BACKLOG = 1024;
 
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_THREAD_POOL_PIN_CONNECTIONS,
+            description = "If true, each selector runs on its own thread in addition to the thread pool, the pool's"
+                          + " threads are divided between the selectors and each connection is processed by the same"
+                          + " thread unless that thread has a backlog while another thread of its selector is idle.")
+    boolean DEFAULT_PORT_AMQP_THREAD_POOL_PIN_CONNECTIONS = false;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WRITE_COALESCING_FRAME_SIZE,
+            description = "Maximum size in bytes of the frames which are copied together into a single buffer before"
+                          + " being written to the network. Larger frames are written without being copied."
+                          + " Zero disables write coalescing.")
+    int DEFAULT_PORT_AMQP_WRITE_COALESCING_FRAME_SIZE = 1024;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE,
+            description = "Maximum size in bytes of a buffer small frames are copied into before being written to"
+                          + " the network.")
+    int DEFAULT_PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE = 64 * 1024;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_TLS_HANDSHAKE_THREADS,
+            description = "Number of threads running the computationally expensive tasks of TLS handshakes, such as"
+                          + " key exchange and certificate validation, so that many connections handshaking at once"
+                          + " do not hold up the IO threads. Zero runs these tasks on the IO threads.")
+    int DEFAULT_PORT_AMQP_TLS_HANDSHAKE_THREADS = Math.max(Runtime.getRuntime().availableProcessors() / 4, 1);
+
     String OPEN_CONNECTIONS_WARN_PERCENT = "qpid.port.open_connections_warn_percent";
 
     @ManagedContextDefault(name = OPEN_CONNECTIONS_WARN_PERCENT)
@@ -171,6 +204,62 @@ public interface AmqpPort<X extends AmqpPort<X>> extends Port<X>
             description = "Total number of connections made through this port since broker startup")
     long getTotalConnectionCount();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "IO Worker Busy Time",
+                      description = "Total time in milliseconds the IO threads of this port spent processing connections,"
+                                    + " when connections are pinned to threads.")
+    long getIoWorkerBusyTime();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "IO Worker Idle Time",
+                      description = "Total time in milliseconds the IO threads of this port spent waiting for work,"
+                                    + " when connections are pinned to threads.")
+    long getIoWorkerIdleTime();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Connection Migrations",
+                      description = "Total number of times a connection was processed by an IO thread other than the one"
+                                    + " it is pinned to.")
+    long getConnectionMigrations();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Selector Wakeup Requests",
+                      description = "Total number of times the selectors of this port were asked to wake up.")
+    long getSelectorWakeupRequests();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Selector Wakeups",
+                      description = "Total number of times the selectors of this port were woken up. Wakeup requests"
+                                    + " made while a wakeup is already pending do not wake the selector again.")
+    long getSelectorWakeups();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "IO Handoffs",
+                      description = "Total number of times a ready connection was handed from a selector to an IO thread.")
+    long getIoHandoffCount();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "IO Handoff Time",
+                      description = "Total time in milliseconds ready connections waited between being selected and"
+                                    + " being processed by an IO thread.")
+    long getIoHandoffTime();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "TLS Handshakes",
+                      description = "Total number of TLS handshakes completed on this port.")
+    long getTlsHandshakes();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "TLS Session Resumptions",
+                      description = "Total number of TLS handshakes completed on this port which resumed a previously"
+                                    + " established session rather than negotiating a new one.")
+    long getTlsSessionResumptions();
+
+    @ManagedOperation(description = "Returns the statistics of each IO thread of this port when connections are"
+                                    + " pinned to threads.",
+                      nonModifying = true, changesConfiguredObjectState = false, skipAclCheck = true)
+    List<Map<String, Object>> getIoWorkerStatistics();
+
     @DerivedAttribute(description = "Maximum time allowed for a new connection to send a protocol header."
                                     + " If the connection does not send a protocol header within this time,"
                                     + " the connection will be aborted.")
@@ -201,6 +290,8 @@ public interface AmqpPort<X extends AmqpPort<X>> extends Port<X>
 
     int decrementConnectionCount();
 
+    void registerTlsHandshake(boolean sessionResumed);
+
     int getNetworkBufferSize();
 
     List<ConnectionPropertyEnricher> getConnectionPropertyEnrichers();
@@ -68,6 +68,7 @@ import org.apache.qpid.server.plugin.ProtocolEngineCreator;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
 import org.apache.qpid.server.plugin.TransportProviderFactory;
 import org.apache.qpid.server.transport.AcceptingTransport;
+import org.apache.qpid.server.transport.NetworkConnectionScheduler;
 import org.apache.qpid.server.transport.PortBindFailureException;
 import org.apache.qpid.server.transport.TransportProvider;
 import org.apache.qpid.server.transport.network.security.ssl.SSLUtil;
@@ -94,6 +95,8 @@ public class AmqpPortImpl extends AbstractPort<AmqpPortImpl> implements AmqpPort
     private final AtomicInteger _connectionCount = new AtomicInteger();
     private final AtomicBoolean _connectionCountWarningGiven = new AtomicBoolean();
     private final AtomicLong _totalConnectionCount = new AtomicLong();
+    private final AtomicLong _tlsHandshakes = new AtomicLong();
+    private final AtomicLong _tlsSessionResumptions = new AtomicLong();
 
     private final Container<?> _container;
     private final AtomicBoolean _closingOrDeleting = new AtomicBoolean();
@@ -563,6 +566,28 @@ public class AmqpPortImpl extends AbstractPort<AmqpPortImpl> implements AmqpPort
         return openConnections;
     }
 
+    @Override
+    public void registerTlsHandshake(final boolean sessionResumed)
+    {
+        _tlsHandshakes.incrementAndGet();
+        if (sessionResumed)
+        {
+            _tlsSessionResumptions.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getTlsHandshakes()
+    {
+        return _tlsHandshakes.get();
+    }
+
+    @Override
+    public long getTlsSessionResumptions()
+    {
+        return _tlsSessionResumptions.get();
+    }
+
     private static int square(int val)
     {
         return val * val;
@@ -603,6 +628,68 @@ public class AmqpPortImpl extends AbstractPort<AmqpPortImpl> implements AmqpPort
         return _totalConnectionCount.get();
     }
 
+    @Override
+    public long getIoWorkerBusyTime()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getWorkerBusyTime();
+    }
+
+    @Override
+    public long getIoWorkerIdleTime()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getWorkerIdleTime();
+    }
+
+    @Override
+    public long getConnectionMigrations()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getConnectionMigrations();
+    }
+
+    @Override
+    public long getSelectorWakeupRequests()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getSelectorWakeupRequests();
+    }
+
+    @Override
+    public long getSelectorWakeups()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getSelectorWakeups();
+    }
+
+    @Override
+    public long getIoHandoffCount()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getHandoffCount();
+    }
+
+    @Override
+    public long getIoHandoffTime()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? 0L : scheduler.getHandoffTime();
+    }
+
+    @Override
+    public List<Map<String, Object>> getIoWorkerStatistics()
+    {
+        final NetworkConnectionScheduler scheduler = getNetworkConnectionScheduler();
+        return scheduler == null ? Collections.emptyList() : scheduler.getWorkerStatistics();
+    }
+
+    private NetworkConnectionScheduler getNetworkConnectionScheduler()
+    {
+        final AcceptingTransport transport = _transport;
+        return transport == null ? null : transport.getNetworkConnectionScheduler();
+    }
+
     @Override
     public long getProtocolHandshakeTimeout()
     {
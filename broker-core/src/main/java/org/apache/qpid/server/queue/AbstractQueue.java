@@ -27,6 +27,7 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.AccessControlContext;
 import java.security.AccessControlException;
 import java.security.AccessController;
 import java.security.Principal;
@@ -49,6 +50,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -57,6 +59,7 @@ import javax.security.auth.Subject;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
@@ -107,6 +110,7 @@ import org.apache.qpid.server.security.auth.AuthenticatedPrincipal;
 import org.apache.qpid.server.session.AMQPSession;
 import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
+import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.transport.AMQPConnection;
@@ -150,6 +154,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private final DeletedChildListener _deletedChildListener = new DeletedChildListener();
 
     private QueueConsumerManagerImpl _queueConsumerManager;
+    private final SharedFilterSlots _sharedFilterSlots = new SharedFilterSlots();
+    private final SelectorPartitionIndex _selectorPartitionIndex = new SelectorPartitionIndex();
 
     @ManagedAttributeField( beforeSet = "preSetAlternateBinding", afterSet = "postSetAlternateBinding")
     private AlternateBinding _alternateBinding;
@@ -159,6 +165,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private final AtomicInteger _activeSubscriberCount = new AtomicInteger();
 
     private final QueueStatistics _queueStatistics = new QueueStatistics();
+    private final ThreadLocal<QueueStatistics.Snapshot> _statisticsSnapshot = new ThreadLocal<>();
 
     /** max allowed size(KB) of a single message */
     @ManagedAttributeField( afterSet = "updateAlertChecks" )
@@ -266,6 +273,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private boolean _closing;
     private Map<String, String> _mimeTypeToFileExtension = Collections.emptyMap();
     private AdvanceConsumersTask _queueHouseKeepingTask;
+    private volatile QueueEntryReadAhead _readAhead;
+    private final LongAdder _purgedMessages = new LongAdder();
     private volatile int _bindingCount;
     private volatile RejectPolicyHandler _rejectPolicyHandler;
     private volatile OverflowPolicyHandler _postEnqueueOverflowPolicyHandler;
@@ -1034,6 +1043,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
         consumer.setQueueContext(queueContext);
 
+        _sharedFilterSlots.register(filters);
+        _selectorPartitionIndex.addConsumer(consumer, filters);
         _queueConsumerManager.addConsumer(consumer);
         if (consumer.isNotifyWorkDesired())
         {
@@ -1080,6 +1091,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         if (removed)
         {
+            _sharedFilterSlots.unregister(consumer.getFilterManager());
+            _selectorPartitionIndex.removeConsumer(consumer);
             consumer.closeAsync();
             // No longer can the queue have an exclusive consumer
             setExclusiveSubscriber(null);
@@ -1262,8 +1275,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     protected void doEnqueue(final ServerMessage message, final Action<? super MessageInstance> action, MessageEnqueueRecord enqueueRecord)
     {
-        final QueueEntry entry = getEntries().add(message, enqueueRecord);
+        final QueueEntryList entries = getEntries();
+        final QueueEntry entry = entries.add(message, enqueueRecord);
         updateExpiration(entry);
+        entries.getExpiryIndex().add(entry);
 
         try
         {
@@ -1369,13 +1384,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public long getTotalDequeuedMessages()
     {
-        return _queueStatistics.getDequeueCount();
+        return statistics().getDequeueCount();
     }
 
     @Override
     public long getTotalEnqueuedMessages()
     {
-        return _queueStatistics.getEnqueueCount();
+        return statistics().getEnqueueCount();
     }
 
     private void setLastSeenEntry(final QueueConsumer<?,?> sub, final QueueEntry entry)
@@ -1467,49 +1482,49 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public int getQueueDepthMessages()
     {
-        return _queueStatistics.getQueueCount();
+        return statistics().getQueueCount();
     }
 
     @Override
     public long getQueueDepthBytes()
     {
-        return _queueStatistics.getQueueSize();
+        return statistics().getQueueSize();
     }
 
     @Override
     public long getAvailableBytes()
     {
-        return _queueStatistics.getAvailableSize();
+        return statistics().getAvailableSize();
     }
 
     @Override
     public int getAvailableMessages()
     {
-        return _queueStatistics.getAvailableCount();
+        return statistics().getAvailableCount();
     }
 
     @Override
     public long getAvailableBytesHighWatermark()
     {
-        return _queueStatistics.getAvailableSizeHwm();
+        return statistics().getAvailableSizeHwm();
     }
 
     @Override
     public int getAvailableMessagesHighWatermark()
     {
-        return _queueStatistics.getAvailableCountHwm();
+        return statistics().getAvailableCountHwm();
     }
 
     @Override
     public long getQueueDepthBytesHighWatermark()
     {
-        return _queueStatistics.getQueueSizeHwm();
+        return statistics().getQueueSizeHwm();
     }
 
     @Override
     public int getQueueDepthMessagesHighWatermark()
     {
-        return _queueStatistics.getQueueCountHwm();
+        return statistics().getQueueCountHwm();
     }
 
     @Override
@@ -1611,6 +1626,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return _queueStatistics;
     }
 
+    SharedFilterSlots getSharedFilterSlots()
+    {
+        return _sharedFilterSlots;
+    }
+
     protected final QueueConsumerManagerImpl getQueueConsumerManager()
     {
         return _queueConsumerManager;
@@ -1713,33 +1733,33 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public long clearQueue()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
-        long count = 0;
-
-        ServerTransaction txn = new LocalTransaction(getVirtualHost().getMessageStore());
-
-        while (queueListIterator.advance())
-        {
-            final QueueEntry node = queueListIterator.getNode();
-            boolean acquired = node.acquireOrSteal(new Runnable()
-                                                    {
-                                                        @Override
-                                                        public void run()
-                                                        {
-                                                            dequeueEntry(node);
-                                                        }
-                                                    });
-
-            if (acquired)
-            {
-                dequeueEntry(node, txn);
-            }
+        return doSync(purge());
+    }
 
-        }
+    @Override
+    public void startClearQueue()
+    {
+        purge();
+    }
 
-        txn.commit();
+    @Override
+    public ListenableFuture<Long> clearQueueAsync()
+    {
+        authorise(Operation.INVOKE_METHOD("clearQueue"));
+        return purge();
+    }
 
-        return count;
+    private ListenableFuture<Long> purge()
+    {
+        final String taskName = "Queue Purge: " + getName();
+        final AccessControlContext context = getSystemTaskControllerContext("Queue Purge", _virtualHost.getPrincipal());
+        final QueuePurge purge = new QueuePurge(getEntries().iterator(),
+                                                _virtualHost.getMessageStore(),
+                                                task -> _virtualHost.executeTask(taskName, task, context),
+                                                getContextValue(Integer.class, QUEUE_PURGE_BATCH_SIZE),
+                                                this::dequeueEntry,
+                                                _purgedMessages::add);
+        return purge.start();
     }
 
     private void dequeueEntry(final QueueEntry node)
@@ -1813,11 +1833,19 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         if (acquiredForDequeueing)
         {
-            LOGGER.debug("routing node {} to alternate", entry);
-            entry.routeToAlternate(null, null, predicate);
-            if (postRouteTask != null)
+            final AlternateRoutingPipeline alternateRoutingPipeline = getVirtualHost().getAlternateRoutingPipeline();
+            if (alternateRoutingPipeline != null && alternateRoutingPipeline.submit(entry, predicate, postRouteTask))
             {
-                postRouteTask.run();
+                LOGGER.debug("node {} submitted for routing to alternate", entry);
+            }
+            else
+            {
+                LOGGER.debug("routing node {} to alternate", entry);
+                entry.routeToAlternate(null, null, predicate);
+                if (postRouteTask != null)
+                {
+                    postRouteTask.run();
+                }
             }
         }
     }
@@ -1881,19 +1909,43 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
                 final List<QueueEntry> entries = getMessagesOnTheQueue(new AcquireAllQueueEntryFilter());
 
-                routeToAlternate(entries);
-
-                preSetAlternateBinding();
-                _alternateBinding = null;
-
                 _stopped.set(true);
                 _queueHouseKeepingTask.cancel();
 
-                performQueueDeleteTasks();
+                final AlternateRoutingPipeline alternateRoutingPipeline =
+                        getVirtualHost().getAlternateRoutingPipeline();
+                if (alternateRoutingPipeline == null
+                    || entries.isEmpty()
+                    || getAlternateBindingDestination() == null)
+                {
+                    routeToAlternate(entries);
+                    completeDelete(queueDepthMessages);
+                }
+                else
+                {
+                    // the alternate binding is retained until the entries have been routed
+                    Futures.addCallback(alternateRoutingPipeline.submitAll(entries), new FutureCallback<Integer>()
+                    {
+                        @Override
+                        public void onSuccess(final Integer routed)
+                        {
+                            try
+                            {
+                                completeDelete(queueDepthMessages);
+                            }
+                            catch (Throwable e)
+                            {
+                                _deleteQueueDepthFuture.setException(e);
+                            }
+                        }
 
-                //Log Queue Deletion
-                getEventLogger().message(_logSubject, QueueMessages.DELETED(getId().toString()));
-                _deleteQueueDepthFuture.set(queueDepthMessages);
+                        @Override
+                        public void onFailure(final Throwable t)
+                        {
+                            _deleteQueueDepthFuture.setException(t);
+                        }
+                    }, getTaskExecutor());
+                }
             }
             catch(Throwable e)
             {
@@ -1903,6 +1955,18 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return _deleteQueueDepthFuture;
     }
 
+    private void completeDelete(final int queueDepthMessages)
+    {
+        preSetAlternateBinding();
+        _alternateBinding = null;
+
+        performQueueDeleteTasks();
+
+        //Log Queue Deletion
+        getEventLogger().message(_logSubject, QueueMessages.DELETED(getId().toString()));
+        _deleteQueueDepthFuture.set(queueDepthMessages);
+    }
+
     private void routeToAlternate(List<QueueEntry> entries)
     {
         ServerTransaction txn = new LocalTransaction(getVirtualHost().getMessageStore());
@@ -1959,10 +2023,19 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             }
         }
 
-        final Iterator<QueueConsumer<?,?>> interestedIterator = _queueConsumerManager.getInterestedIterator();
+        final SelectorPartitionIndex.Partition partition = _selectorPartitionIndex.getPartition();
+        final Iterator<QueueConsumer<?,?>> interestedIterator = partition == null
+                ? _queueConsumerManager.getInterestedIterator()
+                : partition.getCandidates(entry);
+        int consumersScanned = 0;
         while (entry.isAvailable() && interestedIterator.hasNext())
         {
             QueueConsumer<?,?> consumer = interestedIterator.next();
+            if (partition != null && !isInterested(consumer))
+            {
+                continue;
+            }
+            consumersScanned++;
             if(consumer.hasInterest(entry))
             {
                 if(notifyConsumer(consumer))
@@ -1977,14 +2050,23 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
         }
+        _queueStatistics.addToConsumerScans(consumersScanned);
+    }
+
+    private boolean isInterested(final QueueConsumer<?,?> consumer)
+    {
+        final QueueConsumerNode node = consumer.getQueueConsumerNode();
+        return node != null && node.getState() == QueueConsumerManagerImpl.NodeState.INTERESTED;
     }
 
     void notifyOtherConsumers(final QueueConsumer<?,?> excludedConsumer)
     {
         final Iterator<QueueConsumer<?,?>> interestedIterator = _queueConsumerManager.getInterestedIterator();
+        int consumersScanned = 0;
         while (hasAvailableMessages() && interestedIterator.hasNext())
         {
             QueueConsumer<?,?> consumer = interestedIterator.next();
+            consumersScanned++;
 
             if (excludedConsumer != consumer)
             {
@@ -1994,6 +2076,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
         }
+        _queueStatistics.addToConsumerScans(consumersScanned);
     }
 
 
@@ -2089,6 +2172,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                     else
                     {
                         setLastSeenEntry(sub, node);
+                        final QueueEntryReadAhead readAhead = _readAhead;
+                        if (readAhead != null && sub.getQueueContext() != null)
+                        {
+                            readAhead.entryAssigned(sub.getQueueContext(), node);
+                        }
                         return new MessageContainer(node, messageReference);
                     }
                 }
@@ -2104,27 +2192,26 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private boolean noHigherPriorityWithCredit(final QueueConsumer<?,?> sub, final QueueEntry queueEntry)
     {
-        Iterator<QueueConsumer<?,?>> consumerIterator = _queueConsumerManager.getAllIterator();
+        final Iterator<QueueConsumer<?,?>> consumerIterator =
+                _queueConsumerManager.getHigherPriorityWithCreditIterator(sub.getPriority());
 
+        boolean noHigherPriorityWithCredit = true;
+        int consumersScanned = 0;
         while (consumerIterator.hasNext())
         {
             QueueConsumer<?,?> consumer = consumerIterator.next();
-            if(consumer.getPriority() > sub.getPriority())
-            {
-                if(consumer.isNotifyWorkDesired()
-                   && consumer.acquires()
-                   && consumer.hasInterest(queueEntry)
-                   && getNextAvailableEntry(consumer) != null)
-                {
-                    return false;
-                }
-            }
-            else
+            consumersScanned++;
+            if(consumer.isNotifyWorkDesired()
+               && consumer.acquires()
+               && consumer.hasInterest(queueEntry)
+               && getNextAvailableEntry(consumer) != null)
             {
+                noHigherPriorityWithCredit = false;
                 break;
             }
         }
-        return true;
+        _queueStatistics.addToConsumerScans(consumersScanned);
+        return noHigherPriorityWithCredit;
     }
 
 
@@ -2187,8 +2274,6 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
-
         final Set<NotificationCheck> perMessageChecks = new HashSet<>();
         final Set<NotificationCheck> queueLevelChecks = new HashSet<>();
 
@@ -2207,6 +2292,51 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final long currentTime = System.currentTimeMillis();
         final long thresholdTime = currentTime - getAlertRepeatGap();
 
+        if (perMessageChecks.isEmpty() && _holdMethods.isEmpty())
+        {
+            expireIndexedEntries(currentTime);
+        }
+        else
+        {
+            checkAllEntries(perMessageChecks, listener, currentTime, thresholdTime);
+        }
+
+        for(NotificationCheck check : queueLevelChecks)
+        {
+            checkForNotification(null, listener, currentTime, thresholdTime, check);
+        }
+    }
+
+    private void expireIndexedEntries(final long currentTime)
+    {
+        if (_stopped.get())
+        {
+            return;
+        }
+
+        final QueueEntryExpiryIndex expiryIndex = getEntries().getExpiryIndex();
+        for (QueueEntry node : expiryIndex.removeExpired(currentTime))
+        {
+            if (!node.isDeleted() && node.expired())
+            {
+                expireEntry(node);
+            }
+
+            // entries which could not be expired (for instance those currently acquired by a consumer)
+            // are retained so that they are considered again on the next check
+            if (!node.isDeleted())
+            {
+                expiryIndex.add(node);
+            }
+        }
+    }
+
+    private void checkAllEntries(final Set<NotificationCheck> perMessageChecks,
+                                 final QueueNotificationListener listener,
+                                 final long currentTime,
+                                 final long thresholdTime)
+    {
+        QueueEntryIterator queueListIterator = getEntries().iterator();
         while (!_stopped.get() && queueListIterator.advance())
         {
             final QueueEntry node = queueListIterator.getNode();
@@ -2243,11 +2373,6 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
         }
-
-        for(NotificationCheck check : queueLevelChecks)
-        {
-            checkForNotification(null, listener, currentTime, thresholdTime, check);
-        }
     }
 
     private void expireEntry(final QueueEntry node)
@@ -2589,37 +2714,37 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public long getTotalEnqueuedBytes()
     {
-        return _queueStatistics.getEnqueueSize();
+        return statistics().getEnqueueSize();
     }
 
     @Override
     public long getTotalDequeuedBytes()
     {
-        return _queueStatistics.getDequeueSize();
+        return statistics().getDequeueSize();
     }
 
     @Override
     public long getPersistentEnqueuedBytes()
     {
-        return _queueStatistics.getPersistentEnqueueSize();
+        return statistics().getPersistentEnqueueSize();
     }
 
     @Override
     public long getPersistentDequeuedBytes()
     {
-        return _queueStatistics.getPersistentDequeueSize();
+        return statistics().getPersistentDequeueSize();
     }
 
     @Override
     public long getPersistentEnqueuedMessages()
     {
-        return _queueStatistics.getPersistentEnqueueCount();
+        return statistics().getPersistentEnqueueCount();
     }
 
     @Override
     public long getPersistentDequeuedMessages()
     {
-        return _queueStatistics.getPersistentDequeueCount();
+        return statistics().getPersistentDequeueCount();
     }
 
     @Override
@@ -2668,13 +2793,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public long getUnacknowledgedMessages()
     {
-        return _queueStatistics.getUnackedCount();
+        return statistics().getUnackedCount();
     }
 
     @Override
     public long getUnacknowledgedBytes()
     {
-        return _queueStatistics.getUnackedSize();
+        return statistics().getUnackedSize();
     }
 
     @Override
@@ -2686,13 +2811,69 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public long getTotalExpiredBytes()
     {
-        return _queueStatistics.getExpiredSize();
+        return statistics().getExpiredSize();
+    }
+
+    @Override
+    public long getConsumerScans()
+    {
+        return _queueStatistics.getConsumerScanCount();
+    }
+
+    @Override
+    public long getConsumersScanned()
+    {
+        return _queueStatistics.getConsumersScanned();
+    }
+
+    @Override
+    public long getPurgedMessages()
+    {
+        return _purgedMessages.sum();
+    }
+
+    @Override
+    public long getReadAheadMessages()
+    {
+        final QueueEntryReadAhead readAhead = _readAhead;
+        return readAhead == null ? 0L : readAhead.getLoadedMessages();
+    }
+
+    @Override
+    public long getReadAheadBytes()
+    {
+        final QueueEntryReadAhead readAhead = _readAhead;
+        return readAhead == null ? 0L : readAhead.getLoadedBytes();
     }
 
     @Override
     public long getTotalExpiredMessages()
     {
-        return _queueStatistics.getExpiredCount();
+        return statistics().getExpiredCount();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics(final List<String> statistics)
+    {
+        _statisticsSnapshot.set(_queueStatistics.getSnapshot());
+        try
+        {
+            return super.getStatistics(statistics);
+        }
+        finally
+        {
+            _statisticsSnapshot.remove();
+        }
+    }
+
+    /**
+     * Returns the snapshot taken for the statistics currently being reported on this thread, so that the values
+     * reported together are consistent with each other, or the live statistics otherwise.
+     */
+    private QueueStatisticValues statistics()
+    {
+        final QueueStatistics.Snapshot snapshot = _statisticsSnapshot.get();
+        return snapshot == null ? _queueStatistics : snapshot;
     }
 
     private void checkForNotification(final ServerMessage<?> msg,
@@ -3026,6 +3207,17 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @StateTransition(currentState = {State.UNINITIALIZED,State.ERRORED}, desiredState = State.ACTIVE)
     private ListenableFuture<Void> activate()
     {
+        final int readAheadCount = getContextValue(Integer.class, QUEUE_READ_AHEAD_COUNT);
+        final MessageStore messageStore = _virtualHost.getMessageStore();
+        if (readAheadCount > 0 && messageStore != null && messageStore.isPersistent())
+        {
+            final String taskName = "Queue Read Ahead: " + getName();
+            final AccessControlContext context = getSystemTaskControllerContext("Queue Read Ahead",
+                                                                                _virtualHost.getPrincipal());
+            _readAhead = new QueueEntryReadAhead(getEntries(),
+                                                 readAheadCount,
+                                                 task -> _virtualHost.executeTask(taskName, task, context));
+        }
         _virtualHost.scheduleHouseKeepingTask(_virtualHost.getHousekeepingCheckPeriod(), _queueHouseKeepingTask);
         setState(State.ACTIVE);
         return Futures.immediateFuture(null);
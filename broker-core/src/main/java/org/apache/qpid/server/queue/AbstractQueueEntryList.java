@@ -20,6 +20,12 @@
  */
 package org.apache.qpid.server.queue;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.store.MessageDurability;
@@ -31,6 +37,16 @@ abstract class AbstractQueueEntryList implements QueueEntryList
     private final boolean _respectPersistent;
     private final Queue<?> _queue;
     private final QueueStatistics _queueStatistics;
+    private final QueueEntryExpiryIndex _expiryIndex = new QueueEntryExpiryIndex();
+    // held by the list rather than by each entry as rejections are rare and a deep queue holds very many entries
+    private final ConcurrentMap<QueueEntry, Set<Object>> _rejectedBy = new ConcurrentHashMap<>();
+    /**
+     * The outcomes of the selectors shared between consumers of the queue, for each entry against which a shared
+     * selector has been evaluated, with the epoch of the slot assignment in the upper half and two bits per slot,
+     * whether evaluated and whether matched, in the lower half. Held by the list so that entries of queues without
+     * shared selectors carry no space for them.
+     */
+    private final ConcurrentMap<QueueEntry, AtomicLong> _sharedFilterResults = new ConcurrentHashMap<>();
 
     protected AbstractQueueEntryList(final Queue<?> queue, final QueueStatistics queueStatistics)
     {
@@ -47,13 +63,13 @@ abstract class AbstractQueueEntryList implements QueueEntryList
     {
         final long sizeWithHeader = entry.getSizeWithHeader();
         final QueueStatistics queueStatistics = _queueStatistics;
-        queueStatistics.addToAvailable(sizeWithHeader);
-        queueStatistics.addToQueue(sizeWithHeader);
         queueStatistics.addToEnqueued(sizeWithHeader);
         if(_forcePersistent || (_respectPersistent && entry.getMessage().isPersistent()))
         {
             queueStatistics.addToPersistentEnqueued(sizeWithHeader);
         }
+        queueStatistics.addToAvailable(sizeWithHeader);
+        queueStatistics.addToQueue(sizeWithHeader);
     }
 
     @Override
@@ -95,9 +111,75 @@ abstract class AbstractQueueEntryList implements QueueEntryList
                 {
                     queueStatistics.addToPersistentDequeued(sizeWithHeader);
                 }
+                getExpiryIndex().remove(entry);
+                if(!_rejectedBy.isEmpty())
+                {
+                    _rejectedBy.remove(entry);
+                }
+                if(!_sharedFilterResults.isEmpty())
+                {
+                    _sharedFilterResults.remove(entry);
+                }
                 _queue.checkCapacity();
 
         }
     }
 
+    @Override
+    public QueueEntryExpiryIndex getExpiryIndex()
+    {
+        return _expiryIndex;
+    }
+
+    @Override
+    public void addRejectedBy(final QueueEntry entry, final Object consumerIdentifier)
+    {
+        _rejectedBy.computeIfAbsent(entry, e -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
+                   .add(consumerIdentifier);
+        if(entry.isDeleted())
+        {
+            _rejectedBy.remove(entry);
+        }
+    }
+
+    @Override
+    public boolean isRejectedBy(final QueueEntry entry, final Object consumerIdentifier)
+    {
+        if(_rejectedBy.isEmpty())
+        {
+            return false;
+        }
+        final Set<Object> rejectedBy = _rejectedBy.get(entry);
+        return rejectedBy != null && rejectedBy.contains(consumerIdentifier);
+    }
+
+    @Override
+    public int getSharedFilterResult(final QueueEntry entry, final int epoch, final int slot)
+    {
+        if(_sharedFilterResults.isEmpty())
+        {
+            return -1;
+        }
+        final AtomicLong holder = _sharedFilterResults.get(entry);
+        final long results = holder == null ? 0L : holder.get();
+        if ((int) (results >>> 32) != epoch || (results & (1L << (2 * slot))) == 0L)
+        {
+            return -1;
+        }
+        return (results & (2L << (2 * slot))) == 0L ? 0 : 1;
+    }
+
+    @Override
+    public void setSharedFilterResult(final QueueEntry entry, final int epoch, final int slot, final boolean matches)
+    {
+        final long slotBits = (matches ? 3L : 1L) << (2 * slot);
+        _sharedFilterResults.computeIfAbsent(entry, e -> new AtomicLong())
+                            .updateAndGet(results -> (int) (results >>> 32) == epoch
+                                    ? results | slotBits
+                                    : ((long) epoch << 32) | slotBits);
+        if(entry.isDeleted())
+        {
+            _sharedFilterResults.remove(entry);
+        }
+    }
 }
@@ -0,0 +1,409 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.txn.LocalTransaction;
+import org.apache.qpid.server.txn.ServerTransaction;
+
+/**
+ * Routes acquired queue entries to the alternate binding of their queue on a background executor, so that expiring
+ * or deleting large numbers of messages does not hold up the thread which acquired them.
+ * <p>
+ * Entries are routed in batches, the dequeues and enqueues of each batch being performed in a single store
+ * transaction. Each batch is run as a separate task so that other work on the executor is interleaved with a long
+ * running bulk move. The number of individually submitted entries awaiting routing is bounded; once the bound is
+ * reached submission is refused and the caller is expected to route the entry itself, slowing it to the rate at
+ * which entries are routed.
+ * <p>
+ * When the pipeline is closed, or the future of a bulk submission is cancelled, entries which have not yet been
+ * routed are released back to their queues.
+ */
+public final class AlternateRoutingPipeline
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlternateRoutingPipeline.class);
+
+    private final MessageStore _messageStore;
+    private final Executor _executor;
+    private final int _batchSize;
+    private final int _maximumPending;
+    private final java.util.Queue<PendingRoute> _pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _pendingCount = new AtomicInteger();
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+    private final AtomicLong _routedMessages = new AtomicLong();
+    private final AtomicLong _discardedMessages = new AtomicLong();
+    private final java.util.Queue<SettableFuture<Void>> _idleFutures = new ConcurrentLinkedQueue<>();
+    private volatile boolean _closed;
+
+    public AlternateRoutingPipeline(final MessageStore messageStore,
+                                    final Executor executor,
+                                    final int batchSize,
+                                    final int maximumPending)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        _messageStore = messageStore;
+        _executor = executor;
+        _batchSize = batchSize;
+        _maximumPending = maximumPending;
+    }
+
+    /**
+     * Submits an acquired entry to be routed to the alternate binding of its queue.
+     *
+     * @param entry the acquired entry
+     * @param predicate if not null, restricts the queues to which the entry may be routed
+     * @param postRouteTask if not null, run once the entry has been routed
+     * @return false if the entry was not accepted, in which case the caller remains responsible for it
+     */
+    public boolean submit(final QueueEntry entry, final Predicate<BaseQueue> predicate, final Runnable postRouteTask)
+    {
+        if (_closed)
+        {
+            return false;
+        }
+        if (_pendingCount.incrementAndGet() > _maximumPending)
+        {
+            _pendingCount.decrementAndGet();
+            return false;
+        }
+        _pending.add(new PendingRoute(entry, predicate, postRouteTask, null));
+        scheduleOrDrain();
+        return true;
+    }
+
+    /**
+     * Submits acquired entries to be routed to the alternate bindings of their queues. The number of entries
+     * awaiting routing is not bounded for bulk submissions, the entries having been acquired by the caller already.
+     *
+     * @return a future giving the number of entries which were routed to at least one queue, which if cancelled
+     * releases the entries which have not yet been routed
+     */
+    public ListenableFuture<Integer> submitAll(final Collection<? extends QueueEntry> entries)
+    {
+        if (_closed)
+        {
+            return Futures.immediateCancelledFuture();
+        }
+        if (entries.isEmpty())
+        {
+            return Futures.immediateFuture(0);
+        }
+
+        final BulkRoute bulkRoute = new BulkRoute(entries.size());
+        _pendingCount.addAndGet(entries.size());
+        for (QueueEntry entry : entries)
+        {
+            _pending.add(new PendingRoute(entry, null, null, bulkRoute));
+        }
+        scheduleOrDrain();
+        return bulkRoute.getFuture();
+    }
+
+    /**
+     * Returns a future which completes once no entries are awaiting routing, that is once the entries submitted so
+     * far have been routed or released.
+     */
+    public ListenableFuture<Void> whenIdle()
+    {
+        final SettableFuture<Void> future = SettableFuture.create();
+        _idleFutures.add(future);
+        notifyIfIdle();
+        return future;
+    }
+
+    /**
+     * Stops routing, releasing the entries which have not yet been routed. A batch which is being routed when the
+     * pipeline is closed is completed.
+     */
+    public void close()
+    {
+        _closed = true;
+        drain();
+    }
+
+    public int getPendingMessages()
+    {
+        return _pendingCount.get();
+    }
+
+    public long getRoutedMessages()
+    {
+        return _routedMessages.get();
+    }
+
+    public long getDiscardedMessages()
+    {
+        return _discardedMessages.get();
+    }
+
+    private void scheduleOrDrain()
+    {
+        if (_closed)
+        {
+            drain();
+        }
+        else if (!_pending.isEmpty() && _scheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                _executor.execute(this::routeBatch);
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOGGER.debug("Alternate routing task rejected, routing in the submitting thread", e);
+                try
+                {
+                    while (!_closed && !_pending.isEmpty())
+                    {
+                        routeNextBatch();
+                    }
+                }
+                finally
+                {
+                    _scheduled.set(false);
+                }
+                if (_closed)
+                {
+                    drain();
+                }
+            }
+        }
+    }
+
+    private void routeBatch()
+    {
+        try
+        {
+            if (!_closed)
+            {
+                routeNextBatch();
+            }
+        }
+        finally
+        {
+            _scheduled.set(false);
+        }
+        scheduleOrDrain();
+    }
+
+    private void routeNextBatch()
+    {
+        final List<PendingRoute> batch = new ArrayList<>(Math.min(_batchSize, Math.max(_pendingCount.get(), 1)));
+        PendingRoute pendingRoute;
+        while (batch.size() < _batchSize && (pendingRoute = _pending.poll()) != null)
+        {
+            if (pendingRoute.isCancelled())
+            {
+                pendingRoute.release();
+            }
+            else
+            {
+                batch.add(pendingRoute);
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            route(batch);
+        }
+        notifyIfIdle();
+    }
+
+    private void route(final List<PendingRoute> batch)
+    {
+        final ServerTransaction txn = new LocalTransaction(_messageStore);
+        final int[] enqueues = new int[batch.size()];
+        try
+        {
+            for (int i = 0; i < enqueues.length; i++)
+            {
+                final PendingRoute pendingRoute = batch.get(i);
+                enqueues[i] = pendingRoute.getEntry().routeToAlternate(null, txn, pendingRoute.getPredicate());
+            }
+            txn.commit();
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.error("Failed to route a batch of {} entries to alternate bindings", batch.size(), e);
+            txn.rollback();
+            for (PendingRoute pendingRoute : batch)
+            {
+                pendingRoute.fail(e);
+            }
+            return;
+        }
+
+        _pendingCount.addAndGet(-batch.size());
+        long discarded = 0L;
+        for (int i = 0; i < enqueues.length; i++)
+        {
+            if (enqueues[i] == 0)
+            {
+                discarded++;
+            }
+            batch.get(i).routed(enqueues[i] > 0);
+        }
+        _routedMessages.addAndGet(enqueues.length - discarded);
+        _discardedMessages.addAndGet(discarded);
+    }
+
+    private void drain()
+    {
+        PendingRoute pendingRoute;
+        while ((pendingRoute = _pending.poll()) != null)
+        {
+            pendingRoute.release();
+        }
+        notifyIfIdle();
+    }
+
+    private void notifyIfIdle()
+    {
+        if (_pendingCount.get() == 0)
+        {
+            SettableFuture<Void> future;
+            while ((future = _idleFutures.poll()) != null)
+            {
+                future.set(null);
+            }
+        }
+    }
+
+    private final class PendingRoute
+    {
+        private final QueueEntry _entry;
+        private final Predicate<BaseQueue> _predicate;
+        private final Runnable _postRouteTask;
+        private final BulkRoute _bulkRoute;
+
+        private PendingRoute(final QueueEntry entry,
+                             final Predicate<BaseQueue> predicate,
+                             final Runnable postRouteTask,
+                             final BulkRoute bulkRoute)
+        {
+            _entry = entry;
+            _predicate = predicate;
+            _postRouteTask = postRouteTask;
+            _bulkRoute = bulkRoute;
+        }
+
+        QueueEntry getEntry()
+        {
+            return _entry;
+        }
+
+        Predicate<BaseQueue> getPredicate()
+        {
+            return _predicate;
+        }
+
+        boolean isCancelled()
+        {
+            return _bulkRoute != null && _bulkRoute.getFuture().isCancelled();
+        }
+
+        void routed(final boolean hasRoutes)
+        {
+            if (_postRouteTask != null)
+            {
+                _postRouteTask.run();
+            }
+            if (_bulkRoute != null)
+            {
+                _bulkRoute.completed(hasRoutes);
+            }
+        }
+
+        void release()
+        {
+            _pendingCount.decrementAndGet();
+            _entry.release();
+            if (_bulkRoute != null)
+            {
+                _bulkRoute.failed(new CancellationException("Routing to alternate binding cancelled"));
+            }
+        }
+
+        void fail(final RuntimeException e)
+        {
+            _pendingCount.decrementAndGet();
+            _entry.release();
+            if (_bulkRoute != null)
+            {
+                _bulkRoute.failed(e);
+            }
+        }
+    }
+
+    private static final class BulkRoute
+    {
+        private final SettableFuture<Integer> _future = SettableFuture.create();
+        private final AtomicInteger _remaining;
+        private final AtomicInteger _routed = new AtomicInteger();
+
+        private BulkRoute(final int size)
+        {
+            _remaining = new AtomicInteger(size);
+        }
+
+        SettableFuture<Integer> getFuture()
+        {
+            return _future;
+        }
+
+        void completed(final boolean hasRoutes)
+        {
+            if (hasRoutes)
+            {
+                _routed.incrementAndGet();
+            }
+            if (_remaining.decrementAndGet() == 0)
+            {
+                _future.set(_routed.get());
+            }
+        }
+
+        void failed(final Throwable t)
+        {
+            _future.setException(t);
+        }
+    }
+}
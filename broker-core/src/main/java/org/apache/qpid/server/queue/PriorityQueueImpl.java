@@ -22,6 +22,7 @@ package org.apache.qpid.server.queue;
 
 import java.util.Map;
 
+import org.apache.qpid.server.configuration.IllegalConfigurationException;
 import org.apache.qpid.server.logging.LogMessage;
 import org.apache.qpid.server.logging.messages.QueueMessages;
 import org.apache.qpid.server.model.LifetimePolicy;
@@ -43,6 +44,19 @@ public class PriorityQueueImpl extends OutOfOrderQueue<PriorityQueueImpl> implem
         super(attributes, virtualHost);
     }
 
+    @Override
+    protected void validateOnCreate()
+    {
+        super.validateOnCreate();
+        if (_priorities < 1 || _priorities > PriorityQueueList.PriorityQueueMasterList.MAX_PRIORITY_LEVELS)
+        {
+            throw new IllegalConfigurationException(String.format("Priorities for queue '%s' must be between 1 and %d: %d",
+                                                                  getName(),
+                                                                  PriorityQueueList.PriorityQueueMasterList.MAX_PRIORITY_LEVELS,
+                                                                  _priorities));
+        }
+    }
+
     @Override
     protected void onOpen()
     {
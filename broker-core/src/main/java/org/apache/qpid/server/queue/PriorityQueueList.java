@@ -20,6 +20,9 @@
 */
 package org.apache.qpid.server.queue;
 
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 
@@ -38,8 +41,20 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         super(queue, queue.getQueueStatistics(), headCreator);
     }
 
+    /**
+     * Holds one sub-list per priority level. Sub-lists for levels other than the highest and the lowest are
+     * only created once a message of that priority is enqueued, and a bitmap records the levels which may hold
+     * entries, so that moving from an exhausted level to the next lower level holding entries does not need to
+     * probe each of the levels in between.
+     * <p>
+     * A level is marked after an entry has been added to it, and is only unmarked by a thread which has found the
+     * level to have no valid entries and which rechecks the level after unmarking it, so a level holding valid
+     * entries is never left unmarked.
+     */
     static class PriorityQueueMasterList extends PriorityQueueList
     {
+        static final int MAX_PRIORITY_LEVELS = 256;
+
         private static final HeadCreator DUMMY_HEAD_CREATOR =
                 new HeadCreator()
                 {
@@ -50,7 +65,8 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
                     }
                 };
         private final PriorityQueueImpl _queue;
-        private final PriorityQueueEntrySubList[] _priorityLists;
+        private final AtomicReferenceArray<PriorityQueueEntrySubList> _priorityLists;
+        private final AtomicLongArray _nonEmptyLevels;
         private final int _priorities;
         private final int _priorityOffset;
 
@@ -58,12 +74,18 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         {
             super(queue, DUMMY_HEAD_CREATOR);
             _queue = queue;
-            _priorityLists = new PriorityQueueEntrySubList[priorities];
+            _priorityLists = new AtomicReferenceArray<>(priorities);
+            _nonEmptyLevels = new AtomicLongArray((priorities + 63) >>> 6);
             _priorities = priorities;
-            _priorityOffset = 5-((priorities + 1)/2);
-            for(int i = 0; i < priorities; i++)
+            // fewer levels than the ten JMS priorities are centred on the JMS default priority, whereas more levels
+            // map each priority onto its own level so that the full 0-255 range can be distinguished
+            _priorityOffset = Math.max(0, 5-((priorities + 1)/2));
+
+            // the highest level holds the head and the lowest level holds the tail of the list
+            _priorityLists.set(priorities - 1, new PriorityQueueEntrySubList(queue, priorities - 1, this));
+            if (priorities > 1)
             {
-                _priorityLists[i] = new PriorityQueueEntrySubList(queue, i);
+                _priorityLists.set(0, new PriorityQueueEntrySubList(queue, 0, this));
             }
         }
 
@@ -82,7 +104,7 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         @Override
         public PriorityQueueEntry add(ServerMessage message, final MessageEnqueueRecord enqueueRecord)
         {
-            int index = message.getMessageHeader().getPriority() - _priorityOffset;
+            int index = (message.getMessageHeader().getPriority() & 0xFF) - _priorityOffset;
             if(index >= _priorities)
             {
                 index = _priorities-1;
@@ -91,8 +113,23 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             {
                 index = 0;
             }
-            return (PriorityQueueEntry) _priorityLists[index].add(message, enqueueRecord);
+            final PriorityQueueEntry entry = (PriorityQueueEntry) getOrCreateSubList(index).add(message, enqueueRecord);
+            markNonEmpty(index);
+            return entry;
+        }
 
+        private PriorityQueueEntrySubList getOrCreateSubList(final int index)
+        {
+            PriorityQueueEntrySubList subList = _priorityLists.get(index);
+            if (subList == null)
+            {
+                subList = new PriorityQueueEntrySubList(_queue, index, this);
+                if (!_priorityLists.compareAndSet(index, null, subList))
+                {
+                    subList = _priorityLists.get(index);
+                }
+            }
+            return subList;
         }
 
         @Override
@@ -109,48 +146,79 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
 
             if(next == null)
             {
-                final PriorityQueueList nodeEntryList = (PriorityQueueList) ((PriorityQueueEntry)node).getQueueEntryList();
-                int index;
-                for(index = _priorityLists.length-1; _priorityLists[index] != nodeEntryList; index--)
+                final PriorityQueueEntrySubList nodeEntryList =
+                        (PriorityQueueEntrySubList) ((PriorityQueueEntry)node).getQueueEntryList();
+                int index = nodeEntryList.getListPriority();
+
+                while(next == null && (index = nextNonEmptyLevelBelow(index)) >= 0)
                 {
-                    // do nothing loop is just to find the index
+                    next = firstValidEntry(index);
                 }
+            }
+            return next;
+        }
 
-                while(next == null && index != 0)
+        private PriorityQueueEntry firstValidEntry(final int index)
+        {
+            final QueueEntry head = _priorityLists.get(index).getHead();
+            PriorityQueueEntry first = (PriorityQueueEntry) head.getNextValidEntry();
+            if (first == null)
+            {
+                markEmpty(index);
+                // recheck, as an entry may have been added after the level was found empty but before it was unmarked
+                first = (PriorityQueueEntry) head.getNextValidEntry();
+                if (first != null)
                 {
-                    index--;
-                    next = (PriorityQueueEntry) _priorityLists[index].getHead().getNextValidEntry();
+                    markNonEmpty(index);
                 }
+            }
+            return first;
+        }
 
+        private void markNonEmpty(final int index)
+        {
+            final int word = index >>> 6;
+            final long mask = 1L << (index & 63);
+            if ((_nonEmptyLevels.get(word) & mask) == 0L)
+            {
+                _nonEmptyLevels.getAndAccumulate(word, mask, (current, bits) -> current | bits);
             }
-            return next;
+        }
+
+        private void markEmpty(final int index)
+        {
+            _nonEmptyLevels.getAndAccumulate(index >>> 6, ~(1L << (index & 63)), (current, bits) -> current & bits);
+        }
+
+        private int nextNonEmptyLevelBelow(final int index)
+        {
+            int level = index - 1;
+            while (level >= 0)
+            {
+                final int word = level >>> 6;
+                final long levels = _nonEmptyLevels.get(word) & (-1L >>> (63 - (level & 63)));
+                if (levels != 0L)
+                {
+                    return (word << 6) + 63 - Long.numberOfLeadingZeros(levels);
+                }
+                level = (word << 6) - 1;
+            }
+            return -1;
         }
 
         private final class PriorityQueueEntryListIterator implements QueueEntryIterator
         {
-            private final QueueEntryIterator[] _iterators = new QueueEntryIterator[ _priorityLists.length ];
             private PriorityQueueEntry _lastNode;
 
             PriorityQueueEntryListIterator()
             {
-                for(int i = 0; i < _priorityLists.length; i++)
-                {
-                    _iterators[i] = _priorityLists[i].iterator();
-                }
-                _lastNode = (PriorityQueueEntry) _iterators[_iterators.length - 1].getNode();
+                _lastNode = getHead();
             }
 
             @Override
             public boolean atTail()
             {
-                for(int i = 0; i < _iterators.length; i++)
-                {
-                    if(!_iterators[i].atTail())
-                    {
-                        return false;
-                    }
-                }
-                return true;
+                return next(_lastNode) == null;
             }
 
             @Override
@@ -162,13 +230,11 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             @Override
             public boolean advance()
             {
-                for(int i = _iterators.length-1; i >= 0; i--)
+                final PriorityQueueEntry next = next(_lastNode);
+                if (next != null)
                 {
-                    if(_iterators[i].advance())
-                    {
-                        _lastNode = (PriorityQueueEntry) _iterators[i].getNode();
-                        return true;
-                    }
+                    _lastNode = next;
+                    return true;
                 }
                 return false;
             }
@@ -184,13 +250,13 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         @Override
         public PriorityQueueEntry getHead()
         {
-            return (PriorityQueueEntry) _priorityLists[_priorities-1].getHead();
+            return (PriorityQueueEntry) _priorityLists.get(_priorities-1).getHead();
         }
 
         @Override
         public PriorityQueueEntry getTail()
         {
-            return (PriorityQueueEntry) _priorityLists[0].getTail();
+            return (PriorityQueueEntry) _priorityLists.get(0).getTail();
         }
 
 
@@ -205,9 +271,10 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         public QueueEntry getOldestEntry()
         {
             QueueEntry oldest = null;
-            for(PriorityQueueEntrySubList subList : _priorityLists)
+            for(int i = 0; i < _priorities; i++)
             {
-                QueueEntry subListOldest = subList.getOldestEntry();
+                final PriorityQueueEntrySubList subList = _priorityLists.get(i);
+                QueueEntry subListOldest = subList == null ? null : subList.getOldestEntry();
                 if(oldest == null || (subListOldest != null && subListOldest.getMessage().getMessageNumber() < oldest.getMessage().getMessageNumber()))
                 {
                     oldest = subListOldest;
@@ -219,9 +286,10 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         @Override
         public QueueEntry getLeastSignificantOldestEntry()
         {
-            for(PriorityQueueEntrySubList subList : _priorityLists)
+            for(int i = 0; i < _priorities; i++)
             {
-                QueueEntry subListLast = subList.getLeastSignificantOldestEntry();
+                final PriorityQueueEntrySubList subList = _priorityLists.get(i);
+                QueueEntry subListLast = subList == null ? null : subList.getLeastSignificantOldestEntry();
                 if(subListLast != null)
                 {
                     return subListLast;
@@ -242,11 +310,19 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             }
         };
         private int _listPriority;
+        private final PriorityQueueMasterList _masterList;
 
-        public PriorityQueueEntrySubList(PriorityQueueImpl queue, int listPriority)
+        public PriorityQueueEntrySubList(PriorityQueueImpl queue, int listPriority, PriorityQueueMasterList masterList)
         {
             super(queue, HEAD_CREATOR);
             _listPriority = listPriority;
+            _masterList = masterList;
+        }
+
+        @Override
+        public QueueEntryExpiryIndex getExpiryIndex()
+        {
+            return _masterList.getExpiryIndex();
         }
 
         @Override
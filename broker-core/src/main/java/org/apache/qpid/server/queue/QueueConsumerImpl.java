@@ -419,19 +419,12 @@ class QueueConsumerImpl<T extends ConsumerTarget>
             {
                 try
                 {
-
-                    Filterable msg = entry.asFilterable();
-                    try
-                    {
-                        return _filters.allAllow(msg);
-                    }
-                    catch (SelectorParsingException e)
+                    final SharedFilterSlots.Assignment sharedFilters = _queue.getSharedFilterSlots().getAssignment();
+                    if (sharedFilters.isEmpty())
                     {
-                        LOGGER.info(this + " could not evaluate filter [" + _filters
-                                    + "]  against message " + msg
-                                    + ". Error was : " + e.getMessage());
-                        return false;
+                        return allFiltersAllow(entry.asFilterable());
                     }
+                    return allFiltersAllow(entry, sharedFilters);
                 }
                 finally
                 {
@@ -445,6 +438,82 @@ class QueueConsumerImpl<T extends ConsumerTarget>
         }
     }
 
+    private boolean allFiltersAllow(final Filterable msg)
+    {
+        try
+        {
+            return _filters.allAllow(msg);
+        }
+        catch (SelectorParsingException e)
+        {
+            logFilterFailure(msg, e);
+            return false;
+        }
+    }
+
+    private boolean allFiltersAllow(final QueueEntry entry, final SharedFilterSlots.Assignment sharedFilters)
+    {
+        Filterable msg = null;
+        try
+        {
+            final Iterator<MessageFilter> filters = _filters.filters();
+            while (filters.hasNext())
+            {
+                final MessageFilter filter = filters.next();
+                final int slot = sharedFilters.getSlot(filter);
+                final boolean matches;
+                if (slot < 0)
+                {
+                    if (msg == null)
+                    {
+                        msg = entry.asFilterable();
+                    }
+                    matches = filter.matches(msg);
+                }
+                else
+                {
+                    final int result = entry.getSharedFilterResult(sharedFilters.getEpoch(), slot);
+                    if (result < 0)
+                    {
+                        if (msg == null)
+                        {
+                            msg = entry.asFilterable();
+                        }
+                        matches = filter.matches(msg);
+                        entry.setSharedFilterResult(sharedFilters.getEpoch(), slot, matches);
+                    }
+                    else
+                    {
+                        matches = result == 1;
+                    }
+                }
+
+                if (!matches)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch (SelectorParsingException e)
+        {
+            logFilterFailure(msg, e);
+            return false;
+        }
+    }
+
+    private void logFilterFailure(final Filterable msg, final SelectorParsingException e)
+    {
+        LOGGER.info(this + " could not evaluate filter [" + _filters
+                    + "]  against message " + msg
+                    + ". Error was : " + e.getMessage());
+    }
+
+    FilterManager getFilterManager()
+    {
+        return _filters;
+    }
+
     protected String getFilterLogString()
     {
         StringBuilder filterLogString = new StringBuilder();
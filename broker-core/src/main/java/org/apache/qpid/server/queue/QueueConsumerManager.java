@@ -30,6 +30,7 @@ public interface QueueConsumerManager
     boolean setNotified(QueueConsumer<?,?> consumer, boolean notified);
 
     Iterator<QueueConsumer<?,?>> getInterestedIterator();
+    Iterator<QueueConsumer<?,?>> getHigherPriorityWithCreditIterator(int priority);
     Iterator<QueueConsumer<?,?>> getAllIterator();
     Iterator<QueueConsumer<?,?>> getNonAcquiringIterator();
 
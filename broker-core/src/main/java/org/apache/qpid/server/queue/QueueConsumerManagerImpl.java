@@ -26,7 +26,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.CopyOnWriteArrayList;
-
+import java.util.function.Function;
+
+/**
+ * Keeps the consumers of a queue indexed by priority and by state.
+ * <p>
+ * Each distinct consumer priority has a bucket holding all its consumers together with the lists of its interested
+ * and notified consumers, and each consumer node refers directly to its bucket, so moving a consumer between states
+ * does not involve looking up its priority. The lists keep their sizes, so the buckets without consumers in a given
+ * state are skipped without being iterated.
+ */
 public class QueueConsumerManagerImpl implements QueueConsumerManager
 {
     private static final EnumSet<NodeState> REMOVED = EnumSet.of(NodeState.REMOVED);
@@ -41,12 +50,11 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
 
     private final AbstractQueue<?> _queue;
 
-    private final List<PriorityConsumerListPair> _interested;
     private final QueueConsumerNodeList _notInterested;
-    private final List<PriorityConsumerListPair> _notified;
     private final QueueConsumerNodeList _nonAcquiring;
 
-    private final List<PriorityConsumerListPair> _allConsumers;
+    /** buckets in descending order of priority */
+    private final List<PriorityBucket> _buckets;
 
     private volatile int _count;
 
@@ -63,10 +71,8 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
     {
         _queue = queue;
         _notInterested = new QueueConsumerNodeList(queue);
-        _interested = new CopyOnWriteArrayList<>();
-        _notified = new CopyOnWriteArrayList<>();
         _nonAcquiring = new QueueConsumerNodeList(queue);
-        _allConsumers = new CopyOnWriteArrayList<>();
+        _buckets = new CopyOnWriteArrayList<>();
     }
 
     // Always in the config thread
@@ -163,13 +169,23 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
     @Override
     public Iterator<QueueConsumer<?,?>> getInterestedIterator()
     {
-        return new QueueConsumerIterator(new PrioritisedQueueConsumerNodeIterator(_interested));
+        return new QueueConsumerIterator(new PrioritisedQueueConsumerNodeIterator(_buckets.iterator(),
+                                                                                  bucket -> bucket._interested));
+    }
+
+    @Override
+    public Iterator<QueueConsumer<?,?>> getHigherPriorityWithCreditIterator(final int priority)
+    {
+        return new QueueConsumerIterator(new PrioritisedQueueConsumerNodeIterator(new HigherPriorityBucketIterator(priority),
+                                                                                  bucket -> bucket._interested,
+                                                                                  bucket -> bucket._notified));
     }
 
     @Override
     public Iterator<QueueConsumer<?,?>> getAllIterator()
     {
-        return new QueueConsumerIterator(new PrioritisedQueueConsumerNodeIterator(_allConsumers));
+        return new QueueConsumerIterator(new PrioritisedQueueConsumerNodeIterator(_buckets.iterator(),
+                                                                                  bucket -> bucket._allConsumers));
     }
 
     @Override
@@ -187,17 +203,14 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
     @Override
     public int getHighestNotifiedPriority()
     {
-        final Iterator<QueueConsumerNode> notifiedIterator =
-                new PrioritisedQueueConsumerNodeIterator(_notified);
-        if(notifiedIterator.hasNext())
+        for (PriorityBucket bucket : _buckets)
         {
-            final QueueConsumerNode queueConsumerNode = notifiedIterator.next();
-            return queueConsumerNode.getQueueConsumer().getPriority();
-        }
-        else
-        {
-            return Integer.MIN_VALUE;
+            if (!bucket._notified.isEmpty())
+            {
+                return bucket._priority;
+            }
         }
+        return Integer.MIN_VALUE;
     }
 
     QueueConsumerNodeListEntry addNodeToInterestList(final QueueConsumerNode queueConsumerNode)
@@ -206,29 +219,13 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
         switch (queueConsumerNode.getState())
         {
             case INTERESTED:
-                newListEntry = null;
-                for (PriorityConsumerListPair pair : _interested)
-                {
-                    if (pair._priority == queueConsumerNode.getQueueConsumer().getPriority())
-                    {
-                        newListEntry = pair._consumers.add(queueConsumerNode);
-                        break;
-                    }
-                }
+                newListEntry = queueConsumerNode.getPriorityBucket()._interested.add(queueConsumerNode);
                 break;
             case NOT_INTERESTED:
                 newListEntry = _notInterested.add(queueConsumerNode);
                 break;
             case NOTIFIED:
-                newListEntry = null;
-                for (PriorityConsumerListPair pair : _notified)
-                {
-                    if (pair._priority == queueConsumerNode.getQueueConsumer().getPriority())
-                    {
-                        newListEntry = pair._consumers.add(queueConsumerNode);
-                        break;
-                    }
-                }
+                newListEntry = queueConsumerNode.getPriorityBucket()._notified.add(queueConsumerNode);
                 break;
             case NON_ACQUIRING:
                 newListEntry = _nonAcquiring.add(queueConsumerNode);
@@ -272,75 +269,112 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
     {
         int consumerPriority = consumerNode.getQueueConsumer().getPriority();
         int i;
-        for (i = 0; i < _allConsumers.size(); ++i)
+        for (i = 0; i < _buckets.size(); ++i)
         {
-            final PriorityConsumerListPair priorityConsumerListPair = _allConsumers.get(i);
-            if (priorityConsumerListPair._priority == consumerPriority)
+            final PriorityBucket bucket = _buckets.get(i);
+            if (bucket._priority == consumerPriority)
             {
-                final QueueConsumerNodeListEntry entry = priorityConsumerListPair._consumers.add(consumerNode);
-                consumerNode.setAllEntry(entry);
+                consumerNode.setPriorityBucket(bucket);
+                consumerNode.setAllEntry(bucket._allConsumers.add(consumerNode));
                 return;
             }
-            else if (priorityConsumerListPair._priority < consumerPriority)
+            else if (bucket._priority < consumerPriority)
             {
                 break;
             }
         }
 
-        PriorityConsumerListPair newPriorityConsumerListPair = new PriorityConsumerListPair(consumerPriority);
-        final QueueConsumerNodeListEntry entry = newPriorityConsumerListPair._consumers.add(consumerNode);
-        consumerNode.setAllEntry(entry);
-        _allConsumers.add(i, newPriorityConsumerListPair);
-        _notified.add(i, new PriorityConsumerListPair(consumerPriority));
-        _interested.add(i, new PriorityConsumerListPair(consumerPriority));
+        final PriorityBucket bucket = new PriorityBucket(consumerPriority);
+        consumerNode.setPriorityBucket(bucket);
+        consumerNode.setAllEntry(bucket._allConsumers.add(consumerNode));
+        _buckets.add(i, bucket);
     }
 
     private void removeFromAll(final QueueConsumer<?,?> consumer)
     {
         final QueueConsumerNode node = consumer.getQueueConsumerNode();
-        int consumerPriority = consumer.getPriority();
-        for (int i = 0; i < _allConsumers.size(); ++i)
+        final PriorityBucket bucket = node.getPriorityBucket();
+        bucket._allConsumers.removeEntry(node.getAllEntry());
+        if (bucket._allConsumers.isEmpty())
         {
-            final PriorityConsumerListPair priorityConsumerListPair = _allConsumers.get(i);
-            if (priorityConsumerListPair._priority == consumerPriority)
-            {
-                priorityConsumerListPair._consumers.removeEntry(node.getAllEntry());
-                if (priorityConsumerListPair._consumers.isEmpty())
-                {
-                    _allConsumers.remove(i);
-                    _notified.remove(i);
-                    _interested.remove(i);
-                }
-                return;
-            }
-            else if (priorityConsumerListPair._priority < consumerPriority)
-            {
-                break;
-            }
+            _buckets.remove(bucket);
         }
     }
 
-
-    private class PriorityConsumerListPair
+    final class PriorityBucket
     {
-        final int _priority;
-        final QueueConsumerNodeList _consumers;
+        private final int _priority;
+        private final QueueConsumerNodeList _allConsumers;
+        private final QueueConsumerNodeList _interested;
+        private final QueueConsumerNodeList _notified;
 
-        private PriorityConsumerListPair(final int priority)
+        private PriorityBucket(final int priority)
         {
             _priority = priority;
-            _consumers = new QueueConsumerNodeList(_queue);
+            _allConsumers = new QueueConsumerNodeList(_queue);
+            _interested = new QueueConsumerNodeList(_queue);
+            _notified = new QueueConsumerNodeList(_queue);
         }
     }
 
-    private class PrioritisedQueueConsumerNodeIterator implements Iterator<QueueConsumerNode>
+    private class HigherPriorityBucketIterator implements Iterator<PriorityBucket>
     {
-        final Iterator<PriorityConsumerListPair> _outerIterator;
-        Iterator<QueueConsumerNode> _innerIterator;
+        private final Iterator<PriorityBucket> _underlying = _buckets.iterator();
+        private final int _priority;
+        private PriorityBucket _next;
+        private boolean _done;
 
-        private PrioritisedQueueConsumerNodeIterator(List<PriorityConsumerListPair> list)
+        private HigherPriorityBucketIterator(final int priority)
         {
-            _outerIterator = list.iterator();
+            _priority = priority;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (_next == null && !_done)
+            {
+                final PriorityBucket bucket = _underlying.hasNext() ? _underlying.next() : null;
+                if (bucket != null && bucket._priority > _priority)
+                {
+                    _next = bucket;
+                }
+                else
+                {
+                    _done = true;
+                }
+            }
+            return _next != null;
+        }
+
+        @Override
+        public PriorityBucket next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            final PriorityBucket next = _next;
+            _next = null;
+            return next;
+        }
+    }
+
+    private static class PrioritisedQueueConsumerNodeIterator implements Iterator<QueueConsumerNode>
+    {
+        private final Iterator<PriorityBucket> _bucketIterator;
+        private final Function<PriorityBucket, QueueConsumerNodeList>[] _lists;
+        private PriorityBucket _bucket;
+        private int _listIndex;
+        private Iterator<QueueConsumerNode> _innerIterator;
+
+        @SafeVarargs
+        private PrioritisedQueueConsumerNodeIterator(final Iterator<PriorityBucket> bucketIterator,
+                                                     final Function<PriorityBucket, QueueConsumerNodeList>... lists)
+        {
+            _bucketIterator = bucketIterator;
+            _lists = lists;
+            _listIndex = lists.length;
             _innerIterator = Collections.emptyIterator();
         }
 
@@ -353,10 +387,18 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
                 {
                     return true;
                 }
-                else if (_outerIterator.hasNext())
+                else if (_listIndex < _lists.length)
                 {
-                    final PriorityConsumerListPair priorityConsumersPair = _outerIterator.next();
-                    _innerIterator = priorityConsumersPair._consumers.iterator();
+                    final QueueConsumerNodeList list = _lists[_listIndex++].apply(_bucket);
+                    if (!list.isEmpty())
+                    {
+                        _innerIterator = list.iterator();
+                    }
+                }
+                else if (_bucketIterator.hasNext())
+                {
+                    _bucket = _bucketIterator.next();
+                    _listIndex = 0;
                 }
                 else
                 {
@@ -368,15 +410,11 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
         @Override
         public QueueConsumerNode next()
         {
-            try
-            {
-                return _innerIterator.next();
-            }
-            catch (NoSuchElementException e)
+            if (!hasNext())
             {
-                hasNext();
-                return _innerIterator.next();
+                throw new NoSuchElementException();
             }
+            return _innerIterator.next();
         }
 
         @Override
@@ -27,8 +27,9 @@ final class QueueConsumerNode
     private final QueueConsumerManagerImpl _queueConsumerManager;
     private final QueueConsumer<?,?> _queueConsumer;
     private QueueConsumerNodeListEntry _listEntry;
-    private QueueConsumerManagerImpl.NodeState _state = QueueConsumerManagerImpl.NodeState.REMOVED;
+    private volatile QueueConsumerManagerImpl.NodeState _state = QueueConsumerManagerImpl.NodeState.REMOVED;
     private QueueConsumerNodeListEntry _allEntry;
+    private QueueConsumerManagerImpl.PriorityBucket _priorityBucket;
 
     QueueConsumerNode(final QueueConsumerManagerImpl queueConsumerManager, final QueueConsumer<?,?> queueConsumer)
     {
@@ -74,4 +75,14 @@ final class QueueConsumerNode
     {
         _allEntry = allEntry;
     }
+
+    QueueConsumerManagerImpl.PriorityBucket getPriorityBucket()
+    {
+        return _priorityBucket;
+    }
+
+    void setPriorityBucket(final QueueConsumerManagerImpl.PriorityBucket priorityBucket)
+    {
+        _priorityBucket = priorityBucket;
+    }
 }
@@ -21,12 +21,14 @@
 
 package org.apache.qpid.server.queue;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 final class QueueContext
 {
     private volatile QueueEntry _lastSeenEntry;
     private volatile QueueEntry _releasedEntry;
+    private volatile int _readAheadCountdown;
 
     static final AtomicReferenceFieldUpdater<QueueContext, QueueEntry>
             _lastSeenUpdater =
@@ -36,6 +38,8 @@ final class QueueContext
             _releasedUpdater =
         AtomicReferenceFieldUpdater.newUpdater
         (QueueContext.class, QueueEntry.class, "_releasedEntry");
+    static final AtomicIntegerFieldUpdater<QueueContext> _readAheadCountdownUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(QueueContext.class, "_readAheadCountdown");
 
     public QueueContext(QueueEntry head)
     {
@@ -53,6 +57,16 @@ final class QueueContext
         return _releasedEntry;
     }
 
+    int getReadAheadCountdown()
+    {
+        return _readAheadCountdown;
+    }
+
+    void setReadAheadCountdown(final int readAheadCountdown)
+    {
+        _readAheadCountdown = readAheadCountdown;
+    }
+
     @Override
     public String toString()
     {
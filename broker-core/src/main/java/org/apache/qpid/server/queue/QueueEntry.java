@@ -43,7 +43,17 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
     void setExpiration(long calculatedExpiration);
 
+    long getExpiration();
+
     MessageReference newMessageReference();
 
     boolean checkHeld(final long evaluationTime);
+
+    /**
+     * Returns the remembered outcome of the filter assigned the given slot under the given epoch of the queue's
+     * {@link SharedFilterSlots}: 1 if it matched, 0 if it did not, or -1 if no outcome has been remembered.
+     */
+    int getSharedFilterResult(int epoch, int slot);
+
+    void setSharedFilterResult(int epoch, int slot, boolean matches);
 }
@@ -0,0 +1,165 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the queue entries that carry an expiration time, bucketed by expiration time so that the
+ * housekeeping task only needs to visit the entries that have actually expired rather than the whole queue.
+ * <p>
+ * Entries are added once their expiration has been established on enqueue and removed when they are deleted.
+ * Buckets which have become empty are only discarded once their time has passed, which avoids racing a
+ * concurrent add into the same bucket.
+ */
+final class QueueEntryExpiryIndex
+{
+    static final long DEFAULT_BUCKET_WIDTH = 1000L;
+
+    private final long _bucketWidth;
+    private final ConcurrentSkipListMap<Long, Set<QueueEntry>> _buckets = new ConcurrentSkipListMap<>();
+
+    QueueEntryExpiryIndex()
+    {
+        this(DEFAULT_BUCKET_WIDTH);
+    }
+
+    QueueEntryExpiryIndex(final long bucketWidth)
+    {
+        if (bucketWidth <= 0L)
+        {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidth);
+        }
+        _bucketWidth = bucketWidth;
+    }
+
+    void add(final QueueEntry entry)
+    {
+        final long expiration = entry.getExpiration();
+        if (expiration > 0L)
+        {
+            final Long bucketKey = bucketFor(expiration);
+            while (true)
+            {
+                final Set<QueueEntry> bucket = _buckets.computeIfAbsent(bucketKey, k -> ConcurrentHashMap.newKeySet());
+                bucket.add(entry);
+                if (_buckets.get(bucketKey) == bucket)
+                {
+                    break;
+                }
+                // the bucket was drained concurrently, so retry against its replacement
+            }
+
+            if (entry.isDeleted())
+            {
+                remove(entry);
+            }
+        }
+    }
+
+    void remove(final QueueEntry entry)
+    {
+        final long expiration = entry.getExpiration();
+        if (expiration > 0L)
+        {
+            final Set<QueueEntry> bucket = _buckets.get(bucketFor(expiration));
+            if (bucket != null)
+            {
+                bucket.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the entries whose expiration time is before the given time. Only the buckets
+     * at or before the given time are visited. As entries may be deleted concurrently, the caller is
+     * expected to check the state of each returned entry before acting on it.
+     */
+    Collection<QueueEntry> removeExpired(final long currentTime)
+    {
+        final long currentBucket = bucketFor(currentTime);
+        final ConcurrentNavigableMap<Long, Set<QueueEntry>> dueBuckets = _buckets.headMap(currentBucket, true);
+        if (dueBuckets.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final List<QueueEntry> expired = new ArrayList<>();
+        final Iterator<Map.Entry<Long, Set<QueueEntry>>> iterator = dueBuckets.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<Long, Set<QueueEntry>> bucketEntry = iterator.next();
+            final Set<QueueEntry> bucket = bucketEntry.getValue();
+            if (bucketEntry.getKey() == currentBucket)
+            {
+                for (QueueEntry entry : bucket)
+                {
+                    if (entry.getExpiration() < currentTime)
+                    {
+                        bucket.remove(entry);
+                        expired.add(entry);
+                    }
+                }
+            }
+            else if (_buckets.remove(bucketEntry.getKey(), bucket))
+            {
+                expired.addAll(bucket);
+            }
+        }
+        return expired;
+    }
+
+    boolean isEmpty()
+    {
+        for (Set<QueueEntry> bucket : _buckets.values())
+        {
+            if (!bucket.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size()
+    {
+        int size = 0;
+        for (Set<QueueEntry> bucket : _buckets.values())
+        {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private long bucketFor(final long expiration)
+    {
+        return expiration / _bucketWidth;
+    }
+}
@@ -20,9 +20,6 @@
  */
 package org.apache.qpid.server.queue;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
@@ -53,10 +50,6 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     private final MessageReference _message;
 
-    private volatile Set<Object> _rejectedBy = null;
-    private static final AtomicReferenceFieldUpdater<QueueEntryImpl, Set> _rejectedByUpdater =
-            AtomicReferenceFieldUpdater.newUpdater(QueueEntryImpl.class, Set.class, "_rejectedBy");
-
     private static final EntryState HELD_STATE = new EntryState()
     {
         @Override
@@ -101,17 +94,21 @@ public abstract class QueueEntryImpl implements QueueEntry
     @SuppressWarnings("unused")
     private volatile long _entryId;
 
-    private static final int REDELIVERED_FLAG = 1;
-    private static final int PERSISTENT_FLAG = 2;
-    private static final int MANDATORY_FLAG = 4;
-    private static final int IMMEDIATE_FLAG = 8;
-    private int _flags;
+    private static final int REDELIVERED_FLAG = 1 << 28;
+    private static final int PERSISTENT_FLAG = 1 << 29;
+    private static final int MANDATORY_FLAG = 1 << 30;
+    private static final int IMMEDIATE_FLAG = 1 << 31;
+    private static final int DELIVERY_COUNT_MASK = (1 << 28) - 1;
     private long _expiration;
 
-    /** Number of times this message has been delivered */
-    private volatile int _deliveryCount = -1;
-    private static final AtomicIntegerFieldUpdater<QueueEntryImpl> _deliveryCountUpdater = AtomicIntegerFieldUpdater
-                    .newUpdater(QueueEntryImpl.class, "_deliveryCount");
+    /**
+     * The flags of this entry in the upper four bits, and in the remaining bits one more than the number of times
+     * this message has been delivered, or zero if it has not yet been delivered to a consumer. Packing both into
+     * one field keeps the entry, of which a deep queue holds very many, a word smaller.
+     */
+    private volatile int _deliveryState;
+    private static final AtomicIntegerFieldUpdater<QueueEntryImpl> _deliveryStateUpdater = AtomicIntegerFieldUpdater
+                    .newUpdater(QueueEntryImpl.class, "_deliveryState");
 
     private final MessageEnqueueRecord _enqueueRecord;
 
@@ -165,6 +162,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     @Override
     public InstanceProperties getInstanceProperties()
     {
@@ -208,7 +211,7 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public boolean getDeliveredToConsumer()
     {
-        return _deliveryCountUpdater.get(this) != -1;
+        return (_deliveryState & DELIVERY_COUNT_MASK) != 0;
     }
 
     @Override
@@ -328,7 +331,7 @@ public abstract class QueueEntryImpl implements QueueEntry
         final boolean acquired = acquire(((QueueConsumer<?,?>) consumer).getOwningState().getUnstealableState());
         if(acquired)
         {
-            _deliveryCountUpdater.compareAndSet(this,-1,0);
+            _deliveryStateUpdater.updateAndGet(this, state -> (state & DELIVERY_COUNT_MASK) == 0 ? state + 1 : state);
         }
         return acquired;
     }
@@ -497,17 +500,13 @@ public abstract class QueueEntryImpl implements QueueEntry
             throw new IllegalArgumentException("consumer must not be null");
         }
 
-        if (_rejectedBy == null)
-        {
-            _rejectedByUpdater.compareAndSet(this, null, Collections.newSetFromMap(new ConcurrentHashMap<>()));
-        }
-        _rejectedBy.add(consumer.getIdentifier());
+        _queueEntryList.addRejectedBy(this, consumer.getIdentifier());
     }
 
     @Override
     public boolean isRejectedBy(MessageInstanceConsumer<?> consumer)
     {
-        return _rejectedBy != null && _rejectedBy.contains(consumer.getIdentifier());
+        return _queueEntryList.isRejectedBy(this, consumer.getIdentifier());
     }
 
     private boolean dequeue()
@@ -688,7 +687,8 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public int getDeliveryCount()
     {
-        return _deliveryCount == -1 ? 0 : _deliveryCount;
+        final int deliveryCount = _deliveryState & DELIVERY_COUNT_MASK;
+        return deliveryCount == 0 ? 0 : deliveryCount - 1;
     }
 
     @Override
@@ -700,14 +700,13 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public void incrementDeliveryCount()
     {
-        _deliveryCountUpdater.compareAndSet(this,-1,0);
-        _deliveryCountUpdater.incrementAndGet(this);
+        _deliveryStateUpdater.updateAndGet(this, state -> (state & DELIVERY_COUNT_MASK) == 0 ? state + 2 : state + 1);
     }
 
     @Override
     public void decrementDeliveryCount()
     {
-        _deliveryCountUpdater.decrementAndGet(this);
+        _deliveryStateUpdater.updateAndGet(this, state -> (state & DELIVERY_COUNT_MASK) == 0 ? state : state - 1);
     }
 
     @Override
@@ -716,6 +715,18 @@ public abstract class QueueEntryImpl implements QueueEntry
         return Filterable.Factory.newInstance(getMessage(), getInstanceProperties());
     }
 
+    @Override
+    public int getSharedFilterResult(final int epoch, final int slot)
+    {
+        return _queueEntryList.getSharedFilterResult(this, epoch, slot);
+    }
+
+    @Override
+    public void setSharedFilterResult(final int epoch, final int slot, final boolean matches)
+    {
+        _queueEntryList.setSharedFilterResult(this, epoch, slot, matches);
+    }
+
     @Override
     public String toString()
     {
@@ -734,24 +745,37 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public void setRedelivered()
     {
-        _flags |= REDELIVERED_FLAG;
+        setFlag(REDELIVERED_FLAG);
     }
 
     private void setPersistent()
     {
-        _flags |= PERSISTENT_FLAG;
+        setFlag(PERSISTENT_FLAG);
+    }
+
+    private void setFlag(final int flag)
+    {
+        if((_deliveryState & flag) == 0)
+        {
+            _deliveryStateUpdater.getAndAccumulate(this, flag, (state, bits) -> state | bits);
+        }
+    }
+
+    private boolean isFlagSet(final int flag)
+    {
+        return (_deliveryState & flag) != 0;
     }
 
     @Override
     public boolean isRedelivered()
     {
-        return (_flags & REDELIVERED_FLAG) != 0;
+        return isFlagSet(REDELIVERED_FLAG);
     }
 
     @Override
     public boolean isPersistent()
     {
-        return (_flags & PERSISTENT_FLAG) != 0;
+        return isFlagSet(PERSISTENT_FLAG);
     }
 
     @Override
@@ -777,13 +801,13 @@ public abstract class QueueEntryImpl implements QueueEntry
             {
 
                 case REDELIVERED:
-                    return (_flags & REDELIVERED_FLAG) != 0;
+                    return isFlagSet(REDELIVERED_FLAG);
                 case PERSISTENT:
-                    return (_flags & PERSISTENT_FLAG) != 0;
+                    return isFlagSet(PERSISTENT_FLAG);
                 case MANDATORY:
-                    return (_flags & MANDATORY_FLAG) != 0;
+                    return isFlagSet(MANDATORY_FLAG);
                 case IMMEDIATE:
-                    return (_flags & IMMEDIATE_FLAG) != 0;
+                    return isFlagSet(IMMEDIATE_FLAG);
                 case EXPIRATION:
                     return _expiration;
                 default:
@@ -48,4 +48,14 @@ interface QueueEntryList
 
     QueueEntry getLeastSignificantOldestEntry();
 
+    QueueEntryExpiryIndex getExpiryIndex();
+
+    void addRejectedBy(QueueEntry entry, Object consumerIdentifier);
+
+    boolean isRejectedBy(QueueEntry entry, Object consumerIdentifier);
+
+    int getSharedFilterResult(QueueEntry entry, int epoch, int slot);
+
+    void setSharedFilterResult(QueueEntry entry, int epoch, int slot, boolean matches);
+
 }
@@ -0,0 +1,168 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.message.MessageDeletedException;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.StoredMessage;
+
+/**
+ * Loads the content of flowed to disk messages ahead of the consumers of a queue, so that the connection threads
+ * delivering them do not have to wait for the message store.
+ * <p>
+ * A read ahead for a consumer is started when it is assigned an entry whose content is not in memory. It loads the
+ * content of up to the read ahead count of available entries following that entry on the given executor. While
+ * read ahead is loading content, another read ahead is started once the consumer has been assigned half of the
+ * read ahead count of entries, so that content is loaded ahead of the consumer rather than in bursts. At most one
+ * read ahead is in progress for each consumer.
+ */
+final class QueueEntryReadAhead
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueEntryReadAhead.class);
+
+    private static final int IDLE = 0;
+    private static final int IN_PROGRESS = -1;
+
+    private final QueueEntryList _entries;
+    private final int _readAheadCount;
+    private final Executor _executor;
+    private final LongAdder _loadedMessages = new LongAdder();
+    private final LongAdder _loadedBytes = new LongAdder();
+
+    QueueEntryReadAhead(final QueueEntryList entries, final int readAheadCount, final Executor executor)
+    {
+        if (readAheadCount <= 0)
+        {
+            throw new IllegalArgumentException("Read ahead count must be positive: " + readAheadCount);
+        }
+        _entries = entries;
+        _readAheadCount = readAheadCount;
+        _executor = executor;
+    }
+
+    /**
+     * Called on the delivery path once the given entry has been assigned to the consumer owning the given context.
+     */
+    void entryAssigned(final QueueContext context, final QueueEntry entry)
+    {
+        final int countdown = context.getReadAheadCountdown();
+        if (countdown == IN_PROGRESS)
+        {
+            return;
+        }
+
+        if (countdown == 1 || !isInMemory(entry))
+        {
+            if (QueueContext._readAheadCountdownUpdater.compareAndSet(context, countdown, IN_PROGRESS))
+            {
+                try
+                {
+                    _executor.execute(() -> readAhead(context, entry));
+                }
+                catch (RejectedExecutionException e)
+                {
+                    LOGGER.debug("Read ahead of entries following {} rejected", entry, e);
+                    context.setReadAheadCountdown(IDLE);
+                }
+            }
+        }
+        else if (countdown > 1)
+        {
+            QueueContext._readAheadCountdownUpdater.compareAndSet(context, countdown, countdown - 1);
+        }
+    }
+
+    long getLoadedMessages()
+    {
+        return _loadedMessages.sum();
+    }
+
+    long getLoadedBytes()
+    {
+        return _loadedBytes.sum();
+    }
+
+    private void readAhead(final QueueContext context, final QueueEntry assignedEntry)
+    {
+        int loaded = 0;
+        try
+        {
+            QueueEntry entry = assignedEntry;
+            for (int i = 0; i < _readAheadCount && (entry = _entries.next(entry)) != null; i++)
+            {
+                if (entry.isAvailable() && load(entry))
+                {
+                    loaded++;
+                }
+            }
+        }
+        finally
+        {
+            context.setReadAheadCountdown(loaded == 0 ? IDLE : Math.max(1, _readAheadCount / 2));
+        }
+    }
+
+    private boolean load(final QueueEntry entry)
+    {
+        final ServerMessage<?> message = entry.getMessage();
+        if (message == null)
+        {
+            return false;
+        }
+        try (MessageReference messageReference = message.newReference())
+        {
+            final ServerMessage<?> referencedMessage = messageReference.getMessage();
+            final StoredMessage<?> storedMessage =
+                    referencedMessage == null ? null : referencedMessage.getStoredMessage();
+            if (storedMessage != null && !storedMessage.isInMemory())
+            {
+                storedMessage.getContent(0, 0).dispose();
+                _loadedMessages.increment();
+                _loadedBytes.add(storedMessage.getContentSize());
+                return true;
+            }
+        }
+        catch (MessageDeletedException e)
+        {
+            // pass
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.debug("Failed to read ahead content of {}", entry, e);
+        }
+        return false;
+    }
+
+    private boolean isInMemory(final QueueEntry entry)
+    {
+        final ServerMessage<?> message = entry.getMessage();
+        final StoredMessage<?> storedMessage = message == null ? null : message.getStoredMessage();
+        return storedMessage == null || storedMessage.isInMemory();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.txn.LocalTransaction;
+import org.apache.qpid.server.txn.ServerTransaction;
+
+/**
+ * Removes the messages of a queue in batches on a background executor.
+ * <p>
+ * Each batch visits at most the batch size of entries, acquires those that are available and dequeues them from the
+ * message store in a single transaction, so that purging a deep queue neither performs a store transaction per
+ * message nor one transaction holding every message. The in-memory entries of a batch are deleted as soon as its
+ * transaction commits. Each batch is run as a separate task, so that purges of different queues proceed in parallel
+ * on the executor and other work is interleaved with them.
+ * <p>
+ * Entries acquired by a consumer are stolen, and dequeued by the given task once the consumer relinquishes them.
+ * The future of the purge completes with the number of messages removed in batches once the end of the queue has
+ * been reached; cancelling it stops the purge after the batch in progress.
+ */
+final class QueuePurge
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuePurge.class);
+
+    private final QueueEntryIterator _iterator;
+    private final MessageStore _messageStore;
+    private final Executor _executor;
+    private final int _batchSize;
+    private final Consumer<QueueEntry> _stolenEntryTask;
+    private final LongConsumer _progressListener;
+    private final SettableFuture<Long> _future = SettableFuture.create();
+    private long _purgedMessages;
+
+    QueuePurge(final QueueEntryIterator iterator,
+               final MessageStore messageStore,
+               final Executor executor,
+               final int batchSize,
+               final Consumer<QueueEntry> stolenEntryTask,
+               final LongConsumer progressListener)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        _iterator = iterator;
+        _messageStore = messageStore;
+        _executor = executor;
+        _batchSize = batchSize;
+        _stolenEntryTask = stolenEntryTask;
+        _progressListener = progressListener;
+    }
+
+    ListenableFuture<Long> start()
+    {
+        scheduleNextBatch();
+        return _future;
+    }
+
+    private void scheduleNextBatch()
+    {
+        try
+        {
+            _executor.execute(() ->
+                              {
+                                  if (purgeBatch())
+                                  {
+                                      scheduleNextBatch();
+                                  }
+                              });
+        }
+        catch (RejectedExecutionException e)
+        {
+            LOGGER.debug("Purge task rejected, purging in the calling thread", e);
+            while (purgeBatch())
+            {
+                // continue with the next batch
+            }
+        }
+    }
+
+    /**
+     * Returns true if the end of the queue has not yet been reached.
+     */
+    private boolean purgeBatch()
+    {
+        if (_future.isDone())
+        {
+            return false;
+        }
+
+        try
+        {
+            final List<MessageInstance> batch = new ArrayList<>();
+            boolean atEnd = false;
+            for (int visited = 0; visited < _batchSize; visited++)
+            {
+                if (!_iterator.advance())
+                {
+                    atEnd = true;
+                    break;
+                }
+                final QueueEntry node = _iterator.getNode();
+                if (node.acquireOrSteal(() -> _stolenEntryTask.accept(node)))
+                {
+                    batch.add(node);
+                }
+            }
+
+            if (!batch.isEmpty())
+            {
+                dequeue(batch);
+            }
+
+            if (atEnd)
+            {
+                _future.set(_purgedMessages);
+                return false;
+            }
+        }
+        catch (RuntimeException e)
+        {
+            _future.setException(e);
+            return false;
+        }
+        return true;
+    }
+
+    private void dequeue(final List<MessageInstance> batch)
+    {
+        final ServerTransaction txn = new LocalTransaction(_messageStore);
+        txn.dequeue(batch, new ServerTransaction.Action()
+        {
+            @Override
+            public void postCommit()
+            {
+                for (MessageInstance entry : batch)
+                {
+                    entry.delete();
+                }
+            }
+
+            @Override
+            public void onRollback()
+            {
+                for (MessageInstance entry : batch)
+                {
+                    entry.release();
+                }
+            }
+        });
+        txn.commit();
+
+        _purgedMessages += batch.size();
+        _progressListener.accept(batch.size());
+    }
+}
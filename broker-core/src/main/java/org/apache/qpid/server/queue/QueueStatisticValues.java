@@ -0,0 +1,68 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+/**
+ * The statistics of a queue, read either live from {@link QueueStatistics} or from a
+ * {@link QueueStatistics.Snapshot}.
+ */
+interface QueueStatisticValues
+{
+    int getQueueCount();
+
+    long getQueueSize();
+
+    int getUnackedCount();
+
+    long getUnackedSize();
+
+    int getAvailableCount();
+
+    long getAvailableSize();
+
+    long getEnqueueCount();
+
+    long getEnqueueSize();
+
+    long getDequeueCount();
+
+    long getDequeueSize();
+
+    long getPersistentEnqueueCount();
+
+    long getPersistentEnqueueSize();
+
+    long getPersistentDequeueCount();
+
+    long getPersistentDequeueSize();
+
+    int getQueueCountHwm();
+
+    long getQueueSizeHwm();
+
+    int getAvailableCountHwm();
+
+    long getAvailableSizeHwm();
+
+    int getExpiredCount();
+
+    long getExpiredSize();
+}
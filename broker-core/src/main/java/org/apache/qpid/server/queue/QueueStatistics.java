@@ -22,29 +22,37 @@ package org.apache.qpid.server.queue;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-
-final class QueueStatistics
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a queue.
+ * <p>
+ * The depth and available counters and their high watermarks are kept exact at all times as they are consulted by
+ * the overflow policies. The remaining counters are only ever reported, so they are striped across cells to avoid
+ * contention between the threads enqueuing to and consuming from a busy queue.
+ */
+final class QueueStatistics implements QueueStatisticValues
 {
     private final AtomicInteger _queueCount = new AtomicInteger();
     private final AtomicLong _queueSize = new AtomicLong();
 
-    private final AtomicInteger _unackedCount = new AtomicInteger();
-    private final AtomicLong _unackedSize = new AtomicLong();
+    private final LongAdder _unackedCount = new LongAdder();
+    private final LongAdder _unackedSize = new LongAdder();
 
     private final AtomicInteger _availableCount = new AtomicInteger();
     private final AtomicLong _availableSize = new AtomicLong();
 
-    private final AtomicLong _dequeueCount = new AtomicLong();
-    private final AtomicLong _dequeueSize = new AtomicLong();
+    private final LongAdder _dequeueCount = new LongAdder();
+    private final LongAdder _dequeueSize = new LongAdder();
 
-    private final AtomicLong _enqueueCount = new AtomicLong();
-    private final AtomicLong _enqueueSize = new AtomicLong();
+    private final LongAdder _enqueueCount = new LongAdder();
+    private final LongAdder _enqueueSize = new LongAdder();
 
-    private final AtomicLong _persistentEnqueueCount = new AtomicLong();
-    private final AtomicLong _persistentEnqueueSize = new AtomicLong();
+    private final LongAdder _persistentEnqueueCount = new LongAdder();
+    private final LongAdder _persistentEnqueueSize = new LongAdder();
 
-    private final AtomicLong _persistentDequeueCount = new AtomicLong();
-    private final AtomicLong _persistentDequeueSize = new AtomicLong();
+    private final LongAdder _persistentDequeueCount = new LongAdder();
+    private final LongAdder _persistentDequeueSize = new LongAdder();
 
     private final AtomicInteger _queueCountHwm = new AtomicInteger();
     private final AtomicLong _queueSizeHwm = new AtomicLong();
@@ -52,107 +60,149 @@ final class QueueStatistics
     private final AtomicInteger _availableCountHwm = new AtomicInteger();
     private final AtomicLong _availableSizeHwm = new AtomicLong();
 
-    private final AtomicInteger _expiredCount = new AtomicInteger();
-    private final AtomicLong _expiredSize = new AtomicLong();
+    private final LongAdder _expiredCount = new LongAdder();
+    private final LongAdder _expiredSize = new LongAdder();
+
+    private final LongAdder _consumerScanCount = new LongAdder();
+    private final LongAdder _consumersScanned = new LongAdder();
 
+    @Override
     public final int getQueueCount()
     {
         return _queueCount.get();
     }
 
+    @Override
     public final long getQueueSize()
     {
         return _queueSize.get();
     }
 
+    @Override
     public final int getUnackedCount()
     {
-        return _unackedCount.get();
+        return _unackedCount.intValue();
     }
 
+    @Override
     public final long getUnackedSize()
     {
-        return _unackedSize.get();
+        return _unackedSize.sum();
     }
 
+    @Override
     public final int getAvailableCount()
     {
         return _availableCount.get();
     }
 
+    @Override
     public final long getAvailableSize()
     {
         return _availableSize.get();
     }
 
+    @Override
     public final long getEnqueueCount()
     {
-        return _enqueueCount.get();
+        return _enqueueCount.sum();
     }
 
+    @Override
     public final long getEnqueueSize()
     {
-        return _enqueueSize.get();
+        return _enqueueSize.sum();
     }
 
+    @Override
     public final long getDequeueCount()
     {
-        return _dequeueCount.get();
+        return _dequeueCount.sum();
     }
 
+    @Override
     public final long getDequeueSize()
     {
-        return _dequeueSize.get();
+        return _dequeueSize.sum();
     }
 
+    @Override
     public final long getPersistentEnqueueCount()
     {
-        return _persistentEnqueueCount.get();
+        return _persistentEnqueueCount.sum();
     }
 
+    @Override
     public final long getPersistentEnqueueSize()
     {
-        return _persistentEnqueueSize.get();
+        return _persistentEnqueueSize.sum();
     }
 
+    @Override
     public final long getPersistentDequeueCount()
     {
-        return _persistentDequeueCount.get();
+        return _persistentDequeueCount.sum();
     }
 
+    @Override
     public final long getPersistentDequeueSize()
     {
-        return _persistentDequeueSize.get();
+        return _persistentDequeueSize.sum();
     }
 
+    @Override
     public final int getQueueCountHwm()
     {
         return _queueCountHwm.get();
     }
 
+    @Override
     public final long getQueueSizeHwm()
     {
         return _queueSizeHwm.get();
     }
 
+    @Override
     public final int getAvailableCountHwm()
     {
         return _availableCountHwm.get();
     }
 
+    @Override
     public final long getAvailableSizeHwm()
     {
         return _availableSizeHwm.get();
     }
 
+    @Override
     public int getExpiredCount()
     {
-        return _expiredCount.get();
+        return _expiredCount.intValue();
     }
 
+    @Override
     public long getExpiredSize()
     {
-        return _expiredSize.get();
+        return _expiredSize.sum();
+    }
+
+    public long getConsumerScanCount()
+    {
+        return _consumerScanCount.sum();
+    }
+
+    public long getConsumersScanned()
+    {
+        return _consumersScanned.sum();
+    }
+
+    /**
+     * Reads all the statistics in a single pass. Within the snapshot the enqueued total is never less than the
+     * dequeued total plus the depth, and the high watermarks are never less than the corresponding current values.
+     */
+    Snapshot getSnapshot()
+    {
+        return new Snapshot(this);
     }
 
     void addToQueue(long size)
@@ -201,44 +251,219 @@ final class QueueStatistics
 
     void addToUnacknowledged(long size)
     {
-        _unackedCount.incrementAndGet();
-        _unackedSize.addAndGet(size);
+        _unackedCount.increment();
+        _unackedSize.add(size);
     }
 
     void removeFromUnacknowledged(long size)
     {
-        _unackedCount.decrementAndGet();
-        _unackedSize.addAndGet(-size);
+        _unackedCount.decrement();
+        _unackedSize.add(-size);
     }
 
     void addToEnqueued(long size)
     {
-        _enqueueCount.incrementAndGet();
-        _enqueueSize.addAndGet(size);
+        _enqueueCount.increment();
+        _enqueueSize.add(size);
     }
 
     void addToDequeued(long size)
     {
-        _dequeueCount.incrementAndGet();
-        _dequeueSize.addAndGet(size);
+        _dequeueCount.increment();
+        _dequeueSize.add(size);
     }
 
     void addToPersistentEnqueued(long size)
     {
-        _persistentEnqueueCount.incrementAndGet();
-        _persistentEnqueueSize.addAndGet(size);
+        _persistentEnqueueCount.increment();
+        _persistentEnqueueSize.add(size);
     }
 
     void addToPersistentDequeued(long size)
     {
-        _persistentDequeueCount.incrementAndGet();
-        _persistentDequeueSize.addAndGet(size);
+        _persistentDequeueCount.increment();
+        _persistentDequeueSize.add(size);
     }
 
     void addToExpired(final long size)
     {
-        _expiredCount.incrementAndGet();
-        _expiredSize.addAndGet(size);
+        _expiredCount.increment();
+        _expiredSize.add(size);
+    }
+
+    void addToConsumerScans(final int consumersScanned)
+    {
+        _consumerScanCount.increment();
+        _consumersScanned.add(consumersScanned);
     }
 
+    static final class Snapshot implements QueueStatisticValues
+    {
+        private final long _dequeueCount;
+        private final long _dequeueSize;
+        private final long _persistentDequeueCount;
+        private final long _persistentDequeueSize;
+        private final int _expiredCount;
+        private final long _expiredSize;
+        private final int _queueCount;
+        private final long _queueSize;
+        private final int _availableCount;
+        private final long _availableSize;
+        private final int _unackedCount;
+        private final long _unackedSize;
+        private final int _queueCountHwm;
+        private final long _queueSizeHwm;
+        private final int _availableCountHwm;
+        private final long _availableSizeHwm;
+        private final long _enqueueCount;
+        private final long _enqueueSize;
+        private final long _persistentEnqueueCount;
+        private final long _persistentEnqueueSize;
+
+        private Snapshot(final QueueStatistics statistics)
+        {
+            // dequeues are counted after the depth is reduced and enqueues before it is increased, so reading
+            // the dequeues before the depth and the depth before the enqueues keeps the snapshot consistent
+            _dequeueCount = statistics.getDequeueCount();
+            _dequeueSize = statistics.getDequeueSize();
+            _persistentDequeueCount = statistics.getPersistentDequeueCount();
+            _persistentDequeueSize = statistics.getPersistentDequeueSize();
+            _expiredCount = statistics.getExpiredCount();
+            _expiredSize = statistics.getExpiredSize();
+            _queueCount = statistics.getQueueCount();
+            _queueSize = statistics.getQueueSize();
+            _availableCount = statistics.getAvailableCount();
+            _availableSize = statistics.getAvailableSize();
+            _unackedCount = statistics.getUnackedCount();
+            _unackedSize = statistics.getUnackedSize();
+            _queueCountHwm = Math.max(statistics.getQueueCountHwm(), _queueCount);
+            _queueSizeHwm = Math.max(statistics.getQueueSizeHwm(), _queueSize);
+            _availableCountHwm = Math.max(statistics.getAvailableCountHwm(), _availableCount);
+            _availableSizeHwm = Math.max(statistics.getAvailableSizeHwm(), _availableSize);
+            _enqueueCount = statistics.getEnqueueCount();
+            _enqueueSize = statistics.getEnqueueSize();
+            _persistentEnqueueCount = statistics.getPersistentEnqueueCount();
+            _persistentEnqueueSize = statistics.getPersistentEnqueueSize();
+        }
+
+        @Override
+        public int getQueueCount()
+        {
+            return _queueCount;
+        }
+
+        @Override
+        public long getQueueSize()
+        {
+            return _queueSize;
+        }
+
+        @Override
+        public int getUnackedCount()
+        {
+            return _unackedCount;
+        }
+
+        @Override
+        public long getUnackedSize()
+        {
+            return _unackedSize;
+        }
+
+        @Override
+        public int getAvailableCount()
+        {
+            return _availableCount;
+        }
+
+        @Override
+        public long getAvailableSize()
+        {
+            return _availableSize;
+        }
+
+        @Override
+        public long getEnqueueCount()
+        {
+            return _enqueueCount;
+        }
+
+        @Override
+        public long getEnqueueSize()
+        {
+            return _enqueueSize;
+        }
+
+        @Override
+        public long getDequeueCount()
+        {
+            return _dequeueCount;
+        }
+
+        @Override
+        public long getDequeueSize()
+        {
+            return _dequeueSize;
+        }
+
+        @Override
+        public long getPersistentEnqueueCount()
+        {
+            return _persistentEnqueueCount;
+        }
+
+        @Override
+        public long getPersistentEnqueueSize()
+        {
+            return _persistentEnqueueSize;
+        }
+
+        @Override
+        public long getPersistentDequeueCount()
+        {
+            return _persistentDequeueCount;
+        }
+
+        @Override
+        public long getPersistentDequeueSize()
+        {
+            return _persistentDequeueSize;
+        }
+
+        @Override
+        public int getQueueCountHwm()
+        {
+            return _queueCountHwm;
+        }
+
+        @Override
+        public long getQueueSizeHwm()
+        {
+            return _queueSizeHwm;
+        }
+
+        @Override
+        public int getAvailableCountHwm()
+        {
+            return _availableCountHwm;
+        }
+
+        @Override
+        public long getAvailableSizeHwm()
+        {
+            return _availableSizeHwm;
+        }
+
+        @Override
+        public int getExpiredCount()
+        {
+            return _expiredCount;
+        }
+
+        @Override
+        public long getExpiredSize()
+        {
+            return _expiredSize;
+        }
+    }
 }
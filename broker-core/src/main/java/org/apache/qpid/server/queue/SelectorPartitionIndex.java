@@ -0,0 +1,258 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.filter.MessageFilter;
+import org.apache.qpid.server.filter.PropertyValueCondition;
+import org.apache.qpid.server.message.ServerMessage;
+
+/**
+ * Partitions the consumers of a queue by the values of a message property which their selectors require, so that
+ * an entry need only be offered to the consumers whose selector could match it.
+ * <p>
+ * The property chosen is the one conditioned by the most selectors. Consumers without a condition on that property
+ * are candidates for every entry. The candidates for each value are held in descending order of priority; within
+ * each priority the starting point rotates from entry to entry so that no consumer is always offered entries first.
+ */
+final class SelectorPartitionIndex
+{
+    static final int MINIMUM_PARTITIONED_CONSUMERS = 2;
+
+    private static final Comparator<QueueConsumer<?, ?>> HIGHEST_PRIORITY_FIRST =
+            Comparator.comparingInt((QueueConsumer<?, ?> consumer) -> consumer.getPriority()).reversed();
+
+    private final Map<QueueConsumer<?, ?>, PropertyValueCondition> _consumers = new LinkedHashMap<>();
+    private volatile Partition _partition;
+
+    /**
+     * Returns the current partitioning of the consumers, or null if too few consumers share a condition on any one
+     * property for partitioning to be worthwhile.
+     */
+    Partition getPartition()
+    {
+        return _partition;
+    }
+
+    synchronized void addConsumer(final QueueConsumer<?, ?> consumer, final FilterManager filters)
+    {
+        _consumers.put(consumer, getCondition(filters));
+        _partition = createPartition();
+    }
+
+    synchronized void removeConsumer(final QueueConsumer<?, ?> consumer)
+    {
+        if (_consumers.containsKey(consumer))
+        {
+            _consumers.remove(consumer);
+            _partition = createPartition();
+        }
+    }
+
+    private PropertyValueCondition getCondition(final FilterManager filters)
+    {
+        if (filters != null)
+        {
+            final Iterator<MessageFilter> iterator = filters.filters();
+            while (iterator.hasNext())
+            {
+                final MessageFilter filter = iterator.next();
+                if (filter instanceof JMSSelectorFilter)
+                {
+                    return ((JMSSelectorFilter) filter).getPropertyValueCondition();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Partition createPartition()
+    {
+        final Map<String, Integer> conditionsByProperty = new HashMap<>();
+        String propertyName = null;
+        int partitionedConsumers = 0;
+        for (PropertyValueCondition condition : _consumers.values())
+        {
+            if (condition != null)
+            {
+                final int count = conditionsByProperty.merge(condition.getPropertyName(), 1, Integer::sum);
+                if (count > partitionedConsumers)
+                {
+                    partitionedConsumers = count;
+                    propertyName = condition.getPropertyName();
+                }
+            }
+        }
+        if (partitionedConsumers < MINIMUM_PARTITIONED_CONSUMERS)
+        {
+            return null;
+        }
+
+        PropertyValueCondition propertyCondition = null;
+        final List<QueueConsumer<?, ?>> unpartitioned = new ArrayList<>();
+        final Map<String, List<QueueConsumer<?, ?>>> partitioned = new HashMap<>();
+        for (Map.Entry<QueueConsumer<?, ?>, PropertyValueCondition> entry : _consumers.entrySet())
+        {
+            final PropertyValueCondition condition = entry.getValue();
+            if (condition != null && condition.getPropertyName().equals(propertyName))
+            {
+                propertyCondition = condition;
+                for (String value : condition.getValues())
+                {
+                    partitioned.computeIfAbsent(value, v -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+            else
+            {
+                unpartitioned.add(entry.getKey());
+            }
+        }
+
+        final Map<String, Candidates> candidatesByValue = new HashMap<>();
+        for (Map.Entry<String, List<QueueConsumer<?, ?>>> entry : partitioned.entrySet())
+        {
+            final List<QueueConsumer<?, ?>> consumers = entry.getValue();
+            consumers.addAll(unpartitioned);
+            candidatesByValue.put(entry.getKey(), new Candidates(consumers));
+        }
+        return new Partition(propertyCondition, candidatesByValue, new Candidates(unpartitioned));
+    }
+
+    static final class Partition
+    {
+        private final PropertyValueCondition _condition;
+        private final Map<String, Candidates> _candidatesByValue;
+        private final Candidates _unpartitioned;
+
+        private Partition(final PropertyValueCondition condition,
+                          final Map<String, Candidates> candidatesByValue,
+                          final Candidates unpartitioned)
+        {
+            _condition = condition;
+            _candidatesByValue = candidatesByValue;
+            _unpartitioned = unpartitioned;
+        }
+
+        String getPropertyName()
+        {
+            return _condition.getPropertyName();
+        }
+
+        /**
+         * Returns the consumers whose selector could match the given entry, in descending order of priority.
+         */
+        Iterator<QueueConsumer<?, ?>> getCandidates(final QueueEntry entry)
+        {
+            // consumers are notified of an entry while its message is still referenced by the enqueue
+            final ServerMessage<?> message = entry.getMessage();
+            final String value = message == null ? null : _condition.getPropertyValue(message.getMessageHeader());
+            final Candidates candidates = value == null ? null : _candidatesByValue.get(value);
+            return (candidates == null ? _unpartitioned : candidates).iterator();
+        }
+    }
+
+    private static final class Candidates
+    {
+        private final QueueConsumer<?, ?>[] _consumers;
+        private final int[] _priorityRunEnds;
+        private final AtomicInteger _rotation = new AtomicInteger();
+
+        private Candidates(final List<QueueConsumer<?, ?>> consumers)
+        {
+            final List<QueueConsumer<?, ?>> sorted = new ArrayList<>(consumers);
+            sorted.sort(HIGHEST_PRIORITY_FIRST);
+            _consumers = sorted.toArray(new QueueConsumer<?, ?>[sorted.size()]);
+
+            final List<Integer> runEnds = new ArrayList<>();
+            for (int i = 1; i <= _consumers.length; i++)
+            {
+                if (i == _consumers.length || _consumers[i].getPriority() != _consumers[i - 1].getPriority())
+                {
+                    runEnds.add(i);
+                }
+            }
+            _priorityRunEnds = new int[runEnds.size()];
+            for (int i = 0; i < _priorityRunEnds.length; i++)
+            {
+                _priorityRunEnds[i] = runEnds.get(i);
+            }
+        }
+
+        Iterator<QueueConsumer<?, ?>> iterator()
+        {
+            if (_consumers.length == 0)
+            {
+                return Collections.emptyIterator();
+            }
+            return new RotatingIterator(_rotation.getAndIncrement() & Integer.MAX_VALUE);
+        }
+
+        private final class RotatingIterator implements Iterator<QueueConsumer<?, ?>>
+        {
+            private final int _offset;
+            private int _run;
+            private int _runStart;
+            private int _position;
+
+            private RotatingIterator(final int offset)
+            {
+                _offset = offset;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return _run < _priorityRunEnds.length;
+            }
+
+            @Override
+            public QueueConsumer<?, ?> next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                final int runEnd = _priorityRunEnds[_run];
+                final int runLength = runEnd - _runStart;
+                final QueueConsumer<?, ?> consumer = _consumers[_runStart + (_offset + _position) % runLength];
+                if (++_position == runLength)
+                {
+                    _run++;
+                    _runStart = runEnd;
+                    _position = 0;
+                }
+                return consumer;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.filter.MessageFilter;
+
+/**
+ * Assigns the selector filters which are shared by more than one consumer of a queue a slot in which the outcome
+ * of evaluating the filter against a queue entry is remembered for the entry, so that each distinct selector is
+ * evaluated at most once per entry however many consumers use it.
+ * <p>
+ * The assignment of filters to slots is immutable and identified by an epoch which changes whenever the assignment
+ * does. The epoch is recorded alongside the results of an entry and results recorded under any other epoch are ignored,
+ * so a slot may be reassigned without visiting the entries.
+ */
+final class SharedFilterSlots
+{
+    static final int MAXIMUM_SLOTS = 16;
+
+    private final Map<MessageFilter, Integer> _consumerCounts = new HashMap<>();
+    private final boolean[] _usedSlots = new boolean[MAXIMUM_SLOTS];
+    private volatile Assignment _assignment = new Assignment(0, Collections.<MessageFilter, Integer>emptyMap());
+
+    Assignment getAssignment()
+    {
+        return _assignment;
+    }
+
+    synchronized void register(final FilterManager filters)
+    {
+        if (filters != null)
+        {
+            final Iterator<MessageFilter> iterator = filters.filters();
+            while (iterator.hasNext())
+            {
+                final MessageFilter filter = iterator.next();
+                if (isShareable(filter) && _consumerCounts.merge(filter, 1, Integer::sum) == 2)
+                {
+                    assign(filter);
+                }
+            }
+        }
+    }
+
+    synchronized void unregister(final FilterManager filters)
+    {
+        if (filters != null)
+        {
+            final Iterator<MessageFilter> iterator = filters.filters();
+            while (iterator.hasNext())
+            {
+                final MessageFilter filter = iterator.next();
+                final Integer count = _consumerCounts.get(filter);
+                if (count != null)
+                {
+                    if (count == 1)
+                    {
+                        _consumerCounts.remove(filter);
+                    }
+                    else
+                    {
+                        _consumerCounts.put(filter, count - 1);
+                        if (count == 2)
+                        {
+                            release(filter);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the outcome of the filter for an entry can be remembered, which it cannot be for a selector
+     * whose outcome changes as the entry is released and redelivered.
+     */
+    private static boolean isShareable(final MessageFilter filter)
+    {
+        return filter instanceof JMSSelectorFilter && !((JMSSelectorFilter) filter).isDeliveryStateDependent();
+    }
+
+    private void assign(final MessageFilter filter)
+    {
+        for (int slot = 0; slot < MAXIMUM_SLOTS; slot++)
+        {
+            if (!_usedSlots[slot])
+            {
+                _usedSlots[slot] = true;
+                final Map<MessageFilter, Integer> slots = new HashMap<>(_assignment._slots);
+                slots.put(filter, slot);
+                _assignment = new Assignment(_assignment._epoch + 1, slots);
+                return;
+            }
+        }
+    }
+
+    private void release(final MessageFilter filter)
+    {
+        final Integer slot = _assignment._slots.get(filter);
+        if (slot != null)
+        {
+            _usedSlots[slot] = false;
+            final Map<MessageFilter, Integer> slots = new HashMap<>(_assignment._slots);
+            slots.remove(filter);
+            _assignment = new Assignment(_assignment._epoch + 1, slots);
+        }
+    }
+
+    static final class Assignment
+    {
+        private final int _epoch;
+        private final Map<MessageFilter, Integer> _slots;
+
+        private Assignment(final int epoch, final Map<MessageFilter, Integer> slots)
+        {
+            _epoch = epoch;
+            _slots = slots;
+        }
+
+        int getEpoch()
+        {
+            return _epoch;
+        }
+
+        boolean isEmpty()
+        {
+            return _slots.isEmpty();
+        }
+
+        /**
+         * Returns the slot assigned to the given filter, or -1 if its results are not shared.
+         */
+        int getSlot(final MessageFilter filter)
+        {
+            final Integer slot = _slots.get(filter);
+            return slot == null ? -1 : slot;
+        }
+    }
+}
@@ -27,23 +27,13 @@ import org.apache.qpid.server.store.MessageEnqueueRecord;
  */
 public class SortedQueueEntry extends QueueEntryImpl
 {
-    public static enum Colour
-    {
-        RED, BLACK
-    };
-
-    private volatile SortedQueueEntry _next;
-    private SortedQueueEntry _prev;
+    private final SortedQueueEntryList _queueEntryList;
     private String _key;
 
-    private Colour _colour = Colour.BLACK;
-    private SortedQueueEntry _parent;
-    private SortedQueueEntry _left;
-    private SortedQueueEntry _right;
-
     public SortedQueueEntry(final SortedQueueEntryList queueEntryList)
     {
         super(queueEntryList);
+        _queueEntryList = queueEntryList;
     }
 
     public SortedQueueEntry(final SortedQueueEntryList queueEntryList,
@@ -52,6 +42,7 @@ public class SortedQueueEntry extends QueueEntryImpl
                             final MessageEnqueueRecord messageEnqueueRecord)
     {
         super(queueEntryList, message, entryId, messageEnqueueRecord);
+        _queueEntryList = queueEntryList;
     }
 
     @Override
@@ -63,51 +54,26 @@ public class SortedQueueEntry extends QueueEntryImpl
         return compare == 0 ? super.compareTo(o) : compare;
     }
 
-    public Colour getColour()
-    {
-        return _colour;
-    }
-
     public String getKey()
     {
         return _key;
     }
 
-    public SortedQueueEntry getLeft()
-    {
-        return _left;
-    }
-
     @Override
     public SortedQueueEntry getNextNode()
     {
-        return _next;
+        return _queueEntryList.next(this);
     }
 
     @Override
     public SortedQueueEntry getNextValidEntry()
     {
-        return getNextNode();
-    }
-
-    public SortedQueueEntry getParent()
-    {
-        return _parent;
-    }
-
-    public SortedQueueEntry getPrev()
-    {
-        return _prev;
-    }
-
-    public SortedQueueEntry getRight()
-    {
-        return _right;
-    }
-
-    public void setColour(final Colour colour)
-    {
-        _colour = colour;
+        SortedQueueEntry next = getNextNode();
+        while(next != null && next.isDeleted())
+        {
+            next = _queueEntryList.next(next);
+        }
+        return next;
     }
 
     public void setKey(final String key)
@@ -115,34 +81,9 @@ public class SortedQueueEntry extends QueueEntryImpl
         _key = key;
     }
 
-    public void setLeft(final SortedQueueEntry left)
-    {
-        _left = left;
-    }
-
-    public void setNext(final SortedQueueEntry next)
-    {
-        _next = next;
-    }
-
-    public void setParent(final SortedQueueEntry parent)
-    {
-        _parent = parent;
-    }
-
-    public void setPrev(final SortedQueueEntry prev)
-    {
-        _prev = prev;
-    }
-
-    public void setRight(final SortedQueueEntry right)
-    {
-        _right = right;
-    }
-
     @Override
     public String toString()
     {
-        return "(" + (_colour == Colour.RED ? "Red," : "Black,") + _key + ")";
+        return "(" + _key + ")";
     }
 }
@@ -353,6 +353,24 @@ public class MemoryMessageStore implements MessageStore
         return 0L;
     }
 
+    @Override
+    public long getContentCacheHits()
+    {
+        return 0L;
+    }
+
+    @Override
+    public long getContentCacheMisses()
+    {
+        return 0L;
+    }
+
+    @Override
+    public long getContentCacheSize()
+    {
+        return 0L;
+    }
+
     @Override
     public Transaction newTransaction()
     {
@@ -0,0 +1,188 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Bounded cache of message content shared by all the messages of a message store. Content which has been flowed
+ * to disk and is then reloaded is offered to the cache, so that subsequent reloads of the same message (for instance
+ * by the consumers of several queues progressing at different rates) are served from memory rather than from the
+ * store.
+ * <p>
+ * The cache holds its own duplicate of the (pooled) buffer of each message, and evicts the least recently used
+ * content once the total size of the cached content exceeds the maximum size. Content is removed from the cache
+ * when its message is removed from the store. The cached content is counted in the in-memory message size of the
+ * virtual host, so that flow to disk takes it into account. A cache with a maximum size of zero, the default, is
+ * disabled.
+ */
+public final class MessageContentCache
+{
+    private final long _maximumSize;
+    private final LinkedHashMap<Long, QpidByteBuffer> _entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private volatile long _size;
+
+    public MessageContentCache(final long maximumSize)
+    {
+        if (maximumSize < 0L)
+        {
+            throw new IllegalArgumentException("Maximum size must not be negative: " + maximumSize);
+        }
+        _maximumSize = maximumSize;
+    }
+
+    public static MessageContentCache newInstance(final ConfiguredObject<?> parent)
+    {
+        long maximumSize = QueueManagingVirtualHost.DEFAULT_MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE;
+        if (parent != null
+            && parent.getContextKeys(false).contains(QueueManagingVirtualHost.MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE))
+        {
+            maximumSize = parent.getContextValue(Long.class,
+                                                 QueueManagingVirtualHost.MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE);
+        }
+        return new MessageContentCache(Math.max(0L, maximumSize));
+    }
+
+    /**
+     * Returns the cached content of the given message, or null if the content is not cached. The returned buffer
+     * is a duplicate which is owned by the caller.
+     */
+    public QpidByteBuffer get(final long messageId)
+    {
+        if (_maximumSize == 0L)
+        {
+            return null;
+        }
+
+        synchronized (_entries)
+        {
+            final QpidByteBuffer content = _entries.get(messageId);
+            if (content == null)
+            {
+                _misses.increment();
+                return null;
+            }
+            _hits.increment();
+            return content.duplicate();
+        }
+    }
+
+    /**
+     * Offers the content of the given message to the cache. The cache takes a duplicate of the given buffer, so
+     * the ownership of the buffer remains with the caller. Content larger than the maximum size is not cached.
+     */
+    public void put(final long messageId, final QpidByteBuffer content)
+    {
+        final int size = content.remaining();
+        if (_maximumSize == 0L || size > _maximumSize)
+        {
+            return;
+        }
+
+        synchronized (_entries)
+        {
+            final QpidByteBuffer previous = _entries.put(messageId, content.duplicate());
+            long cachedSize = _size + size;
+            if (previous != null)
+            {
+                cachedSize -= previous.remaining();
+                previous.dispose();
+            }
+
+            final Iterator<Map.Entry<Long, QpidByteBuffer>> iterator = _entries.entrySet().iterator();
+            while (cachedSize > _maximumSize && iterator.hasNext())
+            {
+                final QpidByteBuffer evicted = iterator.next().getValue();
+                iterator.remove();
+                cachedSize -= evicted.remaining();
+                evicted.dispose();
+                _evictions.increment();
+            }
+            _size = cachedSize;
+        }
+    }
+
+    public void remove(final long messageId)
+    {
+        if (_maximumSize == 0L)
+        {
+            return;
+        }
+
+        synchronized (_entries)
+        {
+            final QpidByteBuffer content = _entries.remove(messageId);
+            if (content != null)
+            {
+                _size -= content.remaining();
+                content.dispose();
+            }
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (_entries)
+        {
+            for (QpidByteBuffer content : _entries.values())
+            {
+                content.dispose();
+            }
+            _entries.clear();
+            _size = 0L;
+        }
+    }
+
+    public long getMaximumSize()
+    {
+        return _maximumSize;
+    }
+
+    public long getSize()
+    {
+        return _size;
+    }
+
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+}
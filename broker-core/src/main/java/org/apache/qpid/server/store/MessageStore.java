@@ -65,6 +65,12 @@ public interface MessageStore
 
     long getBytesEvacuatedFromMemory();
 
+    long getContentCacheHits();
+
+    long getContentCacheMisses();
+
+    long getContentCacheSize();
+
     /**
      * Is this store capable of persisting the data
      *
@@ -108,6 +108,24 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
         return 0L;
     }
 
+    @Override
+    public long getContentCacheHits()
+    {
+        return 0L;
+    }
+
+    @Override
+    public long getContentCacheMisses()
+    {
+        return 0L;
+    }
+
+    @Override
+    public long getContentCacheSize()
+    {
+        return 0L;
+    }
+
     @Override
     public Transaction newTransaction()
     {
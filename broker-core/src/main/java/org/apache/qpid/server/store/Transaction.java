@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.store;
 
+import java.util.Collection;
+
 import com.google.common.util.concurrent.ListenableFuture;
 
 import org.apache.qpid.server.message.EnqueueableMessage;
@@ -38,6 +40,20 @@ public interface Transaction
 
     void dequeueMessage(MessageEnqueueRecord enqueueRecord);
 
+    /**
+     * Removes the given enqueue records in the given transactional context. Stores which can remove many records
+     * with a single operation override this.
+     *
+     * @param enqueueRecords the enqueue records to remove
+     */
+    default void dequeueMessages(Collection<MessageEnqueueRecord> enqueueRecords)
+    {
+        for (MessageEnqueueRecord enqueueRecord : enqueueRecords)
+        {
+            dequeueMessage(enqueueRecord);
+        }
+    }
+
     /**
      * Commits all operations performed within a given transactional context.
      *
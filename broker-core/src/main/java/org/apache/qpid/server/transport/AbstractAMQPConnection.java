@@ -726,6 +726,31 @@ public abstract class AbstractAMQPConnection<C extends AbstractAMQPConnection<C,
         return _messagesIn.get();
     }
 
+    @Override
+    public long getNetworkWrites()
+    {
+        return _network.getNetworkWrites();
+    }
+
+    @Override
+    public long getNetworkBytesWritten()
+    {
+        return _network.getNetworkBytesWritten();
+    }
+
+    @Override
+    public long getAverageBytesPerNetworkWrite()
+    {
+        final long networkWrites = _network.getNetworkWrites();
+        return networkWrites == 0L ? 0L : _network.getNetworkBytesWritten() / networkWrites;
+    }
+
+    @Override
+    public long getCoalescedFrames()
+    {
+        return _network.getCoalescedFrames();
+    }
+
     @Override
     public long getMessagesOut()
     {
@@ -27,4 +27,9 @@ public interface AcceptingTransport
     void close();
 
     int getAcceptingPort();
+
+    default NetworkConnectionScheduler getNetworkConnectionScheduler()
+    {
+        return null;
+    }
 }
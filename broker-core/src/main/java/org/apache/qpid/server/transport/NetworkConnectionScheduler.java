@@ -22,6 +22,9 @@ package org.apache.qpid.server.transport;
 
 import java.io.IOException;
 import java.nio.channels.ServerSocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -45,11 +48,20 @@ public class NetworkConnectionScheduler
     private final long _threadKeepAliveTimeout;
     private final String _name;
     private final int _numberOfSelectors;
+    private final boolean _pinConnections;
     private SelectorThread _selectorThread;
 
     public NetworkConnectionScheduler(final String name,
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, false);
+    }
+
+    public NetworkConnectionScheduler(final String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      boolean pinConnections)
     {
         this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, new ThreadFactory()
                                     {
@@ -62,7 +74,7 @@ public class NetworkConnectionScheduler
                                             t.setName("IO-pool-" + name + "-" + _count.incrementAndGet());
                                             return t;
                                         }
-                                    });
+                                    }, pinConnections);
     }
 
     @Override
@@ -76,6 +88,7 @@ public class NetworkConnectionScheduler
                ", _threadKeepAliveTimeout=" + _threadKeepAliveTimeout +
                ", _name='" + _name + '\'' +
                ", _numberOfSelectors=" + _numberOfSelectors +
+               ", _pinConnections=" + _pinConnections +
                ", _selectorThread=" + _selectorThread +
                '}';
     }
@@ -84,12 +97,27 @@ public class NetworkConnectionScheduler
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout,
                                       ThreadFactory factory)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, factory, false);
+    }
+
+    /**
+     * Creates a scheduler which, if pinConnections is true, runs each selector on its own thread and divides the
+     * thread pool between the selectors, pinning each connection to one of its selector's threads rather than
+     * processing it on whichever pool thread next becomes free.
+     */
+    public NetworkConnectionScheduler(String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      ThreadFactory factory,
+                                      boolean pinConnections)
     {
         _name = name;
         _poolSize = threadPoolSize;
         _threadKeepAliveTimeout = threadKeepAliveTimeout;
         _factory = factory;
         _numberOfSelectors = numberOfSelectors;
+        _pinConnections = pinConnections;
         _selectorThreadName = "Selector-"+name;
     }
 
@@ -98,9 +126,9 @@ public class NetworkConnectionScheduler
     {
         try
         {
-            _selectorThread = new SelectorThread(this, _numberOfSelectors);
-            final int corePoolSize = _poolSize;
-            final int maximumPoolSize = _poolSize;
+            _selectorThread = new SelectorThread(this, _numberOfSelectors, _pinConnections ? _poolSize : 0);
+            final int corePoolSize = _pinConnections ? _poolSize + _numberOfSelectors : _poolSize;
+            final int maximumPoolSize = corePoolSize;
             final long keepAliveTime = _threadKeepAliveTimeout;
             final java.util.concurrent.BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
             final ThreadFactory factory = _factory;
@@ -112,9 +140,16 @@ public class NetworkConnectionScheduler
                                                QpidByteBuffer.createQpidByteBufferTrackingThreadFactory(factory));
             _executor.prestartAllCoreThreads();
             _executor.allowCoreThreadTimeOut(true);
-            for(int i = 0 ; i < _poolSize; i++)
+            if (_pinConnections)
+            {
+                _selectorThread.startPinnedWorkers(_executor);
+            }
+            else
             {
-                _executor.execute(_selectorThread);
+                for(int i = 0 ; i < _poolSize; i++)
+                {
+                    _executor.execute(_selectorThread);
+                }
             }
         }
         catch (IOException e)
@@ -137,7 +172,7 @@ public class NetworkConnectionScheduler
 
                 if (connection.isStateChanged() || connection.isPartialRead())
                 {
-                    if (_running.get() == _poolSize)
+                    if (_pinConnections ? _selectorThread.hasQueuedWork(connection) : _running.get() == _poolSize)
                     {
                         connection.clearScheduled();
                         schedule(connection);
@@ -234,4 +269,57 @@ public class NetworkConnectionScheduler
     {
         _selectorThread.addToWork(connection);
     }
+
+    public boolean isPinningConnections()
+    {
+        return _pinConnections;
+    }
+
+    public long getWorkerBusyTime()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getWorkerBusyTime();
+    }
+
+    public long getWorkerIdleTime()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getWorkerIdleTime();
+    }
+
+    public long getConnectionMigrations()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getConnectionMigrations();
+    }
+
+    public long getSelectorWakeupRequests()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getSelectorWakeupRequests();
+    }
+
+    public long getSelectorWakeups()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getSelectorWakeups();
+    }
+
+    public long getHandoffCount()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getHandoffCount();
+    }
+
+    public long getHandoffTime()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? 0L : selectorThread.getHandoffTime();
+    }
+
+    public List<Map<String, Object>> getWorkerStatistics()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null ? Collections.emptyList() : selectorThread.getWorkerStatistics();
+    }
 }
@@ -25,14 +25,17 @@ import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.security.Principal;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -70,6 +73,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
     private volatile boolean _unexpectedByteBufferSizeReported;
     private final String _threadName;
     private volatile SelectorThread.SelectionTask _selectionTask;
+    private volatile SelectorThread.IoWorker _ioWorker;
     private volatile Iterator<Runnable> _pendingIterator;
     private final AtomicLong _maxWriteIdleMillis = new AtomicLong();
     private final AtomicLong _maxReadIdleMillis = new AtomicLong();
@@ -77,15 +81,27 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
     private final AtomicBoolean _hasShutdown = new AtomicBoolean();
     private volatile long _bufferedSize;
     private String _selectedHost;
+    private final int _coalescingFrameSize;
+    private final int _coalescingBufferSize;
+    private volatile long _networkWrites;
+    private volatile long _networkBytesWritten;
+    private volatile long _coalescedFrames;
+    private final Executor _handshakeExecutor;
 
     public NonBlockingConnection(SocketChannel socketChannel,
                                  ProtocolEngine protocolEngine,
                                  final Set<TransportEncryption> encryptionSet,
                                  final Runnable onTransportEncryptionAction,
                                  final NetworkConnectionScheduler scheduler,
-                                 final AmqpPort port)
+                                 final AmqpPort port,
+                                 final int coalescingFrameSize,
+                                 final int coalescingBufferSize,
+                                 final Executor handshakeExecutor)
     {
+        _handshakeExecutor = handshakeExecutor;
         _socketChannel = socketChannel;
+        _coalescingBufferSize = coalescingBufferSize;
+        _coalescingFrameSize = Math.min(coalescingFrameSize, coalescingBufferSize);
         pushScheduler(scheduler);
 
         _protocolEngine = protocolEngine;
@@ -491,7 +507,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         {
             long readData = readFromNetwork();
 
-            if (readData > 0)
+            if (readData > 0 || _delegate.hasUnprocessedInput())
             {
                 return _delegate.processData();
             }
@@ -509,6 +525,8 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
     long writeToTransport(Collection<QpidByteBuffer> buffers) throws IOException
     {
         long written  = QpidByteBuffer.write(_socketChannel, buffers);
+        _networkWrites++;
+        _networkBytesWritten += written;
         if (LOGGER.isDebugEnabled())
         {
             LOGGER.debug("Written " + written + " bytes");
@@ -518,6 +536,10 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
 
     private boolean doWrite() throws IOException
     {
+        if (_coalescingFrameSize > 0)
+        {
+            _coalescedFrames += coalesceSmallBuffers(_buffers, _coalescingFrameSize, _coalescingBufferSize);
+        }
         final NonBlockingConnectionDelegate.WriteResult result = _delegate.doWrite(_buffers);
         _bufferedSize -= result.getBytesConsumed();
         _fullyWritten = result.isComplete();
@@ -534,6 +556,80 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         return _fullyWritten;
     }
 
+    /**
+     * Copies runs of consecutive small buffers, such as the frames of small messages, into single buffers of up to
+     * the coalescing buffer size, so that they are written with few buffers per write. Buffers larger than the
+     * coalescing frame size are written as they are. Buffers are only sent and written on the IO thread.
+     *
+     * @return the number of buffers which were copied into coalesced buffers
+     */
+    static int coalesceSmallBuffers(final Queue<QpidByteBuffer> queue,
+                                    final int coalescingFrameSize,
+                                    final int coalescingBufferSize)
+    {
+        int consecutiveSmallBuffers = 0;
+        for (QpidByteBuffer buffer : queue)
+        {
+            consecutiveSmallBuffers = buffer.remaining() <= coalescingFrameSize ? consecutiveSmallBuffers + 1 : 0;
+            if (consecutiveSmallBuffers == 2)
+            {
+                break;
+            }
+        }
+        if (consecutiveSmallBuffers < 2)
+        {
+            return 0;
+        }
+
+        final List<QpidByteBuffer> buffers = new ArrayList<>(queue.size());
+        QpidByteBuffer buffer;
+        while ((buffer = queue.poll()) != null)
+        {
+            buffers.add(buffer);
+        }
+
+        int coalescedFrames = 0;
+        int start = 0;
+        while (start < buffers.size())
+        {
+            int size = buffers.get(start).remaining();
+            int end = start + 1;
+            if (size <= coalescingFrameSize)
+            {
+                while (end < buffers.size())
+                {
+                    final int nextSize = buffers.get(end).remaining();
+                    if (nextSize > coalescingFrameSize || size + nextSize > coalescingBufferSize)
+                    {
+                        break;
+                    }
+                    size += nextSize;
+                    end++;
+                }
+            }
+
+            if (end - start == 1)
+            {
+                queue.add(buffers.get(start));
+            }
+            else
+            {
+                final QpidByteBuffer coalesced = QpidByteBuffer.allocateDirect(size);
+                for (int i = start; i < end; i++)
+                {
+                    final QpidByteBuffer frame = buffers.get(i);
+                    coalesced.put(frame);
+                    frame.dispose();
+                }
+                coalesced.flip();
+                queue.add(coalesced);
+                coalescedFrames += end - start;
+            }
+            start = end;
+        }
+        return coalescedFrames;
+    }
+
     protected long readFromNetwork() throws IOException
     {
         QpidByteBuffer buffer = _delegate.getNetInputBuffer();
@@ -553,6 +649,24 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         return read;
     }
 
+    @Override
+    public long getNetworkWrites()
+    {
+        return _networkWrites;
+    }
+
+    @Override
+    public long getNetworkBytesWritten()
+    {
+        return _networkBytesWritten;
+    }
+
+    @Override
+    public long getCoalescedFrames()
+    {
+        return _coalescedFrames;
+    }
+
     @Override
     public boolean isDirectBufferPreferred()
     {
@@ -605,6 +719,19 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         return "[NonBlockingConnection " + _remoteSocketAddress + "]";
     }
 
+    /**
+     * Notifies the connection of work from a thread other than its IO thread, scheduling it if necessary even if
+     * its protocol engine does not yet have a work listener.
+     */
+    void notifyWork()
+    {
+        _protocolEngine.notifyWork();
+        if (!_scheduled.get())
+        {
+            getScheduler().schedule(this);
+        }
+    }
+
     public void processAmqpData(QpidByteBuffer applicationData)
     {
         _protocolEngine.received(applicationData);
@@ -617,7 +744,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         {
             case TLS:
                 _onTransportEncryptionAction.run();
-                _delegate = new NonBlockingConnectionTLSDelegate(this, _port);
+                _delegate = new NonBlockingConnectionTLSDelegate(this, _port, _handshakeExecutor);
                 break;
             case NONE:
                 _delegate = new NonBlockingConnectionPlainDelegate(this, _port);
@@ -680,6 +807,16 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         _selectionTask = selectionTask;
     }
 
+    SelectorThread.IoWorker getIoWorker()
+    {
+        return _ioWorker;
+    }
+
+    void setIoWorker(final SelectorThread.IoWorker ioWorker)
+    {
+        _ioWorker = ioWorker;
+    }
+
     public void setSelectedHost(final String selectedHost)
     {
         _selectedHost = selectedHost;
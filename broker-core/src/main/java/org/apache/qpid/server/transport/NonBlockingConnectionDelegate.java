@@ -56,6 +56,15 @@ interface NonBlockingConnectionDelegate
 
     boolean processData() throws IOException;
 
+    /**
+     * Returns true if data previously read from the network is waiting to be processed even though no further data
+     * has been read.
+     */
+    default boolean hasUnprocessedInput()
+    {
+        return false;
+    }
+
     Principal getPeerPrincipal();
 
     Certificate getPeerCertificate();
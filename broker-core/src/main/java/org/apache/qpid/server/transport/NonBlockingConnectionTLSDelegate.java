@@ -28,6 +28,8 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.net.ssl.SNIHostName;
 import javax.net.ssl.SSLEngine;
@@ -51,6 +53,11 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
     private final SSLEngine _sslEngine;
     private final NonBlockingConnection _parent;
+    private final AmqpPort<?> _port;
+    private final Executor _handshakeExecutor;
+    private final long _creationTime = System.currentTimeMillis();
+    private volatile boolean _delegatedTasksPending;
+    private boolean _inputAwaitingDelegatedTasks;
     private final int _networkBufferSize;
     private SSLEngineResult _status;
     private final List<QpidByteBuffer> _encryptedOutput = new ArrayList<>();
@@ -64,8 +71,19 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
 
     public NonBlockingConnectionTLSDelegate(NonBlockingConnection parent, AmqpPort port)
+    {
+        this(parent, port, null);
+    }
+
+    /**
+     * Creates a delegate which runs the delegated tasks of its SSLEngine on the given executor, or on the IO thread
+     * if the executor is null.
+     */
+    public NonBlockingConnectionTLSDelegate(NonBlockingConnection parent, AmqpPort port, Executor handshakeExecutor)
     {
         _parent = parent;
+        _port = port;
+        _handshakeExecutor = handshakeExecutor;
         _sslEngine = createSSLEngine(port);
         _networkBufferSize = port.getNetworkBufferSize();
 
@@ -78,7 +96,6 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
 
         _netInputBuffer = QpidByteBuffer.allocateDirect(_networkBufferSize);
         _applicationBuffer = QpidByteBuffer.allocateDirect(_networkBufferSize);
-        _netOutputBuffer = QpidByteBuffer.allocateDirect(_networkBufferSize);
     }
 
     @Override
@@ -90,6 +107,11 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
     @Override
     public boolean processData() throws IOException
     {
+        if (_delegatedTasksPending)
+        {
+            _inputAwaitingDelegatedTasks = _netInputBuffer.position() > 0;
+            return false;
+        }
         if(!_hostChecked)
         {
             try (QpidByteBuffer buffer = _netInputBuffer.duplicate())
@@ -116,6 +138,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
         _netInputBuffer.flip();
         boolean readData = false;
         boolean tasksRun;
+        boolean tasksHandedOff;
         int oldNetBufferPos;
         do
         {
@@ -131,7 +154,10 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
                 LOGGER.debug("SSLEngine closed, discarded {} byte(s)", remaining);
             }
 
+            checkHandshakeFinished(_status);
             tasksRun = runSSLEngineTasks(_status);
+            // the tasks may already be complete, so whether they were handed off is not read back from the flag
+            tasksHandedOff = !tasksRun && _status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK;
             _applicationBuffer.flip();
             if(_applicationBuffer.position() > oldAppBufPos)
             {
@@ -143,7 +169,9 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
             restoreApplicationBufferForWrite();
 
         }
-        while((_netInputBuffer.hasRemaining() && (_netInputBuffer.position()>oldNetBufferPos)) || tasksRun);
+        while(!tasksHandedOff
+              && ((_netInputBuffer.hasRemaining() && (_netInputBuffer.position()>oldNetBufferPos)) || tasksRun));
+        _inputAwaitingDelegatedTasks = tasksHandedOff && _netInputBuffer.hasRemaining();
 
         if(_netInputBuffer.hasRemaining())
         {
@@ -156,12 +184,21 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
         return readData;
     }
 
+    @Override
+    public boolean hasUnprocessedInput()
+    {
+        return _inputAwaitingDelegatedTasks && !_delegatedTasksPending;
+    }
+
     @Override
     public WriteResult doWrite(Collection<QpidByteBuffer> buffers) throws IOException
     {
         final int bufCount = buffers.size();
 
-        int totalConsumed = wrapBufferArray(buffers);
+        int totalConsumed = _delegatedTasksPending ? 0 : wrapBufferArray(buffers);
+        // whilst the handshake waits for its delegated tasks nothing more can be wrapped: the connection is
+        // rescheduled once the tasks are complete rather than being repeatedly scheduled for writing until then
+        final boolean awaitingDelegatedTasks = _delegatedTasksPending;
 
         boolean bufsSent = true;
         final Iterator<QpidByteBuffer> itr = buffers.iterator();
@@ -191,7 +228,13 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
                 }
             }
         }
-        return new WriteResult(bufsSent && _encryptedOutput.isEmpty(), totalConsumed);
+        if (_encryptedOutput.isEmpty() && _netOutputBuffer != null && _netOutputBuffer.position() == 0)
+        {
+            // release the unused remainder of the pooled output buffer rather than holding it while idle
+            _netOutputBuffer.dispose();
+            _netOutputBuffer = null;
+        }
+        return new WriteResult((bufsSent || awaitingDelegatedTasks) && _encryptedOutput.isEmpty(), totalConsumed);
     }
 
     protected void restoreApplicationBufferForWrite()
@@ -238,7 +281,11 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
         {
             if(_sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP)
             {
-                if(_netOutputBuffer.remaining() < _sslEngine.getSession().getPacketBufferSize())
+                if(_netOutputBuffer == null)
+                {
+                    _netOutputBuffer = QpidByteBuffer.allocateDirect(_networkBufferSize);
+                }
+                else if(_netOutputBuffer.remaining() < _sslEngine.getSession().getPacketBufferSize())
                 {
                     if(_netOutputBuffer.position() != 0)
                     {
@@ -255,6 +302,7 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
                 _status = QpidByteBuffer.encryptSSL(_sslEngine, buffers, _netOutputBuffer);
                 encrypted = _status.bytesProduced() > 0;
                 totalConsumed += _status.bytesConsumed();
+                checkHandshakeFinished(_status);
                 runSSLEngineTasks(_status);
                 if(encrypted && _netOutputBuffer.remaining() < _sslEngine.getSession().getPacketBufferSize())
                 {
@@ -270,9 +318,10 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
             }
 
         }
-        while(encrypted && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP);
+        while(encrypted && !_delegatedTasksPending
+              && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP);
 
-        if(_netOutputBuffer.position() != 0)
+        if(_netOutputBuffer != null && _netOutputBuffer.position() != 0)
         {
             final QpidByteBuffer outputBuffer = _netOutputBuffer;
 
@@ -285,22 +334,72 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
         return totalConsumed;
     }
 
+    /**
+     * Runs the delegated tasks of the SSLEngine, returning true if they have been run. If the delegate has a
+     * handshake executor the tasks are run on it instead and false is returned: the connection is notified of work
+     * once they are complete.
+     */
     private boolean runSSLEngineTasks(final SSLEngineResult status)
     {
-        if(status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK)
+        if(status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK && !_delegatedTasksPending)
         {
+            final List<Runnable> tasks = new ArrayList<>();
             Runnable task;
             while((task = _sslEngine.getDelegatedTask()) != null)
             {
-                task.run();
+                tasks.add(task);
             }
 
+            if (_handshakeExecutor != null && !tasks.isEmpty())
+            {
+                _delegatedTasksPending = true;
+                try
+                {
+                    _handshakeExecutor.execute(() -> runDelegatedTasks(tasks));
+                    return false;
+                }
+                catch (RejectedExecutionException e)
+                {
+                    _delegatedTasksPending = false;
+                    LOGGER.debug("Handshake executor rejected SSLEngine tasks, running them on the IO thread");
+                }
+            }
+
+            for (Runnable delegatedTask : tasks)
+            {
+                delegatedTask.run();
+            }
             return true;
         }
 
         return false;
     }
 
+    private void runDelegatedTasks(final List<Runnable> tasks)
+    {
+        try
+        {
+            for (Runnable task : tasks)
+            {
+                task.run();
+            }
+        }
+        finally
+        {
+            _delegatedTasksPending = false;
+            _parent.notifyWork();
+        }
+    }
+
+    private void checkHandshakeFinished(final SSLEngineResult status)
+    {
+        if (status.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED)
+        {
+            // a resumed session was created before this connection
+            _port.registerTlsHandshake(_sslEngine.getSession().getCreationTime() < _creationTime);
+        }
+    }
+
     @Override
     public Principal getPeerPrincipal()
     {
@@ -318,7 +417,8 @@ public class NonBlockingConnectionTLSDelegate implements NonBlockingConnectionDe
     @Override
     public boolean needsWork()
     {
-        return _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
+        return !_delegatedTasksPending
+               && _sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
     }
 
     private synchronized void checkPeerPrincipal()
@@ -29,6 +29,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,12 +48,16 @@ public class NonBlockingNetworkTransport
     private final ServerSocketChannel _serverSocket;
     private final NetworkConnectionScheduler _scheduler;
     private final AmqpPort<?> _port;
+    private final int _coalescingFrameSize;
+    private final int _coalescingBufferSize;
+    private final Executor _handshakeExecutor;
     private final InetSocketAddress _address;
 
     public NonBlockingNetworkTransport(final MultiVersionProtocolEngineFactory factory,
                                        final EnumSet<TransportEncryption> encryptionSet,
                                        final NetworkConnectionScheduler scheduler,
-                                       final AmqpPort<?> port)
+                                       final AmqpPort<?> port,
+                                       final Executor handshakeExecutor)
     {
         try
         {
@@ -91,6 +96,9 @@ public class NonBlockingNetworkTransport
             _encryptionSet = encryptionSet;
             _scheduler = scheduler;
             _port = port;
+            _handshakeExecutor = handshakeExecutor;
+            _coalescingFrameSize = port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WRITE_COALESCING_FRAME_SIZE);
+            _coalescingBufferSize = port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE);
 
         }
         catch (IOException e)
@@ -163,7 +171,10 @@ public class NonBlockingNetworkTransport
                                                           }
                                                       },
                                                       _scheduler,
-                                                      _port);
+                                                      _port,
+                                                      _coalescingFrameSize,
+                                                      _coalescingBufferSize,
+                                                      _handshakeExecutor);
 
                     engine.setNetworkConnection(connection);
 
@@ -31,18 +31,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
@@ -59,12 +61,16 @@ class SelectorThread extends Thread
                                CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_DEFAULT);
 
     static final String IO_THREAD_NAME_PREFIX  = "IO-";
+    /** The number of queued tasks at which a worker's connections may be processed by an idle sibling worker */
+    private static final int WORKER_IMBALANCE_THRESHOLD = 2;
     private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
 
     private final AtomicBoolean _closed = new AtomicBoolean();
     private final NetworkConnectionScheduler _scheduler;
 
-    private final BlockingQueue<Runnable> _workQueue = new LinkedBlockingQueue<>();
+    private final WorkHandoffQueue _workQueue = new WorkHandoffQueue();
+    private final LongAdder _handoffs = new LongAdder();
+    private final LongAdder _handoffNanos = new LongAdder();
     private final  AtomicInteger _nextSelectorTaskIndex = new AtomicInteger();
 
     public final class SelectionTask implements Runnable
@@ -72,7 +78,10 @@ class SelectorThread extends Thread
         private final Selector _selector;
         private final AtomicBoolean _selecting = new AtomicBoolean();
         private final AtomicBoolean _inSelect = new AtomicBoolean();
-        private final AtomicInteger _wakeups = new AtomicInteger();
+        /** Set by the first wakeup requested since the selector last started to select */
+        private final AtomicBoolean _wakeupPending = new AtomicBoolean();
+        private final LongAdder _wakeupRequests = new LongAdder();
+        private final LongAdder _selectorWakeups = new LongAdder();
         private long _nextTimeout;
 
         /**
@@ -84,6 +93,8 @@ class SelectorThread extends Thread
         /** Set of connections that are currently being selected upon */
         private final Set<NonBlockingConnection> _unscheduledConnections = new HashSet<>();
 
+        /** The workers owned by this task when connections are pinned to workers */
+        private IoWorker[] _workers = new IoWorker[0];
 
 
         private SelectionTask() throws IOException
@@ -198,7 +209,7 @@ class SelectorThread extends Thread
                                     + " because selector key is already cancelled", localSocketAddress, e);
                     }
 
-                    _workQueue.add(() -> {
+                    execute(this, () -> {
                             try
                             {
                                 _scheduler.incrementRunningCount();
@@ -299,7 +310,7 @@ class SelectorThread extends Thread
                 {
                     if (acquireSelecting())
                     {
-                        List<ConnectionProcessor> connections = new ArrayList<>();
+                        List<NonBlockingConnection> connections = new ArrayList<>();
                         try
                         {
                             if (!_closed.get())
@@ -308,7 +319,7 @@ class SelectorThread extends Thread
                                 _inSelect.set(true);
                                 try
                                 {
-                                    if (_wakeups.getAndSet(0) > 0)
+                                    if (_wakeupPending.getAndSet(false))
                                     {
                                         _selector.selectNow();
                                     }
@@ -332,21 +343,21 @@ class SelectorThread extends Thread
                                 {
                                     if (connection.setScheduled())
                                     {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
+                                        connections.add(connection);
                                     }
                                 }
                                 for (NonBlockingConnection connection : reregisterUnregisteredConnections())
                                 {
                                     if (connection.setScheduled())
                                     {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
+                                        connections.add(connection);
                                     }
                                 }
                                 for (NonBlockingConnection connection : processUnscheduledConnections())
                                 {
                                     if (connection.setScheduled())
                                     {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
+                                        connections.add(connection);
                                     }
                                 }
                                 runTasks();
@@ -357,11 +368,26 @@ class SelectorThread extends Thread
                             clearSelecting();
                         }
 
-                        if (!connections.isEmpty())
+                        if (_workers.length > 0)
                         {
-                            _workQueue.addAll(connections);
+                            for (NonBlockingConnection connection : connections)
+                            {
+                                dispatch(connection);
+                            }
+                        }
+                        else if (!connections.isEmpty())
+                        {
+                            List<ConnectionProcessor> connectionProcessors = new ArrayList<>(connections.size());
+                            for (NonBlockingConnection connection : connections)
+                            {
+                                connectionProcessors.add(new ConnectionProcessor(_scheduler, connection));
+                            }
+                            for (ConnectionProcessor connectionProcessor : connectionProcessors)
+                            {
+                                _workQueue.add(connectionProcessor);
+                            }
                             _workQueue.add(this);
-                            for (ConnectionProcessor connectionProcessor : connections)
+                            for (ConnectionProcessor connectionProcessor : connectionProcessors)
                             {
                                 connectionProcessor.processConnection();
                             }
@@ -400,11 +426,17 @@ class SelectorThread extends Thread
             }
         }
 
+        /**
+         * Requests that the selector returns from its current or next select. Requests are coalesced: only the
+         * first request since the selector started to select wakes it up, a later request finding a wakeup pending
+         * relies on the selector selecting without blocking once it is back from processing.
+         */
         public void wakeup()
         {
-            _wakeups.compareAndSet(0, 1);
-            if(_inSelect.get() && _wakeups.get() != 0)
+            _wakeupRequests.increment();
+            if (_wakeupPending.compareAndSet(false, true) && _inSelect.get())
             {
+                _selectorWakeups.increment();
                 _selector.wakeup();
             }
         }
@@ -412,7 +444,20 @@ class SelectorThread extends Thread
 
     private SelectionTask[] _selectionTasks;
 
+    private final IoWorker[] _workers;
+
     SelectorThread(final NetworkConnectionScheduler scheduler, final int numberOfSelectors) throws IOException
+    {
+        this(scheduler, numberOfSelectors, 0);
+    }
+
+    /**
+     * Creates a selector thread whose selection tasks each own a fixed set of workers when the given number of
+     * pinned workers is positive, or whose selection tasks and connections share the work queue otherwise.
+     */
+    SelectorThread(final NetworkConnectionScheduler scheduler,
+                   final int numberOfSelectors,
+                   final int numberOfPinnedWorkers) throws IOException
     {
         _scheduler = scheduler;
         _selectionTasks = new SelectionTask[numberOfSelectors];
@@ -420,12 +465,60 @@ class SelectorThread extends Thread
         {
             _selectionTasks[i] = new SelectionTask();
         }
-        for(SelectionTask task : _selectionTasks)
+        _workers = new IoWorker[numberOfPinnedWorkers];
+        if (numberOfPinnedWorkers > 0)
         {
-            _workQueue.add(task);
+            if (numberOfPinnedWorkers < numberOfSelectors)
+            {
+                throw new IllegalArgumentException(String.format(
+                        "Number of pinned workers %d must not be less than the number of selectors %d",
+                        numberOfPinnedWorkers, numberOfSelectors));
+            }
+            final List<List<IoWorker>> workersBySelector = new ArrayList<>();
+            for (int i = 0; i < numberOfSelectors; i++)
+            {
+                workersBySelector.add(new ArrayList<>());
+            }
+            for (int i = 0; i < numberOfPinnedWorkers; i++)
+            {
+                _workers[i] = new IoWorker(i, _selectionTasks[i % numberOfSelectors]);
+                workersBySelector.get(i % numberOfSelectors).add(_workers[i]);
+            }
+            for (int i = 0; i < numberOfSelectors; i++)
+            {
+                _selectionTasks[i]._workers = workersBySelector.get(i).toArray(new IoWorker[0]);
+            }
+        }
+        else
+        {
+            for (SelectionTask task : _selectionTasks)
+            {
+                _workQueue.add(task);
+            }
+        }
+    }
+
+    /**
+     * Starts a thread for each selection task and each worker on the given executor. Only used when connections
+     * are pinned to workers; otherwise the executor's threads run this selector thread's shared work loop.
+     */
+    void startPinnedWorkers(final Executor executor)
+    {
+        for (SelectionTask task : _selectionTasks)
+        {
+            executor.execute(task);
+        }
+        for (IoWorker worker : _workers)
+        {
+            executor.execute(worker);
         }
     }
 
+    boolean isPinningConnections()
+    {
+        return _workers.length > 0;
+    }
+
     public void addAcceptingSocket(final ServerSocketChannel socketChannel,
                                    final NonBlockingNetworkTransport nonBlockingNetworkTransport)
     {
@@ -541,11 +634,12 @@ class SelectorThread extends Thread
 
     }
 
-    private static final class ConnectionProcessor implements Runnable
+    private final class ConnectionProcessor implements Runnable
     {
 
         private final NetworkConnectionScheduler _scheduler;
         private final NonBlockingConnection _connection;
+        private final long _createdNanos = System.nanoTime();
         private AtomicBoolean _running = new AtomicBoolean();
 
         public ConnectionProcessor(final NetworkConnectionScheduler scheduler, final NonBlockingConnection connection)
@@ -572,6 +666,8 @@ class SelectorThread extends Thread
         {
             if (_running.compareAndSet(false, true))
             {
+                _handoffs.increment();
+                _handoffNanos.add(System.nanoTime() - _createdNanos);
                 _scheduler.processConnection(_connection);
             }
         }
@@ -657,6 +753,10 @@ class SelectorThread extends Thread
 
     void removeConnection(NonBlockingConnection connection)
     {
+        if (_workers.length > 0)
+        {
+            unpin(connection);
+        }
         try
         {
             unregisterConnection(connection);
@@ -693,7 +793,11 @@ class SelectorThread extends Thread
         int count = _scheduler.getPoolSize();
         while(count-- > 0)
         {
-            _workQueue.offer(goodNight);
+            _workQueue.add(goodNight);
+        }
+        for (IoWorker worker : _workers)
+        {
+            worker._queue.add(goodNight);
         }
 
         for(SelectionTask task : _selectionTasks)
@@ -711,7 +815,286 @@ class SelectorThread extends Thread
          }
          if(connection.setScheduled())
          {
-             _workQueue.add(new ConnectionProcessor(_scheduler, connection));
+             if (_workers.length > 0)
+             {
+                 dispatch(connection);
+             }
+             else
+             {
+                 _workQueue.add(new ConnectionProcessor(_scheduler, connection));
+             }
          }
      }
+
+    /**
+     * Returns true if the worker the given connection is pinned to has other work waiting.
+     */
+    boolean hasQueuedWork(final NonBlockingConnection connection)
+    {
+        final IoWorker worker = connection.getIoWorker();
+        return worker != null && !worker._queue.isEmpty();
+    }
+
+    private void dispatch(final NonBlockingConnection connection)
+    {
+        IoWorker worker = connection.getIoWorker();
+        if (worker == null || worker.getSelectorThread() != this)
+        {
+            worker = pin(connection);
+        }
+        if (worker._queue.size() >= WORKER_IMBALANCE_THRESHOLD)
+        {
+            final IoWorker idleWorker = findIdleWorker(worker._selectionTask._workers);
+            if (idleWorker != null)
+            {
+                worker = idleWorker;
+            }
+        }
+        worker._queue.add(new ConnectionProcessor(_scheduler, connection));
+    }
+
+    private IoWorker pin(final NonBlockingConnection connection)
+    {
+        final SelectionTask selectionTask = connection.getSelectionTask();
+        final IoWorker[] candidates =
+                selectionTask == null || selectionTask._workers.length == 0 ? _workers : selectionTask._workers;
+        IoWorker worker = candidates[0];
+        for (IoWorker candidate : candidates)
+        {
+            if (candidate._pinnedConnections.get() < worker._pinnedConnections.get())
+            {
+                worker = candidate;
+            }
+        }
+        unpin(connection);
+        worker._pinnedConnections.incrementAndGet();
+        connection.setIoWorker(worker);
+        return worker;
+    }
+
+    private void unpin(final NonBlockingConnection connection)
+    {
+        final IoWorker worker = connection.getIoWorker();
+        if (worker != null)
+        {
+            connection.setIoWorker(null);
+            worker._pinnedConnections.decrementAndGet();
+        }
+    }
+
+    private IoWorker findIdleWorker(final IoWorker[] workers)
+    {
+        for (IoWorker worker : workers)
+        {
+            if (worker._idle)
+            {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    private void execute(final SelectionTask selectionTask, final Runnable task)
+    {
+        if (selectionTask._workers.length > 0)
+        {
+            IoWorker worker = selectionTask._workers[0];
+            for (IoWorker candidate : selectionTask._workers)
+            {
+                if (candidate._queue.size() < worker._queue.size())
+                {
+                    worker = candidate;
+                }
+            }
+            worker._queue.add(task);
+        }
+        else
+        {
+            _workQueue.add(task);
+        }
+    }
+
+    long getWorkerBusyTime()
+    {
+        long busyNanos = 0;
+        for (IoWorker worker : _workers)
+        {
+            busyNanos += worker._busyNanos.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(busyNanos);
+    }
+
+    long getWorkerIdleTime()
+    {
+        long idleNanos = 0;
+        for (IoWorker worker : _workers)
+        {
+            idleNanos += worker._idleNanos.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(idleNanos);
+    }
+
+    long getConnectionMigrations()
+    {
+        long migrations = 0;
+        for (IoWorker worker : _workers)
+        {
+            migrations += worker._migratedConnections.sum();
+        }
+        return migrations;
+    }
+
+    long getSelectorWakeupRequests()
+    {
+        long requests = 0;
+        for (SelectionTask task : _selectionTasks)
+        {
+            requests += task._wakeupRequests.sum();
+        }
+        return requests;
+    }
+
+    long getSelectorWakeups()
+    {
+        long wakeups = 0;
+        for (SelectionTask task : _selectionTasks)
+        {
+            wakeups += task._selectorWakeups.sum();
+        }
+        return wakeups;
+    }
+
+    long getHandoffCount()
+    {
+        return _handoffs.sum();
+    }
+
+    long getHandoffTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_handoffNanos.sum());
+    }
+
+    List<Map<String, Object>> getWorkerStatistics()
+    {
+        final List<Map<String, Object>> statistics = new ArrayList<>(_workers.length);
+        for (IoWorker worker : _workers)
+        {
+            statistics.add(worker.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * A worker owned by a selection task when connections are pinned to workers. A connection is pinned to the
+     * worker of its selection task with the fewest pinned connections, so that it is processed by the same thread
+     * from one read to the next. A connection is handed to another worker of the same selection task only while
+     * its own worker has a backlog and the other worker is idle, or is about to become idle.
+     */
+    final class IoWorker implements Runnable
+    {
+        private final int _index;
+        private final SelectionTask _selectionTask;
+        private final WorkHandoffQueue _queue = new WorkHandoffQueue();
+        private final AtomicInteger _pinnedConnections = new AtomicInteger();
+        private final LongAdder _busyNanos = new LongAdder();
+        private final LongAdder _idleNanos = new LongAdder();
+        private final LongAdder _processedConnections = new LongAdder();
+        private final LongAdder _migratedConnections = new LongAdder();
+        private volatile boolean _idle;
+
+        private IoWorker(final int index, final SelectionTask selectionTask)
+        {
+            _index = index;
+            _selectionTask = selectionTask;
+        }
+
+        @Override
+        public void run()
+        {
+            final String name = Thread.currentThread().getName();
+            try
+            {
+                while (!_closed.get())
+                {
+                    Runnable task = _queue.poll();
+                    if (task == null)
+                    {
+                        task = steal();
+                    }
+                    if (task == null)
+                    {
+                        final long idleStart = System.nanoTime();
+                        _idle = true;
+                        try
+                        {
+                            task = _queue.take();
+                        }
+                        finally
+                        {
+                            _idle = false;
+                            _idleNanos.add(System.nanoTime() - idleStart);
+                        }
+                    }
+
+                    final long busyStart = System.nanoTime();
+                    try
+                    {
+                        Thread.currentThread().setName(name);
+                        if (task instanceof ConnectionProcessor)
+                        {
+                            _processedConnections.increment();
+                            final IoWorker pinnedWorker = ((ConnectionProcessor) task)._connection.getIoWorker();
+                            if (pinnedWorker != null && pinnedWorker != this)
+                            {
+                                _migratedConnections.increment();
+                            }
+                        }
+                        task.run();
+                    }
+                    finally
+                    {
+                        _busyNanos.add(System.nanoTime() - busyStart);
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Runnable steal()
+        {
+            for (IoWorker worker : _selectionTask._workers)
+            {
+                if (worker != this && worker._queue.size() >= WORKER_IMBALANCE_THRESHOLD)
+                {
+                    final Runnable task = worker._queue.poll();
+                    if (task != null)
+                    {
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private SelectorThread getSelectorThread()
+        {
+            return SelectorThread.this;
+        }
+
+        private Map<String, Object> getStatistics()
+        {
+            final Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("worker", _index);
+            statistics.put("pinnedConnections", _pinnedConnections.get());
+            statistics.put("queuedTasks", _queue.size());
+            statistics.put("busyTime", TimeUnit.NANOSECONDS.toMillis(_busyNanos.sum()));
+            statistics.put("idleTime", TimeUnit.NANOSECONDS.toMillis(_idleNanos.sum()));
+            statistics.put("processedConnections", _processedConnections.sum());
+            statistics.put("migratedConnections", _migratedConnections.sum());
+            return statistics;
+        }
+    }
 }
@@ -32,4 +32,28 @@ public interface ServerNetworkConnection extends NetworkConnection
     void removeSchedulingDelayNotificationListeners(SchedulingDelayNotificationListener listener);
 
     String getSelectedHost();
+
+    /**
+     * Returns the number of writes to the network made by this connection.
+     */
+    default long getNetworkWrites()
+    {
+        return 0L;
+    }
+
+    /**
+     * Returns the number of bytes written to the network by this connection, including protocol framing.
+     */
+    default long getNetworkBytesWritten()
+    {
+        return 0L;
+    }
+
+    /**
+     * Returns the number of small frames which were copied into a shared buffer before being written.
+     */
+    default long getCoalescedFrames()
+    {
+        return 0L;
+    }
 }
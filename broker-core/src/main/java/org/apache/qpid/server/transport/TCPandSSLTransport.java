@@ -22,6 +22,14 @@ package org.apache.qpid.server.transport;
 
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
 
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.Protocol;
@@ -37,6 +45,7 @@ class TCPandSSLTransport implements AcceptingTransport
     private Set<Protocol> _supported;
     private Protocol _defaultSupportedProtocolReply;
     private NetworkConnectionScheduler _scheduler;
+    private ThreadPoolExecutor _handshakeExecutor;
 
     TCPandSSLTransport(final Set<Transport> transports,
                        final AmqpPort<?> port,
@@ -72,14 +81,49 @@ class TCPandSSLTransport implements AcceptingTransport
 
         long threadPoolKeepAliveTimeout = _port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT);
 
+        boolean pinConnections = _port.getContextValue(Boolean.class, AmqpPort.PORT_AMQP_THREAD_POOL_PIN_CONNECTIONS);
+
         _scheduler = new NetworkConnectionScheduler("Port-"+_port.getName(), _port.getNumberOfSelectors(),
-                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout);
+                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout,
+                                                    pinConnections);
         _scheduler.start();
+
+        final int handshakeThreads = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_TLS_HANDSHAKE_THREADS);
+        if (encryptionSet.contains(TransportEncryption.TLS) && handshakeThreads > 0)
+        {
+            _handshakeExecutor = createHandshakeExecutor(handshakeThreads, threadPoolKeepAliveTimeout);
+        }
         _networkTransport = new NonBlockingNetworkTransport(protocolEngineFactory,
-                                                            encryptionSet, _scheduler, _port);
+                                                            encryptionSet, _scheduler, _port, _handshakeExecutor);
         _networkTransport.start();
     }
 
+    private ThreadPoolExecutor createHandshakeExecutor(final int handshakeThreads, final long keepAliveTimeout)
+    {
+        final String name = "TLS-Handshake-Port-" + _port.getName();
+        final ThreadFactory factory = new ThreadFactory()
+        {
+            private final AtomicInteger _count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                final Thread thread = Executors.defaultThreadFactory().newThread(r);
+                thread.setName(name + "-" + _count.incrementAndGet());
+                return thread;
+            }
+        };
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(handshakeThreads,
+                                       handshakeThreads,
+                                       keepAliveTimeout,
+                                       TimeUnit.MINUTES,
+                                       new LinkedBlockingQueue<>(),
+                                       QpidByteBuffer.createQpidByteBufferTrackingThreadFactory(factory));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public int getAcceptingPort()
     {
@@ -87,6 +131,12 @@ class TCPandSSLTransport implements AcceptingTransport
         return networkTransport == null ? _port.getPort() : networkTransport.getAcceptingPort();
     }
 
+    @Override
+    public NetworkConnectionScheduler getNetworkConnectionScheduler()
+    {
+        return _scheduler;
+    }
+
     @Override
     public void close()
     {
@@ -98,5 +148,9 @@ class TCPandSSLTransport implements AcceptingTransport
         {
             _scheduler.close();
         }
+        if (_handshakeExecutor != null)
+        {
+            _handshakeExecutor.shutdown();
+        }
     }
 }
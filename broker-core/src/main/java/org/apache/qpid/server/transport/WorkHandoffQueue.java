@@ -0,0 +1,135 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An unbounded multi-producer, multi-consumer queue handing work from the selectors to the IO threads.
+ * <p>
+ * Unlike a {@link java.util.concurrent.LinkedBlockingQueue} no lock is taken to add or remove work. A consumer
+ * finding the queue empty registers itself as waiting, checks the queue once more and parks; a producer unparks
+ * one waiting consumer after adding work, and does nothing more when no consumer is waiting. The queue is unbounded
+ * so that a selector handing over work never blocks.
+ */
+final class WorkHandoffQueue
+{
+    private final Queue<Runnable> _queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final ConcurrentLinkedDeque<Thread> _waiters = new ConcurrentLinkedDeque<>();
+
+    void add(final Runnable task)
+    {
+        _queue.add(task);
+        _size.incrementAndGet();
+        final Thread waiter = _waiters.pollFirst();
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    Runnable poll()
+    {
+        final Runnable task = _queue.poll();
+        if (task != null)
+        {
+            _size.decrementAndGet();
+        }
+        return task;
+    }
+
+    /**
+     * Removes the next task, waiting until one is added if the queue is empty.
+     */
+    Runnable take() throws InterruptedException
+    {
+        Runnable task = poll();
+        if (task != null)
+        {
+            return task;
+        }
+
+        final Thread currentThread = Thread.currentThread();
+        while (true)
+        {
+            _waiters.addFirst(currentThread);
+            task = poll();
+            if (task != null)
+            {
+                if (!_waiters.remove(currentThread))
+                {
+                    // a producer unparked this thread for work which another task may now be waiting for
+                    passOnWakeup();
+                }
+                return task;
+            }
+
+            LockSupport.park(this);
+
+            final boolean stillWaiting = _waiters.remove(currentThread);
+            if (Thread.interrupted())
+            {
+                if (!stillWaiting)
+                {
+                    passOnWakeup();
+                }
+                throw new InterruptedException();
+            }
+
+            task = poll();
+            if (task != null)
+            {
+                if (!stillWaiting)
+                {
+                    passOnWakeup();
+                }
+                return task;
+            }
+        }
+    }
+
+    int size()
+    {
+        return _size.get();
+    }
+
+    boolean isEmpty()
+    {
+        return _queue.isEmpty();
+    }
+
+    private void passOnWakeup()
+    {
+        if (!_queue.isEmpty())
+        {
+            final Thread waiter = _waiters.pollFirst();
+            if (waiter != null)
+            {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@
  */
 package org.apache.qpid.server.txn;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -51,6 +52,7 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
 
     private final MessageStore _messageStore;
     private final FutureRecorder _futureRecorder;
+    private EnqueueBatch _batch;
 
     //Set true to ensure strict ordering when enqueuing messages with mixed delivery mode, i.e. disable async persistence
     private boolean _strictOrderWithMixedDeliveryMode = Boolean.getBoolean(QPID_STRICT_ORDER_WITH_MIXED_DELIVERY_MODE);
@@ -139,7 +141,11 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
 
     private void addEnqueueFuture(final ListenableFuture<Void> future, final Action action, boolean persistent)
     {
-        if(action != null)
+        if (_batch != null)
+        {
+            _batch.add(action);
+        }
+        else if(action != null)
         {
             // For persistent messages, do not synchronously invoke postCommit even if the future  is completed.
             // Otherwise, postCommit (which actually does the enqueuing) might be called on successive messages out of order.
@@ -210,10 +216,18 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
             {
                 LOGGER.debug("Enqueue of message number {} to transaction log. Queue : {}", message.getMessageNumber(), queue.getName());
 
-                txn = _messageStore.newTransaction();
-                enqueueRecord = txn.enqueueMessage(queue, message);
-                future = txn.commitTranAsync(null);
-                txn = null;
+                if (_batch != null)
+                {
+                    enqueueRecord = _batch.getTransaction().enqueueMessage(queue, message);
+                    future = null;
+                }
+                else
+                {
+                    txn = _messageStore.newTransaction();
+                    enqueueRecord = txn.enqueueMessage(queue, message);
+                    future = txn.commitTranAsync(null);
+                    txn = null;
+                }
             }
             else
             {
@@ -277,11 +291,18 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
                 {
                     LOGGER.debug("Enqueue of message number {} to transaction log. Queue : {}", message.getMessageNumber(), queue.getName());
 
-                    if (txn == null)
+                    if (_batch != null)
                     {
-                        txn = _messageStore.newTransaction();
+                        records[i] = _batch.getTransaction().enqueueMessage(queue, message);
+                    }
+                    else
+                    {
+                        if (txn == null)
+                        {
+                            txn = _messageStore.newTransaction();
+                        }
+                        records[i] = txn.enqueueMessage(queue, message);
                     }
-                    records[i] = txn.enqueueMessage(queue, message);
 
 
                 }
@@ -346,6 +367,55 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
     }
 
 
+    /**
+     * Starts a batch of enqueues. Until the batch is completed, the persistent enqueues are recorded in a single
+     * store transaction and the post transaction actions of all enqueues are deferred, so that they are performed
+     * in order once that transaction has committed.
+     */
+    public void startBatch()
+    {
+        if (_batch != null)
+        {
+            throw new IllegalStateException("Batch of enqueues already started");
+        }
+        _batch = new EnqueueBatch();
+    }
+
+    /**
+     * Completes the current batch of enqueues, committing its store transaction asynchronously.
+     */
+    public void completeBatch()
+    {
+        final EnqueueBatch batch = _batch;
+        if (batch == null)
+        {
+            throw new IllegalStateException("No batch of enqueues started");
+        }
+        _batch = null;
+
+        Transaction txn = batch._transaction;
+        Action action = batch;
+        try
+        {
+            ListenableFuture<Void> future;
+            if (txn != null)
+            {
+                future = txn.commitTranAsync((Void) null);
+                txn = null;
+            }
+            else
+            {
+                future = Futures.immediateFuture(null);
+            }
+            addEnqueueFuture(future, batch, batch._transaction != null);
+            action = null;
+        }
+        finally
+        {
+            rollbackIfNecessary(action, txn);
+        }
+    }
+
     @Override
     public void commit(final Runnable immediatePostTransactionAction)
     {
@@ -395,4 +465,44 @@ public class AsyncAutoCommitTransaction implements ServerTransaction
         }
     }
 
+    private final class EnqueueBatch implements Action
+    {
+        private final List<Action> _actions = new ArrayList<>();
+        private Transaction _transaction;
+
+        private Transaction getTransaction()
+        {
+            if (_transaction == null)
+            {
+                _transaction = _messageStore.newTransaction();
+            }
+            return _transaction;
+        }
+
+        private void add(final Action action)
+        {
+            if (action != null)
+            {
+                _actions.add(action);
+            }
+        }
+
+        @Override
+        public void postCommit()
+        {
+            for (Action action : _actions)
+            {
+                action.postCommit();
+            }
+        }
+
+        @Override
+        public void onRollback()
+        {
+            for (Action action : _actions)
+            {
+                action.onRollback();
+            }
+        }
+    }
 }
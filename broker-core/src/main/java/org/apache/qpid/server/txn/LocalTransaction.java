@@ -137,6 +137,7 @@ public class LocalTransaction implements ServerTransaction
 
         try
         {
+            final List<MessageEnqueueRecord> records = new ArrayList<>(queueEntries.size());
             for(MessageInstance entry : queueEntries)
             {
                 final MessageEnqueueRecord record = entry.getEnqueueRecord();
@@ -146,12 +147,15 @@ public class LocalTransaction implements ServerTransaction
                     {
                         LOGGER.debug("Dequeue of message number " + record.getMessageNumber() + " from transaction log. Queue : " + record.getQueueId());
                     }
-
-                    beginTranIfNecessary();
-                    _transaction.dequeueMessage(record);
+                    records.add(record);
                 }
             }
 
+            if (!records.isEmpty())
+            {
+                beginTranIfNecessary();
+                _transaction.dequeueMessages(records);
+            }
         }
         catch(RuntimeException e)
         {
@@ -20,7 +20,6 @@
  */
 package org.apache.qpid.server.virtualhost;
 
-import static com.google.common.collect.Iterators.cycle;
 import static java.util.Collections.newSetFromMap;
 
 import java.io.BufferedInputStream;
@@ -89,10 +88,8 @@ import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
 import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.InstanceProperties;
-import org.apache.qpid.server.message.MessageDeletedException;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageNode;
-import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.message.RoutingResult;
 import org.apache.qpid.server.message.ServerMessage;
@@ -107,8 +104,8 @@ import org.apache.qpid.server.plugin.QpidServiceLoader;
 import org.apache.qpid.server.plugin.SystemNodeCreator;
 import org.apache.qpid.server.pool.SuppressingInheritedAccessControlContextThreadFactory;
 import org.apache.qpid.server.protocol.LinkModel;
+import org.apache.qpid.server.queue.AlternateRoutingPipeline;
 import org.apache.qpid.server.queue.QueueEntry;
-import org.apache.qpid.server.queue.QueueEntryIterator;
 import org.apache.qpid.server.security.AccessControl;
 import org.apache.qpid.server.security.CompoundAccessControl;
 import org.apache.qpid.server.security.Result;
@@ -280,6 +277,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private Collection<VirtualHostLogger> _virtualHostLoggersToClose;
     private PreferenceStore _preferenceStore;
     private long _flowToDiskCheckPeriod;
+    private volatile FlowToDiskEvictor _flowToDiskEvictor;
+    private volatile AlternateRoutingPipeline _alternateRoutingPipeline;
     private volatile boolean _isDiscardGlobalSharedSubscriptionLinksOnDetach;
 
     public AbstractVirtualHost(final Map<String, Object> attributes, VirtualHostNode<?> virtualHostNode)
@@ -603,6 +602,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
         _fileSystemMaxUsagePercent = getContextValue(Integer.class, Broker.STORE_FILESYSTEM_MAX_USAGE_PERCENT);
         _flowToDiskCheckPeriod = getContextValue(Long.class, FLOW_TO_DISK_CHECK_PERIOD);
+        _flowToDiskEvictor = new FlowToDiskEvictor(getContextValue(Long.class, FLOW_TO_DISK_CHECK_ENTRY_BUDGET));
         _isDiscardGlobalSharedSubscriptionLinksOnDetach = getContextValue(Boolean.class, DISCARD_GLOBAL_SHARED_SUBSCRIPTION_LINKS_ON_DETACH);
 
         QpidServiceLoader serviceLoader = new QpidServiceLoader();
@@ -1196,8 +1196,29 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         }
     }
 
+    private void initialiseAlternateRouting()
+    {
+        final int batchSize = getContextValue(Integer.class, ALTERNATE_ROUTING_BATCH_SIZE);
+        if (batchSize > 0)
+        {
+            final String taskName = "AlternateRouting[" + getName() + "]";
+            _alternateRoutingPipeline =
+                    new AlternateRoutingPipeline(_messageStore,
+                                                 task -> executeTask(taskName, task, _housekeepingJobContext),
+                                                 batchSize,
+                                                 getContextValue(Integer.class, ALTERNATE_ROUTING_MAXIMUM_PENDING));
+        }
+    }
+
     private void shutdownHouseKeeping()
     {
+        final AlternateRoutingPipeline alternateRoutingPipeline = _alternateRoutingPipeline;
+        if (alternateRoutingPipeline != null)
+        {
+            _alternateRoutingPipeline = null;
+            alternateRoutingPipeline.close();
+        }
+
         if(_houseKeepingTaskExecutor != null)
         {
             _houseKeepingTaskExecutor.shutdown();
@@ -1473,7 +1494,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     @Override
     public long getInMemoryMessageSize()
     {
-        return _messageStore == null ? -1 : _messageStore.getInMemorySize();
+        // content held by the content cache pins (pooled) direct memory just as in-memory messages do
+        return _messageStore == null ? -1 : _messageStore.getInMemorySize() + _messageStore.getContentCacheSize();
     }
 
     @Override
@@ -1482,6 +1504,72 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return _messageStore == null ? -1 : _messageStore.getBytesEvacuatedFromMemory();
     }
 
+    @Override
+    public long getFlowToDiskEvictedMessages()
+    {
+        final FlowToDiskEvictor flowToDiskEvictor = _flowToDiskEvictor;
+        return flowToDiskEvictor == null ? 0L : flowToDiskEvictor.getEvictedMessages();
+    }
+
+    @Override
+    public long getFlowToDiskEvictedBytes()
+    {
+        final FlowToDiskEvictor flowToDiskEvictor = _flowToDiskEvictor;
+        return flowToDiskEvictor == null ? 0L : flowToDiskEvictor.getEvictedBytes();
+    }
+
+    @Override
+    public long getFlowToDiskVisitedEntries()
+    {
+        final FlowToDiskEvictor flowToDiskEvictor = _flowToDiskEvictor;
+        return flowToDiskEvictor == null ? 0L : flowToDiskEvictor.getVisitedEntries();
+    }
+
+    @Override
+    public long getAlternateRoutingPendingMessages()
+    {
+        final AlternateRoutingPipeline alternateRoutingPipeline = _alternateRoutingPipeline;
+        return alternateRoutingPipeline == null ? 0L : alternateRoutingPipeline.getPendingMessages();
+    }
+
+    @Override
+    public long getAlternateRoutingRoutedMessages()
+    {
+        final AlternateRoutingPipeline alternateRoutingPipeline = _alternateRoutingPipeline;
+        return alternateRoutingPipeline == null ? 0L : alternateRoutingPipeline.getRoutedMessages();
+    }
+
+    @Override
+    public long getAlternateRoutingDiscardedMessages()
+    {
+        final AlternateRoutingPipeline alternateRoutingPipeline = _alternateRoutingPipeline;
+        return alternateRoutingPipeline == null ? 0L : alternateRoutingPipeline.getDiscardedMessages();
+    }
+
+    @Override
+    public AlternateRoutingPipeline getAlternateRoutingPipeline()
+    {
+        return _alternateRoutingPipeline;
+    }
+
+    @Override
+    public long getMessageContentCacheHits()
+    {
+        return _messageStore == null ? 0L : _messageStore.getContentCacheHits();
+    }
+
+    @Override
+    public long getMessageContentCacheMisses()
+    {
+        return _messageStore == null ? 0L : _messageStore.getContentCacheMisses();
+    }
+
+    @Override
+    public long getMessageContentCacheSize()
+    {
+        return _messageStore == null ? 0L : _messageStore.getContentCacheSize();
+    }
+
     @Override
     public <T extends ConfiguredObject<?>> T getAttainedChildFromAddress(final Class<T> childClass,
                                                                          final String address)
@@ -2001,54 +2089,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         @Override
         public void execute()
         {
-            if (isOverTargetSize())
-            {
-                long currentTargetSize = _targetSize.get();
-                List<QueueEntryIterator> queueIterators = new ArrayList<>();
-                for (Queue<?> q : getChildren(Queue.class))
-                {
-                    queueIterators.add(q.queueEntryIterator());
-                }
-                Collections.shuffle(queueIterators);
-
-                long cumulativeSize = 0;
-                final Iterator<QueueEntryIterator> cyclicIterators = cycle(queueIterators);
-                while (cyclicIterators.hasNext())
-                {
-                    final QueueEntryIterator queueIterator = cyclicIterators.next();
-                    if (queueIterator.advance())
-                    {
-                        QueueEntry node = queueIterator.getNode();
-                        if (node != null && !node.isDeleted())
-                        {
-                            try (MessageReference messageReference = node.getMessage().newReference())
-                            {
-                                final StoredMessage storedMessage = messageReference.getMessage().getStoredMessage();
-                                if (storedMessage.isInMemory())
-                                {
-                                    if (cumulativeSize <= currentTargetSize)
-                                    {
-                                        cumulativeSize += storedMessage.getContentSize();
-                                        cumulativeSize += storedMessage.getMetadataSize();
-                                    }
-                                    else
-                                    {
-                                        storedMessage.flowToDisk();
-                                    }
-                                }
-                            }
-                            catch (MessageDeletedException e)
-                            {
-                                // pass
-                            }
-                        }
-                    }
-                    else
-                    {
-                        cyclicIterators.remove();
-                    }
-                }
-            }
+            _flowToDiskEvictor.evict(getChildren(Queue.class), _targetSize.get(), getInMemoryMessageSize());
         }
     }
 
@@ -2657,6 +2698,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         {
             initialiseHouseKeeping();
             initialiseFlowToDiskChecking();
+            initialiseAlternateRouting();
             finalState = State.ACTIVE;
             _acceptsConnections.set(true);
         }
@@ -0,0 +1,228 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.message.MessageDeletedException;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.QueueEntry;
+import org.apache.qpid.server.queue.QueueEntryIterator;
+import org.apache.qpid.server.store.StoredMessage;
+
+/**
+ * Flows message content to disk when the virtual host holds more message data in memory than its target size.
+ * <p>
+ * Each queue has a cursor which is resumed on the next check, so that a check visits at most a bounded number of
+ * queue entries regardless of the total number of messages held on the virtual host. Queues are visited
+ * coldest first: queues without consumers (whose content is evicted in full) before queues with consumers, and
+ * within each group the queues holding the most resident bytes first. Queues with consumers keep a share of the
+ * target size resident at their head, except for messages which on their own exceed that share.
+ * <p>
+ * Checks are expected to be performed by a single thread at a time.
+ */
+class FlowToDiskEvictor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowToDiskEvictor.class);
+
+    private static final Comparator<QueueCursor> COLDEST_FIRST =
+            Comparator.comparing(QueueCursor::hasConsumers)
+                      .thenComparing(Comparator.comparingLong(QueueCursor::getEstimatedResidentBytes).reversed());
+
+    private final long _entryBudget;
+    private Map<Queue<?>, QueueCursor> _cursors = Collections.emptyMap();
+    private final AtomicLong _evictedMessages = new AtomicLong();
+    private final AtomicLong _evictedBytes = new AtomicLong();
+    private final AtomicLong _visitedEntries = new AtomicLong();
+    private long _remainingBudget;
+
+    FlowToDiskEvictor(final long entryBudget)
+    {
+        if (entryBudget <= 0L)
+        {
+            throw new IllegalArgumentException("Entry budget must be positive: " + entryBudget);
+        }
+        _entryBudget = entryBudget;
+    }
+
+    void evict(final Collection<? extends Queue> queues, final long targetSize, final long inMemorySize)
+    {
+        final long bytesToEvict = inMemorySize - targetSize;
+        if (bytesToEvict <= 0L || queues.isEmpty())
+        {
+            _cursors = Collections.emptyMap();
+            return;
+        }
+
+        final Map<Queue<?>, QueueCursor> cursorsByQueue = new HashMap<>();
+        final List<QueueCursor> cursors = new ArrayList<>(queues.size());
+        int queuesWithConsumers = 0;
+        for (Queue<?> queue : queues)
+        {
+            QueueCursor cursor = _cursors.get(queue);
+            if (cursor == null)
+            {
+                cursor = new QueueCursor(queue);
+            }
+            cursorsByQueue.put(queue, cursor);
+            cursor.refresh();
+            if (cursor.hasConsumers())
+            {
+                queuesWithConsumers++;
+            }
+            cursors.add(cursor);
+        }
+        _cursors = cursorsByQueue;
+        cursors.sort(COLDEST_FIRST);
+
+        final long retainedBytesPerQueue = queuesWithConsumers == 0 ? 0L : targetSize / queuesWithConsumers;
+
+        _remainingBudget = _entryBudget;
+        long evictedBytes = 0L;
+        for (QueueCursor cursor : cursors)
+        {
+            if (_remainingBudget <= 0L || evictedBytes >= bytesToEvict)
+            {
+                break;
+            }
+            final long retainedBytes = cursor.hasConsumers() ? retainedBytesPerQueue : 0L;
+            evictedBytes += cursor.evict(retainedBytes, bytesToEvict - evictedBytes);
+        }
+
+        final long visitedEntries = _entryBudget - _remainingBudget;
+        _visitedEntries.addAndGet(visitedEntries);
+        LOGGER.debug("Flow to disk check visited {} entries and evicted {} bytes of the {} bytes over target",
+                     visitedEntries, evictedBytes, bytesToEvict);
+    }
+
+    long getEvictedMessages()
+    {
+        return _evictedMessages.get();
+    }
+
+    long getEvictedBytes()
+    {
+        return _evictedBytes.get();
+    }
+
+    long getVisitedEntries()
+    {
+        return _visitedEntries.get();
+    }
+
+    private final class QueueCursor
+    {
+        private final Queue<?> _queue;
+        private QueueEntryIterator _iterator;
+        private boolean _hasConsumers;
+        private long _passRetainedBytes;
+        private long _passResidentBytes;
+        private long _lastPassResidentBytes = -1L;
+
+        private QueueCursor(final Queue<?> queue)
+        {
+            _queue = queue;
+        }
+
+        void refresh()
+        {
+            _hasConsumers = _queue.getConsumerCount() > 0;
+        }
+
+        boolean hasConsumers()
+        {
+            return _hasConsumers;
+        }
+
+        long getEstimatedResidentBytes()
+        {
+            return _lastPassResidentBytes < 0L
+                    ? _queue.getQueueDepthBytes()
+                    : Math.max(_lastPassResidentBytes, _passResidentBytes);
+        }
+
+        long evict(final long retainedBytes, final long bytesToEvict)
+        {
+            if (_iterator == null)
+            {
+                _iterator = _queue.queueEntryIterator();
+                _passRetainedBytes = 0L;
+                _passResidentBytes = 0L;
+            }
+
+            long evictedBytes = 0L;
+            while (_remainingBudget > 0L && evictedBytes < bytesToEvict)
+            {
+                if (!_iterator.advance())
+                {
+                    _lastPassResidentBytes = _passResidentBytes;
+                    _iterator = null;
+                    break;
+                }
+                _remainingBudget--;
+
+                final QueueEntry node = _iterator.getNode();
+                if (node != null && !node.isDeleted())
+                {
+                    try (MessageReference messageReference = node.getMessage().newReference())
+                    {
+                        final StoredMessage storedMessage = messageReference.getMessage().getStoredMessage();
+                        if (storedMessage.isInMemory())
+                        {
+                            final long size = storedMessage.getContentSize() + storedMessage.getMetadataSize();
+                            if (size <= retainedBytes - _passRetainedBytes)
+                            {
+                                _passRetainedBytes += size;
+                                _passResidentBytes += size;
+                            }
+                            else if (storedMessage.flowToDisk())
+                            {
+                                evictedBytes += size;
+                                _evictedMessages.incrementAndGet();
+                                _evictedBytes.addAndGet(size);
+                            }
+                            else
+                            {
+                                _passResidentBytes += size;
+                            }
+                        }
+                    }
+                    catch (MessageDeletedException e)
+                    {
+                        // pass
+                    }
+                }
+            }
+            return evictedBytes;
+        }
+    }
+}
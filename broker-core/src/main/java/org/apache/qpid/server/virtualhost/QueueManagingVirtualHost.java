@@ -46,6 +46,7 @@ import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.StatisticType;
 import org.apache.qpid.server.model.StatisticUnit;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.queue.AlternateRoutingPipeline;
 import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.security.auth.SocketConnectionMetaData;
 import org.apache.qpid.server.stats.StatisticsGatherer;
@@ -82,6 +83,32 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedContextDefault(name = FLOW_TO_DISK_CHECK_PERIOD)
     long DEFAULT_FLOW_TO_DISK_CHECK_PERIOD = 30000L;
 
+    String FLOW_TO_DISK_CHECK_ENTRY_BUDGET = "virtualhost.flowToDiskCheckEntryBudget";
+    @ManagedContextDefault(name = FLOW_TO_DISK_CHECK_ENTRY_BUDGET,
+            description = "The maximum number of queue entries visited by a single flow to disk check. A check which"
+                          + " runs out of budget resumes from where it left off on the next check.")
+    long DEFAULT_FLOW_TO_DISK_CHECK_ENTRY_BUDGET = 100000L;
+
+    String MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE = "virtualhost.messageContentCache.maximumSize";
+    @ManagedContextDefault(name = MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE,
+            description = "The maximum size in bytes of the content of flowed to disk messages which the message store"
+                          + " keeps cached after reloading it. The cached content counts towards the in-memory"
+                          + " message size used by flow to disk. Zero disables the cache.")
+    long DEFAULT_MESSAGE_CONTENT_CACHE_MAXIMUM_SIZE = 0L;
+
+    String ALTERNATE_ROUTING_BATCH_SIZE = "virtualhost.alternateRouting.batchSize";
+    @ManagedContextDefault(name = ALTERNATE_ROUTING_BATCH_SIZE,
+            description = "The maximum number of expired or deleted messages routed to alternate bindings in a single"
+                          + " store transaction by the background alternate routing task. Zero routes messages in the"
+                          + " thread which expired or deleted them.")
+    int DEFAULT_ALTERNATE_ROUTING_BATCH_SIZE = 1000;
+
+    String ALTERNATE_ROUTING_MAXIMUM_PENDING = "virtualhost.alternateRouting.maximumPending";
+    @ManagedContextDefault(name = ALTERNATE_ROUTING_MAXIMUM_PENDING,
+            description = "The maximum number of expired messages awaiting the background alternate routing task,"
+                          + " beyond which expired messages are routed in the thread which expired them.")
+    int DEFAULT_ALTERNATE_ROUTING_MAXIMUM_PENDING = 100000;
+
     String CONNECTION_THREAD_POOL_KEEP_ALIVE_TIMEOUT = "connectionThreadPoolKeepAliveTimeout";
     @SuppressWarnings("unused")
     @ManagedContextDefault(name = QueueManagingVirtualHost.CONNECTION_THREAD_POOL_KEEP_ALIVE_TIMEOUT)
@@ -272,7 +299,7 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
 
     @SuppressWarnings("unused")
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "In-Memory Message Bytes",
-                      description="Current size of all messages cached in-memory.")
+                      description="Current size of all messages cached in-memory, including the content held in the message content cache.")
     long getInMemoryMessageSize();
 
     @SuppressWarnings("unused")
@@ -280,6 +307,52 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
                       description = "Total Number of Bytes Evacuated from Memory Due to Flow to Disk.")
     long getBytesEvacuatedFromMemory();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Flow to Disk Evicted",
+                      description = "Total number of messages whose content was flowed to disk by the flow to disk check.")
+    long getFlowToDiskEvictedMessages();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Flow to Disk Evicted",
+                      description = "Total size of message content flowed to disk by the flow to disk check.")
+    long getFlowToDiskEvictedBytes();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Flow to Disk Visited Entries",
+                      description = "Total number of queue entries visited by the flow to disk check.")
+    long getFlowToDiskVisitedEntries();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Content Cache Hits",
+                      description = "Total number of reloads of flowed to disk message content served from the message content cache.")
+    long getMessageContentCacheHits();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Content Cache Misses",
+                      description = "Total number of reloads of flowed to disk message content read from the message store.")
+    long getMessageContentCacheMisses();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Content Cache Size",
+                      description = "Current size of the message content held in the message content cache.")
+    long getMessageContentCacheSize();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MESSAGES, label = "Alternate Routing Pending",
+                      description = "Current number of expired or deleted messages awaiting routing to alternate bindings.")
+    long getAlternateRoutingPendingMessages();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Alternate Routing Routed",
+                      description = "Total number of expired or deleted messages routed to alternate bindings in the background.")
+    long getAlternateRoutingRoutedMessages();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Alternate Routing Discarded",
+                      description = "Total number of expired or deleted messages which the background alternate routing"
+                                    + " discarded because the alternate binding routed them nowhere.")
+    long getAlternateRoutingDiscardedMessages();
+
     @SuppressWarnings("unused")
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
             units = StatisticUnit.BYTES,
@@ -372,6 +445,12 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
 
     boolean isOverTargetSize();
 
+    /**
+     * Returns the pipeline routing expired and deleted messages to alternate bindings in the background, or null
+     * if such messages are to be routed by the thread which expired or deleted them.
+     */
+    AlternateRoutingPipeline getAlternateRoutingPipeline();
+
     interface Transaction
     {
         void dequeue(QueueEntry entry);
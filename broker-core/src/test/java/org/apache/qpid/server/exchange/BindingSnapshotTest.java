@@ -0,0 +1,119 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageDestination;
+import org.apache.qpid.server.message.RoutingResult;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class BindingSnapshotTest extends UnitTestBase
+{
+    private static final String ROUTING_ADDRESS = "routingAddress";
+
+    private final ServerMessage<?> _message = mock(ServerMessage.class);
+
+    @Test
+    public void testEmpty()
+    {
+        assertTrue("Empty snapshot should be empty", BindingSnapshot.EMPTY.isEmpty());
+        assertTrue("Snapshot without bindings should be empty",
+                   new BindingSnapshot(Collections.emptyMap(), Collections.emptyMap()).isEmpty());
+    }
+
+    @Test
+    public void testUnfilteredDestinationRoutedOncePerDistinctReplacementRoutingKey()
+    {
+        final MessageDestination destination = createDestination();
+        final Map<MessageDestination, Collection<String>> unfiltered = new HashMap<>();
+        unfiltered.put(destination, Arrays.asList(null, "replacement", null, "replacement"));
+
+        final BindingSnapshot snapshot = new BindingSnapshot(unfiltered, Collections.emptyMap());
+        assertFalse("Snapshot should not be empty", snapshot.isEmpty());
+
+        route(snapshot);
+
+        verify(destination, times(1)).route(any(ServerMessage.class), eq(ROUTING_ADDRESS), any(InstanceProperties.class));
+        verify(destination, times(1)).route(any(ServerMessage.class), eq("replacement"), any(InstanceProperties.class));
+    }
+
+    @Test
+    public void testFilteredDestinationRoutedOnlyWhenFilterAllows()
+    {
+        final MessageDestination allowed = createDestination();
+        final MessageDestination disallowed = createDestination();
+        final Map<MessageDestination, Collection<FilterManagerReplacementRoutingKeyTuple>> filtered = new HashMap<>();
+        filtered.put(allowed, Collections.singletonList(createFilter(true, null)));
+        filtered.put(disallowed, Collections.singletonList(createFilter(false, null)));
+
+        route(new BindingSnapshot(Collections.emptyMap(), filtered));
+
+        verify(allowed).route(any(ServerMessage.class), eq(ROUTING_ADDRESS), any(InstanceProperties.class));
+        verify(disallowed, never()).route(any(ServerMessage.class), anyString(), any(InstanceProperties.class));
+    }
+
+    private FilterManagerReplacementRoutingKeyTuple createFilter(final boolean allows,
+                                                                 final String replacementRoutingKey)
+    {
+        final FilterManager filterManager = mock(FilterManager.class);
+        when(filterManager.allAllow(any(Filterable.class))).thenReturn(allows);
+        return new FilterManagerReplacementRoutingKeyTuple(filterManager, replacementRoutingKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MessageDestination createDestination()
+    {
+        final MessageDestination destination = mock(MessageDestination.class);
+        when(destination.route(any(ServerMessage.class), anyString(), any(InstanceProperties.class)))
+                .thenReturn(new RoutingResult(_message));
+        return destination;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void route(final BindingSnapshot snapshot)
+    {
+        final RoutingResult result = new RoutingResult(_message);
+        snapshot.route(_message, ROUTING_ADDRESS, InstanceProperties.EMPTY, result);
+        assertFalse("Mock destinations should not add routes", result.hasRoutes());
+    }
+}
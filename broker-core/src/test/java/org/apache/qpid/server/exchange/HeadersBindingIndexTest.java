@@ -0,0 +1,145 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageDestination;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class HeadersBindingIndexTest extends UnitTestBase
+{
+    private HeadersBindingIndex _index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _index = new HeadersBindingIndex();
+    }
+
+    @Test
+    public void testBindingMatchingAllIsCandidateOnlyForItsMostSelectiveHeader()
+    {
+        final HeadersBinding binding = createBinding("b1", "F0000", "", "F0001", "Bear");
+        _index.add(binding);
+
+        assertFalse("Binding should not be candidate for presence of header only",
+                    _index.getCandidates(createHeader("F0000", "Aardvark")).contains(binding));
+        assertFalse("Binding should not be candidate for other value",
+                    _index.getCandidates(createHeader("F0001", "Aardvark")).contains(binding));
+        assertTrue("Binding should be candidate for matched value",
+                   _index.getCandidates(createHeader("F0001", "Bear")).contains(binding));
+    }
+
+    @Test
+    public void testBindingMatchingAnyIsCandidateForEachHeader()
+    {
+        final HeadersBinding binding = createBinding("b1", "F0000", "", "F0001", "Bear", "x-match", "any");
+        _index.add(binding);
+
+        assertTrue("Binding should be candidate for presence of header",
+                   _index.getCandidates(createHeader("F0000", "Aardvark")).contains(binding));
+        assertTrue("Binding should be candidate for matched value",
+                   _index.getCandidates(createHeader("F0001", "Bear")).contains(binding));
+        assertFalse("Binding should not be candidate for other value",
+                    _index.getCandidates(createHeader("F0001", "Aardvark")).contains(binding));
+        assertFalse("Binding should not be candidate for other header",
+                    _index.getCandidates(createHeader("F0002", "Bear")).contains(binding));
+    }
+
+    @Test
+    public void testBindingWithoutHeadersIsCandidateForEveryMessage()
+    {
+        final HeadersBinding binding = createBinding("b1");
+        _index.add(binding);
+
+        assertTrue("Binding should be candidate for message without headers",
+                   _index.getCandidates(null).contains(binding));
+        assertTrue("Binding should be candidate for message with headers",
+                   _index.getCandidates(createHeader("F0000", "Aardvark")).contains(binding));
+    }
+
+    @Test
+    public void testCandidatesNotDuplicated()
+    {
+        final HeadersBinding binding = createBinding("b1", "F0000", "", "F0001", "Bear", "x-match", "any");
+        _index.add(binding);
+
+        final Collection<HeadersBinding> candidates =
+                _index.getCandidates(createHeader("F0000", "Aardvark", "F0001", "Bear"));
+        assertEquals("Unexpected number of candidates", (long) 1, (long) candidates.size());
+    }
+
+    @Test
+    public void testRemovedBindingIsNotCandidate()
+    {
+        final HeadersBinding all = createBinding("b1", "F0000", "Aardvark", "F0001", "");
+        final HeadersBinding any = createBinding("b2", "F0000", "Aardvark", "F0001", "", "x-match", "any");
+        final HeadersBinding unconditional = createBinding("b3");
+        _index.add(all);
+        _index.add(any);
+        _index.add(unconditional);
+
+        _index.remove(all);
+        _index.remove(any);
+        _index.remove(unconditional);
+
+        assertTrue("Index should have no candidates",
+                   _index.getCandidates(createHeader("F0000", "Aardvark", "F0001", "Bear")).isEmpty());
+    }
+
+    private HeadersBinding createBinding(final String bindingKey, final String... arguments)
+    {
+        final Map<String, Object> argumentMap = new HashMap<>();
+        for (int i = 0; i < arguments.length; i += 2)
+        {
+            argumentMap.put(arguments[i], arguments[i + 1]);
+        }
+        final AbstractExchange.BindingIdentifier bindingIdentifier =
+                new AbstractExchange.BindingIdentifier(bindingKey, mock(MessageDestination.class));
+        return new HeadersBinding(bindingIdentifier, argumentMap);
+    }
+
+    private AMQMessageHeader createHeader(final String... headers)
+    {
+        final Map<String, Object> headerMap = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2)
+        {
+            headerMap.put(headers[i], headers[i + 1]);
+        }
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeaderNames()).thenReturn(headerMap.keySet());
+        headerMap.forEach((name, value) -> when(header.getHeader(name)).thenReturn(value));
+        return header;
+    }
+}
@@ -195,6 +195,33 @@ public class HeadersExchangeTest extends UnitTestBase
     }
 
 
+    @Test
+    public void testBindingWithoutHeadersMatchesEveryMessage() throws Exception
+    {
+        Queue<?> q1 = createAndBind("Q1");
+        Queue<?> q2 = createAndBind("Q2", "X-match=any");
+        Queue<?> q3 = createAndBind("Q3", "F0000");
+
+        routeAndTest(_messageWithNoHeaders, q1, q2);
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0000")), q1, q2, q3);
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0001=Bear")), q1, q2);
+    }
+
+    @Test
+    public void testUpdateBinding() throws Exception
+    {
+        Queue<?> q1 = createAndBind("Q1", "F0000=Aardvark");
+
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0000=Aardvark")), q1);
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0001=Bear")));
+
+        _exchange.replaceBinding("Q1", q1, getArgsMapFromStrings("F0001=Bear", "F0002", "X-match=any"));
+
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0000=Aardvark")));
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0001=Bear")), q1);
+        routeAndTest(createTestMessage(getArgsMapFromStrings("F0002")), q1);
+    }
+
     @Test
     public void testWithSelectors() throws Exception
     {
@@ -602,6 +602,72 @@ public class TopicExchangeTest extends UnitTestBase
         assertTrue("Message was not routed to queue2", result.getRoutes().contains(queue2));
     }
 
+    @Test
+    public void testRoutingKeyCacheHitsAndMisses() throws Exception
+    {
+        Queue<?> queue = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue"));
+        _exchange.bind(queue.getName(), "a.*", null, false);
+
+        final long hits = _exchange.getRoutingKeyCacheHits();
+        final long misses = _exchange.getRoutingKeyCacheMisses();
+
+        assertEquals(1, _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties).getNumberOfRoutes());
+        assertEquals("Unexpected number of cache misses", misses + 1, _exchange.getRoutingKeyCacheMisses());
+        assertEquals("Unexpected number of cache hits", hits, _exchange.getRoutingKeyCacheHits());
+
+        assertEquals(1, _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties).getNumberOfRoutes());
+        assertEquals(0, _exchange.route(_messageWithNoHeaders, "b.b", _instanceProperties).getNumberOfRoutes());
+        assertEquals(0, _exchange.route(_messageWithNoHeaders, "b.b", _instanceProperties).getNumberOfRoutes());
+        assertEquals("Unexpected number of cache misses", misses + 2, _exchange.getRoutingKeyCacheMisses());
+        assertEquals("Unexpected number of cache hits", hits + 2, _exchange.getRoutingKeyCacheHits());
+    }
+
+    @Test
+    public void testRoutingKeyCacheInvalidatedOnBindAndUnbind() throws Exception
+    {
+        Queue<?> queue1 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue1"));
+        Queue<?> queue2 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue2"));
+        _exchange.bind(queue1.getName(), "a.#", null, false);
+
+        RoutingResult<ServerMessage<?>> result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals(1, result.getNumberOfRoutes());
+
+        _exchange.bind(queue2.getName(), "*.b", null, false);
+        final long misses = _exchange.getRoutingKeyCacheMisses();
+
+        result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals("Cached route not invalidated by bind", 2, result.getNumberOfRoutes());
+        assertEquals("Unexpected number of cache misses", misses + 1, _exchange.getRoutingKeyCacheMisses());
+
+        assertTrue("Unbind operation should be successful", _exchange.unbind(queue1.getName(), "a.#"));
+
+        result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals("Cached route not invalidated by unbind", 1, result.getNumberOfRoutes());
+        assertTrue("Message not routed to queue", result.getRoutes().contains(queue2));
+    }
+
+    @Test
+    public void testRoutingKeyCacheEvaluatesFilteredBindings() throws Exception
+    {
+        Queue<?> queue1 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue1"));
+        Queue<?> queue2 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue2"));
+        _exchange.bind(queue1.getName(), "a.b", null, false);
+        _exchange.bind(queue2.getName(), "a.b", Collections.singletonMap(JMS_SELECTOR.toString(), "prop = True"), false);
+
+        final ServerMessage<?> matchingMessage = createTestMessage(Collections.singletonMap("prop", true));
+        final ServerMessage<?> nonMatchingMessage = createTestMessage(Collections.singletonMap("prop", false));
+
+        for (int i = 0; i < 2; i++)
+        {
+            RoutingResult<ServerMessage<?>> result = _exchange.route(matchingMessage, "a.b", _instanceProperties);
+            assertEquals("Unexpected number of routes for matching message", 2, result.getNumberOfRoutes());
+
+            result = _exchange.route(nonMatchingMessage, "a.b", _instanceProperties);
+            assertEquals("Unexpected number of routes for non matching message", 1, result.getNumberOfRoutes());
+            assertTrue("Message not routed to queue", result.getRoutes().contains(queue1));
+        }
+    }
+
     private ServerMessage<?> createTestMessage(Map<String, Object> headerValues)
     {
         AMQMessageHeader header = mock(AMQMessageHeader.class);
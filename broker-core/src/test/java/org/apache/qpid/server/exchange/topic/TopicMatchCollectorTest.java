@@ -0,0 +1,105 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.message.MessageDestination;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class TopicMatchCollectorTest extends UnitTestBase
+{
+    @Test
+    public void testDuplicateMatchesCollectedOnce()
+    {
+        final MessageDestination destination1 = mock(MessageDestination.class);
+        final MessageDestination destination2 = mock(MessageDestination.class);
+
+        final TopicMatchCollector collector = new TopicMatchCollector();
+        collector.add(destination1, "key");
+        collector.add(destination2, "key");
+        collector.add(destination1, "key");
+        collector.add(destination1, "replacement");
+
+        assertEquals("Unexpected number of matches", (long) 3, (long) collector.size());
+        assertSame("Unexpected destination", destination1, collector.getDestination(0));
+        assertEquals("Unexpected routing key", "key", collector.getRoutingKey(0));
+        assertSame("Unexpected destination", destination2, collector.getDestination(1));
+        assertSame("Unexpected destination", destination1, collector.getDestination(2));
+        assertEquals("Unexpected routing key", "replacement", collector.getRoutingKey(2));
+    }
+
+    @Test
+    public void testCollectorGrows()
+    {
+        final TopicMatchCollector collector = new TopicMatchCollector();
+        for (int i = 0; i < 100; i++)
+        {
+            collector.add(mock(MessageDestination.class), "key");
+        }
+        assertEquals("Unexpected number of matches", (long) 100, (long) collector.size());
+
+        collector.clear();
+        assertEquals("Unexpected number of matches after clear", (long) 0, (long) collector.size());
+    }
+
+    @Test
+    public void testNestedAcquisitionGetsDistinctCollector()
+    {
+        final TopicMatchCollector collector = TopicMatchCollector.acquire();
+        try
+        {
+            collector.add(mock(MessageDestination.class), "key");
+
+            final TopicMatchCollector nestedCollector = TopicMatchCollector.acquire();
+            try
+            {
+                assertNotSame("Nested acquisition returned collector in use", collector, nestedCollector);
+                assertEquals("Unexpected number of matches", (long) 0, (long) nestedCollector.size());
+            }
+            finally
+            {
+                nestedCollector.release();
+            }
+            assertEquals("Collector in use was modified", (long) 1, (long) collector.size());
+        }
+        finally
+        {
+            collector.release();
+        }
+
+        final TopicMatchCollector reacquiredCollector = TopicMatchCollector.acquire();
+        try
+        {
+            assertSame("Thread collector not reused", collector, reacquiredCollector);
+            assertEquals("Released collector not cleared", (long) 0, (long) reacquiredCollector.size());
+        }
+        finally
+        {
+            reacquiredCollector.release();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class TopicParserTest extends UnitTestBase
+{
+    private TopicParser _parser;
+    private TopicExchangeResult _exact;
+    private TopicExchangeResult _emptyWord;
+    private TopicExchangeResult _anyWord;
+    private TopicExchangeResult _wildcard;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _parser = new TopicParser();
+        _exact = addBinding("a.b");
+        _emptyWord = addBinding("a..b");
+        _anyWord = addBinding("*.b");
+        _wildcard = addBinding("a.#");
+    }
+
+    @Test
+    public void testWordsMatched()
+    {
+        assertMatches("a.b", _exact, _anyWord, _wildcard);
+        assertMatches("c.b", _anyWord);
+        assertMatches("a", _wildcard);
+        assertMatches("a.b.c", _wildcard);
+        assertMatches("b");
+    }
+
+    @Test
+    public void testEmptyWordsMatched()
+    {
+        assertMatches("a..b", _emptyWord, _wildcard);
+        assertMatches(".b", _anyWord);
+        assertMatches("");
+    }
+
+    @Test
+    public void testTrailingDelimitersIgnored()
+    {
+        assertMatches("a.b.", _exact, _anyWord, _wildcard);
+        assertMatches("a.b..", _exact, _anyWord, _wildcard);
+        assertMatches("...");
+    }
+
+    private TopicExchangeResult addBinding(final String bindingKey)
+    {
+        final TopicExchangeResult result = new TopicExchangeResult();
+        _parser.addBinding(TopicNormalizer.normalize(bindingKey), result);
+        return result;
+    }
+
+    private void assertMatches(final String routingKey, final TopicExchangeResult... expected)
+    {
+        final Collection<TopicMatcherResult> results = _parser.parse(routingKey);
+        final Set<TopicMatcherResult> expectedResults = new HashSet<>(Arrays.asList(expected));
+        assertEquals("Unexpected matches for routing key '" + routingKey + "'",
+                     expectedResults, new HashSet<>(results));
+    }
+}
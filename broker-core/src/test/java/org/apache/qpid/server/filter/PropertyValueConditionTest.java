@@ -0,0 +1,112 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class PropertyValueConditionTest extends UnitTestBase
+{
+    @Test
+    public void testEquality() throws Exception
+    {
+        assertCondition("region = 'EU'", "region", "EU");
+        assertCondition("'EU' = region", "region", "EU");
+    }
+
+    @Test
+    public void testIn() throws Exception
+    {
+        assertCondition("region IN ('EU', 'US')", "region", "EU", "US");
+    }
+
+    @Test
+    public void testDisjunctionOverSameProperty() throws Exception
+    {
+        assertCondition("region = 'EU' OR region IN ('US', 'APAC')", "region", "EU", "US", "APAC");
+    }
+
+    @Test
+    public void testConjunction() throws Exception
+    {
+        assertCondition("size > 10 AND region = 'EU'", "region", "EU");
+        assertCondition("region = 'EU' AND kind = 'order'", "region", "EU");
+    }
+
+    @Test
+    public void testJMSHeaderField() throws Exception
+    {
+        assertCondition("JMSType = 'order'", "JMSType", "order");
+        assertNoCondition("JMSDeliveryMode = 'PERSISTENT'");
+    }
+
+    @Test
+    public void testPropertyValueReadFromHeader() throws Exception
+    {
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeader("region")).thenReturn("EU");
+        when(header.getType()).thenReturn("order");
+
+        assertEquals("Unexpected property value", "EU",
+                     new JMSSelectorFilter("region = 'US'").getPropertyValueCondition().getPropertyValue(header));
+        assertEquals("Unexpected property value", "order",
+                     new JMSSelectorFilter("JMSType = 'trade'").getPropertyValueCondition().getPropertyValue(header));
+        assertNull("Unexpected property value",
+                   new JMSSelectorFilter("kind = 'order'").getPropertyValueCondition().getPropertyValue(header));
+    }
+
+    @Test
+    public void testSelectorsWithoutCondition() throws Exception
+    {
+        assertNoCondition("region <> 'EU'");
+        assertNoCondition("NOT region = 'EU'");
+        assertNoCondition("region NOT IN ('EU', 'US')");
+        assertNoCondition("region = 'EU' OR kind = 'order'");
+        assertNoCondition("region = 'EU' OR size > 10");
+        assertNoCondition("size = 10");
+    }
+
+    private void assertCondition(final String selector, final String propertyName, final String... values)
+            throws Exception
+    {
+        final PropertyValueCondition condition = new JMSSelectorFilter(selector).getPropertyValueCondition();
+        assertEquals("Unexpected property of " + selector, propertyName, condition.getPropertyName());
+        assertEquals("Unexpected values of " + selector,
+                     new HashSet<>(Arrays.asList(values)),
+                     condition.getValues());
+    }
+
+    private void assertNoCondition(final String selector) throws Exception
+    {
+        assertNull("Unexpected condition for " + selector,
+                   new JMSSelectorFilter(selector).getPropertyValueCondition());
+    }
+}
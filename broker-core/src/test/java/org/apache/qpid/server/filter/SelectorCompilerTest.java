@@ -0,0 +1,182 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.selector.SelectorParser;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class SelectorCompilerTest extends UnitTestBase
+{
+    private static final String[] SELECTORS = {
+            "a = 1",
+            "a > 1 AND b < 2.5",
+            "a >= 1 OR b <= 2 OR c = 'x'",
+            "NOT (a = 1 AND b = 2)",
+            "NOT (a > 1 OR b > 1)",
+            "a IS NULL OR NOT (c <> 'y')",
+            "a BETWEEN 1 AND 2 AND NOT (b NOT BETWEEN 0 AND 3)",
+            "c LIKE 'x%' AND c IN ('x', 'xy') OR d",
+            "NOT d AND (a = 1 OR c NOT IN ('x', 'z'))",
+            "a = b OR a < b",
+            "a + 1 > b * 2 OR TRUE AND c = 'y'",
+            "NOT (FALSE OR a = 1) AND b IS NOT NULL"
+    };
+
+    private static final Object[] A_VALUES = {null, 1, 2, 3L, 1.5d};
+    private static final Object[] B_VALUES = {null, 0, 2, 2.5d, "2"};
+    private static final Object[] C_VALUES = {null, "x", "xy", "y", "z"};
+    private static final Object[] D_VALUES = {null, true, false, "true"};
+
+    @Test
+    public void testCompiledSelectorMatchesInterpretedSelector() throws Exception
+    {
+        final List<FilterableMessage> messages = createMessages();
+        for (String selector : SELECTORS)
+        {
+            final BooleanExpression<FilterableMessage> interpreted = parse(selector);
+            final BooleanExpression<FilterableMessage> compiled = SelectorCompiler.compile(interpreted);
+
+            assertNotSame("Selector was not compiled: " + selector, interpreted, compiled);
+            for (FilterableMessage message : messages)
+            {
+                assertEquals(String.format("Unexpected outcome of selector '%s' for %s", selector, message),
+                             evaluate(interpreted, message),
+                             evaluate(compiled, message));
+            }
+        }
+    }
+
+    @Test
+    public void testNotPreservesUnknownOutcome() throws Exception
+    {
+        final BooleanExpression<FilterableMessage> compiled = SelectorCompiler.compile(parse("NOT (a = 1 AND b > 1)"));
+
+        assertFalse("Unknown operand should not match", compiled.matches(createMessage(1, null, null, null)));
+        assertTrue("False operand should match", compiled.matches(createMessage(2, null, null, null)));
+    }
+
+    @Test
+    public void testOperandsWhichMayFailAreNotReordered() throws Exception
+    {
+        final Map<String, Object> headers = new HashMap<>();
+        headers.put("flag", true);
+        headers.put("v", "abc");
+        headers.put("a", Collections.singletonList(1));
+        headers.put("b", 0);
+        final FilterableMessage message = createMessage(headers);
+
+        for (String selector : new String[]{"flag = TRUE OR v * 2 > 10", "a > 1 AND b = 2", "b = 2 AND a > 1"})
+        {
+            final BooleanExpression<FilterableMessage> interpreted = parse(selector);
+            final BooleanExpression<FilterableMessage> compiled = SelectorCompiler.compile(interpreted);
+
+            assertEquals(String.format("Unexpected outcome of selector '%s'", selector),
+                         evaluate(interpreted, message),
+                         evaluate(compiled, message));
+        }
+    }
+
+    @Test
+    public void testUnsupportedSelectorIsInterpreted() throws Exception
+    {
+        final BooleanExpression<FilterableMessage> interpreted = parse("c LIKE 'x%'");
+
+        assertSame("Selector without compiled form should be interpreted",
+                   interpreted,
+                   SelectorCompiler.compile(interpreted));
+    }
+
+    /**
+     * Returns whether the expression matches the message, or the type of the exception thrown evaluating it.
+     */
+    private Object evaluate(final BooleanExpression<FilterableMessage> expression, final FilterableMessage message)
+    {
+        try
+        {
+            return expression.matches(message);
+        }
+        catch (RuntimeException e)
+        {
+            return e.getClass();
+        }
+    }
+
+    private BooleanExpression<FilterableMessage> parse(final String selector) throws Exception
+    {
+        final SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
+        selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
+        return selectorParser.parse(selector);
+    }
+
+    private List<FilterableMessage> createMessages()
+    {
+        final List<FilterableMessage> messages = new ArrayList<>();
+        for (Object a : A_VALUES)
+        {
+            for (Object b : B_VALUES)
+            {
+                for (Object c : C_VALUES)
+                {
+                    for (Object d : D_VALUES)
+                    {
+                        messages.add(createMessage(a, b, c, d));
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    private FilterableMessage createMessage(final Object a, final Object b, final Object c, final Object d)
+    {
+        final Map<String, Object> headers = new HashMap<>();
+        headers.put("a", a);
+        headers.put("b", b);
+        headers.put("c", c);
+        headers.put("d", d);
+        return createMessage(headers);
+    }
+
+    private FilterableMessage createMessage(final Map<String, Object> headers)
+    {
+        final FilterableMessage message = mock(FilterableMessage.class);
+        when(message.getHeader(anyString())).thenAnswer(invocation -> headers.get((String) invocation.getArguments()[0]));
+        when(message.toString()).thenReturn(headers.toString());
+        return message;
+    }
+}
@@ -162,4 +162,43 @@ public class AbstractServerMessageTest extends UnitTestBase
         }
 
     }
+
+    @Test
+    public void testReferencesFromManyResources()
+    {
+        TransactionLogResource q1 = createQueue("1");
+        TransactionLogResource q2 = createQueue("2");
+        TransactionLogResource q3 = createQueue("3");
+
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+
+        MessageReference<TestMessage<StorableMessageMetaData>> q1ref = msg.newReference(q1);
+        MessageReference<TestMessage<StorableMessageMetaData>> q2ref = msg.newReference(q2);
+        MessageReference<TestMessage<StorableMessageMetaData>> q3ref = msg.newReference(q3);
+        assertTrue(msg.isReferenced(q1));
+        assertTrue(msg.isReferenced(q2));
+        assertTrue(msg.isReferenced(q3));
+
+        q2ref.release();
+        assertTrue(msg.isReferenced(q1));
+        assertFalse(msg.isReferenced(q2));
+        assertTrue(msg.isReferenced(q3));
+
+        q1ref.release();
+        assertFalse(msg.isReferenced(q1));
+        assertTrue(msg.isReferenced(q3));
+
+        try
+        {
+            msg.newReference(q3);
+            fail("Should not be able to create a second reference to the same queue");
+        }
+        catch (MessageAlreadyReferencedException e)
+        {
+            // pass
+        }
+
+        q3ref.release();
+        assertFalse(msg.isReferenced());
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import org.apache.qpid.server.txn.AsyncAutoCommitTransaction;
+import org.apache.qpid.server.txn.ServerTransaction;
+import org.apache.qpid.server.util.Action;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class RoutingBatchTest extends UnitTestBase
+{
+    private RoutingBatch<ServerMessage<?>> _batch;
+    private List<RoutingResult<ServerMessage<?>>> _results;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _batch = new RoutingBatch<>();
+        _results = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            final RoutingResult<ServerMessage<?>> result = mock(RoutingResult.class);
+            when(result.send(any(ServerTransaction.class), any(Action.class))).thenReturn(i + 1);
+            _batch.add(mock(ServerMessage.class), "key" + i, mock(InstanceProperties.class));
+            _batch.setResult(i, result);
+            _results.add(result);
+        }
+    }
+
+    @Test
+    public void testSendNotifiesListenerInOrder() throws Exception
+    {
+        final List<Integer> enqueues = new ArrayList<>();
+
+        final int sent = _batch.send(mock(ServerTransaction.class),
+                                     i -> null,
+                                     (index, count) ->
+                                     {
+                                         assertEquals("Unexpected index", enqueues.size(), index);
+                                         enqueues.add(count);
+                                         return true;
+                                     });
+
+        assertEquals("Unexpected number of messages sent", 3, sent);
+        assertEquals("Unexpected enqueue counts", 1, (int) enqueues.get(0));
+        assertEquals("Unexpected enqueue counts", 2, (int) enqueues.get(1));
+        assertEquals("Unexpected enqueue counts", 3, (int) enqueues.get(2));
+    }
+
+    @Test
+    public void testSendStopsWhenListenerDeclines() throws Exception
+    {
+        final ServerTransaction txn = mock(ServerTransaction.class);
+
+        final int sent = _batch.send(txn, i -> null, (index, count) -> index == 0);
+
+        assertEquals("Unexpected number of messages sent", 2, sent);
+        verify(_results.get(0)).send(txn, null);
+        verify(_results.get(1)).send(txn, null);
+        verify(_results.get(2), never()).send(any(ServerTransaction.class), any(Action.class));
+    }
+
+    @Test
+    public void testSendRecordsEnqueuesOfBatchInOneStoreTransaction() throws Exception
+    {
+        final AsyncAutoCommitTransaction txn = mock(AsyncAutoCommitTransaction.class);
+
+        _batch.send(txn, i -> null, (index, count) -> index == 0);
+
+        final InOrder inOrder = inOrder(txn, _results.get(0), _results.get(1));
+        inOrder.verify(txn).startBatch();
+        inOrder.verify(_results.get(0)).send(txn, null);
+        inOrder.verify(_results.get(1)).send(txn, null);
+        inOrder.verify(txn).completeBatch();
+    }
+}
@@ -46,6 +46,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -766,6 +767,39 @@ abstract class AbstractQueueTestBase extends UnitTestBase
         assertEquals((long) 0, (long) entries.size());
     }
 
+    @Test
+    public void testClearQueueReturnsNumberOfPurgedMessages() throws Exception
+    {
+        enqueueGivenNumberOfMessages(_queue, 3);
+
+        assertEquals("Unexpected number of purged messages", 3L, _queue.clearQueue());
+        assertEquals("Unexpected purged messages statistic", 3L, _queue.getPurgedMessages());
+        assertEquals("Unexpected queue depth", 0, _queue.getQueueDepthMessages());
+    }
+
+    @Test
+    public void testClearQueueAsyncReturnsNumberOfPurgedMessages() throws Exception
+    {
+        enqueueGivenNumberOfMessages(_queue, 3);
+
+        assertEquals("Unexpected number of purged messages", 3L, (long) _queue.clearQueueAsync().get());
+        assertEquals("Unexpected queue depth", 0, _queue.getQueueDepthMessages());
+    }
+
+    @Test
+    public void testGetStatistics() throws Exception
+    {
+        enqueueGivenNumberOfMessages(_queue, 3);
+
+        final Map<String, Object> statistics = _queue.getStatistics();
+        assertEquals("Unexpected queue depth", 3, statistics.get("queueDepthMessages"));
+        assertEquals("Unexpected available messages", 3, statistics.get("availableMessages"));
+        assertEquals("Unexpected enqueued messages", 3L, statistics.get("totalEnqueuedMessages"));
+        assertEquals("Unexpected dequeued messages", 0L, statistics.get("totalDequeuedMessages"));
+        assertEquals("Unexpected queue depth high watermark", 3, statistics.get("queueDepthMessagesHighWatermark"));
+        assertEquals("Unexpected expired messages", 0L, statistics.get("totalExpiredMessages"));
+    }
+
     @Test
     public void testNotificationFiredOnEnqueue() throws Exception
     {
@@ -805,6 +839,32 @@ abstract class AbstractQueueTestBase extends UnitTestBase
     }
 
 
+    @Test
+    public void testCheckMessageStatusExpiresOnlyExpiredMessages() throws Exception
+    {
+        ServerMessage expiredMessage = createMessage(new Long(24));
+        when(expiredMessage.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+        ServerMessage unexpiredMessage = createMessage(new Long(25));
+        when(unexpiredMessage.getExpiration()).thenReturn(System.currentTimeMillis() + 60000L);
+        ServerMessage messageWithoutExpiration = createMessage(new Long(26));
+
+        _queue.enqueue(expiredMessage, null, null);
+        _queue.enqueue(unexpiredMessage, null, null);
+        _queue.enqueue(messageWithoutExpiration, null, null);
+
+        assertEquals("Unexpected number of entries in the expiry index",
+                            (long) 2,
+                            (long) ((AbstractQueue<?>) _queue).getEntries().getExpiryIndex().size());
+
+        _queue.checkMessageStatus();
+
+        assertEquals("Unexpected queue depth", (long) 2, (long) _queue.getQueueDepthMessages());
+        assertEquals("Unexpected number of expired messages", (long) 1, _queue.getTotalExpiredMessages());
+        assertEquals("Unexpected number of entries in the expiry index",
+                            (long) 1,
+                            (long) ((AbstractQueue<?>) _queue).getEntries().getExpiryIndex().size());
+    }
+
     @Test
     public void testMaximumMessageTtl() throws Exception
     {
@@ -1121,7 +1181,7 @@ abstract class AbstractQueueTestBase extends UnitTestBase
     }
 
     @Test
-    public void testExpiryPolicyRouteToAlternate()
+    public void testExpiryPolicyRouteToAlternate() throws Exception
     {
         Map<String, Object> dlqAttributes = new HashMap<>();
         dlqAttributes.put(Queue.NAME, getTestName() + "_dlq");
@@ -1146,10 +1206,29 @@ abstract class AbstractQueueTestBase extends UnitTestBase
 
         queue.checkMessageStatus();
 
+        // expired messages are routed to the alternate binding in the background
+        _virtualHost.getAlternateRoutingPipeline().whenIdle().get(5, TimeUnit.SECONDS);
+
         assertEquals("Unexpected queue depth after checking message status", 0, queue.getQueueDepthMessages());
         assertEquals("Unexpected DLQ depth", 1, dlq.getQueueDepthMessages());
     }
 
+    @Test
+    public void testDeleteWithoutAlternateBindingCompletesSynchronously() throws Exception
+    {
+        Map<String,Object> attributes = new HashMap<>(_arguments);
+        attributes.put(Queue.NAME, getTestName());
+        Queue<?> queue = _virtualHost.createChild(Queue.class, attributes);
+        queue.enqueue(createMessage(1L), null, null);
+        queue.enqueue(createMessage(2L), null, null);
+
+        final ListenableFuture<Integer> future = queue.deleteAndReturnCountAsync();
+
+        assertTrue("Delete should complete without routing to an alternate binding", future.isDone());
+        assertEquals("Unexpected number of messages on deleted queue", 2, (int) future.get());
+        assertTrue("Queue should be deleted", queue.isDeleted());
+    }
+
     private void doMoveOrCopyMessageTest(final boolean move)
     {
         Queue target = _virtualHost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_target"));
@@ -0,0 +1,197 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.txn.ServerTransaction;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class AlternateRoutingPipelineTest extends UnitTestBase
+{
+    private final List<Runnable> _tasks = new ArrayList<>();
+    private AlternateRoutingPipeline _pipeline;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _pipeline = new AlternateRoutingPipeline(mock(MessageStore.class), _tasks::add, 2, 3);
+    }
+
+    @Test
+    public void testSubmittedEntryRoutedInBackground()
+    {
+        final QueueEntry entry = createEntry(1);
+        final Predicate<BaseQueue> predicate = queue -> true;
+        final Runnable postRouteTask = mock(Runnable.class);
+
+        assertTrue("Entry should be accepted", _pipeline.submit(entry, predicate, postRouteTask));
+        assertEquals("Unexpected number of pending messages", 1, _pipeline.getPendingMessages());
+        verify(entry, never()).routeToAlternate(any(), any(ServerTransaction.class), any());
+
+        runTasks();
+
+        verify(entry).routeToAlternate(any(), any(ServerTransaction.class), eq(predicate));
+        verify(postRouteTask).run();
+        assertEquals("Unexpected number of pending messages", 0, _pipeline.getPendingMessages());
+        assertEquals("Unexpected number of routed messages", 1L, _pipeline.getRoutedMessages());
+        assertEquals("Unexpected number of discarded messages", 0L, _pipeline.getDiscardedMessages());
+    }
+
+    @Test
+    public void testIdleFutureCompletesOnceSubmittedEntriesRouted() throws Exception
+    {
+        assertTrue("Idle future should be done when nothing was submitted", _pipeline.whenIdle().isDone());
+
+        final Runnable postRouteTask = mock(Runnable.class);
+        _pipeline.submit(createEntry(1), null, postRouteTask);
+        _pipeline.submit(createEntry(1), null, postRouteTask);
+        _pipeline.submit(createEntry(0), null, postRouteTask);
+
+        final ListenableFuture<Void> future = _pipeline.whenIdle();
+        assertFalse("Idle future should not be done before routing", future.isDone());
+
+        runTasks();
+
+        assertTrue("Idle future should be done once the entries are routed", future.isDone());
+        verify(postRouteTask, times(3)).run();
+    }
+
+    @Test
+    public void testSubmissionRefusedBeyondMaximumPending()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            assertTrue("Entry should be accepted", _pipeline.submit(createEntry(1), null, null));
+        }
+        assertFalse("Entry should be refused", _pipeline.submit(createEntry(1), null, null));
+
+        runTasks();
+
+        assertTrue("Entry should be accepted once pending entries are routed",
+                   _pipeline.submit(createEntry(1), null, null));
+    }
+
+    @Test
+    public void testBulkSubmissionRoutedInBatches() throws Exception
+    {
+        final List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            entries.add(createEntry(i % 2));
+        }
+
+        final ListenableFuture<Integer> future = _pipeline.submitAll(entries);
+        assertFalse("Future should not be done before routing", future.isDone());
+
+        final int batches = runTasks();
+
+        assertEquals("Unexpected number of batches", 3, batches);
+        assertEquals("Unexpected number of entries routed to a queue", 2, (int) future.get());
+        assertEquals("Unexpected number of routed messages", 2L, _pipeline.getRoutedMessages());
+        assertEquals("Unexpected number of discarded messages", 3L, _pipeline.getDiscardedMessages());
+    }
+
+    @Test
+    public void testCloseReleasesPendingEntries() throws Exception
+    {
+        final QueueEntry entry = createEntry(1);
+        final ListenableFuture<Integer> future = _pipeline.submitAll(Collections.singletonList(entry));
+
+        _pipeline.close();
+        runTasks();
+
+        verify(entry).release();
+        verify(entry, never()).routeToAlternate(any(), any(ServerTransaction.class), any());
+        assertEquals("Unexpected number of pending messages", 0, _pipeline.getPendingMessages());
+        try
+        {
+            future.get();
+            fail("Exception not thrown");
+        }
+        catch (ExecutionException e)
+        {
+            // pass
+        }
+        assertFalse("Entry should not be accepted once closed", _pipeline.submit(createEntry(1), null, null));
+    }
+
+    @Test
+    public void testCancelledBulkSubmissionReleasesEntries()
+    {
+        final List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            entries.add(createEntry(1));
+        }
+        final ListenableFuture<Integer> future = _pipeline.submitAll(entries);
+
+        future.cancel(false);
+        runTasks();
+
+        for (QueueEntry entry : entries)
+        {
+            verify(entry).release();
+            verify(entry, never()).routeToAlternate(any(), any(ServerTransaction.class), any());
+        }
+        assertEquals("Unexpected number of pending messages", 0, _pipeline.getPendingMessages());
+    }
+
+    private int runTasks()
+    {
+        int count = 0;
+        while (!_tasks.isEmpty())
+        {
+            _tasks.remove(0).run();
+            count++;
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private QueueEntry createEntry(final int enqueues)
+    {
+        final QueueEntry entry = mock(QueueEntry.class);
+        when(entry.routeToAlternate(any(), any(ServerTransaction.class), any())).thenReturn(enqueues);
+        return entry;
+    }
+}
@@ -21,6 +21,7 @@
 package org.apache.qpid.server.queue;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -189,4 +190,72 @@ public class PriorityQueueListTest extends UnitTestBase
 
         assertEquals("Unexpected last entry", newEntry, _list.getLeastSignificantOldestEntry());
     }
+
+    @Test
+    public void testNextSkipsLevelsWithoutEntries() throws Exception
+    {
+        final PriorityQueueList list = createList(256);
+
+        final QueueEntry lowest = list.add(createMessage((byte) 0), null);
+        final QueueEntry low = list.add(createMessage((byte) 3), null);
+        final QueueEntry high = list.add(createMessage((byte) 200), null);
+
+        assertEquals("Unexpected first entry", high, list.next(list.getHead()));
+        assertEquals("Unexpected entry after high priority entry", low, list.next(high));
+        assertEquals("Unexpected entry after low priority entry", lowest, list.next(low));
+        assertNull("Unexpected entry after lowest priority entry", list.next(lowest));
+
+        int count = 0;
+        final QueueEntryIterator iterator = list.iterator();
+        while (iterator.advance())
+        {
+            count++;
+        }
+        assertEquals("Unexpected number of entries", (long) 3, (long) count);
+    }
+
+    @Test
+    public void testEntryAddedToDrainedLevelIsFound() throws Exception
+    {
+        final PriorityQueueList list = createList(10);
+
+        final QueueEntry high = list.add(createMessage((byte) 8), null);
+        final QueueEntry middle = list.add(createMessage((byte) 5), null);
+        final QueueEntry low = list.add(createMessage((byte) 2), null);
+
+        middle.acquire();
+        middle.delete();
+        assertEquals("Unexpected entry after high priority entry", low, list.next(high));
+
+        final QueueEntry middle2 = list.add(createMessage((byte) 5), null);
+        assertEquals("Unexpected entry after high priority entry", middle2, list.next(high));
+        assertEquals("Unexpected entry after middle priority entry", low, list.next(middle2));
+    }
+
+    private PriorityQueueList createList(final int priorities) throws Exception
+    {
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getTestName() + priorities);
+        queueAttributes.put(PriorityQueue.PRIORITIES, priorities);
+        final QueueManagingVirtualHost<?> virtualHost = BrokerTestHelper.createVirtualHost("testVH" + priorities, this);
+        PriorityQueueImpl queue = new PriorityQueueImpl(queueAttributes, virtualHost);
+        queue.open();
+        return queue.getEntries();
+    }
+
+    private ServerMessage<?> createMessage(final byte priority)
+    {
+        ServerMessage<?> message = mock(ServerMessage.class);
+        AMQMessageHeader header = mock(AMQMessageHeader.class);
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        MessageReference<ServerMessage> ref = mock(MessageReference.class);
+
+        when(message.getMessageHeader()).thenReturn(header);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        when(ref.getMessage()).thenReturn(message);
+        when(header.getPriority()).thenReturn(priority);
+        return message;
+    }
 }
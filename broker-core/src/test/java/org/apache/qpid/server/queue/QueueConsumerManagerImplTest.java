@@ -0,0 +1,161 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.apache.qpid.server.model.Queue.QUEUE_SCAVANGE_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueConsumerManagerImplTest extends UnitTestBase
+{
+    private QueueConsumerManagerImpl _consumerManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final AbstractQueue<?> queue = mock(AbstractQueue.class);
+        when(queue.getContextValue(Integer.class, QUEUE_SCAVANGE_COUNT)).thenReturn(10);
+        _consumerManager = new QueueConsumerManagerImpl(queue);
+    }
+
+    @Test
+    public void testInterestedIteratorOrderedByPriority()
+    {
+        final QueueConsumer<?,?> low = createConsumer(1);
+        final QueueConsumer<?,?> high = createConsumer(10);
+        final QueueConsumer<?,?> medium = createConsumer(5);
+        _consumerManager.addConsumer(low);
+        _consumerManager.addConsumer(high);
+        _consumerManager.addConsumer(medium);
+
+        assertEquals("Unexpected interested consumers",
+                     Arrays.asList(high, medium, low), toList(_consumerManager.getInterestedIterator()));
+        assertEquals("Unexpected consumers",
+                     Arrays.asList(high, medium, low), toList(_consumerManager.getAllIterator()));
+        assertEquals("Unexpected number of consumers", (long) 3, (long) _consumerManager.getAllSize());
+    }
+
+    @Test
+    public void testHigherPriorityWithCreditIterator()
+    {
+        final QueueConsumer<?,?> high = createConsumer(10);
+        final QueueConsumer<?,?> highNotified = createConsumer(10);
+        final QueueConsumer<?,?> highWithoutCredit = createConsumer(10);
+        final QueueConsumer<?,?> medium = createConsumer(5);
+        final QueueConsumer<?,?> low = createConsumer(1);
+        for (QueueConsumer<?,?> consumer : Arrays.asList(high, highNotified, highWithoutCredit, medium, low))
+        {
+            _consumerManager.addConsumer(consumer);
+        }
+        _consumerManager.setNotified(highNotified, true);
+        _consumerManager.setInterest(highWithoutCredit, false);
+
+        final List<QueueConsumer<?,?>> higherThanMedium =
+                toList(_consumerManager.getHigherPriorityWithCreditIterator(5));
+        assertEquals("Unexpected number of consumers", (long) 2, (long) higherThanMedium.size());
+        assertTrue("Interested consumer not found", higherThanMedium.contains(high));
+        assertTrue("Notified consumer not found", higherThanMedium.contains(highNotified));
+
+        assertEquals("Unexpected consumers above lowest priority",
+                     (long) 3, (long) toList(_consumerManager.getHigherPriorityWithCreditIterator(1)).size());
+        assertTrue("No consumers expected above highest priority",
+                   toList(_consumerManager.getHigherPriorityWithCreditIterator(10)).isEmpty());
+    }
+
+    @Test
+    public void testHighestNotifiedPriority()
+    {
+        final QueueConsumer<?,?> high = createConsumer(10);
+        final QueueConsumer<?,?> low = createConsumer(1);
+        _consumerManager.addConsumer(high);
+        _consumerManager.addConsumer(low);
+
+        assertEquals("Unexpected highest notified priority",
+                     (long) Integer.MIN_VALUE, (long) _consumerManager.getHighestNotifiedPriority());
+
+        _consumerManager.setNotified(low, true);
+        assertEquals("Unexpected highest notified priority", (long) 1, (long) _consumerManager.getHighestNotifiedPriority());
+
+        _consumerManager.setNotified(high, true);
+        assertEquals("Unexpected highest notified priority", (long) 10, (long) _consumerManager.getHighestNotifiedPriority());
+
+        _consumerManager.setNotified(high, false);
+        assertEquals("Unexpected highest notified priority", (long) 1, (long) _consumerManager.getHighestNotifiedPriority());
+    }
+
+    @Test
+    public void testRemoveConsumer()
+    {
+        final QueueConsumer<?,?> high = createConsumer(10);
+        final QueueConsumer<?,?> low = createConsumer(1);
+        _consumerManager.addConsumer(high);
+        _consumerManager.addConsumer(low);
+
+        assertTrue("Consumer should be removed", _consumerManager.removeConsumer(high));
+
+        assertEquals("Unexpected consumers", Arrays.asList(low), toList(_consumerManager.getAllIterator()));
+        assertEquals("Unexpected interested consumers",
+                     Arrays.asList(low), toList(_consumerManager.getInterestedIterator()));
+        assertTrue("No consumers expected above lowest priority",
+                   toList(_consumerManager.getHigherPriorityWithCreditIterator(1)).isEmpty());
+
+        final QueueConsumer<?,?> newHigh = createConsumer(10);
+        _consumerManager.addConsumer(newHigh);
+        assertEquals("Unexpected consumers", Arrays.asList(newHigh, low), toList(_consumerManager.getAllIterator()));
+    }
+
+    private List<QueueConsumer<?,?>> toList(final Iterator<QueueConsumer<?,?>> iterator)
+    {
+        final List<QueueConsumer<?,?>> consumers = new ArrayList<>();
+        iterator.forEachRemaining(consumers::add);
+        return consumers;
+    }
+
+    private QueueConsumer<?,?> createConsumer(final int priority)
+    {
+        final QueueConsumer<?,?> consumer = mock(QueueConsumer.class);
+        final QueueConsumerNode[] node = new QueueConsumerNode[1];
+        doAnswer(invocation ->
+                 {
+                     node[0] = (QueueConsumerNode) invocation.getArguments()[0];
+                     return null;
+                 }).when(consumer).setQueueConsumerNode(any(QueueConsumerNode.class));
+        when(consumer.getQueueConsumerNode()).thenAnswer(invocation -> node[0]);
+        when(consumer.getPriority()).thenReturn(priority);
+        when(consumer.acquires()).thenReturn(true);
+        when(consumer.isNotifyWorkDesired()).thenReturn(true);
+        return consumer;
+    }
+}
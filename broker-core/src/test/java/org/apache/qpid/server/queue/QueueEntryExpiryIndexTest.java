@@ -0,0 +1,108 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueEntryExpiryIndexTest extends UnitTestBase
+{
+    private static final long BUCKET_WIDTH = 100L;
+
+    private QueueEntryExpiryIndex _index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _index = new QueueEntryExpiryIndex(BUCKET_WIDTH);
+    }
+
+    @Test
+    public void testEntryWithoutExpirationIsNotIndexed()
+    {
+        _index.add(createEntry(0L));
+
+        assertTrue("Index should be empty", _index.isEmpty());
+    }
+
+    @Test
+    public void testRemoveExpiredReturnsOnlyExpiredEntries()
+    {
+        final QueueEntry expired1 = createEntry(1000L);
+        final QueueEntry expired2 = createEntry(1150L);
+        final QueueEntry sameBucketNotExpired = createEntry(1250L);
+        final QueueEntry notExpired = createEntry(5000L);
+
+        _index.add(expired1);
+        _index.add(expired2);
+        _index.add(sameBucketNotExpired);
+        _index.add(notExpired);
+
+        final Collection<QueueEntry> expired = _index.removeExpired(1200L);
+
+        assertEquals("Unexpected number of expired entries", (long) 2, (long) expired.size());
+        assertTrue("Expected entry not found", expired.contains(expired1));
+        assertTrue("Expected entry not found", expired.contains(expired2));
+        assertEquals("Unexpected number of remaining entries", (long) 2, (long) _index.size());
+
+        final Collection<QueueEntry> expiredLater = _index.removeExpired(1300L);
+        assertEquals("Unexpected number of expired entries", (long) 1, (long) expiredLater.size());
+        assertTrue("Expected entry not found", expiredLater.contains(sameBucketNotExpired));
+        assertEquals("Unexpected number of remaining entries", (long) 1, (long) _index.size());
+    }
+
+    @Test
+    public void testRemovedEntryIsNotReturned()
+    {
+        final QueueEntry entry = createEntry(1000L);
+        _index.add(entry);
+        _index.remove(entry);
+
+        assertTrue("Index should be empty", _index.isEmpty());
+        assertTrue("No entries should be expired", _index.removeExpired(2000L).isEmpty());
+    }
+
+    @Test
+    public void testDeletedEntryIsNotRetained()
+    {
+        final QueueEntry entry = createEntry(1000L);
+        when(entry.isDeleted()).thenReturn(true);
+        _index.add(entry);
+
+        assertTrue("Index should be empty", _index.isEmpty());
+    }
+
+    private QueueEntry createEntry(final long expiration)
+    {
+        final QueueEntry entry = mock(QueueEntry.class);
+        when(entry.getExpiration()).thenReturn(expiration);
+        return entry;
+    }
+}
@@ -40,6 +40,7 @@ import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstance.EntryState;
 import org.apache.qpid.server.message.MessageInstance.StealableConsumerAcquiredState;
@@ -268,6 +269,28 @@ public abstract class QueueEntryImplTestBase extends UnitTestBase
         return state;
     }
 
+    @Test
+    public void testDeliveryCountAndRedelivered()
+    {
+        assertFalse("Queue entry should not yet have been delivered", _queueEntry.getDeliveredToConsumer());
+        assertEquals("Unexpected delivery count", (long) 0, (long) _queueEntry.getDeliveryCount());
+
+        _queueEntry.incrementDeliveryCount();
+        _queueEntry.setRedelivered();
+        _queueEntry.incrementDeliveryCount();
+
+        assertTrue("Queue entry should have been delivered", _queueEntry.getDeliveredToConsumer());
+        assertTrue("Queue entry should be redelivered", _queueEntry.isRedelivered());
+        assertEquals("Unexpected delivery count", (long) 2, (long) _queueEntry.getDeliveryCount());
+
+        _queueEntry.decrementDeliveryCount();
+        assertEquals("Unexpected delivery count", (long) 1, (long) _queueEntry.getDeliveryCount());
+        assertTrue("Queue entry should be redelivered", _queueEntry.isRedelivered());
+        assertEquals("Unexpected redelivered instance property",
+                     Boolean.TRUE,
+                     _queueEntry.getInstanceProperties().getProperty(InstanceProperties.Property.REDELIVERED));
+    }
+
     /**
      * Tests rejecting a queue entry records the Consumer ID
      * for later verification by isRejectedBy(consumerId).
@@ -385,4 +408,28 @@ public abstract class QueueEntryImplTestBase extends UnitTestBase
 
         assertEquals("Unexpected number of messages on DLQ", 1, dlq.getQueueDepthMessages());
     }
+
+    @Test
+    public void testSharedFilterResults()
+    {
+        assertEquals("Unexpected result before evaluation", -1, _queueEntry.getSharedFilterResult(1, 0));
+
+        _queueEntry.setSharedFilterResult(1, 0, true);
+        _queueEntry.setSharedFilterResult(1, 15, false);
+
+        assertEquals("Unexpected result of slot 0", 1, _queueEntry.getSharedFilterResult(1, 0));
+        assertEquals("Unexpected result of slot 15", 0, _queueEntry.getSharedFilterResult(1, 15));
+        assertEquals("Unexpected result of unevaluated slot", -1, _queueEntry.getSharedFilterResult(1, 1));
+        assertEquals("Result of another epoch should be ignored", -1, _queueEntry.getSharedFilterResult(2, 0));
+
+        _queueEntry.setSharedFilterResult(2, 1, true);
+
+        assertEquals("Results of previous epoch should be discarded", -1, _queueEntry.getSharedFilterResult(2, 0));
+        assertEquals("Unexpected result of slot 1", 1, _queueEntry.getSharedFilterResult(2, 1));
+
+        _queueEntry.acquire();
+        _queueEntry.delete();
+
+        assertEquals("Results of deleted entry should be discarded", -1, _queueEntry.getSharedFilterResult(2, 1));
+    }
 }
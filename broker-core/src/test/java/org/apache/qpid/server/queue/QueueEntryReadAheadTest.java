@@ -0,0 +1,200 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueEntryReadAheadTest extends UnitTestBase
+{
+    private static final int READ_AHEAD_COUNT = 4;
+    private static final int MESSAGE_SIZE = 100;
+
+    private final List<Runnable> _tasks = new ArrayList<>();
+    private final Executor _executor = _tasks::add;
+    private final List<TestEntry> _entries = new ArrayList<>();
+    private QueueEntryReadAhead _readAhead;
+    private QueueContext _context;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final QueueEntryList entryList = mock(QueueEntryList.class);
+        for (int i = 0; i < 20; i++)
+        {
+            _entries.add(new TestEntry());
+        }
+        for (int i = 0; i < _entries.size() - 1; i++)
+        {
+            when(entryList.next(_entries.get(i).getQueueEntry())).thenReturn(_entries.get(i + 1).getQueueEntry());
+        }
+        _readAhead = new QueueEntryReadAhead(entryList, READ_AHEAD_COUNT, _executor);
+        _context = new QueueContext(_entries.get(0).getQueueEntry());
+    }
+
+    @Test
+    public void testNoReadAheadForResidentEntry()
+    {
+        _entries.get(0).setInMemory(true);
+
+        _readAhead.entryAssigned(_context, _entries.get(0).getQueueEntry());
+
+        assertTrue("Read ahead should not be scheduled", _tasks.isEmpty());
+    }
+
+    @Test
+    public void testReadAheadLoadsFollowingEntries()
+    {
+        _entries.get(2).setAvailable(false);
+
+        _readAhead.entryAssigned(_context, _entries.get(0).getQueueEntry());
+        _readAhead.entryAssigned(_context, _entries.get(1).getQueueEntry());
+
+        assertEquals("Unexpected number of read ahead tasks", (long) 1, (long) _tasks.size());
+        runTasks();
+
+        for (int i = 1; i <= READ_AHEAD_COUNT; i++)
+        {
+            assertEquals("Unexpected in memory state of entry " + i, i != 2, _entries.get(i).isInMemory());
+        }
+        assertFalse("Entry beyond read ahead count should not be loaded",
+                    _entries.get(READ_AHEAD_COUNT + 1).isInMemory());
+        assertEquals("Unexpected number of loaded messages", 3L, _readAhead.getLoadedMessages());
+        assertEquals("Unexpected number of loaded bytes", 3L * MESSAGE_SIZE, _readAhead.getLoadedBytes());
+    }
+
+    @Test
+    public void testReadAheadContinuesAheadOfConsumer()
+    {
+        _readAhead.entryAssigned(_context, _entries.get(0).getQueueEntry());
+        runTasks();
+
+        _readAhead.entryAssigned(_context, _entries.get(1).getQueueEntry());
+        assertTrue("Read ahead should not be scheduled before half of the entries are assigned", _tasks.isEmpty());
+
+        _readAhead.entryAssigned(_context, _entries.get(2).getQueueEntry());
+        assertEquals("Unexpected number of read ahead tasks", (long) 1, (long) _tasks.size());
+        runTasks();
+
+        assertTrue("Entry should be loaded", _entries.get(READ_AHEAD_COUNT + 2).isInMemory());
+        assertFalse("Entry beyond read ahead count should not be loaded",
+                    _entries.get(READ_AHEAD_COUNT + 3).isInMemory());
+    }
+
+    @Test
+    public void testReadAheadContinuesAfterStoreFailure()
+    {
+        _entries.get(2).setFailing(true);
+
+        _readAhead.entryAssigned(_context, _entries.get(0).getQueueEntry());
+        runTasks();
+
+        assertFalse("Entry failing to load should not be loaded", _entries.get(2).isInMemory());
+        assertTrue("Entry following failed entry should be loaded", _entries.get(3).isInMemory());
+        assertEquals("Unexpected number of loaded messages", 3L, _readAhead.getLoadedMessages());
+
+        _readAhead.entryAssigned(_context, _entries.get(1).getQueueEntry());
+        _readAhead.entryAssigned(_context, _entries.get(2).getQueueEntry());
+        assertEquals("Read ahead should be resumed after failure", (long) 1, (long) _tasks.size());
+    }
+
+    private void runTasks()
+    {
+        final List<Runnable> tasks = new ArrayList<>(_tasks);
+        _tasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static class TestEntry
+    {
+        private final QueueEntry _queueEntry = mock(QueueEntry.class);
+        private boolean _inMemory;
+        private boolean _available = true;
+        private boolean _failing;
+
+        @SuppressWarnings("unchecked")
+        private TestEntry()
+        {
+            final ServerMessage message = mock(ServerMessage.class);
+            final MessageReference reference = mock(MessageReference.class);
+            final StoredMessage storedMessage = mock(StoredMessage.class);
+            when(reference.getMessage()).thenReturn(message);
+            when(message.newReference()).thenReturn(reference);
+            when(message.getStoredMessage()).thenReturn(storedMessage);
+            when(_queueEntry.getMessage()).thenReturn(message);
+            when(_queueEntry.isAvailable()).thenAnswer(invocation -> _available);
+            when(storedMessage.getContentSize()).thenReturn(MESSAGE_SIZE);
+            when(storedMessage.isInMemory()).thenAnswer(invocation -> _inMemory);
+            when(storedMessage.getContent(anyInt(), anyInt())).thenAnswer(invocation ->
+                                                                          {
+                                                                              if (_failing)
+                                                                              {
+                                                                                  throw new StoreException("Store closed");
+                                                                              }
+                                                                              _inMemory = true;
+                                                                              return QpidByteBuffer.emptyQpidByteBuffer();
+                                                                          });
+        }
+
+        QueueEntry getQueueEntry()
+        {
+            return _queueEntry;
+        }
+
+        boolean isInMemory()
+        {
+            return _inMemory;
+        }
+
+        void setInMemory(final boolean inMemory)
+        {
+            _inMemory = inMemory;
+        }
+
+        void setAvailable(final boolean available)
+        {
+            _available = available;
+        }
+
+        void setFailing(final boolean failing)
+        {
+            _failing = failing;
+        }
+    }
+}
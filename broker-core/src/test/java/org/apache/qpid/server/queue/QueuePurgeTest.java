@@ -0,0 +1,198 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueuePurgeTest extends UnitTestBase
+{
+    private final List<Runnable> _tasks = new ArrayList<>();
+    private final AtomicLong _progress = new AtomicLong();
+    private final List<QueueEntry> _stolenEntries = new ArrayList<>();
+    private MessageStore _messageStore;
+    private Transaction _transaction;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _transaction = mock(Transaction.class);
+        _messageStore = mock(MessageStore.class);
+        when(_messageStore.newTransaction()).thenReturn(_transaction);
+    }
+
+    @Test
+    public void testEntriesPurgedInBatches() throws Exception
+    {
+        final List<QueueEntry> entries = createEntries(5, true);
+
+        final ListenableFuture<Long> future = createPurge(entries, _tasks::add).start();
+        assertFalse("Future should not be done before the purge has run", future.isDone());
+
+        final int batches = runTasks();
+
+        assertEquals("Unexpected number of batches", 3, batches);
+        assertEquals("Unexpected number of purged messages", 5L, (long) future.get());
+        assertEquals("Unexpected progress", 5L, _progress.get());
+        verify(_transaction, times(3)).dequeueMessages(anyCollection());
+        verify(_transaction, times(3)).commitTran();
+        for (QueueEntry entry : entries)
+        {
+            verify(entry).delete();
+        }
+    }
+
+    @Test
+    public void testEntryNotAcquiredIsNotDequeued() throws Exception
+    {
+        final List<QueueEntry> entries = createEntries(1, true);
+        final QueueEntry stolenEntry = createEntries(1, false).get(0);
+        entries.add(stolenEntry);
+
+        final ListenableFuture<Long> future = createPurge(entries, _tasks::add).start();
+        runTasks();
+
+        assertEquals("Unexpected number of purged messages", 1L, (long) future.get());
+        verify(stolenEntry, never()).delete();
+        assertTrue("Stolen entry should not yet be handled", _stolenEntries.isEmpty());
+    }
+
+    @Test
+    public void testCancelledPurgeStops()
+    {
+        final List<QueueEntry> entries = createEntries(4, true);
+
+        final ListenableFuture<Long> future = createPurge(entries, _tasks::add).start();
+        _tasks.remove(0).run();
+        future.cancel(false);
+        runTasks();
+
+        verify(entries.get(0)).delete();
+        verify(entries.get(1)).delete();
+        verify(entries.get(2), never()).acquireOrSteal(any(Runnable.class));
+        verify(entries.get(3), never()).acquireOrSteal(any(Runnable.class));
+    }
+
+    @Test
+    public void testPurgedInCallingThreadWhenExecutionRejected() throws Exception
+    {
+        final List<QueueEntry> entries = createEntries(3, true);
+
+        final ListenableFuture<Long> future = createPurge(entries, task ->
+        {
+            throw new RejectedExecutionException();
+        }).start();
+
+        assertTrue("Future should be done", future.isDone());
+        assertEquals("Unexpected number of purged messages", 3L, (long) future.get());
+    }
+
+    private QueuePurge createPurge(final List<QueueEntry> entries, final Executor executor)
+    {
+        return new QueuePurge(new ListQueueEntryIterator(entries),
+                              _messageStore,
+                              executor,
+                              2,
+                              _stolenEntries::add,
+                              _progress::addAndGet);
+    }
+
+    private int runTasks()
+    {
+        int count = 0;
+        while (!_tasks.isEmpty())
+        {
+            _tasks.remove(0).run();
+            count++;
+        }
+        return count;
+    }
+
+    private List<QueueEntry> createEntries(final int count, final boolean acquirable)
+    {
+        final List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            final QueueEntry entry = mock(QueueEntry.class);
+            when(entry.acquireOrSteal(any(Runnable.class))).thenReturn(acquirable);
+            when(entry.getEnqueueRecord()).thenReturn(mock(MessageEnqueueRecord.class));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static class ListQueueEntryIterator implements QueueEntryIterator
+    {
+        private final List<QueueEntry> _entries;
+        private int _position = -1;
+
+        private ListQueueEntryIterator(final List<QueueEntry> entries)
+        {
+            _entries = entries;
+        }
+
+        @Override
+        public boolean atTail()
+        {
+            return _position >= _entries.size() - 1;
+        }
+
+        @Override
+        public QueueEntry getNode()
+        {
+            return _position < 0 ? null : _entries.get(_position);
+        }
+
+        @Override
+        public boolean advance()
+        {
+            if (atTail())
+            {
+                return false;
+            }
+            _position++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueStatisticsTest extends UnitTestBase
+{
+    @Test
+    public void testSnapshot()
+    {
+        final QueueStatistics statistics = new QueueStatistics();
+        enqueue(statistics, 10);
+        enqueue(statistics, 20);
+        statistics.removeFromAvailable(10);
+        statistics.addToUnacknowledged(10);
+        statistics.removeFromUnacknowledged(10);
+        dequeue(statistics, 10);
+        statistics.addToExpired(10);
+
+        final QueueStatistics.Snapshot snapshot = statistics.getSnapshot();
+
+        assertEquals("Unexpected queue count", 1, snapshot.getQueueCount());
+        assertEquals("Unexpected queue size", 20L, snapshot.getQueueSize());
+        assertEquals("Unexpected queue count high watermark", 2, snapshot.getQueueCountHwm());
+        assertEquals("Unexpected queue size high watermark", 30L, snapshot.getQueueSizeHwm());
+        assertEquals("Unexpected available count", 1, snapshot.getAvailableCount());
+        assertEquals("Unexpected available size", 20L, snapshot.getAvailableSize());
+        assertEquals("Unexpected unacknowledged count", 0L, snapshot.getUnackedCount());
+        assertEquals("Unexpected enqueue count", 2L, snapshot.getEnqueueCount());
+        assertEquals("Unexpected enqueue size", 30L, snapshot.getEnqueueSize());
+        assertEquals("Unexpected dequeue count", 1L, snapshot.getDequeueCount());
+        assertEquals("Unexpected dequeue size", 10L, snapshot.getDequeueSize());
+        assertEquals("Unexpected expired count", 1L, snapshot.getExpiredCount());
+
+        assertEquals("Snapshot and statistics disagree", statistics.getEnqueueCount(), snapshot.getEnqueueCount());
+        assertEquals("Snapshot and statistics disagree", statistics.getQueueSizeHwm(), snapshot.getQueueSizeHwm());
+    }
+
+    @Test
+    public void testSnapshotConsistentWhileUpdated() throws Exception
+    {
+        final QueueStatistics statistics = new QueueStatistics();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final int numberOfThreads = 4;
+        final CountDownLatch stopped = new CountDownLatch(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++)
+        {
+            final Thread thread = new Thread(() ->
+                                             {
+                                                 try
+                                                 {
+                                                     while (running.get())
+                                                     {
+                                                         enqueue(statistics, 1);
+                                                         statistics.removeFromAvailable(1);
+                                                         dequeue(statistics, 1);
+                                                     }
+                                                 }
+                                                 finally
+                                                 {
+                                                     stopped.countDown();
+                                                 }
+                                             });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try
+        {
+            for (int i = 0; i < 10000; i++)
+            {
+                final QueueStatistics.Snapshot snapshot = statistics.getSnapshot();
+                assertTrue("Enqueued count less than dequeued count plus depth",
+                           snapshot.getEnqueueCount() >= snapshot.getDequeueCount() + snapshot.getQueueCount());
+                assertTrue("Queue count high watermark less than queue count",
+                           snapshot.getQueueCountHwm() >= snapshot.getQueueCount());
+            }
+        }
+        finally
+        {
+            running.set(false);
+            assertTrue("Updating threads did not stop", stopped.await(5, TimeUnit.SECONDS));
+        }
+
+        final QueueStatistics.Snapshot snapshot = statistics.getSnapshot();
+        assertEquals("Unexpected queue count", 0, snapshot.getQueueCount());
+        assertEquals("Unexpected enqueue count", snapshot.getDequeueCount(), snapshot.getEnqueueCount());
+    }
+
+    private void enqueue(final QueueStatistics statistics, final long size)
+    {
+        statistics.addToEnqueued(size);
+        statistics.addToAvailable(size);
+        statistics.addToQueue(size);
+    }
+
+    private void dequeue(final QueueStatistics statistics, final long size)
+    {
+        statistics.removeFromQueue(size);
+        statistics.addToDequeued(size);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class SelectorPartitionIndexTest extends UnitTestBase
+{
+    private SelectorPartitionIndex _index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _index = new SelectorPartitionIndex();
+    }
+
+    @Test
+    public void testNoPartitionWithoutSharedProperty() throws Exception
+    {
+        _index.addConsumer(createConsumer(0), createFilterManager("region = 'EU'"));
+        _index.addConsumer(createConsumer(0), createFilterManager("kind = 'order'"));
+        _index.addConsumer(createConsumer(0), null);
+
+        assertNull("Unexpected partition", _index.getPartition());
+    }
+
+    @Test
+    public void testCandidatesByPropertyValue() throws Exception
+    {
+        final QueueConsumer<?, ?> europe = createConsumer(0);
+        final QueueConsumer<?, ?> america = createConsumer(0);
+        final QueueConsumer<?, ?> everywhere = createConsumer(0);
+        _index.addConsumer(europe, createFilterManager("region = 'EU'"));
+        _index.addConsumer(america, createFilterManager("region IN ('US', 'CA')"));
+        _index.addConsumer(everywhere, null);
+
+        final SelectorPartitionIndex.Partition partition = _index.getPartition();
+        assertNotNull("Expected partition", partition);
+        assertEquals("Unexpected property", "region", partition.getPropertyName());
+
+        assertEquals("Unexpected candidates", new HashSet<>(Arrays.asList(europe, everywhere)),
+                     new HashSet<>(toList(partition.getCandidates(createEntry("EU")))));
+        assertEquals("Unexpected candidates", new HashSet<>(Arrays.asList(america, everywhere)),
+                     new HashSet<>(toList(partition.getCandidates(createEntry("CA")))));
+        assertEquals("Unexpected candidates", Arrays.asList(everywhere),
+                     toList(partition.getCandidates(createEntry("APAC"))));
+        assertEquals("Unexpected candidates", Arrays.asList(everywhere),
+                     toList(partition.getCandidates(createEntry(null))));
+
+        _index.removeConsumer(america);
+        assertNull("Unexpected partition", _index.getPartition());
+    }
+
+    @Test
+    public void testCandidatesInPriorityOrderWithRotation() throws Exception
+    {
+        final QueueConsumer<?, ?> low = createConsumer(1);
+        final QueueConsumer<?, ?> high1 = createConsumer(10);
+        final QueueConsumer<?, ?> high2 = createConsumer(10);
+        _index.addConsumer(low, createFilterManager("region = 'EU'"));
+        _index.addConsumer(high1, createFilterManager("region = 'EU'"));
+        _index.addConsumer(high2, createFilterManager("region = 'EU'"));
+
+        final SelectorPartitionIndex.Partition partition = _index.getPartition();
+        final List<QueueConsumer<?, ?>> first = toList(partition.getCandidates(createEntry("EU")));
+        final List<QueueConsumer<?, ?>> second = toList(partition.getCandidates(createEntry("EU")));
+
+        assertEquals("Unexpected number of candidates", 3, first.size());
+        assertEquals("Lowest priority consumer should be last", low, first.get(2));
+        assertEquals("Lowest priority consumer should be last", low, second.get(2));
+        assertEquals("Consumers of equal priority should take turns to be first", first.get(0), second.get(1));
+    }
+
+    private List<QueueConsumer<?, ?>> toList(final Iterator<QueueConsumer<?, ?>> iterator)
+    {
+        final List<QueueConsumer<?, ?>> consumers = new ArrayList<>();
+        iterator.forEachRemaining(consumers::add);
+        return consumers;
+    }
+
+    private QueueConsumer<?, ?> createConsumer(final int priority)
+    {
+        final QueueConsumer<?, ?> consumer = mock(QueueConsumer.class);
+        when(consumer.getPriority()).thenReturn(priority);
+        return consumer;
+    }
+
+    private FilterManager createFilterManager(final String selector) throws Exception
+    {
+        final JMSSelectorFilter filter = new JMSSelectorFilter(selector);
+        final FilterManager filterManager = new FilterManager();
+        filterManager.add(filter.getName(), filter);
+        return filterManager;
+    }
+
+    private QueueEntry createEntry(final String region)
+    {
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeader("region")).thenReturn(region);
+        final ServerMessage<?> message = mock(ServerMessage.class);
+        when(message.getMessageHeader()).thenReturn(header);
+        final QueueEntry entry = mock(QueueEntry.class);
+        when(entry.getMessage()).thenReturn(message);
+        return entry;
+    }
+}
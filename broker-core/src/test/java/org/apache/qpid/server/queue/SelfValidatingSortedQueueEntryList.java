@@ -22,7 +22,6 @@ package org.apache.qpid.server.queue;
 import org.junit.Assert;
 
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.queue.SortedQueueEntry.Colour;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 
 /**
@@ -61,108 +60,31 @@ public class SelfValidatingSortedQueueEntryList extends SortedQueueEntryList
 
     public void assertQueueProperties()
     {
-        assertRootIsBlack();
-        assertTreeIntegrity();
-        assertChildrenOfRedAreBlack();
-        assertLeavesSameBlackPath();
+        assertHeadSortsFirst();
+        assertEntriesInOrder();
     }
 
-    public void assertRootIsBlack()
+    public void assertHeadSortsFirst()
     {
-        if(!isNodeColour(getRoot(), Colour.BLACK))
+        final SortedQueueEntry first = next(getHead());
+        if(first != null && getHead().compareTo(first) >= 0)
         {
-            Assert.fail("Root Not Black");
+            Assert.fail("Head does not sort before the first entry");
         }
     }
 
-    public void assertTreeIntegrity()
+    public void assertEntriesInOrder()
     {
-        assertTreeIntegrity(getRoot());
-    }
-
-    public void assertTreeIntegrity(final SortedQueueEntry node)
-    {
-        if(node == null)
-        {
-            return;
-        }
-        if(node.getLeft() != null)
-        {
-            if(node.getLeft().getParent() == node)
-            {
-                assertTreeIntegrity(node.getLeft());
-            }
-            else
-            {
-                Assert.fail("Tree integrity compromised");
-            }
-        }
-        if(node.getRight() != null)
-        {
-            if(node.getRight().getParent() == node)
-            {
-                assertTreeIntegrity(node.getRight());
-            }
-            else
-            {
-                Assert.fail("Tree integrity compromised");
-            }
-
-        }
-    }
-
-    public void assertLeavesSameBlackPath()
-    {
-        assertLeavesSameBlackPath(getRoot());
-    }
-
-    public int assertLeavesSameBlackPath(final SortedQueueEntry node)
-    {
-        if(node == null)
+        SortedQueueEntry previous = null;
+        SortedQueueEntry node = next(getHead());
+        while(node != null)
         {
-            return 1;
-        }
-        final int left = assertLeavesSameBlackPath(node.getLeft());
-        final int right = assertLeavesSameBlackPath(node.getLeft());
-        if(left == right)
-        {
-            return isNodeColour(node, Colour.BLACK) ? 1 + left : left;
-        }
-        else
-        {
-            Assert.fail("Unequal paths to leaves");
-            return 1; //compiler
-        }
-    }
-
-    public void assertChildrenOfRedAreBlack()
-    {
-        assertChildrenOfRedAreBlack(getRoot());
-    }
-
-    public void assertChildrenOfRedAreBlack(final SortedQueueEntry node)
-    {
-        if(node == null)
-        {
-            return;
-        }
-        else if(node.getColour() == Colour.BLACK)
-        {
-            assertChildrenOfRedAreBlack(node.getLeft());
-            assertChildrenOfRedAreBlack(node.getRight());
-        }
-        else
-        {
-            if(isNodeColour(node.getLeft(), Colour.BLACK)
-                    && isNodeColour(node.getRight(), Colour.BLACK))
-            {
-                assertChildrenOfRedAreBlack(node.getLeft());
-                assertChildrenOfRedAreBlack(node.getRight());
-            }
-            else
+            if(previous != null && previous.compareTo(node) >= 0)
             {
-                Assert.fail("Children of Red are not both black");
+                Assert.fail("Entries out of order: " + previous + " before " + node);
             }
+            previous = node;
+            node = next(node);
         }
     }
 }
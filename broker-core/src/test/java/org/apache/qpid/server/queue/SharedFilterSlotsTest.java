@@ -0,0 +1,108 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class SharedFilterSlotsTest extends UnitTestBase
+{
+    private SharedFilterSlots _slots;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _slots = new SharedFilterSlots();
+    }
+
+    @Test
+    public void testSelectorAssignedSlotOnceShared() throws Exception
+    {
+        final JMSSelectorFilter filter = new JMSSelectorFilter("a = 1");
+        final FilterManager first = createFilterManager(filter);
+        final FilterManager second = createFilterManager(new JMSSelectorFilter("a = 1"));
+
+        _slots.register(first);
+        assertEquals("Selector of a single consumer should not be shared",
+                     -1, _slots.getAssignment().getSlot(filter));
+
+        final int epoch = _slots.getAssignment().getEpoch();
+        _slots.register(second);
+        assertTrue("Selector of two consumers should be shared", _slots.getAssignment().getSlot(filter) >= 0);
+        assertNotEquals("Epoch should change with assignment", epoch, _slots.getAssignment().getEpoch());
+
+        _slots.unregister(second);
+        assertEquals("Selector of a single consumer should not be shared",
+                     -1, _slots.getAssignment().getSlot(filter));
+        assertTrue("Assignment should be empty", _slots.getAssignment().isEmpty());
+    }
+
+    @Test
+    public void testSlotsAreReused() throws Exception
+    {
+        for (int i = 0; i < SharedFilterSlots.MAXIMUM_SLOTS + 1; i++)
+        {
+            final FilterManager filters = createFilterManager(new JMSSelectorFilter("a = " + i));
+            _slots.register(filters);
+            _slots.register(filters);
+        }
+
+        final JMSSelectorFilter unassigned = new JMSSelectorFilter("a = " + SharedFilterSlots.MAXIMUM_SLOTS);
+        assertEquals("Selector beyond the maximum number of slots should not be shared",
+                     -1, _slots.getAssignment().getSlot(unassigned));
+
+        final JMSSelectorFilter released = new JMSSelectorFilter("a = 3");
+        final int releasedSlot = _slots.getAssignment().getSlot(released);
+        _slots.unregister(createFilterManager(released));
+
+        final FilterManager filters = createFilterManager(new JMSSelectorFilter("b = 1"));
+        _slots.register(filters);
+        _slots.register(filters);
+        assertEquals("Released slot should be reused",
+                     releasedSlot, _slots.getAssignment().getSlot(new JMSSelectorFilter("b = 1")));
+    }
+
+    @Test
+    public void testDeliveryStateDependentSelectorNotShared() throws Exception
+    {
+        final JMSSelectorFilter filter = new JMSSelectorFilter("JMSRedelivered = TRUE OR a = 1");
+        _slots.register(createFilterManager(filter));
+        _slots.register(createFilterManager(new JMSSelectorFilter("JMSRedelivered = TRUE OR a = 1")));
+
+        assertEquals("Selector on redelivery should not be shared", -1, _slots.getAssignment().getSlot(filter));
+        assertTrue("Assignment should be empty", _slots.getAssignment().isEmpty());
+    }
+
+    private FilterManager createFilterManager(final JMSSelectorFilter filter)
+    {
+        final FilterManager filterManager = new FilterManager();
+        filterManager.add(filter.getName(), filter);
+        return filterManager;
+    }
+}
@@ -20,7 +20,9 @@
 package org.apache.qpid.server.queue;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -31,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -445,6 +448,89 @@ public class SortedQueueEntryListTest extends QueueEntryListTestBase
         assertEquals("Unexpected last entry", entry1, list.getLeastSignificantOldestEntry());
     }
 
+    @Test
+    public void testNextOfDeletedEntry()
+    {
+        _sqel = new SelfValidatingSortedQueueEntryList(_testQueue);
+
+        _sqel.add(generateTestMessage(1, "A"), null);
+        final SortedQueueEntry entry2 = _sqel.add(generateTestMessage(2, "B"), null);
+        _sqel.add(generateTestMessage(3, "C"), null);
+
+        final QueueEntryIterator iterator = _sqel.iterator();
+        iterator.advance();
+        iterator.advance();
+        assertEquals("Unexpected iterator position", entry2, iterator.getNode());
+
+        entry2.acquire();
+        entry2.delete();
+
+        validateEntry(_sqel.next(entry2), "C", 3);
+        assertTrue("Iterator should advance past the deleted entry", iterator.advance());
+        validateEntry((SortedQueueEntry) iterator.getNode(), "C", 3);
+        assertFalse("Iterator should be at the tail", iterator.advance());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception
+    {
+        final SortedQueueEntryList list = new SortedQueueEntryList(_testQueue, _testQueue.getQueueStatistics());
+        final int numberOfThreads = 4;
+        final ServerMessage[][] messages = new ServerMessage[numberOfThreads][keys.length];
+        long messageId = 0L;
+        for (int i = 0; i < numberOfThreads; i++)
+        {
+            for (int j = 0; j < keys.length; j++)
+            {
+                messages[i][j] = generateTestMessage(messageId++, keys[(j + i * 13) % keys.length]);
+            }
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++)
+        {
+            final ServerMessage[] threadMessages = messages[i];
+            threads[i] = new Thread(() ->
+                                    {
+                                        try
+                                        {
+                                            start.await();
+                                        }
+                                        catch (InterruptedException e)
+                                        {
+                                            Thread.currentThread().interrupt();
+                                            return;
+                                        }
+                                        for (ServerMessage message : threadMessages)
+                                        {
+                                            list.add(message, null);
+                                        }
+                                    });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join(10000L);
+        }
+
+        final QueueEntryIterator iterator = list.iterator();
+        int count = 0;
+        SortedQueueEntry previous = null;
+        while (iterator.advance())
+        {
+            final SortedQueueEntry entry = (SortedQueueEntry) iterator.getNode();
+            if (previous != null)
+            {
+                assertTrue("Entries out of order", previous.getKey().compareTo(entry.getKey()) <= 0);
+            }
+            previous = entry;
+            count++;
+        }
+        assertEquals("Unexpected number of entries", (long) numberOfThreads * keys.length, (long) count);
+    }
+
     private void validateEntry(final SortedQueueEntry entry, final String expectedSortKey, final long expectedMessageId)
     {
         assertEquals("Sorted queue entry value is not as expected",
@@ -0,0 +1,124 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class MessageContentCacheTest extends UnitTestBase
+{
+    @Test
+    public void testCachedContentIsReturned()
+    {
+        final MessageContentCache cache = new MessageContentCache(100L);
+        assertNull("Content should not be cached", cache.get(1L));
+
+        try (QpidByteBuffer content = QpidByteBuffer.wrap(new byte[]{1, 2, 3}))
+        {
+            cache.put(1L, content);
+        }
+
+        try (QpidByteBuffer cached = cache.get(1L))
+        {
+            assertNotNull("Content should be cached", cached);
+            assertEquals("Unexpected cached content size", (long) 3, (long) cached.remaining());
+            assertEquals("Unexpected cached content", (long) 2, (long) cached.get(1));
+        }
+        assertEquals("Unexpected number of hits", 1L, cache.getHits());
+        assertEquals("Unexpected number of misses", 1L, cache.getMisses());
+        assertEquals("Unexpected cache size", 3L, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContentEvicted()
+    {
+        final MessageContentCache cache = new MessageContentCache(20L);
+        put(cache, 1L, 10);
+        put(cache, 2L, 10);
+        cache.get(1L).dispose();
+        put(cache, 3L, 10);
+
+        assertEquals("Unexpected number of evictions", 1L, cache.getEvictions());
+        assertEquals("Unexpected cache size", 20L, cache.getSize());
+        assertNull("Least recently used content should be evicted", cache.get(2L));
+        cache.get(1L).dispose();
+        cache.get(3L).dispose();
+    }
+
+    @Test
+    public void testContentLargerThanMaximumSizeNotCached()
+    {
+        final MessageContentCache cache = new MessageContentCache(20L);
+        put(cache, 1L, 10);
+        put(cache, 2L, 30);
+
+        assertNull("Content larger than cache should not be cached", cache.get(2L));
+        assertEquals("Unexpected cache size", 10L, cache.getSize());
+        assertEquals("Unexpected number of evictions", 0L, cache.getEvictions());
+    }
+
+    @Test
+    public void testRemoveAndClear()
+    {
+        final MessageContentCache cache = new MessageContentCache(100L);
+        put(cache, 1L, 10);
+        put(cache, 2L, 10);
+
+        cache.remove(1L);
+        assertNull("Removed content should not be cached", cache.get(1L));
+        assertEquals("Unexpected cache size", 10L, cache.getSize());
+
+        cache.clear();
+        assertNull("Cleared content should not be cached", cache.get(2L));
+        assertEquals("Unexpected cache size", 0L, cache.getSize());
+    }
+
+    @Test
+    public void testDisabledCache()
+    {
+        final MessageContentCache cache = new MessageContentCache(0L);
+        put(cache, 1L, 10);
+
+        assertNull("Disabled cache should not cache content", cache.get(1L));
+        assertEquals("Unexpected cache size", 0L, cache.getSize());
+        assertEquals("Unexpected number of misses", 0L, cache.getMisses());
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        assertEquals("Unexpected default maximum size", 0L, MessageContentCache.newInstance(null).getMaximumSize());
+    }
+
+    private void put(final MessageContentCache cache, final long messageId, final int size)
+    {
+        try (QpidByteBuffer content = QpidByteBuffer.wrap(new byte[size]))
+        {
+            cache.put(messageId, content);
+        }
+    }
+}
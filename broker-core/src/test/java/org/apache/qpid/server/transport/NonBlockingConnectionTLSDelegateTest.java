@@ -0,0 +1,349 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.server.transport.network.security.ssl.SSLUtil;
+import org.apache.qpid.server.transport.network.security.ssl.SSLUtil.KeyCertPair;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class NonBlockingConnectionTLSDelegateTest extends UnitTestBase
+{
+    private static final String PASSWORD = "password";
+    private static final String CLIENT_PROTOCOL = "TLSv1.2";
+    private static final int NETWORK_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_STEPS = 100;
+
+    private final ByteBuffer _serverOutput = ByteBuffer.allocate(NETWORK_BUFFER_SIZE);
+    private final Semaphore _workNotifications = new Semaphore(0);
+    private final List<NonBlockingConnectionTLSDelegate> _delegates = new ArrayList<>();
+    private int _unprocessedInputResumptions;
+    private AmqpPort<?> _port;
+    private NonBlockingConnection _parent;
+    private SSLContext _clientContext;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        assumeTrue("Cannot generate certificates", SSLUtil.canGenerateCerts());
+
+        final KeyCertPair keyCertPair =
+                SSLUtil.generateSelfSignedCertificate("RSA",
+                                                      "SHA256WithRSA",
+                                                      2048,
+                                                      Instant.now().minus(1, ChronoUnit.DAYS).toEpochMilli(),
+                                                      Duration.of(365, ChronoUnit.DAYS).getSeconds(),
+                                                      "CN=localhost",
+                                                      Collections.emptySet(),
+                                                      Collections.emptySet());
+        final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, PASSWORD.toCharArray());
+        keyStore.setKeyEntry("server",
+                             keyCertPair.getPrivateKey(),
+                             PASSWORD.toCharArray(),
+                             new X509Certificate[]{keyCertPair.getCertificate()});
+
+        final KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        final SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+
+        final TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        _clientContext = SSLContext.getInstance("TLS");
+        _clientContext.init(null, tmf.getTrustManagers(), null);
+
+        _port = mock(AmqpPort.class);
+        when(_port.getSSLContext()).thenReturn(serverContext);
+        when(_port.getNetworkBufferSize()).thenReturn(NETWORK_BUFFER_SIZE);
+
+        _parent = mock(NonBlockingConnection.class);
+        when(_parent.writeToTransport(any(Collection.class))).thenAnswer(invocation ->
+                                                                         {
+                                                                             @SuppressWarnings("unchecked")
+                                                                             final Collection<QpidByteBuffer> buffers =
+                                                                                     (Collection<QpidByteBuffer>) invocation.getArguments()[0];
+                                                                             return transferToClient(buffers);
+                                                                         });
+        doAnswer(invocation ->
+                 {
+                     _workNotifications.release();
+                     return null;
+                 }).when(_parent).notifyWork();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        for (NonBlockingConnectionTLSDelegate delegate : _delegates)
+        {
+            delegate.shutdownInput();
+            delegate.shutdownOutput();
+        }
+    }
+
+    @Test
+    public void testHandshakeWithTasksRunOnIoThread() throws Exception
+    {
+        handshake(new NonBlockingConnectionTLSDelegate(_parent, _port), () -> { });
+
+        verify(_port).registerTlsHandshake(false);
+        verify(_parent, never()).notifyWork();
+    }
+
+    @Test
+    public void testHandshakeWithTasksRunOnHandshakeExecutor() throws Exception
+    {
+        final List<Runnable> handedOff = new ArrayList<>();
+        final NonBlockingConnectionTLSDelegate delegate =
+                new NonBlockingConnectionTLSDelegate(_parent, _port, handedOff::add);
+
+        // the handshake thread runs the delegated tasks only once the IO thread has nothing else to do, so that the
+        // records following the one which required the tasks are left to be processed once they are complete
+        handshake(delegate, () ->
+        {
+            assertFalse("Handshake stalled without delegated tasks", handedOff.isEmpty());
+            final List<Runnable> tasks = new ArrayList<>(handedOff);
+            handedOff.clear();
+            tasks.forEach(Runnable::run);
+        });
+
+        verify(_port).registerTlsHandshake(false);
+        verify(_parent, atLeastOnce()).notifyWork();
+        assertTrue("Input left whilst the tasks ran should be processed without further input",
+                   _unprocessedInputResumptions > 0);
+    }
+
+    @Test
+    public void testHandshakeWithTasksCompletedBeforeIoThreadContinues() throws Exception
+    {
+        handshake(new NonBlockingConnectionTLSDelegate(_parent, _port, Runnable::run), () -> { });
+
+        verify(_port).registerTlsHandshake(false);
+        verify(_parent, atLeastOnce()).notifyWork();
+        assertTrue("Input left whilst the tasks ran should be processed without further input",
+                   _unprocessedInputResumptions > 0);
+    }
+
+    @Test
+    public void testHandshakeWithTasksRunOnHandshakeThread() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            handshake(new NonBlockingConnectionTLSDelegate(_parent, _port, executor), () ->
+            {
+                try
+                {
+                    assertTrue("Delegated tasks did not complete",
+                               _workNotifications.tryAcquire(10, TimeUnit.SECONDS));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new AssertionError("Interrupted awaiting delegated tasks", e);
+                }
+            });
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        verify(_port).registerTlsHandshake(false);
+    }
+
+    @Test
+    public void testRejectedTasksRunOnIoThread() throws Exception
+    {
+        handshake(new NonBlockingConnectionTLSDelegate(_parent, _port, task ->
+        {
+            throw new RejectedExecutionException();
+        }), () -> { });
+
+        verify(_port).registerTlsHandshake(false);
+        verify(_parent, never()).notifyWork();
+    }
+
+    @Test
+    public void testSessionResumptionCounted() throws Exception
+    {
+        handshake(new NonBlockingConnectionTLSDelegate(_parent, _port), () -> { });
+        verify(_port).registerTlsHandshake(false);
+
+        // resumption is recognised by the session having been created before the connection
+        final long firstHandshakeComplete = System.currentTimeMillis();
+        while (System.currentTimeMillis() <= firstHandshakeComplete)
+        {
+            Thread.yield();
+        }
+
+        _serverOutput.clear();
+        handshake(new NonBlockingConnectionTLSDelegate(_parent, _port), () -> { });
+
+        verify(_port).registerTlsHandshake(true);
+        verify(_port, times(2)).registerTlsHandshake(anyBoolean());
+    }
+
+    /**
+     * Performs a handshake between a client SSLEngine and the given delegate in the way the selector drives a
+     * connection: the delegate processes its input when data has been read or input remains unprocessed, and then
+     * writes. When neither side makes progress the given action is performed before continuing.
+     */
+    private void handshake(final NonBlockingConnectionTLSDelegate delegate, final Runnable awaitWork)
+            throws Exception
+    {
+        _delegates.add(delegate);
+        final SSLEngine clientEngine = _clientContext.createSSLEngine("localhost", 5671);
+        clientEngine.setUseClientMode(true);
+        clientEngine.setEnabledProtocols(new String[]{CLIENT_PROTOCOL});
+        clientEngine.beginHandshake();
+
+        final ByteBuffer clientOutput = ByteBuffer.allocate(NETWORK_BUFFER_SIZE);
+        final ByteBuffer clientApplicationData = ByteBuffer.allocate(NETWORK_BUFFER_SIZE);
+        int steps = 0;
+        while (clientEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING)
+        {
+            assertTrue("Handshake did not complete", steps++ < MAX_STEPS);
+
+            final int serverOutputBefore = _serverOutput.position();
+            final boolean clientProgressed = stepClient(clientEngine, clientOutput, clientApplicationData);
+
+            clientOutput.flip();
+            final boolean dataRead = clientOutput.hasRemaining();
+            delegate.getNetInputBuffer().put(clientOutput);
+            clientOutput.clear();
+
+            if (dataRead)
+            {
+                delegate.processData();
+            }
+            else if (delegate.hasUnprocessedInput())
+            {
+                _unprocessedInputResumptions++;
+                delegate.processData();
+            }
+            delegate.doWrite(Collections.emptyList());
+
+            if (!clientProgressed && !dataRead && _serverOutput.position() == serverOutputBefore)
+            {
+                awaitWork.run();
+            }
+        }
+        assertEquals("Unexpected protocol", CLIENT_PROTOCOL, clientEngine.getSession().getProtocol());
+    }
+
+    private boolean stepClient(final SSLEngine clientEngine,
+                               final ByteBuffer clientOutput,
+                               final ByteBuffer clientApplicationData) throws Exception
+    {
+        boolean progressed = false;
+        while (true)
+        {
+            switch (clientEngine.getHandshakeStatus())
+            {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = clientEngine.getDelegatedTask()) != null)
+                    {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    clientEngine.wrap(ByteBuffer.allocate(0), clientOutput);
+                    break;
+                case NEED_UNWRAP:
+                    _serverOutput.flip();
+                    try
+                    {
+                        if (!_serverOutput.hasRemaining()
+                            || clientEngine.unwrap(_serverOutput, clientApplicationData).getStatus()
+                               == SSLEngineResult.Status.BUFFER_UNDERFLOW)
+                        {
+                            return progressed;
+                        }
+                    }
+                    finally
+                    {
+                        _serverOutput.compact();
+                    }
+                    break;
+                default:
+                    return progressed;
+            }
+            progressed = true;
+        }
+    }
+
+    private long transferToClient(final Collection<QpidByteBuffer> buffers)
+    {
+        long written = 0;
+        for (QpidByteBuffer buffer : buffers)
+        {
+            final int remaining = buffer.remaining();
+            buffer.copyTo(_serverOutput);
+            buffer.position(buffer.position() + remaining);
+            written += remaining;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.server.transport.network.TransportEncryption;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class NonBlockingConnectionTest extends UnitTestBase
+{
+    private static final int FRAME_SIZE = 100;
+    private static final int BUFFER_SIZE = 250;
+
+    @Test
+    public void testSmallFramesCoalescedUpToBufferSize()
+    {
+        final Queue<QpidByteBuffer> queue = createQueue(60, 80, 100, 40, 30);
+
+        final int coalesced = NonBlockingConnection.coalesceSmallBuffers(queue, FRAME_SIZE, BUFFER_SIZE);
+
+        assertEquals("Unexpected number of coalesced frames", 5, coalesced);
+        assertSizes(queue, 240, 70);
+        assertContent(queue, 60, 80, 100, 40, 30);
+    }
+
+    @Test
+    public void testLargeFramesNotCoalesced()
+    {
+        final Queue<QpidByteBuffer> queue = createQueue(10, 20, 500, 30, 101, 40);
+        final List<QpidByteBuffer> original = new ArrayList<>(queue);
+
+        final int coalesced = NonBlockingConnection.coalesceSmallBuffers(queue, FRAME_SIZE, BUFFER_SIZE);
+
+        assertEquals("Unexpected number of coalesced frames", 2, coalesced);
+        assertSizes(queue, 30, 500, 30, 101, 40);
+        final List<QpidByteBuffer> result = new ArrayList<>(queue);
+        for (int i = 1; i < result.size(); i++)
+        {
+            assertSame("Buffer " + i + " should not have been copied", original.get(i + 1), result.get(i));
+        }
+        assertContent(queue, 10, 20, 500, 30, 101, 40);
+    }
+
+    @Test
+    public void testQueueWithoutConsecutiveSmallFramesUnchanged()
+    {
+        final Queue<QpidByteBuffer> queue = createQueue(10, 500, 20, 600);
+        final List<QpidByteBuffer> original = new ArrayList<>(queue);
+
+        final int coalesced = NonBlockingConnection.coalesceSmallBuffers(queue, FRAME_SIZE, BUFFER_SIZE);
+
+        assertEquals("Unexpected number of coalesced frames", 0, coalesced);
+        assertEquals("Queue should be unchanged", original, new ArrayList<>(queue));
+    }
+
+    @Test
+    public void testPartiallyWrittenHeadBuffer()
+    {
+        final Queue<QpidByteBuffer> queue = createQueue(400, 50, 60);
+        final QpidByteBuffer head = queue.peek();
+        head.position(350);
+
+        final int coalesced = NonBlockingConnection.coalesceSmallBuffers(queue, FRAME_SIZE, BUFFER_SIZE);
+
+        assertEquals("Unexpected number of coalesced frames", 3, coalesced);
+        assertSizes(queue, 160);
+
+        final byte[] data = new byte[160];
+        queue.peek().copyTo(data);
+        final byte[] expected = new byte[160];
+        System.arraycopy(createContent(0, 400), 350, expected, 0, 50);
+        System.arraycopy(createContent(400, 50), 0, expected, 50, 50);
+        System.arraycopy(createContent(450, 60), 0, expected, 100, 60);
+        assertArrayEquals("Unexpected content", expected, data);
+    }
+
+    @Test
+    public void testNetworkWriteCounters() throws Exception
+    {
+        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open())
+        {
+            serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SocketChannel client = SocketChannel.open(serverSocketChannel.getLocalAddress());
+                 SocketChannel server = serverSocketChannel.accept())
+            {
+                final AmqpPort<?> port = mock(AmqpPort.class);
+                when(port.getNetworkBufferSize()).thenReturn(64 * 1024);
+                final NonBlockingConnection connection =
+                        new NonBlockingConnection(server,
+                                                  mock(ProtocolEngine.class),
+                                                  EnumSet.of(TransportEncryption.NONE),
+                                                  () -> { },
+                                                  mock(NetworkConnectionScheduler.class),
+                                                  port,
+                                                  FRAME_SIZE,
+                                                  BUFFER_SIZE,
+                                                  null);
+
+                final Queue<QpidByteBuffer> queue = createQueue(10, 20, 30);
+                connection.writeToTransport(Arrays.asList(queue.poll(), queue.poll()));
+                connection.writeToTransport(queue);
+
+                assertEquals("Unexpected number of network writes", 2L, connection.getNetworkWrites());
+                assertEquals("Unexpected number of bytes written", 60L, connection.getNetworkBytesWritten());
+
+                final ByteBuffer received = ByteBuffer.allocate(60);
+                while (received.hasRemaining())
+                {
+                    client.read(received);
+                }
+                assertArrayEquals("Unexpected content", createContent(0, 60), received.array());
+            }
+        }
+    }
+
+    private Queue<QpidByteBuffer> createQueue(final int... sizes)
+    {
+        final Queue<QpidByteBuffer> queue = new ArrayDeque<>();
+        int offset = 0;
+        for (int size : sizes)
+        {
+            queue.add(QpidByteBuffer.wrap(createContent(offset, size)));
+            offset += size;
+        }
+        return queue;
+    }
+
+    private byte[] createContent(final int offset, final int size)
+    {
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) (offset + i);
+        }
+        return content;
+    }
+
+    private void assertSizes(final Queue<QpidByteBuffer> queue, final int... expectedSizes)
+    {
+        final int[] sizes = queue.stream().mapToInt(QpidByteBuffer::remaining).toArray();
+        assertEquals("Unexpected buffer sizes", Arrays.toString(expectedSizes), Arrays.toString(sizes));
+    }
+
+    private void assertContent(final Queue<QpidByteBuffer> queue, final int... frameSizes)
+    {
+        final int totalSize = Arrays.stream(frameSizes).sum();
+        final ByteBuffer content = ByteBuffer.allocate(totalSize);
+        for (QpidByteBuffer buffer : queue)
+        {
+            buffer.copyTo(content);
+        }
+        assertArrayEquals("Unexpected content", createContent(0, totalSize), content.array());
+    }
+}
@@ -140,7 +140,28 @@ public class TCPandSSLTransportTest extends UnitTestBase
 
 
 
+    @Test
+    public void testTLSSupportOnSharedPortWithConnectionsPinnedToThreads() throws Exception
+    {
+        try
+        {
+            checkSSLExcluded("TLSv1.1", true, Transport.TCP, Transport.SSL);
+        }
+        catch(SSLHandshakeException e)
+        {
+            LOGGER.error("Should be able to connect using TLSv1.1", e);
+            fail("Should be able to connect using TLSv1.1");
+        }
+    }
+
     private void checkSSLExcluded(String clientProtocol, final Transport... transports) throws Exception
+    {
+        checkSSLExcluded(clientProtocol, false, transports);
+    }
+
+    private void checkSSLExcluded(String clientProtocol,
+                                  final boolean pinConnections,
+                                  final Transport... transports) throws Exception
     {
         KeyStore keyStore = KeyStore.getInstance("JKS");
         keyStore.load(new ByteArrayInputStream(Base64.getDecoder().decode(keystoreString)), "password".toCharArray());
@@ -164,6 +185,10 @@ public class TCPandSSLTransportTest extends UnitTestBase
         when(port.getSSLContext()).thenReturn(sslContext);
         when(port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT)).thenReturn(1L);
         when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_ACCEPT_BACKLOG)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_ACCEPT_BACKLOG);
+        when(port.getContextValue(Boolean.class, AmqpPort.PORT_AMQP_THREAD_POOL_PIN_CONNECTIONS)).thenReturn(pinConnections);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WRITE_COALESCING_FRAME_SIZE)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_WRITE_COALESCING_FRAME_SIZE);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_WRITE_COALESCING_BUFFER_SIZE);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_TLS_HANDSHAKE_THREADS)).thenReturn(1);
         when(port.getProtocolHandshakeTimeout()).thenReturn(AmqpPort.DEFAULT_PROTOCOL_HANDSHAKE_TIMEOUT);
         ObjectMapper mapper = new ObjectMapper();
         JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, String.class);
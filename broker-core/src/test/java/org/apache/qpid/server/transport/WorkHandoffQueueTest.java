@@ -0,0 +1,161 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class WorkHandoffQueueTest extends UnitTestBase
+{
+    @Test
+    public void testTasksRemovedInOrder()
+    {
+        final WorkHandoffQueue queue = new WorkHandoffQueue();
+        final Runnable task1 = () -> {};
+        final Runnable task2 = () -> {};
+        queue.add(task1);
+        queue.add(task2);
+
+        assertEquals("Unexpected size", 2, queue.size());
+        assertSame("Unexpected first task", task1, queue.poll());
+        assertSame("Unexpected second task", task2, queue.poll());
+        assertNull("Queue should be empty", queue.poll());
+        assertEquals("Unexpected size", 0, queue.size());
+        assertTrue("Queue should be empty", queue.isEmpty());
+    }
+
+    @Test
+    public void testTakeWaitsForTask() throws Exception
+    {
+        final WorkHandoffQueue queue = new WorkHandoffQueue();
+        final AtomicReference<Runnable> taken = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread consumer = new Thread(() ->
+                                          {
+                                              try
+                                              {
+                                                  taken.set(queue.take());
+                                              }
+                                              catch (InterruptedException e)
+                                              {
+                                                  Thread.currentThread().interrupt();
+                                              }
+                                              finally
+                                              {
+                                                  done.countDown();
+                                              }
+                                          });
+        consumer.setDaemon(true);
+        consumer.start();
+
+        final Runnable task = () -> {};
+        queue.add(task);
+
+        assertTrue("Consumer did not take task", done.await(5, TimeUnit.SECONDS));
+        assertSame("Unexpected task", task, taken.get());
+    }
+
+    @Test
+    public void testTakeInterrupted() throws Exception
+    {
+        final WorkHandoffQueue queue = new WorkHandoffQueue();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Thread consumer = new Thread(() ->
+                                          {
+                                              try
+                                              {
+                                                  queue.take();
+                                              }
+                                              catch (InterruptedException e)
+                                              {
+                                                  interrupted.countDown();
+                                              }
+                                          });
+        consumer.setDaemon(true);
+        consumer.start();
+        consumer.interrupt();
+
+        assertTrue("Consumer was not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoTaskLostBetweenManyProducersAndConsumers() throws Exception
+    {
+        final WorkHandoffQueue queue = new WorkHandoffQueue();
+        final int numberOfProducers = 4;
+        final int numberOfConsumers = 4;
+        final int tasksPerProducer = 10000;
+        final AtomicInteger executed = new AtomicInteger();
+        final CountDownLatch allExecuted = new CountDownLatch(numberOfProducers * tasksPerProducer);
+        final Runnable task = () ->
+        {
+            executed.incrementAndGet();
+            allExecuted.countDown();
+        };
+
+        for (int i = 0; i < numberOfConsumers; i++)
+        {
+            final Thread consumer = new Thread(() ->
+                                              {
+                                                  try
+                                                  {
+                                                      while (true)
+                                                      {
+                                                          queue.take().run();
+                                                      }
+                                                  }
+                                                  catch (InterruptedException e)
+                                                  {
+                                                      Thread.currentThread().interrupt();
+                                                  }
+                                              });
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        for (int i = 0; i < numberOfProducers; i++)
+        {
+            final Thread producer = new Thread(() ->
+                                              {
+                                                  for (int j = 0; j < tasksPerProducer; j++)
+                                                  {
+                                                      queue.add(task);
+                                                  }
+                                              });
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        assertTrue("Not all tasks were executed", allExecuted.await(20, TimeUnit.SECONDS));
+        assertEquals("Unexpected number of executed tasks", numberOfProducers * tasksPerProducer, executed.get());
+        assertEquals("Unexpected size", 0, queue.size());
+    }
+}
@@ -18,9 +18,12 @@
  */
 package org.apache.qpid.server.txn;
 
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -150,4 +153,72 @@ public class AsyncAutoCommitTransactionTest extends UnitTestBase
         verify(_futureRecorder).recordFuture(any(ListenableFuture.class), any(Action.class));
         verifyZeroInteractions(_postTransactionAction);
     }
+
+    @Test
+    public void testBatchedPersistentEnqueuesShareStoreTransaction() throws Exception
+    {
+        setTestSystemProperty(STRICT_ORDER_SYSTEM_PROPERTY, "false");
+
+        when(_message.isPersistent()).thenReturn(true);
+        when(_future.isDone()).thenReturn(true);
+
+        AsyncAutoCommitTransaction asyncAutoCommitTransaction =
+                new AsyncAutoCommitTransaction(_messageStore, _futureRecorder);
+
+        asyncAutoCommitTransaction.startBatch();
+        asyncAutoCommitTransaction.enqueue(_queue, _message, _postTransactionAction);
+        asyncAutoCommitTransaction.enqueue(Collections.singletonList(_queue), _message, _postTransactionAction);
+
+        verify(_messageStore, times(1)).newTransaction();
+        verify(_storeTransaction, times(2)).enqueueMessage(_queue, _message);
+        verify(_storeTransaction, never()).commitTranAsync((Void) null);
+        verifyZeroInteractions(_futureRecorder);
+
+        asyncAutoCommitTransaction.completeBatch();
+
+        verify(_storeTransaction, times(1)).commitTranAsync((Void) null);
+        verify(_futureRecorder, times(1)).recordFuture(eq(_future), any(Action.class));
+        verifyZeroInteractions(_postTransactionAction);
+    }
+
+    @Test
+    public void testBatchedTransientEnqueuesPostCommitCalledOnCompletion() throws Exception
+    {
+        setTestSystemProperty(STRICT_ORDER_SYSTEM_PROPERTY, "false");
+
+        when(_message.isPersistent()).thenReturn(false);
+
+        AsyncAutoCommitTransaction asyncAutoCommitTransaction =
+                new AsyncAutoCommitTransaction(_messageStore, _futureRecorder);
+
+        asyncAutoCommitTransaction.startBatch();
+        asyncAutoCommitTransaction.enqueue(_queue, _message, _postTransactionAction);
+        asyncAutoCommitTransaction.enqueue(_queue, _message, _postTransactionAction);
+
+        verifyZeroInteractions(_postTransactionAction);
+
+        asyncAutoCommitTransaction.completeBatch();
+
+        verifyZeroInteractions(_storeTransaction);
+        verify(_postTransactionAction, times(2)).postCommit((MessageEnqueueRecord) null);
+        verifyZeroInteractions(_futureRecorder);
+    }
+
+    @Test
+    public void testBatchCannotBeStartedTwice() throws Exception
+    {
+        AsyncAutoCommitTransaction asyncAutoCommitTransaction =
+                new AsyncAutoCommitTransaction(_messageStore, _futureRecorder);
+
+        asyncAutoCommitTransaction.startBatch();
+        try
+        {
+            asyncAutoCommitTransaction.startBatch();
+            fail("Exception not thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            // pass
+        }
+    }
 }
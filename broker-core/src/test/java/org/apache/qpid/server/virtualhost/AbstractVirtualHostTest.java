@@ -215,6 +215,37 @@ public class AbstractVirtualHostTest extends UnitTestBase
         host.close();
     }
 
+    @Test
+    public void testInMemoryMessageSizeIncludesContentCache()
+    {
+        Map<String,Object> attributes = Collections.<String, Object>singletonMap(AbstractVirtualHost.NAME, getTestName());
+        final MessageStore store = mock(MessageStore.class);
+        when(store.newMessageStoreReader()).thenReturn(mock(MessageStore.MessageStoreReader.class));
+        when(store.getInMemorySize()).thenReturn(1000L);
+        when(store.getContentCacheSize()).thenReturn(200L);
+
+        AbstractVirtualHost host = new AbstractVirtualHost(attributes, _node)
+        {
+            @Override
+            protected MessageStore createMessageStore()
+            {
+                return store;
+            }
+        };
+
+        host.open();
+        try
+        {
+            assertEquals("Unexpected in-memory message size", 1200L, host.getInMemoryMessageSize());
+            host.setTargetSize(1100L);
+            assertTrue("Host should be over its target size", host.isOverTargetSize());
+        }
+        finally
+        {
+            host.close();
+        }
+    }
+
     @Test
     public void testDeleteInErrorStateAfterOpen() throws Exception
     {
@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.QueueEntry;
+import org.apache.qpid.server.queue.QueueEntryIterator;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class FlowToDiskEvictorTest extends UnitTestBase
+{
+    private static final int MESSAGE_SIZE = 100;
+
+    @Test
+    public void testNothingEvictedWhenUnderTargetSize()
+    {
+        final List<TestStoredMessage> messages = createMessages(10);
+        final Queue<?> queue = createQueue(0, messages);
+
+        final FlowToDiskEvictor evictor = new FlowToDiskEvictor(1000);
+        evictor.evict(Collections.singletonList(queue), 2000, 1000);
+
+        assertEquals("Unexpected number of evicted messages", 0L, evictor.getEvictedMessages());
+        assertEquals("Unexpected number of visited entries", 0L, evictor.getVisitedEntries());
+    }
+
+    @Test
+    public void testQueueWithoutConsumersEvictedBeforeQueueWithConsumers()
+    {
+        final List<TestStoredMessage> consumedMessages = createMessages(10);
+        final List<TestStoredMessage> unconsumedMessages = createMessages(10);
+        final Queue<?> consumedQueue = createQueue(1, consumedMessages);
+        final Queue<?> unconsumedQueue = createQueue(0, unconsumedMessages);
+
+        final FlowToDiskEvictor evictor = new FlowToDiskEvictor(1000);
+        evictor.evict(Arrays.asList(consumedQueue, unconsumedQueue), 1500, 2000);
+
+        assertEquals("Unexpected number of evicted messages", 5L, evictor.getEvictedMessages());
+        assertEquals("Unexpected number of evicted bytes", 5L * MESSAGE_SIZE, evictor.getEvictedBytes());
+        for (int i = 0; i < 5; i++)
+        {
+            assertFalse("Message " + i + " of queue without consumers should be evicted",
+                        unconsumedMessages.get(i).isInMemory());
+        }
+        for (TestStoredMessage message : consumedMessages)
+        {
+            assertTrue("Message of queue with consumers should not be evicted", message.isInMemory());
+        }
+    }
+
+    @Test
+    public void testHeadOfQueueWithConsumersRetained()
+    {
+        final List<TestStoredMessage> messages = createMessages(10);
+        final Queue<?> queue = createQueue(1, messages);
+
+        final FlowToDiskEvictor evictor = new FlowToDiskEvictor(1000);
+        evictor.evict(Collections.singletonList(queue), 300, 1000);
+
+        assertEquals("Unexpected number of evicted messages", 7L, evictor.getEvictedMessages());
+        for (int i = 0; i < messages.size(); i++)
+        {
+            assertEquals("Unexpected in-memory state of message " + i, i < 3, messages.get(i).isInMemory());
+        }
+    }
+
+    @Test
+    public void testCheckResumesFromPreviousPosition()
+    {
+        final List<TestStoredMessage> messages = createMessages(10);
+        final Queue<?> queue = createQueue(0, messages);
+
+        final FlowToDiskEvictor evictor = new FlowToDiskEvictor(4);
+        evictor.evict(Collections.singletonList(queue), 0, 1000);
+
+        assertEquals("Unexpected number of visited entries", 4L, evictor.getVisitedEntries());
+        assertEquals("Unexpected number of evicted messages", 4L, evictor.getEvictedMessages());
+        assertTrue("Message beyond budget should not be evicted", messages.get(4).isInMemory());
+
+        evictor.evict(Collections.singletonList(queue), 0, 600);
+
+        assertEquals("Unexpected number of visited entries", 8L, evictor.getVisitedEntries());
+        assertEquals("Unexpected number of evicted messages", 8L, evictor.getEvictedMessages());
+        for (int i = 0; i < 8; i++)
+        {
+            assertFalse("Message " + i + " should be evicted", messages.get(i).isInMemory());
+        }
+        assertTrue("Message beyond budget should not be evicted", messages.get(8).isInMemory());
+    }
+
+    private List<TestStoredMessage> createMessages(final int count)
+    {
+        final List<TestStoredMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            messages.add(new TestStoredMessage());
+        }
+        return messages;
+    }
+
+    private Queue<?> createQueue(final int consumerCount, final List<TestStoredMessage> messages)
+    {
+        final Queue<?> queue = mock(Queue.class);
+        when(queue.getConsumerCount()).thenReturn(consumerCount);
+        when(queue.getQueueDepthBytes()).thenReturn((long) messages.size() * MESSAGE_SIZE);
+
+        final List<QueueEntry> entries = new ArrayList<>();
+        for (TestStoredMessage message : messages)
+        {
+            entries.add(message.getQueueEntry());
+        }
+        when(queue.queueEntryIterator()).thenAnswer(invocation -> new ListQueueEntryIterator(entries));
+        return queue;
+    }
+
+    private static class ListQueueEntryIterator implements QueueEntryIterator
+    {
+        private final List<QueueEntry> _entries;
+        private int _position = -1;
+
+        private ListQueueEntryIterator(final List<QueueEntry> entries)
+        {
+            _entries = entries;
+        }
+
+        @Override
+        public boolean atTail()
+        {
+            return _position >= _entries.size() - 1;
+        }
+
+        @Override
+        public QueueEntry getNode()
+        {
+            return _position < 0 ? null : _entries.get(_position);
+        }
+
+        @Override
+        public boolean advance()
+        {
+            if (atTail())
+            {
+                return false;
+            }
+            _position++;
+            return true;
+        }
+    }
+
+    private static class TestStoredMessage
+    {
+        private final StoredMessage _storedMessage = mock(StoredMessage.class);
+        private final QueueEntry _queueEntry = mock(QueueEntry.class);
+        private boolean _inMemory = true;
+
+        @SuppressWarnings("unchecked")
+        private TestStoredMessage()
+        {
+            final ServerMessage message = mock(ServerMessage.class);
+            final MessageReference reference = mock(MessageReference.class);
+            when(reference.getMessage()).thenReturn(message);
+            when(message.newReference()).thenReturn(reference);
+            when(message.getStoredMessage()).thenReturn(_storedMessage);
+            when(_queueEntry.getMessage()).thenReturn(message);
+            when(_storedMessage.getContentSize()).thenReturn(MESSAGE_SIZE);
+            when(_storedMessage.getMetadataSize()).thenReturn(0);
+            when(_storedMessage.isInMemory()).thenAnswer(invocation -> _inMemory);
+            when(_storedMessage.flowToDisk()).thenAnswer(invocation ->
+                                                         {
+                                                             _inMemory = false;
+                                                             return true;
+                                                         });
+        }
+
+        QueueEntry getQueueEntry()
+        {
+            return _queueEntry;
+        }
+
+        boolean isInMemory()
+        {
+            return _inMemory;
+        }
+    }
+}
@@ -65,6 +65,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import javax.security.auth.Subject;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,7 +79,8 @@ import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstanceConsumer;
-import org.apache.qpid.server.message.RoutingResult;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.RoutingBatch;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.model.Queue;
@@ -99,6 +102,7 @@ import org.apache.qpid.server.txn.SuspendAndFailDtxException;
 import org.apache.qpid.server.txn.TimeoutDtxException;
 import org.apache.qpid.server.txn.UnknownDtxBranchException;
 import org.apache.qpid.server.util.Action;
+import org.apache.qpid.server.virtualhost.VirtualHostUnavailableException;
 
 public class ServerSession extends SessionInvoker
         implements LogSubject, AsyncAutoCommitTransaction.FutureRecorder
@@ -109,9 +113,23 @@ public class ServerSession extends SessionInvoker
     private static final String NULL_DESTINATION = UUID.randomUUID().toString();
     private static final int PRODUCER_CREDIT_TOPUP_THRESHOLD = 1 << 30;
     private static final int UNFINISHED_COMMAND_QUEUE_THRESHOLD = 500;
+    // a routed transfer is marked as processed by the command recorded once its enqueues are committed
+    private static final ServerTransaction.Action NO_OP_ACTION = new ServerTransaction.Action()
+    {
+        @Override
+        public void postCommit()
+        {
+        }
+
+        @Override
+        public void onRollback()
+        {
+        }
+    };
 
     private final Set<Object> _blockingEntities = Collections.synchronizedSet(new HashSet<>());
     private final Deque<AsyncCommand> _unfinishedCommandsQueue = new ConcurrentLinkedDeque<>();
+    private final List<PendingTransfer> _pendingTransfers = new ArrayList<>();
 
     private final AtomicBoolean _blocking = new AtomicBoolean(false);
     private final AtomicInteger _outstandingCredit = new AtomicInteger(UNLIMITED_CREDIT);
@@ -123,6 +141,7 @@ public class ServerSession extends SessionInvoker
     private Session_0_10 _modelObject;
     private long _blockTime;
     private long _blockingTimeout;
+    private final int _publishBatchLimit;
     private boolean _wireBlockingState;
     private ServerConnection connection;
     private Binary name;
@@ -169,6 +188,8 @@ public class ServerSession extends SessionInvoker
         _transaction = new AsyncAutoCommitTransaction(this.getMessageStore(),this);
 
         _blockingTimeout = connection.getBroker().getContextValue(Long.class, Broker.CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT);
+        _publishBatchLimit = connection.getAmqpConnection().getContextValue(Integer.class,
+                                                                            org.apache.qpid.server.model.Connection.PUBLISH_BATCH_LIMIT);
     }
 
     public Binary getName()
@@ -507,6 +528,11 @@ public class ServerSession extends SessionInvoker
 
     void received(Method m)
     {
+        if (!(m instanceof MessageTransfer))
+        {
+            // messages transferred earlier must be routed before any other command or control is processed
+            routePendingTransfers();
+        }
         m.delegate(this, delegate);
     }
 
@@ -952,9 +978,17 @@ public class ServerSession extends SessionInvoker
         return isCommandsFull(id);
     }
 
-    RoutingResult<MessageTransferMessage> enqueue(final MessageTransferMessage message,
-                final InstanceProperties instanceProperties,
-                final MessageDestination exchange)
+    /**
+     * Accepts a transferred message for routing, taking ownership of the given reference. The message is routed once
+     * the pending transfers reach the publish batch limit, before the next command other than a transfer is
+     * processed, before commands are awaited, or at the end of the network read in which it was received. Until then
+     * an unfinished command is recorded for the transfer so that it is not reported as processed before it has been
+     * routed and enqueued.
+     */
+    void enqueue(final MessageTransfer xfr,
+                 final MessageReference<MessageTransferMessage> reference,
+                 final InstanceProperties instanceProperties,
+                 final MessageDestination destination)
     {
         if(_outstandingCredit.get() != UNLIMITED_CREDIT
                 && _outstandingCredit.decrementAndGet() == (Integer.MAX_VALUE - PRODUCER_CREDIT_TOPUP_THRESHOLD))
@@ -962,17 +996,99 @@ public class ServerSession extends SessionInvoker
             _outstandingCredit.addAndGet(PRODUCER_CREDIT_TOPUP_THRESHOLD);
             invoke(new MessageFlow("",MessageCreditUnit.MESSAGE, PRODUCER_CREDIT_TOPUP_THRESHOLD));
         }
-        // locally cache arrival time to ensure that we don't reload metadata
-        final long arrivalTime = message.getArrivalTime();
-        final RoutingResult<MessageTransferMessage> result =
-                exchange.route(message, message.getInitialRoutingAddress(), instanceProperties);
-        result.send(_transaction, null);
-        getAMQPConnection().registerMessageReceived(message.getSize());
-        if (isTransactional())
+        final PendingTransfer transfer = new PendingTransfer(xfr, reference, instanceProperties, destination);
+        _pendingTransfers.add(transfer);
+        recordFuture(transfer.getRoutedFuture(), NO_OP_ACTION);
+        if (_pendingTransfers.size() >= _publishBatchLimit)
+        {
+            routePendingTransfers();
+        }
+    }
+
+    /**
+     * Routes and enqueues the transferred messages which have not yet been routed. Consecutive messages transferred
+     * to the same destination are routed as a batch. Messages which have not been enqueued by the time the session
+     * or connection starts closing are discarded.
+     */
+    void routePendingTransfers()
+    {
+        if (_pendingTransfers.isEmpty())
+        {
+            return;
+        }
+
+        final List<PendingTransfer> transfers = new ArrayList<>(_pendingTransfers);
+        _pendingTransfers.clear();
+        try
+        {
+            int start = 0;
+            while (start < transfers.size() && !isClosing())
+            {
+                final MessageDestination destination = transfers.get(start).getDestination();
+                int end = start + 1;
+                while (end < transfers.size() && transfers.get(end).getDestination() == destination)
+                {
+                    end++;
+                }
+                routeTransfers(destination, transfers.subList(start, end));
+                start = end;
+            }
+        }
+        catch (VirtualHostUnavailableException e)
+        {
+            getConnection().sendConnectionCloseAsync(ConnectionCloseCode.CONNECTION_FORCED, e.getMessage());
+        }
+        finally
+        {
+            for (PendingTransfer transfer : transfers)
+            {
+                transfer.release();
+            }
+        }
+    }
+
+    private void discardPendingTransfers()
+    {
+        for (PendingTransfer transfer : _pendingTransfers)
         {
-            getAMQPConnection().registerTransactedMessageReceived();
+            transfer.release();
         }
-        return result;
+        _pendingTransfers.clear();
+    }
+
+    private void routeTransfers(final MessageDestination destination, final List<PendingTransfer> transfers)
+    {
+        final RoutingBatch<MessageTransferMessage> batch = new RoutingBatch<>();
+        for (PendingTransfer transfer : transfers)
+        {
+            final MessageTransferMessage message = transfer.getMessage();
+            batch.add(message, message.getInitialRoutingAddress(), transfer.getInstanceProperties());
+        }
+
+        if (batch.size() == 1)
+        {
+            batch.setResult(0, destination.route(batch.getMessage(0),
+                                                 batch.getRoutingAddress(0),
+                                                 batch.getInstanceProperties(0)));
+        }
+        else
+        {
+            destination.route(batch);
+        }
+
+        batch.send(_transaction,
+                   i -> null,
+                   (i, enqueues) ->
+                   {
+                       getAMQPConnection().registerMessageReceived(batch.getMessage(i).getSize());
+                       if (isTransactional())
+                       {
+                           getAMQPConnection().registerTransactedMessageReceived();
+                       }
+                       delegate.processRoutingResult(this, transfers.get(i), batch.getResult(i));
+                       // the remaining messages are discarded once the session or connection starts closing
+                       return !isClosing();
+                   });
     }
 
     public void sendMessage(MessageTransfer xfr,
@@ -1139,6 +1255,7 @@ public class ServerSession extends SessionInvoker
 
     public void onClose()
     {
+        discardPendingTransfers();
         AMQPConnection_0_10 amqpConnection = getAMQPConnection();
         if(_transaction instanceof LocalTransaction)
         {
@@ -1599,6 +1716,7 @@ public class ServerSession extends SessionInvoker
     {
         runAsSubject(() ->
         {
+            routePendingTransfers();
             final Collection<ConsumerTarget_0_10> subscriptions = getSubscriptions();
             for (ConsumerTarget_0_10 subscription_0_10 : subscriptions)
             {
@@ -1621,15 +1739,21 @@ public class ServerSession extends SessionInvoker
 
     public void completeAsyncCommands()
     {
+        if (_unfinishedCommandsQueue.size() > UNFINISHED_COMMAND_QUEUE_THRESHOLD)
+        {
+            // the commands of pending transfers can only be completed once the transfers are routed
+            routePendingTransfers();
+        }
         AsyncCommand cmd;
         while((cmd = _unfinishedCommandsQueue.peek()) != null && cmd.isReadyForCompletion())
         {
             cmd.complete();
             _unfinishedCommandsQueue.poll();
         }
-        while(_unfinishedCommandsQueue.size() > UNFINISHED_COMMAND_QUEUE_THRESHOLD)
+        while(_unfinishedCommandsQueue.size() > UNFINISHED_COMMAND_QUEUE_THRESHOLD
+              && mayAwait(cmd = _unfinishedCommandsQueue.peek()))
         {
-            cmd = _unfinishedCommandsQueue.poll();
+            _unfinishedCommandsQueue.poll();
             cmd.complete();
         }
     }
@@ -1637,13 +1761,20 @@ public class ServerSession extends SessionInvoker
 
     public void awaitCommandCompletion()
     {
+        routePendingTransfers();
         AsyncCommand cmd;
-        while((cmd = _unfinishedCommandsQueue.poll()) != null)
+        while((cmd = _unfinishedCommandsQueue.peek()) != null && mayAwait(cmd))
         {
+            _unfinishedCommandsQueue.poll();
             cmd.complete();
         }
     }
 
+    private boolean mayAwait(final AsyncCommand cmd)
+    {
+        return !(cmd instanceof BackgroundCommand) || cmd.isReadyForCompletion();
+    }
+
 
     public Object getAsyncCommandMark()
     {
@@ -1656,6 +1787,26 @@ public class ServerSession extends SessionInvoker
         _unfinishedCommandsQueue.add(new AsyncCommand(future, action));
     }
 
+    /**
+     * Records a command completing with a future which may take arbitrarily long (such as a queue purge). The IO
+     * thread never waits for such a command: it, and the commands following it, are completed once the future is
+     * done, even if one of them was sent with the sync flag.
+     */
+    void recordBackgroundFuture(final ListenableFuture<Void> future, final ServerTransaction.Action action)
+    {
+        _unfinishedCommandsQueue.add(new BackgroundCommand(future, action));
+        future.addListener(() -> getAMQPConnection().doOnIOThreadAsync(this::completeBackgroundCommand),
+                           MoreExecutors.directExecutor());
+    }
+
+    private void completeBackgroundCommand()
+    {
+        if (!isClosing())
+        {
+            completeAsyncCommands();
+        }
+    }
+
     public void setModelObject(final Session_0_10 session)
     {
         _modelObject = session;
@@ -1760,6 +1911,70 @@ public class ServerSession extends SessionInvoker
 
     }
 
+    private static final class BackgroundCommand extends AsyncCommand
+    {
+        private BackgroundCommand(final ListenableFuture<Void> future, final ServerTransaction.Action action)
+        {
+            super(future, action);
+        }
+    }
+
+    static final class PendingTransfer
+    {
+        private final MessageTransfer _transfer;
+        private final MessageReference<MessageTransferMessage> _reference;
+        private final InstanceProperties _instanceProperties;
+        private final MessageDestination _destination;
+        private final SettableFuture<Void> _routedFuture = SettableFuture.create();
+
+        private PendingTransfer(final MessageTransfer transfer,
+                                final MessageReference<MessageTransferMessage> reference,
+                                final InstanceProperties instanceProperties,
+                                final MessageDestination destination)
+        {
+            _transfer = transfer;
+            _reference = reference;
+            _instanceProperties = instanceProperties;
+            _destination = destination;
+        }
+
+        MessageTransfer getTransfer()
+        {
+            return _transfer;
+        }
+
+        MessageReference<MessageTransferMessage> getReference()
+        {
+            return _reference;
+        }
+
+        MessageTransferMessage getMessage()
+        {
+            return _reference.getMessage();
+        }
+
+        InstanceProperties getInstanceProperties()
+        {
+            return _instanceProperties;
+        }
+
+        MessageDestination getDestination()
+        {
+            return _destination;
+        }
+
+        ListenableFuture<Void> getRoutedFuture()
+        {
+            return _routedFuture;
+        }
+
+        private void release()
+        {
+            _reference.release();
+            _routedFuture.set(null);
+        }
+    }
+
     public static org.apache.qpid.server.txn.Xid toDtxXid(final Xid xid)
     {
         return new org.apache.qpid.server.txn.Xid(xid.getFormat(),
@@ -32,7 +32,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -422,6 +425,7 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
         {
             if(ssn.blockingTimeoutExceeded())
             {
+                ssn.routePendingTransfers();
                 getEventLogger(ssn).message(ChannelMessages.FLOW_CONTROL_IGNORED());
 
                 ssn.close(ErrorCodes.MESSAGE_TOO_LARGE,
@@ -429,6 +433,7 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
             }
             else if(xfr.getBodySize() > ssn.getConnection().getMaxMessageSize())
             {
+                ssn.routePendingTransfers();
                 exception(ssn, xfr, ExecutionErrorCode.RESOURCE_LIMIT_EXCEEDED,
                           "Message size of " + xfr.getBodySize() + " greater than allowed maximum of " + ssn.getConnection().getMaxMessageSize());
             }
@@ -455,6 +460,7 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
                 }
                 catch (AccessControlException e)
                 {
+                    ssn.routePendingTransfers();
                     ExecutionErrorCode errorCode = ExecutionErrorCode.UNAUTHORIZED_ACCESS;
                     exception(ssn, xfr, errorCode, e.getMessage());
 
@@ -465,88 +471,31 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
                 final StoredMessage<MessageMetaData_0_10> storeMessage = createStoreMessage(xfr, messageMetaData, store);
                 final MessageTransferMessage message =
                         new MessageTransferMessage(storeMessage, ssn.getReference());
-                MessageReference<MessageTransferMessage> reference = message.newReference();
-
-                try
+                final MessageReference<MessageTransferMessage> reference = message.newReference();
+                final InstanceProperties instanceProperties = new InstanceProperties()
                 {
-                    final InstanceProperties instanceProperties = new InstanceProperties()
-                    {
-                        @Override
-                        public Object getProperty(final Property prop)
-                        {
-                            switch (prop)
-                            {
-                                case EXPIRATION:
-                                    return message.getExpiration();
-                                case IMMEDIATE:
-                                    return message.isImmediate();
-                                case MANDATORY:
-                                    return (delvProps == null || !delvProps.getDiscardUnroutable())
-                                           && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT;
-                                case PERSISTENT:
-                                    return message.isPersistent();
-                                case REDELIVERED:
-                                    return delvProps.getRedelivered();
-                            }
-                            return null;
-                        }
-                    };
-
-                    RoutingResult<MessageTransferMessage> routingResult = ssn.enqueue(message, instanceProperties, destination);
-
-                    boolean explictlyRejected = routingResult.containsReject(RejectType.LIMIT_EXCEEDED);
-                    if (!routingResult.hasRoutes() || explictlyRejected)
+                    @Override
+                    public Object getProperty(final Property prop)
                     {
-                        boolean closeWhenNoRoute = ssn.getAMQPConnection().getPort().getCloseWhenNoRoute();
-                        boolean discardUnroutable = delvProps != null && delvProps.getDiscardUnroutable();
-                        if (!discardUnroutable && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT)
+                        switch (prop)
                         {
-                            RangeSet rejects = RangeSetFactory.createRangeSet();
-                            rejects.add(xfr.getId());
-                            MessageReject reject = new MessageReject(rejects, MessageRejectCode.UNROUTABLE, "Unroutable");
-                            ssn.invoke(reject);
-                        }
-                        else if (!discardUnroutable && closeWhenNoRoute && explictlyRejected)
-                        {
-                            ExecutionErrorCode code = ExecutionErrorCode.RESOURCE_LIMIT_EXCEEDED;
-                            String errorMessage = String.format("No route for message with destination '%s' and routing key '%s' : %s",
-                                                                xfr.getDestination(),
-                                                                message.getInitialRoutingAddress(),
-                                                                routingResult.getRejectReason());
-
-                            ExecutionException ex = new ExecutionException();
-                            ex.setErrorCode(code);
-                            ex.setDescription(errorMessage);
-                            ssn.invoke(ex);
-                            ssn.close(ErrorCodes.RESOURCE_ERROR, errorMessage);
-                            return;
-                        }
-                        else
-                        {
-                            getEventLogger(ssn).message(ExchangeMessages.DISCARDMSG(destination.getName(),
-                                                                                    messageMetaData.getRoutingKey()));
+                            case EXPIRATION:
+                                return message.getExpiration();
+                            case IMMEDIATE:
+                                return message.isImmediate();
+                            case MANDATORY:
+                                return (delvProps == null || !delvProps.getDiscardUnroutable())
+                                       && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT;
+                            case PERSISTENT:
+                                return message.isPersistent();
+                            case REDELIVERED:
+                                return delvProps.getRedelivered();
                         }
+                        return null;
                     }
+                };
 
-                    // TODO: we currently do not send MessageAccept when AcceptMode is EXPLICIT
-                    if (ssn.isTransactional())
-                    {
-                        ssn.processed(xfr);
-                    }
-                    else
-                    {
-                        ssn.recordFuture(Futures.immediateFuture(null),
-                                         new CommandProcessedAction(ssn, xfr));
-                    }
-                }
-                catch (VirtualHostUnavailableException e)
-                {
-                    getServerConnection(ssn).sendConnectionCloseAsync(ConnectionCloseCode.CONNECTION_FORCED, e.getMessage());
-                }
-                finally
-                {
-                    reference.release();
-                }
+                ssn.enqueue(xfr, reference, instanceProperties, destination);
             }
         }
         finally
@@ -555,6 +504,64 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
         }
     }
 
+    void processRoutingResult(final ServerSession ssn,
+                              final ServerSession.PendingTransfer transfer,
+                              final RoutingResult<MessageTransferMessage> routingResult)
+    {
+        final MessageTransfer xfr = transfer.getTransfer();
+        final MessageTransferMessage message = transfer.getMessage();
+        final MessageDestination destination = transfer.getDestination();
+        final DeliveryProperties delvProps =
+                xfr.getHeader() == null ? null : xfr.getHeader().getDeliveryProperties();
+
+        boolean explictlyRejected = routingResult.containsReject(RejectType.LIMIT_EXCEEDED);
+        if (!routingResult.hasRoutes() || explictlyRejected)
+        {
+            boolean closeWhenNoRoute = ssn.getAMQPConnection().getPort().getCloseWhenNoRoute();
+            boolean discardUnroutable = delvProps != null && delvProps.getDiscardUnroutable();
+            if (!discardUnroutable && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT)
+            {
+                RangeSet rejects = RangeSetFactory.createRangeSet();
+                rejects.add(xfr.getId());
+                MessageReject reject = new MessageReject(rejects, MessageRejectCode.UNROUTABLE, "Unroutable");
+                ssn.invoke(reject);
+            }
+            else if (!discardUnroutable && closeWhenNoRoute && explictlyRejected)
+            {
+                ExecutionErrorCode code = ExecutionErrorCode.RESOURCE_LIMIT_EXCEEDED;
+                String errorMessage = String.format("No route for message with destination '%s' and routing key '%s' : %s",
+                                                    xfr.getDestination(),
+                                                    message.getInitialRoutingAddress(),
+                                                    routingResult.getRejectReason());
+
+                ExecutionException ex = new ExecutionException();
+                ex.setErrorCode(code);
+                ex.setDescription(errorMessage);
+                ssn.invoke(ex);
+                ssn.close(ErrorCodes.RESOURCE_ERROR, errorMessage);
+                return;
+            }
+            else
+            {
+                getEventLogger(ssn).message(ExchangeMessages.DISCARDMSG(destination.getName(),
+                                                                        delvProps == null
+                                                                                ? null
+                                                                                : delvProps.getRoutingKey()));
+            }
+        }
+
+        // TODO: we currently do not send MessageAccept when AcceptMode is EXPLICIT
+        if (ssn.isTransactional())
+        {
+            ssn.processed(xfr);
+        }
+        else
+        {
+            ssn.recordFuture(Futures.immediateFuture(null),
+                             new CommandProcessedAction(ssn, xfr));
+        }
+    }
+
     private StoredMessage<MessageMetaData_0_10> createStoreMessage(final MessageTransfer xfr,
                                                                    final MessageMetaData_0_10 messageMetaData, final MessageStore store)
     {
@@ -1695,7 +1702,11 @@ public class ServerSessionDelegate extends MethodDelegate<ServerSession> impleme
             {
                 try
                 {
-                    queue.clearQueue();
+                    final ListenableFuture<Void> purged =
+                            Futures.transform(queue.clearQueueAsync(),
+                                              (Function<Long, Void>) count -> null,
+                                              MoreExecutors.directExecutor());
+                    session.recordBackgroundFuture(purged, new CommandProcessedAction(session, method));
                 }
                 catch (AccessControlException e)
                 {
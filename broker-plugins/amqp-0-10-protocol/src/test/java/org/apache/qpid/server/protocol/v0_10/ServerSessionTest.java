@@ -21,16 +21,22 @@ package org.apache.qpid.server.protocol.v0_10;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.security.auth.Subject;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,16 +50,24 @@ import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.BrokerModel;
 import org.apache.qpid.server.model.BrokerTestHelper;
 import org.apache.qpid.server.model.Connection;
+import org.apache.qpid.server.model.OverflowPolicy;
 import org.apache.qpid.server.model.Port;
+import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.Session;
 import org.apache.qpid.server.model.Transport;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.model.port.AmqpPort;
 import org.apache.qpid.server.protocol.v0_10.transport.Binary;
+import org.apache.qpid.server.protocol.v0_10.transport.DeliveryProperties;
 import org.apache.qpid.server.protocol.v0_10.transport.ExecutionErrorCode;
 import org.apache.qpid.server.protocol.v0_10.transport.ExecutionException;
+import org.apache.qpid.server.protocol.v0_10.transport.Header;
+import org.apache.qpid.server.protocol.v0_10.transport.MessageProperties;
 import org.apache.qpid.server.protocol.v0_10.transport.MessageTransfer;
 import org.apache.qpid.server.protocol.v0_10.transport.Method;
+import org.apache.qpid.server.protocol.v0_10.transport.QueuePurge;
+import org.apache.qpid.server.protocol.v0_10.transport.SessionCompleted;
+import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.test.utils.UnitTestBase;
 
 public class ServerSessionTest extends UnitTestBase
@@ -99,12 +113,186 @@ public class ServerSessionTest extends UnitTestBase
 
     @Test
     public void testOverlargeMessageTest() throws Exception
+    {
+        final List<Method> invokedMethods = new ArrayList<>();
+        ServerSession session = createSession(createMockPort(), invokedMethods);
+        ServerSessionDelegate delegate = new ServerSessionDelegate();
+
+        MessageTransfer xfr = new MessageTransfer();
+        byte[] body1 = new byte[2048];
+        xfr.setBody(QpidByteBuffer.wrap(body1));
+        delegate.messageTransfer(session, xfr);
+
+        assertFalse("No methods invoked - expecting at least 1", invokedMethods.isEmpty());
+        Method firstInvoked = invokedMethods.get(0);
+        final boolean condition = firstInvoked instanceof ExecutionException;
+        assertTrue("First invoked method not execution error", condition);
+        assertEquals(ExecutionErrorCode.RESOURCE_LIMIT_EXCEEDED,
+                            ((ExecutionException)firstInvoked).getErrorCode());
+
+
+        invokedMethods.clear();
+
+        // test the boundary condition
+
+        byte[] body = new byte[1024];
+        xfr.setBody(QpidByteBuffer.wrap(body));
+        delegate.messageTransfer(session, xfr);
+
+        assertTrue("Methods invoked when not expecting any", invokedMethods.isEmpty());
+    }
+
+    @Test
+    public void testTransfersRoutedWhenReceiveCompletes() throws Exception
+    {
+        final Queue<?> queue = createQueue("queue", Collections.emptyMap());
+        final ServerSession session = createSession(createMockPort(), new ArrayList<>());
+        session.commandPoint(1);
+        final ServerSessionDelegate delegate = new ServerSessionDelegate();
+
+        transfer(session, delegate, "queue");
+        transfer(session, delegate, "queue");
+
+        assertEquals("Messages should not be enqueued before the end of the read", 0, queue.getQueueDepthMessages());
+
+        session.receivedComplete();
+
+        assertEquals("Unexpected queue depth", 2, queue.getQueueDepthMessages());
+    }
+
+    @Test
+    public void testTransferNotCompletedBeforeEnqueued() throws Exception
+    {
+        final Queue<?> queue = createQueue("queue", Collections.emptyMap());
+        final List<Method> invokedMethods = new ArrayList<>();
+        final ServerSession session = createSession(createMockPort(), invokedMethods);
+        session.commandPoint(1);
+        final ServerSessionDelegate delegate = new ServerSessionDelegate();
+
+        delegate.command(session, createTransfer(session, "queue"));
+        session.flushProcessed();
+
+        assertFalse("Transfer should not be completed before it is enqueued",
+                    invokedMethods.stream().anyMatch(method -> method instanceof SessionCompleted));
+
+        session.receivedComplete();
+        session.flushProcessed();
+
+        assertEquals("Unexpected queue depth", 1, queue.getQueueDepthMessages());
+        assertTrue("Transfer should be completed once it is enqueued",
+                   invokedMethods.stream().anyMatch(method -> method instanceof SessionCompleted));
+    }
+
+    @Test
+    public void testSyncTransferCompletedOnceEnqueued() throws Exception
+    {
+        final Queue<?> queue = createQueue("queue", Collections.emptyMap());
+        final List<Integer> queueDepthsOnCompletion = new ArrayList<>();
+        final List<Method> invokedMethods = new ArrayList<Method>()
+        {
+            @Override
+            public boolean add(final Method method)
+            {
+                if (method instanceof SessionCompleted)
+                {
+                    queueDepthsOnCompletion.add(queue.getQueueDepthMessages());
+                }
+                return super.add(method);
+            }
+        };
+        final ServerSession session = createSession(createMockPort(), invokedMethods);
+        session.commandPoint(1);
+        final ServerSessionDelegate delegate = new ServerSessionDelegate();
+
+        final MessageTransfer xfr = createTransfer(session, "queue");
+        xfr.setSync(true);
+        delegate.command(session, xfr);
+
+        assertEquals("Unexpected queue depths on completion", Collections.singletonList(1), queueDepthsOnCompletion);
+    }
+
+    @Test
+    public void testSyncCommandNotAwaitedBehindBackgroundFuture() throws Exception
+    {
+        final List<Method> invokedMethods = new ArrayList<>();
+        final ServerSession session = createSession(createMockPort(), invokedMethods);
+        session.commandPoint(1);
+        doAnswer(invocation ->
+                 {
+                     ((Runnable) invocation.getArguments()[0]).run();
+                     return null;
+                 }).when(session.getAMQPConnection()).doOnIOThreadAsync(any(Runnable.class));
+
+        final QueuePurge purge = new QueuePurge();
+        purge.setQueue("queue");
+        purge.setSync(true);
+        session.identify(purge);
+        final SettableFuture<Void> future = SettableFuture.create();
+        session.recordBackgroundFuture(future, new ServerTransaction.Action()
+        {
+            @Override
+            public void postCommit()
+            {
+                session.processed(purge);
+            }
+
+            @Override
+            public void onRollback()
+            {
+            }
+        });
+
+        session.awaitCommandCompletion();
+        session.flushProcessed();
+
+        assertFalse("Command should not be completed before its future",
+                    invokedMethods.stream().anyMatch(method -> method instanceof SessionCompleted));
+
+        future.set(null);
+        session.flushProcessed();
+
+        assertTrue("Command should be completed once its future is done",
+                   invokedMethods.stream().anyMatch(method -> method instanceof SessionCompleted));
+    }
+
+    @Test
+    public void testPendingTransfersDiscardedOnceSessionCloses() throws Exception
+    {
+        final Map<String, Object> limitedQueueAttributes = new HashMap<>();
+        limitedQueueAttributes.put(Queue.MAXIMUM_QUEUE_DEPTH_MESSAGES, 1);
+        limitedQueueAttributes.put(Queue.OVERFLOW_POLICY, OverflowPolicy.REJECT);
+        final Queue<?> limitedQueue = createQueue("limited", limitedQueueAttributes);
+        final Queue<?> queue = createQueue("queue", Collections.emptyMap());
+
+        final AmqpPort port = createMockPort();
+        when(port.getCloseWhenNoRoute()).thenReturn(true);
+        final List<Method> invokedMethods = new ArrayList<>();
+        final ServerSession session = createSession(port, invokedMethods);
+        session.commandPoint(1);
+        final ServerSessionDelegate delegate = new ServerSessionDelegate();
+
+        transfer(session, delegate, "limited");
+        session.receivedComplete();
+        assertEquals("Unexpected depth of limited queue", 1, limitedQueue.getQueueDepthMessages());
+
+        // the rejection of the first message closes the session, so the second must not be enqueued
+        transfer(session, delegate, "limited");
+        transfer(session, delegate, "queue");
+        session.receivedComplete();
+
+        assertTrue("Session should be closing", session.isClosing());
+        assertTrue("Expected execution exception",
+                   invokedMethods.stream().anyMatch(method -> method instanceof ExecutionException));
+        assertEquals("Unexpected depth of limited queue", 1, limitedQueue.getQueueDepthMessages());
+        assertEquals("Message transferred after the rejected message should not be enqueued",
+                     0, queue.getQueueDepthMessages());
+    }
+
+    private ServerSession createSession(final AmqpPort port, final List<Method> invokedMethods)
     {
         final Broker<?> broker = mock(Broker.class);
         when(broker.getContextValue(eq(Long.class), eq(Broker.CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT))).thenReturn(0l);
 
-        AmqpPort port = createMockPort();
-
         final AMQPConnection_0_10 modelConnection = mock(AMQPConnection_0_10.class);
         when(modelConnection.getCategoryClass()).thenReturn(Connection.class);
         when(modelConnection.getTypeClass()).thenReturn(AMQPConnection_0_10.class);
@@ -116,6 +304,7 @@ public class ServerSessionTest extends UnitTestBase
         when(modelConnection.getContextValue(Long.class, Session.PRODUCER_AUTH_CACHE_TIMEOUT)).thenReturn(Session.PRODUCER_AUTH_CACHE_TIMEOUT_DEFAULT);
         when(modelConnection.getContextValue(Integer.class, Session.PRODUCER_AUTH_CACHE_SIZE)).thenReturn(Session.PRODUCER_AUTH_CACHE_SIZE_DEFAULT);
         when(modelConnection.getContextValue(Long.class, Connection.MAX_UNCOMMITTED_IN_MEMORY_SIZE)).thenReturn(Connection.DEFAULT_MAX_UNCOMMITTED_IN_MEMORY_SIZE);
+        when(modelConnection.getContextValue(Integer.class, Connection.PUBLISH_BATCH_LIMIT)).thenReturn(Connection.DEFAULT_PUBLISH_BATCH_LIMIT);
         when(modelConnection.getChildExecutor()).thenReturn(_taskExecutor);
         when(modelConnection.getModel()).thenReturn(BrokerModel.getInstance());
         when(modelConnection.getPort()).thenReturn(port);
@@ -126,7 +315,6 @@ public class ServerSessionTest extends UnitTestBase
         ServerConnection connection = new ServerConnection(1, broker, port, Transport.TCP, modelConnection);
         connection.setVirtualHost(_virtualHost);
 
-        final List<Method> invokedMethods = new ArrayList<>();
         ServerSession session = new ServerSession(connection, new ServerSessionDelegate(),
                                                   new Binary(getTestName().getBytes()), 0)
         {
@@ -138,30 +326,30 @@ public class ServerSessionTest extends UnitTestBase
         };
         Session_0_10 modelSession = new Session_0_10(modelConnection, 1, session);
         session.setModelObject(modelSession);
-        ServerSessionDelegate delegate = new ServerSessionDelegate();
-
-        MessageTransfer xfr = new MessageTransfer();
-        byte[] body1 = new byte[2048];
-        xfr.setBody(QpidByteBuffer.wrap(body1));
-        delegate.messageTransfer(session, xfr);
-
-        assertFalse("No methods invoked - expecting at least 1", invokedMethods.isEmpty());
-        Method firstInvoked = invokedMethods.get(0);
-        final boolean condition = firstInvoked instanceof ExecutionException;
-        assertTrue("First invoked method not execution error", condition);
-        assertEquals(ExecutionErrorCode.RESOURCE_LIMIT_EXCEEDED,
-                            ((ExecutionException)firstInvoked).getErrorCode());
-
-
-        invokedMethods.clear();
+        return session;
+    }
 
-        // test the boundary condition
+    private Queue<?> createQueue(final String name, final Map<String, Object> attributes)
+    {
+        final Map<String, Object> queueAttributes = new HashMap<>(attributes);
+        queueAttributes.put(Queue.NAME, name);
+        return _virtualHost.createChild(Queue.class, queueAttributes);
+    }
 
-        byte[] body = new byte[1024];
-        xfr.setBody(QpidByteBuffer.wrap(body));
-        delegate.messageTransfer(session, xfr);
+    private void transfer(final ServerSession session, final ServerSessionDelegate delegate, final String routingKey)
+    {
+        delegate.messageTransfer(session, createTransfer(session, routingKey));
+    }
 
-        assertTrue("Methods invoked when not expecting any", invokedMethods.isEmpty());
+    private MessageTransfer createTransfer(final ServerSession session, final String routingKey)
+    {
+        final DeliveryProperties deliveryProperties = new DeliveryProperties();
+        deliveryProperties.setRoutingKey(routingKey);
+        final MessageTransfer xfr = new MessageTransfer();
+        xfr.setHeader(new Header(deliveryProperties, new MessageProperties()));
+        xfr.setBody(QpidByteBuffer.wrap(new byte[10]));
+        session.identify(xfr);
+        return xfr;
     }
 
     public AmqpPort createMockPort()
@@ -44,8 +44,10 @@ import javax.security.auth.Subject;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,11 +74,13 @@ import org.apache.qpid.server.message.MessageInstanceConsumer;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.message.RejectType;
+import org.apache.qpid.server.message.RoutingBatch;
 import org.apache.qpid.server.message.RoutingResult;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.AbstractConfiguredObject;
 import org.apache.qpid.server.model.AlternateBinding;
 import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.Connection;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.ExclusivityPolicy;
 import org.apache.qpid.server.model.LifetimePolicy;
@@ -186,6 +190,8 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
     private long _blockingTimeout;
     private boolean _confirmOnPublish;
     private long _confirmedMessageCounter;
+    private final List<PendingPublish> _pendingPublishes = new ArrayList<>();
+    private final int _publishBatchLimit;
 
     private boolean _wireBlockingState;
 
@@ -207,6 +213,7 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
         _creditManager = new Pre0_10CreditManager(0L, 0L,
                                                   connection.getContextValue(Long.class, AMQPConnection_0_8.HIGH_PREFETCH_LIMIT),
                                                   connection.getContextValue(Long.class, AMQPConnection_0_8.BATCH_LIMIT));
+        _publishBatchLimit = connection.getContextValue(Integer.class, Connection.PUBLISH_BATCH_LIMIT);
         _unacknowledgedMessageMap = new UnacknowledgedMessageMapImpl(DEFAULT_PREFETCH, this);
         _connection = connection;
         _channelId = channelId;
@@ -300,6 +307,7 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
             @Override
             public Void run()
             {
+                routePendingPublishes();
                 sync();
                 return null;
             }
@@ -375,133 +383,44 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
                     final StoredMessage<MessageMetaData> storedMessage = handle.allContentAdded();
 
                     final AMQMessage amqMessage = new AMQMessage(storedMessage, _connection.getReference());
-                    try (MessageReference reference = amqMessage.newReference())
-                    {
-
-                        _currentMessage = null;
-
-
-                        final boolean immediate = messagePublishInfo.isImmediate();
-
-                        final InstanceProperties instanceProperties =
-                                new InstanceProperties()
-                                {
-                                    @Override
-                                    public Object getProperty(final Property prop)
-                                    {
-                                        switch (prop)
-                                        {
-                                            case EXPIRATION:
-                                                return amqMessage.getExpiration();
-                                            case IMMEDIATE:
-                                                return immediate;
-                                            case PERSISTENT:
-                                                return amqMessage.isPersistent();
-                                            case MANDATORY:
-                                                return messagePublishInfo.isMandatory();
-                                            case REDELIVERED:
-                                                return false;
-                                        }
-                                        return null;
-                                    }
-                                };
-
-                        final RoutingResult<AMQMessage> result =
-                                destination.route(amqMessage,
-                                                  amqMessage.getInitialRoutingAddress(),
-                                                  instanceProperties);
+                    final MessageReference<AMQMessage> reference = amqMessage.newReference();
 
-                        int enqueues = result.send(_transaction, immediate ? _immediateAction : null);
-                        if (enqueues == 0)
-                        {
-                            boolean mandatory = amqMessage.isMandatory();
-
-                            boolean closeOnNoRoute = _connection.isCloseWhenNoRoute();
-                            if (LOGGER.isDebugEnabled())
-                            {
-                                LOGGER.debug("Unroutable message exchange='{}', routing key='{}', mandatory={},"
-                                        + " transactionalSession={}, closeOnNoRoute={}, confirmOnPublish={}",
-                                        exchangeName,
-                                        routingKey,
-                                        mandatory,
-                                        isTransactional(),
-                                        closeOnNoRoute,
-                                        _confirmOnPublish);
-                            }
+                    _currentMessage = null;
 
-                            int errorCode = ErrorCodes.NO_ROUTE;
-                            String errorMessage = String.format("No route for message with exchange '%s' and routing key '%s'",
-                                                                exchangeName,
-                                                                routingKey);
-                            if (result.containsReject(RejectType.LIMIT_EXCEEDED))
-                            {
-                                errorCode = ErrorCodes.RESOURCE_ERROR;
-                                errorMessage = errorMessage + ":" + result.getRejectReason();
-                            }
+                    final boolean immediate = messagePublishInfo.isImmediate();
 
-                            if (mandatory
-                                && isTransactional()
-                                && !_confirmOnPublish
-                                && _connection.isCloseWhenNoRoute())
-                            {
-                                _connection.sendConnectionClose(errorCode, errorMessage, _channelId);
-                            }
-                            else
+                    final InstanceProperties instanceProperties =
+                            new InstanceProperties()
                             {
-                                if (mandatory || amqMessage.isImmediate())
-                                {
-                                    if (_confirmOnPublish)
-                                    {
-                                        _connection.writeFrame(new AMQFrame(_channelId,
-                                                                            new BasicNackBody(_confirmedMessageCounter,
-                                                                                              false,
-                                                                                              false)));
-                                    }
-                                    _transaction.addPostTransactionAction(new WriteReturnAction(errorCode,
-                                                                                                errorMessage,
-                                                                                                amqMessage));
-                                }
-                                else
+                                @Override
+                                public Object getProperty(final Property prop)
                                 {
-                                    if (_confirmOnPublish)
+                                    switch (prop)
                                     {
-                                        _connection.writeFrame(new AMQFrame(_channelId,
-                                                                            new BasicAckBody(_confirmedMessageCounter,
-                                                                                             false)));
+                                        case EXPIRATION:
+                                            return amqMessage.getExpiration();
+                                        case IMMEDIATE:
+                                            return immediate;
+                                        case PERSISTENT:
+                                            return amqMessage.isPersistent();
+                                        case MANDATORY:
+                                            return messagePublishInfo.isMandatory();
+                                        case REDELIVERED:
+                                            return false;
                                     }
-                                    message(ExchangeMessages.DISCARDMSG(exchangeName, routingKey));
+                                    return null;
                                 }
-                            }
-                        }
-                        else
-                        {
-                            if (_confirmOnPublish)
-                            {
-                                recordFuture(Futures.immediateFuture(null),
-                                             new ServerTransaction.Action()
-                                             {
-                                                 private final long _deliveryTag = _confirmedMessageCounter;
-
-                                                 @Override
-                                                 public void postCommit()
-                                                 {
-                                                     BasicAckBody body = _connection.getMethodRegistry()
-                                                                                    .createBasicAckBody(
-                                                                                            _deliveryTag, false);
-                                                     _connection.writeFrame(body.generateFrame(_channelId));
-                                                 }
-
-                                                 @Override
-                                                 public void onRollback()
-                                                 {
-                                                     final BasicNackBody body = new BasicNackBody(_deliveryTag,
-                                                                                                  false,
-                                                                                                  false);
-                                                     _connection.writeFrame(new AMQFrame(_channelId, body));
-                                                 }
-                                             });
-                            }
-                        }
+                            };
+
+                    _pendingPublishes.add(new PendingPublish(reference,
+                                                             destination,
+                                                             instanceProperties,
+                                                             exchangeName,
+                                                             routingKey,
+                                                             _confirmedMessageCounter));
+                    if (_pendingPublishes.size() >= _publishBatchLimit)
+                    {
+                        routePendingPublishes();
                     }
                 }
                 finally
@@ -523,6 +442,204 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
 
     }
 
+    /**
+     * Routes and enqueues the messages whose publication has been received but which have not yet been routed.
+     * Consecutive messages published to the same destination are routed as a batch. Messages which have not been
+     * enqueued by the time the channel or connection starts closing are discarded.
+     */
+    void flushPendingPublishes()
+    {
+        if (!_pendingPublishes.isEmpty())
+        {
+            AccessController.doPrivileged(new PrivilegedAction<Void>()
+            {
+                @Override
+                public Void run()
+                {
+                    routePendingPublishes();
+                    return null;
+                }
+            }, getAccessControllerContext());
+        }
+    }
+
+    private void routePendingPublishes()
+    {
+        if (_pendingPublishes.isEmpty())
+        {
+            return;
+        }
+
+        final List<PendingPublish> publishes = new ArrayList<>(_pendingPublishes);
+        _pendingPublishes.clear();
+        try
+        {
+            int start = 0;
+            while (start < publishes.size() && !isClosing())
+            {
+                final MessageDestination destination = publishes.get(start).getDestination();
+                int end = start + 1;
+                while (end < publishes.size() && publishes.get(end).getDestination() == destination)
+                {
+                    end++;
+                }
+                routePublishes(destination, publishes.subList(start, end));
+                start = end;
+            }
+        }
+        catch (AccessControlException e)
+        {
+            _connection.sendConnectionClose(ErrorCodes.ACCESS_REFUSED, e.getMessage(), getChannelId());
+        }
+        finally
+        {
+            for (PendingPublish publish : publishes)
+            {
+                publish.getReference().release();
+            }
+        }
+    }
+
+    private void discardPendingPublishes()
+    {
+        for (PendingPublish publish : _pendingPublishes)
+        {
+            publish.getReference().release();
+        }
+        _pendingPublishes.clear();
+    }
+
+    private void routePublishes(final MessageDestination destination, final List<PendingPublish> publishes)
+    {
+        if (publishes.size() == 1)
+        {
+            final PendingPublish publish = publishes.get(0);
+            final AMQMessage amqMessage = publish.getMessage();
+            final RoutingResult<AMQMessage> result =
+                    destination.route(amqMessage, amqMessage.getInitialRoutingAddress(), publish.getInstanceProperties());
+            final int enqueues = result.send(_transaction, amqMessage.isImmediate() ? _immediateAction : null);
+            processRoutingResult(publish, result, enqueues);
+        }
+        else
+        {
+            final RoutingBatch<AMQMessage> batch = new RoutingBatch<>();
+            for (PendingPublish publish : publishes)
+            {
+                final AMQMessage amqMessage = publish.getMessage();
+                batch.add(amqMessage, amqMessage.getInitialRoutingAddress(), publish.getInstanceProperties());
+            }
+
+            destination.route(batch);
+
+            batch.send(_transaction,
+                       i -> batch.getMessage(i).isImmediate() ? _immediateAction : null,
+                       (i, enqueues) ->
+                       {
+                           processRoutingResult(publishes.get(i), batch.getResult(i), enqueues);
+                           // the remaining messages are discarded once the channel or connection starts closing
+                           return !isClosing();
+                       });
+        }
+    }
+
+    private void processRoutingResult(final PendingPublish publish,
+                                      final RoutingResult<AMQMessage> result,
+                                      final int enqueues)
+    {
+        final AMQMessage amqMessage = publish.getMessage();
+        final String exchangeName = publish.getExchangeName();
+        final String routingKey = publish.getRoutingKey();
+        final long deliveryTag = publish.getDeliveryTag();
+        if (enqueues == 0)
+        {
+            boolean mandatory = amqMessage.isMandatory();
+
+            boolean closeOnNoRoute = _connection.isCloseWhenNoRoute();
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Unroutable message exchange='{}', routing key='{}', mandatory={},"
+                        + " transactionalSession={}, closeOnNoRoute={}, confirmOnPublish={}",
+                        exchangeName,
+                        routingKey,
+                        mandatory,
+                        isTransactional(),
+                        closeOnNoRoute,
+                        _confirmOnPublish);
+            }
+
+            int errorCode = ErrorCodes.NO_ROUTE;
+            String errorMessage = String.format("No route for message with exchange '%s' and routing key '%s'",
+                                                exchangeName,
+                                                routingKey);
+            if (result.containsReject(RejectType.LIMIT_EXCEEDED))
+            {
+                errorCode = ErrorCodes.RESOURCE_ERROR;
+                errorMessage = errorMessage + ":" + result.getRejectReason();
+            }
+
+            if (mandatory
+                && isTransactional()
+                && !_confirmOnPublish
+                && _connection.isCloseWhenNoRoute())
+            {
+                _connection.sendConnectionClose(errorCode, errorMessage, _channelId);
+            }
+            else
+            {
+                if (mandatory || amqMessage.isImmediate())
+                {
+                    if (_confirmOnPublish)
+                    {
+                        _connection.writeFrame(new AMQFrame(_channelId,
+                                                            new BasicNackBody(deliveryTag,
+                                                                              false,
+                                                                              false)));
+                    }
+                    _transaction.addPostTransactionAction(new WriteReturnAction(errorCode,
+                                                                                errorMessage,
+                                                                                amqMessage));
+                }
+                else
+                {
+                    if (_confirmOnPublish)
+                    {
+                        _connection.writeFrame(new AMQFrame(_channelId,
+                                                            new BasicAckBody(deliveryTag,
+                                                                             false)));
+                    }
+                    message(ExchangeMessages.DISCARDMSG(exchangeName, routingKey));
+                }
+            }
+        }
+        else
+        {
+            if (_confirmOnPublish)
+            {
+                recordFuture(Futures.immediateFuture(null),
+                             new ServerTransaction.Action()
+                             {
+                                 @Override
+                                 public void postCommit()
+                                 {
+                                     BasicAckBody body = _connection.getMethodRegistry()
+                                                                    .createBasicAckBody(
+                                                                            deliveryTag, false);
+                                     _connection.writeFrame(body.generateFrame(_channelId));
+                                 }
+
+                                 @Override
+                                 public void onRollback()
+                                 {
+                                     final BasicNackBody body = new BasicNackBody(deliveryTag,
+                                                                                  false,
+                                                                                  false);
+                                     _connection.writeFrame(new AMQFrame(_channelId, body));
+                                 }
+                             });
+            }
+        }
+    }
+
     private void publishContentBody(ContentBody contentBody)
     {
         if (LOGGER.isDebugEnabled())
@@ -1405,6 +1522,66 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
         }
     }
 
+    private static final class PendingPublish
+    {
+        private final MessageReference<AMQMessage> _reference;
+        private final MessageDestination _destination;
+        private final InstanceProperties _instanceProperties;
+        private final String _exchangeName;
+        private final String _routingKey;
+        private final long _deliveryTag;
+
+        private PendingPublish(final MessageReference<AMQMessage> reference,
+                               final MessageDestination destination,
+                               final InstanceProperties instanceProperties,
+                               final String exchangeName,
+                               final String routingKey,
+                               final long deliveryTag)
+        {
+            _reference = reference;
+            _destination = destination;
+            _instanceProperties = instanceProperties;
+            _exchangeName = exchangeName;
+            _routingKey = routingKey;
+            _deliveryTag = deliveryTag;
+        }
+
+        MessageReference<AMQMessage> getReference()
+        {
+            return _reference;
+        }
+
+        AMQMessage getMessage()
+        {
+            return _reference.getMessage();
+        }
+
+        MessageDestination getDestination()
+        {
+            return _destination;
+        }
+
+        InstanceProperties getInstanceProperties()
+        {
+            return _instanceProperties;
+        }
+
+        String getExchangeName()
+        {
+            return _exchangeName;
+        }
+
+        String getRoutingKey()
+        {
+            return _routingKey;
+        }
+
+        long getDeliveryTag()
+        {
+            return _deliveryTag;
+        }
+    }
+
     private class WriteReturnAction implements ServerTransaction.Action
     {
         private final int _errorCode;
@@ -3207,14 +3384,26 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
         {
             try
             {
-                long purged = queue.clearQueue();
+                final ListenableFuture<Long> purge = queue.clearQueueAsync();
                 if (!nowait)
                 {
-                    sync();
-                    MethodRegistry methodRegistry = _connection.getMethodRegistry();
-                    AMQMethodBody responseBody = methodRegistry.createQueuePurgeOkBody(purged);
-                    _connection.writeFrame(responseBody.generateFrame(getChannelId()));
+                    final String name = queue.getName();
+                    Futures.addCallback(purge, new FutureCallback<Long>()
+                    {
+                        @Override
+                        public void onSuccess(final Long purged)
+                        {
+                            _connection.doOnIOThreadAsync(() -> queuePurged(purged));
+                        }
 
+                        @Override
+                        public void onFailure(final Throwable t)
+                        {
+                            LOGGER.error("Failed to purge queue '{}'", name, t);
+                            _connection.doOnIOThreadAsync(() -> closeChannel(ErrorCodes.INTERNAL_ERROR,
+                                                                             "Failed to purge queue '" + name + "'"));
+                        }
+                    }, MoreExecutors.directExecutor());
                 }
             }
             catch (AccessControlException e)
@@ -3226,6 +3415,17 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
         }
     }
 
+    private void queuePurged(final long purged)
+    {
+        if (!isClosing())
+        {
+            sync();
+            MethodRegistry methodRegistry = _connection.getMethodRegistry();
+            AMQMethodBody responseBody = methodRegistry.createQueuePurgeOkBody(purged);
+            _connection.writeFrame(responseBody.generateFrame(getChannelId()));
+        }
+    }
+
     @Override
     public void receiveQueueUnbind(final AMQShortString queueName,
                                    final AMQShortString exchange,
@@ -3502,6 +3702,7 @@ public class AMQChannel extends AbstractAMQPSession<AMQChannel, ConsumerTarget_0
     public void dispose()
     {
         _txCommitOkFrame.dispose();
+        discardPendingPublishes();
         final IncomingMessage currentMessage = _currentMessage;
         if (currentMessage != null)
         {
@@ -100,6 +100,8 @@ public class AMQPConnection_0_8Impl
 
     private static final String BROKER_DEBUG_BINARY_DATA_LENGTH = "broker.debug.binaryDataLength";
     private static final int DEFAULT_DEBUG_BINARY_DATA_LENGTH = 80;
+    private static final int BASIC_CLASS_ID = 60;
+    private static final int BASIC_PUBLISH_METHOD_ID = 40;
 
     private final AtomicBoolean _stateChanged = new AtomicBoolean();
     private final AtomicReference<Action<ProtocolEngine>> _workListener = new AtomicReference<>();
@@ -1342,6 +1344,14 @@ public class AMQPConnection_0_8Impl
     @Override
     public void setCurrentMethod(final int classId, final int methodId)
     {
+        if (classId != 0 && !(classId == BASIC_CLASS_ID && methodId == BASIC_PUBLISH_METHOD_ID))
+        {
+            // messages published earlier must be routed before any other method is processed
+            for (AMQChannel channel : _channelsForCurrentMessage)
+            {
+                channel.flushPendingPublishes();
+            }
+        }
         _currentClassId = classId;
         _currentMethodId = methodId;
     }
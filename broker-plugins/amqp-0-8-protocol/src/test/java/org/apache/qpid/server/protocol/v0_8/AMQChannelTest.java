@@ -20,13 +20,17 @@
  */
 package org.apache.qpid.server.protocol.v0_8;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -35,9 +39,11 @@ import java.security.AccessControlException;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.security.auth.Subject;
 
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -48,19 +54,25 @@ import org.apache.qpid.server.configuration.updater.TaskExecutor;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDestination;
+import org.apache.qpid.server.message.RoutingBatch;
 import org.apache.qpid.server.message.RoutingResult;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.BrokerModel;
 import org.apache.qpid.server.model.Connection;
 import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.Session;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.model.port.AmqpPort;
 import org.apache.qpid.server.protocol.ErrorCodes;
 import org.apache.qpid.server.protocol.ProtocolVersion;
+import org.apache.qpid.server.protocol.v0_8.transport.AMQBody;
+import org.apache.qpid.server.protocol.v0_8.transport.AMQDataBlock;
+import org.apache.qpid.server.protocol.v0_8.transport.AMQFrame;
 import org.apache.qpid.server.protocol.v0_8.transport.BasicContentHeaderProperties;
 import org.apache.qpid.server.protocol.v0_8.transport.MethodRegistry;
+import org.apache.qpid.server.protocol.v0_8.transport.QueuePurgeOkBody;
 import org.apache.qpid.server.security.auth.AuthenticatedPrincipal;
 import org.apache.qpid.server.security.auth.UsernamePrincipal;
 import org.apache.qpid.server.store.MessageHandle;
@@ -68,6 +80,7 @@ import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.NullMessageStore;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMemoryMessage;
+import org.apache.qpid.server.txn.LocalTransaction;
 import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
 import org.apache.qpid.test.utils.UnitTestBase;
 
@@ -130,6 +143,7 @@ public class AMQChannelTest extends UnitTestBase
 
         when(_amqConnection.getContextValue(Long.class, AMQPConnection_0_8.BATCH_LIMIT)).thenReturn(AMQPConnection_0_8.DEFAULT_BATCH_LIMIT);
         when(_amqConnection.getContextValue(Long.class, AMQPConnection_0_8.HIGH_PREFETCH_LIMIT)).thenReturn(AMQPConnection_0_8.DEFAULT_BATCH_LIMIT);
+        when(_amqConnection.getContextValue(Integer.class, Connection.PUBLISH_BATCH_LIMIT)).thenReturn(Connection.DEFAULT_PUBLISH_BATCH_LIMIT);
 
         when(_amqConnection.getEventLogger()).thenReturn(mock(EventLogger.class));
         _messageDestination = mock(MessageDestination.class);
@@ -165,6 +179,34 @@ public class AMQChannelTest extends UnitTestBase
         verify(exchange).delete();
     }
 
+    @Test
+    public void testQueuePurgeOkSentOncePurgeCompletes() throws Exception
+    {
+        final Queue<?> queue = mock(Queue.class);
+        final SettableFuture<Long> purge = SettableFuture.create();
+        when(queue.verifySessionAccess(any(AMQChannel.class))).thenReturn(true);
+        when(queue.clearQueueAsync()).thenReturn(purge);
+        doReturn(queue).when(_virtualHost).getAttainedMessageSource(getTestName());
+        doAnswer(invocation ->
+                 {
+                     ((Runnable) invocation.getArguments()[0]).run();
+                     return null;
+                 }).when(_amqConnection).doOnIOThreadAsync(any(Runnable.class));
+
+        AMQChannel channel = new AMQChannel(_amqConnection, 1, _messageStore);
+        channel.receiveQueuePurge(AMQShortString.valueOf(getTestName()), false);
+
+        verify(queue, never()).clearQueue();
+        verify(_amqConnection, never()).writeFrame(any(AMQDataBlock.class));
+
+        purge.set(3L);
+
+        final ArgumentCaptor<AMQDataBlock> frameCaptor = ArgumentCaptor.forClass(AMQDataBlock.class);
+        verify(_amqConnection).writeFrame(frameCaptor.capture());
+        final AMQBody body = ((AMQFrame) frameCaptor.getValue()).getBodyFrame();
+        assertEquals("Unexpected message count", 3L, ((QueuePurgeOkBody) body).getMessageCount());
+    }
+
     @Test
     public void testOversizedMessageClosesChannel() throws Exception
     {
@@ -242,9 +284,117 @@ public class AMQChannelTest extends UnitTestBase
         properties.setUserId(_amqConnection.getAuthorizedPrincipal().getName());
         channel.receiveBasicPublish(AMQShortString.EMPTY_STRING, ROUTING_KEY, false, false);
         channel.receiveMessageHeader(properties, 0);
+        channel.flushPendingPublishes();
 
         verify(_messageDestination).route((ServerMessage) any(),
                                          eq(ROUTING_KEY.toString()),
                                          any(InstanceProperties.class));
     }
+
+    @Test
+    public void testPublishesRoutedAsBatchWhenFlushed() throws Exception
+    {
+        when(_virtualHost.getDefaultDestination()).thenReturn(_messageDestination);
+        when(_virtualHost.getMessageStore()).thenReturn(new NullMessageStore()
+        {
+            @Override
+            public <T extends StorableMessageMetaData> MessageHandle<T> addMessage(final T metaData)
+            {
+                MessageHandle messageHandle = new StoredMemoryMessage(1, metaData);
+                return messageHandle;
+            }
+        });
+        final ArgumentCaptor<RoutingBatch> batchCaptor = ArgumentCaptor.forClass(RoutingBatch.class);
+        doAnswer(new Answer()
+        {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable
+            {
+                RoutingBatch<?> batch = batchCaptor.getValue();
+                for (int i = 0; i < batch.size(); i++)
+                {
+                    batch.setResult(i, new RoutingResult(batch.getMessage(i)));
+                }
+                return null;
+            }
+        }).when(_messageDestination).route(batchCaptor.capture());
+        AMQChannel channel = new AMQChannel(_amqConnection, 1, _virtualHost.getMessageStore());
+
+        BasicContentHeaderProperties properties = new BasicContentHeaderProperties();
+        properties.setUserId(_amqConnection.getAuthorizedPrincipal().getName());
+        for (int i = 0; i < 2; i++)
+        {
+            channel.receiveBasicPublish(AMQShortString.EMPTY_STRING, ROUTING_KEY, false, false);
+            channel.receiveMessageHeader(properties, 0);
+        }
+
+        verify(_messageDestination, never()).route(any(RoutingBatch.class));
+
+        channel.flushPendingPublishes();
+
+        verify(_messageDestination).route(any(RoutingBatch.class));
+        verify(_messageDestination, never()).route((ServerMessage) any(),
+                                                   anyString(),
+                                                   any(InstanceProperties.class));
+        assertEquals("Unexpected batch size", 2, batchCaptor.getValue().size());
+    }
+
+    @Test
+    public void testPendingPublishesDiscardedOnceConnectionCloses() throws Exception
+    {
+        when(_virtualHost.getDefaultDestination()).thenReturn(_messageDestination);
+        when(_virtualHost.getMessageStore()).thenReturn(new NullMessageStore()
+        {
+            @Override
+            public <T extends StorableMessageMetaData> MessageHandle<T> addMessage(final T metaData)
+            {
+                MessageHandle messageHandle = new StoredMemoryMessage(1, metaData);
+                return messageHandle;
+            }
+        });
+        final LocalTransaction transaction = mock(LocalTransaction.class);
+        when(transaction.isTransactional()).thenReturn(true);
+        when(_amqConnection.createLocalTransaction()).thenReturn(transaction);
+        when(_amqConnection.getContextValue(Long.class, Session.TRANSACTION_TIMEOUT_NOTIFICATION_REPEAT_PERIOD))
+                .thenReturn(Session.TRANSACTION_TIMEOUT_NOTIFICATION_REPEAT_PERIOD_DEFAULT);
+        when(_amqConnection.isCloseWhenNoRoute()).thenReturn(true);
+        final AtomicBoolean closing = new AtomicBoolean();
+        when(_amqConnection.isClosing()).thenAnswer(invocation -> closing.get());
+        doAnswer(invocation ->
+                 {
+                     closing.set(true);
+                     return null;
+                 }).when(_amqConnection).sendConnectionClose(anyInt(), anyString(), anyInt());
+
+        final ArgumentCaptor<RoutingBatch> batchCaptor = ArgumentCaptor.forClass(RoutingBatch.class);
+        doAnswer(new Answer()
+        {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable
+            {
+                RoutingBatch<?> batch = batchCaptor.getValue();
+                for (int i = 0; i < batch.size(); i++)
+                {
+                    batch.setResult(i, new RoutingResult(batch.getMessage(i)));
+                }
+                return null;
+            }
+        }).when(_messageDestination).route(batchCaptor.capture());
+        AMQChannel channel = new AMQChannel(_amqConnection, 1, _virtualHost.getMessageStore());
+        channel.receiveTxSelect();
+
+        BasicContentHeaderProperties properties = new BasicContentHeaderProperties();
+        properties.setUserId(_amqConnection.getAuthorizedPrincipal().getName());
+        for (int i = 0; i < 3; i++)
+        {
+            channel.receiveBasicPublish(AMQShortString.EMPTY_STRING, ROUTING_KEY, true, false);
+            channel.receiveMessageHeader(properties, 0);
+        }
+
+        channel.flushPendingPublishes();
+
+        assertEquals("Unexpected batch size", 3, batchCaptor.getValue().size());
+        // the first unroutable mandatory message closes the connection and the remaining ones are discarded
+        verify(_amqConnection, times(1)).sendConnectionClose(eq(ErrorCodes.NO_ROUTE), anyString(), eq(1));
+    }
 }
@@ -269,6 +269,8 @@ public class StandardReceivingLinkEndpoint extends AbstractReceivingLinkEndpoint
                     {
                         try
                         {
+                            // routed on receipt rather than in a routing batch, as the outcome of the delivery
+                            // depends on whether the message can be routed
                             getReceivingDestination().send(serverMessage,
                                                            transaction,
                                                            session.getSecurityToken());
@@ -30,8 +30,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -57,6 +60,7 @@ import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageMetaDataTypeRegistry;
+import org.apache.qpid.server.store.MessageContentCache;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoreException;
@@ -81,6 +85,8 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     private static final int DB_VERSION = 8;
 
+    private static final int MAXIMUM_DEQUEUES_PER_STATEMENT = 256;
+
     private final AtomicLong _messageId = new AtomicLong(0);
 
 
@@ -89,6 +95,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private String _tablePrefix = "";
     private final AtomicLong _inMemorySize = new AtomicLong();
     private final AtomicLong _bytesEvacuatedFromMemory = new AtomicLong();
+    private volatile MessageContentCache _contentCache = new MessageContentCache(0L);
     private final Set<StoredJDBCMessage<?>> _messages = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<MessageDeleteListener> _messageDeleteListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<Action<Connection>> _deleteActions = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -207,6 +214,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     protected void initMessageStore(final ConfiguredObject<?> parent)
     {
         _parent = parent;
+        _contentCache = MessageContentCache.newInstance(parent);
         _executor = new ScheduledThreadPoolExecutor(4, new ThreadFactory()
         {
             private final AtomicInteger _count = new AtomicInteger();
@@ -230,6 +238,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             message.clear();
         }
         _messages.clear();
+        _contentCache.clear();
         _inMemorySize.set(0);
         _bytesEvacuatedFromMemory.set(0);
         if(_executor != null)
@@ -593,6 +602,50 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
+    private void dequeueMessages(ConnectionWrapper connWrapper, final UUID queueId,
+                                 final List<Long> messageIds) throws StoreException
+    {
+        Connection conn = connWrapper.getConnection();
+
+        for (int start = 0; start < messageIds.size(); start += MAXIMUM_DEQUEUES_PER_STATEMENT)
+        {
+            final List<Long> ids =
+                    messageIds.subList(start, Math.min(messageIds.size(), start + MAXIMUM_DEQUEUES_PER_STATEMENT));
+            final StringBuilder sql = new StringBuilder("DELETE FROM ").append(getQueueEntryTableName())
+                                                                       .append(" WHERE queue_id = ? AND message_id IN (?");
+            for (int i = 1; i < ids.size(); i++)
+            {
+                sql.append(",?");
+            }
+            sql.append(")");
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString()))
+            {
+                stmt.setString(1, queueId.toString());
+                for (int i = 0; i < ids.size(); i++)
+                {
+                    stmt.setLong(i + 2, ids.get(i));
+                }
+                int results = stmt.executeUpdate();
+
+                if (results != ids.size())
+                {
+                    throw new StoreException("Unable to find all of the " + ids.size() + " messages with ids "
+                                             + ids.get(0) + " to " + ids.get(ids.size() - 1)
+                                             + " on queue with id " + queueId + ", found " + results);
+                }
+
+                getLogger().debug("Dequeued {} messages on queue with id {}", ids.size(), queueId);
+            }
+            catch (SQLException e)
+            {
+                getLogger().error("Failed to dequeue {} messages on queue with id {}", ids.size(), queueId, e);
+                throw new StoreException("Error deleting " + ids.size() + " enqueued messages for queue with id "
+                                         + queueId + " from database", e);
+            }
+        }
+    }
+
     private void removeXid(ConnectionWrapper connWrapper, long format, byte[] globalId, byte[] branchId)
             throws StoreException
     {
@@ -1055,6 +1108,24 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return _bytesEvacuatedFromMemory.get();
     }
 
+    @Override
+    public long getContentCacheHits()
+    {
+        return _contentCache.getHits();
+    }
+
+    @Override
+    public long getContentCacheMisses()
+    {
+        return _contentCache.getMisses();
+    }
+
+    @Override
+    public long getContentCacheSize()
+    {
+        return _contentCache.getSize();
+    }
+
     protected class JDBCTransaction implements Transaction
     {
         private final ConnectionWrapper _connWrapper;
@@ -1114,6 +1185,23 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                                                          enqueueRecord.getMessageNumber());
         }
 
+        @Override
+        public void dequeueMessages(final Collection<MessageEnqueueRecord> enqueueRecords)
+        {
+            checkMessageStoreOpen();
+
+            final Map<UUID, List<Long>> messageIdsByQueue = new LinkedHashMap<>();
+            for (MessageEnqueueRecord enqueueRecord : enqueueRecords)
+            {
+                messageIdsByQueue.computeIfAbsent(enqueueRecord.getQueueId(), queueId -> new ArrayList<>())
+                                 .add(enqueueRecord.getMessageNumber());
+            }
+            for (Map.Entry<UUID, List<Long>> entry : messageIdsByQueue.entrySet())
+            {
+                AbstractJDBCMessageStore.this.dequeueMessages(_connWrapper, entry.getKey(), entry.getValue());
+            }
+        }
+
         @Override
         public void commitTran()
         {
@@ -1428,7 +1516,12 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractJDBCMessageStore.this.getAllContent(_messageId);
+                    data = _contentCache.get(_messageId);
+                    if (data == null)
+                    {
+                        data = AbstractJDBCMessageStore.this.getAllContent(_messageId);
+                        _contentCache.put(_messageId, data);
+                    }
                     _messageDataRef.setData(data);
                     _inMemorySize.addAndGet(getContentSize());
                 }
@@ -1510,6 +1603,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             _messages.remove(this);
             if(stored())
             {
+                _contentCache.remove(_messageId);
                 AbstractJDBCMessageStore.this.removeMessage(_messageId);
                 storedSizeChange(-getContentSize());
             }
@@ -25,12 +25,15 @@ import static org.apache.qpid.server.store.jdbc.TestJdbcUtils.getTableNames;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +51,7 @@ import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.Transaction;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.virtualhost.jdbc.JDBCVirtualHost;
@@ -157,6 +161,48 @@ public class JDBCMessageStoreTest extends MessageStoreTestCase
         future.get(1000, TimeUnit.MILLISECONDS);
     }
 
+    @Test
+    public void testDequeueMessages() throws Exception
+    {
+        final String queueName = getTestName();
+        final UUID transactionalLogId = UUID.randomUUID();
+
+        final MessageStore store = getStore();
+        final TransactionLogResource transactionalLog = mockTransactionLogResource(transactionalLogId, queueName);
+
+        final List<MessageEnqueueRecord> records = new ArrayList<>();
+        final Transaction enqueueTransaction = store.newTransaction();
+        for (int i = 0; i < 3; i++)
+        {
+            final InternalMessage message = addTestMessage(store, queueName, "test" + i);
+            records.add(enqueueTransaction.enqueueMessage(transactionalLog, message));
+        }
+        enqueueTransaction.commitTran();
+
+        final Transaction dequeueTransaction = store.newTransaction();
+        dequeueTransaction.dequeueMessages(records.subList(0, 2));
+        dequeueTransaction.commitTran();
+
+        final Transaction repeatedDequeueTransaction = store.newTransaction();
+        try
+        {
+            repeatedDequeueTransaction.dequeueMessages(records);
+            fail("Exception not thrown");
+        }
+        catch (StoreException e)
+        {
+            // pass
+        }
+        finally
+        {
+            repeatedDequeueTransaction.abortTran();
+        }
+
+        final Transaction remainingDequeueTransaction = store.newTransaction();
+        remainingDequeueTransaction.dequeueMessages(records.subList(2, 3));
+        remainingDequeueTransaction.commitTran();
+    }
+
     @Test
     public void testDeleteAction()
     {